@@ -0,0 +1,71 @@
+package com.vaultweb.passwordmanager.backend.config;
+
+import com.vaultweb.passwordmanager.backend.support.RecentWriteTracker;
+import com.zaxxer.hikari.HikariDataSource;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Sends read-only transactions to a Postgres read replica. Active only when {@code
+ * vault.datasource.replica.url} is set; otherwise Spring Boot's single DataSource is used.
+ *
+ * <p>The application DataSource is a {@link LazyConnectionDataSourceProxy} around a {@link
+ * ReplicaRoutingDataSource}: the real connection is fetched at the first statement, once the
+ * transaction is known to be read-only, and comes from the replica pool for read-only transactions
+ * only. Everything else (writes, Flyway, statements outside a transaction) uses the primary.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("vault.datasource.replica.url")
+public class ReadReplicaConfig {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  @Bean
+  @ConfigurationProperties("vault.datasource.replica.hikari")
+  public HikariDataSource replicaDataSource(
+      DataSourceProperties primary,
+      @Value("${vault.datasource.replica.url}") String url,
+      @Value("${vault.datasource.replica.username:}") String username,
+      @Value("${vault.datasource.replica.password:}") String password) {
+    HikariDataSource replica = new HikariDataSource();
+    replica.setPoolName("replica");
+    replica.setJdbcUrl(url);
+    replica.setUsername(username.isEmpty() ? primary.determineUsername() : username);
+    replica.setPassword(password.isEmpty() ? primary.determinePassword() : password);
+    replica.setReadOnly(true);
+    // Start even if the replica is down; the lag monitor keeps reads on the primary meanwhile
+    replica.setInitializationFailTimeout(-1);
+    return replica;
+  }
+
+  @Bean
+  public ReplicaLagMonitor replicaLagMonitor(
+      @Qualifier("replicaDataSource") DataSource replica,
+      @Value("${vault.datasource.replica.maxLag:PT2S}") Duration maxLag) {
+    return new ReplicaLagMonitor(replica, maxLag);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(
+      @Qualifier("primaryDataSource") DataSource primary,
+      @Qualifier("replicaDataSource") DataSource replica,
+      ReplicaLagMonitor lagMonitor,
+      RecentWriteTracker recentWrites) {
+    return new LazyConnectionDataSourceProxy(
+        new ReplicaRoutingDataSource(primary, replica, lagMonitor, recentWrites));
+  }
+}
@@ -0,0 +1,80 @@
+package com.vaultweb.passwordmanager.backend.config;
+
+import java.time.Duration;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Periodically measures how far the read replica is behind the primary. Reads are only sent to the
+ * replica while the last check succeeded and the measured lag is within {@code maxLag}; otherwise
+ * they fall back to the primary until a later check succeeds.
+ *
+ * <p>A replica that has replayed everything it received reports no lag, even if the primary has
+ * been idle for a while. A server that is not in recovery (e.g. a second standalone instance used
+ * for local testing) also reports no lag.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+  static final String LAG_QUERY =
+      "select case when not pg_is_in_recovery() then 0 "
+          + "when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0 "
+          + "else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()), 0) end";
+
+  private final JdbcTemplate replica;
+  private final Duration maxLag;
+  private volatile boolean usable;
+  private volatile boolean checked;
+  private volatile Duration lastLag = Duration.ZERO;
+
+  public ReplicaLagMonitor(DataSource replica, Duration maxLag) {
+    this.replica = new JdbcTemplate(replica);
+    this.replica.setQueryTimeout((int) Math.max(1, maxLag.toSeconds()));
+    this.maxLag = maxLag;
+  }
+
+  /** Whether reads may currently be sent to the replica. */
+  public boolean isUsable() {
+    return usable;
+  }
+
+  /** Lag measured by the last successful check. */
+  public Duration lastLag() {
+    return lastLag;
+  }
+
+  /** Marks the replica unusable until the next successful check, e.g. after a failed connect. */
+  public void markUnusable(String reason) {
+    if (usable || !checked) {
+      log.warn("Read replica unavailable, reading from primary: {}", reason);
+    }
+    usable = false;
+    checked = true;
+  }
+
+  @Scheduled(fixedDelayString = "${vault.datasource.replica.lagCheckDelayMs:1000}")
+  public void check() {
+    Double seconds;
+    try {
+      seconds = replica.queryForObject(LAG_QUERY, Double.class);
+    } catch (DataAccessException e) {
+      markUnusable(e.getMessage());
+      return;
+    }
+
+    lastLag = Duration.ofMillis(Math.round((seconds != null ? seconds : 0) * 1000));
+    boolean withinLimit = lastLag.compareTo(maxLag) <= 0;
+    if (withinLimit != usable || !checked) {
+      if (withinLimit) {
+        log.info("Read replica usable (lag {})", lastLag);
+      } else {
+        log.warn("Read replica lag {} exceeds {}, reading from primary", lastLag, maxLag);
+      }
+    }
+    usable = withinLimit;
+    checked = true;
+  }
+}
@@ -0,0 +1,57 @@
+package com.vaultweb.passwordmanager.backend.config;
+
+import com.vaultweb.passwordmanager.backend.support.RecentWriteTracker;
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hands out replica connections to read-only transactions while the replica is usable and the
+ * current user has not just written, and primary connections to everything else. A replica that
+ * refuses a connection is marked unusable and the request is served from the primary.
+ *
+ * <p>Must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * the transaction manager opens its connection before the transaction is flagged read-only, so the
+ * choice can only be made when the first statement runs.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+  private final DataSource primary;
+  private final DataSource replica;
+  private final ReplicaLagMonitor lagMonitor;
+  private final RecentWriteTracker recentWrites;
+
+  public ReplicaRoutingDataSource(
+      DataSource primary,
+      DataSource replica,
+      ReplicaLagMonitor lagMonitor,
+      RecentWriteTracker recentWrites) {
+    this.primary = primary;
+    this.replica = replica;
+    this.lagMonitor = lagMonitor;
+    this.recentWrites = recentWrites;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+        || !lagMonitor.isUsable()
+        || recentWrites.currentUserWroteRecently()) {
+      return primary.getConnection();
+    }
+    try {
+      return replica.getConnection();
+    } catch (SQLException e) {
+      lagMonitor.markUnusable(e.getMessage());
+      return primary.getConnection();
+    }
+  }
+
+  /** Connections for explicit credentials are never routed: they come from the primary. */
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return primary.getConnection(username, password);
+  }
+}
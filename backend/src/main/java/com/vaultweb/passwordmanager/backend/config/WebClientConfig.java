@@ -1,5 +1,6 @@
 package com.vaultweb.passwordmanager.backend.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -8,7 +9,8 @@ import org.springframework.web.reactive.function.client.WebClient;
 public class WebClientConfig {
 
   @Bean
-  public WebClient pwnedWebClient() {
-    return WebClient.builder().baseUrl("https://api.pwnedpasswords.com/range/").build();
+  public WebClient pwnedWebClient(
+      @Value("${vault.breach.baseUrl:https://api.pwnedpasswords.com/range/}") String baseUrl) {
+    return WebClient.builder().baseUrl(baseUrl).build();
   }
 }
@@ -0,0 +1,110 @@
+package com.vaultweb.passwordmanager.backend.controllers;
+
+import com.vaultweb.passwordmanager.backend.model.dtos.AttachmentDto;
+import com.vaultweb.passwordmanager.backend.security.AuthenticatedUser;
+import com.vaultweb.passwordmanager.backend.services.AttachmentService;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Files attached to password entries. Uploading, listing and downloading require an active vault
+ * session ({@code X-Vault-Token}); see {@link AttachmentService}.
+ */
+@RestController
+@RequestMapping("/api/passwords/{entryId}/attachments")
+@RequiredArgsConstructor
+public class AttachmentController {
+
+  private final AttachmentService attachmentService;
+
+  /**
+   * Attaches a file to an entry. The request body is the raw file content, streamed into the store
+   * as it arrives; its {@code Content-Type} is kept as the attachment's type. Form-encoded bodies
+   * are refused, since the servlet container would parse them as parameters.
+   *
+   * @param name the file name
+   * @return the stored attachment
+   */
+  @PostMapping(consumes = "!" + MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+  public ResponseEntity<AttachmentDto> upload(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+      @PathVariable Long entryId,
+      @RequestParam String name,
+      InputStream body) {
+    return ResponseEntity.status(HttpStatus.CREATED)
+        .body(
+            attachmentService.upload(user.userId(), entryId, name, contentType, body, vaultToken));
+  }
+
+  /** Lists the attachments of an entry. */
+  @GetMapping
+  public ResponseEntity<List<AttachmentDto>> list(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      @PathVariable Long entryId) {
+    return ResponseEntity.ok(attachmentService.list(user.userId(), entryId, vaultToken));
+  }
+
+  /**
+   * Downloads an attachment. The content is decrypted as it is written, so the response starts
+   * immediately; should the stored file turn out to be damaged, the response ends short of its
+   * {@code Content-Length}.
+   */
+  @GetMapping("/{id}")
+  public ResponseEntity<StreamingResponseBody> download(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      @PathVariable Long entryId,
+      @PathVariable Long id) {
+    AttachmentService.Download download =
+        attachmentService.download(user.userId(), entryId, id, vaultToken);
+    StreamingResponseBody body = out -> download.content().writeTo(out);
+    return ResponseEntity.ok()
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment()
+                .filename(download.name(), StandardCharsets.UTF_8)
+                .build()
+                .toString())
+        .contentType(contentType(download.contentType()))
+        .contentLength(download.size())
+        .body(body);
+  }
+
+  /** Deletes an attachment; works while the vault is locked. */
+  @DeleteMapping("/{id}")
+  public ResponseEntity<Void> delete(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @PathVariable Long entryId,
+      @PathVariable Long id) {
+    attachmentService.delete(user.userId(), entryId, id);
+    return ResponseEntity.noContent().build();
+  }
+
+  private static MediaType contentType(String value) {
+    try {
+      return MediaType.parseMediaType(value);
+    } catch (IllegalArgumentException e) {
+      return MediaType.APPLICATION_OCTET_STREAM;
+    }
+  }
+}
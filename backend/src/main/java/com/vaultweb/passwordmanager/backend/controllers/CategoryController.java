@@ -1,8 +1,10 @@
 package com.vaultweb.passwordmanager.backend.controllers;
 
+import com.vaultweb.passwordmanager.backend.model.dtos.CategoryCountsResponseDto;
 import com.vaultweb.passwordmanager.backend.model.dtos.CategoryDto;
 import com.vaultweb.passwordmanager.backend.security.AuthenticatedUser;
 import com.vaultweb.passwordmanager.backend.services.CategoryService;
+import com.vaultweb.passwordmanager.backend.services.VaultVersionService;
 import jakarta.validation.Valid;
 import java.net.URI;
 import java.util.List;
@@ -17,6 +19,7 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/categories")
@@ -24,6 +27,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class CategoryController {
 
   private final CategoryService service;
+  private final VaultVersionService vaultVersionService;
 
   /**
    * Creates a new category for the authenticated user based on the provided details.
@@ -41,15 +45,42 @@ public class CategoryController {
   }
 
   /**
-   * Retrieves all categories associated with the authenticated user.
+   * Retrieves all categories associated with the authenticated user. Supports conditional requests
+   * via the vault version ETag, answering a matching {@code If-None-Match} with 304 Not Modified.
    *
    * @param user the authenticated user whose categories are being retrieved
+   * @param request the current request, used to evaluate {@code If-None-Match}
    * @return a {@code ResponseEntity} containing a list of {@code CategoryDto} objects representing
-   *     the user's categories
+   *     the user's categories, or an empty 304 response if the client's copy is current
    */
   @GetMapping
-  public ResponseEntity<List<CategoryDto>> getAll(@AuthenticationPrincipal AuthenticatedUser user) {
-    return ResponseEntity.ok(service.getAll(user.userId()));
+  public ResponseEntity<List<CategoryDto>> getAll(
+      @AuthenticationPrincipal AuthenticatedUser user, WebRequest request) {
+    String etag = vaultVersionService.etag(user.userId());
+    if (request.checkNotModified(etag)) {
+      return null;
+    }
+    return ResponseEntity.ok().eTag(etag).body(service.getAll(user.userId()));
+  }
+
+  /**
+   * Retrieves all categories of the authenticated user with the number of entries in each, plus the
+   * number of uncategorized entries ({@code GET /api/categories?withCounts=true}). Conditional
+   * requests are handled as for {@link #getAll}.
+   *
+   * @param user the authenticated user whose categories are being retrieved
+   * @param request the current request, used to evaluate {@code If-None-Match}
+   * @return a {@code ResponseEntity} containing the categories with their entry counts, or an empty
+   *     304 response if the client's copy is current
+   */
+  @GetMapping(params = "withCounts=true")
+  public ResponseEntity<CategoryCountsResponseDto> getAllWithCounts(
+      @AuthenticationPrincipal AuthenticatedUser user, WebRequest request) {
+    String etag = vaultVersionService.etag(user.userId());
+    if (request.checkNotModified(etag)) {
+      return null;
+    }
+    return ResponseEntity.ok().eTag(etag).body(service.getAllWithCounts(user.userId()));
   }
 
   /**
@@ -3,19 +3,44 @@ package com.vaultweb.passwordmanager.backend.controllers;
 import com.vaultweb.passwordmanager.backend.exceptions.VaultLockedException;
 import com.vaultweb.passwordmanager.backend.exceptions.VaultNotInitializedException;
 import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryBulkCreateRequestDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryBulkIdsRequestDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryBulkMoveRequestDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryBulkPatchRequestDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryBulkResponseDto;
 import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryPatchRequestDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordReuseReportDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordRevealBulkRequestDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordRevealBulkResponseDto;
 import com.vaultweb.passwordmanager.backend.model.dtos.PasswordRevealRequestDto;
 import com.vaultweb.passwordmanager.backend.model.dtos.PasswordRevealResponseDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordSearchResponseDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.TotpCodesResponseDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.VaultChangesResponseDto;
 import com.vaultweb.passwordmanager.backend.security.AuthenticatedUser;
 import com.vaultweb.passwordmanager.backend.services.PasswordEntryService;
+import com.vaultweb.passwordmanager.backend.services.TotpService;
+import com.vaultweb.passwordmanager.backend.services.VaultSearchService;
 import com.vaultweb.passwordmanager.backend.services.VaultService;
+import com.vaultweb.passwordmanager.backend.services.VaultSessionService;
+import com.vaultweb.passwordmanager.backend.services.VaultSyncService;
+import com.vaultweb.passwordmanager.backend.services.VaultVersionService;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
 
 @RestController
 @RequestMapping("/api/passwords")
@@ -24,6 +49,12 @@ public class PasswordEntryController {
 
   private final PasswordEntryService service;
   private final VaultService vaultService;
+  private final VaultSessionService vaultSessionService;
+  private final VaultVersionService vaultVersionService;
+  private final VaultSyncService vaultSyncService;
+  private final VaultSearchService vaultSearchService;
+  private final TotpService totpService;
+  private final JsonMapper jsonMapper;
 
   /**
    * Creates a new password entry based on the provided data and returns the created entry.
@@ -38,29 +69,163 @@ public class PasswordEntryController {
       @AuthenticationPrincipal AuthenticatedUser user,
       @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
       @Valid @RequestBody PasswordEntryDto dto) {
-    PasswordEntry created =
+    PasswordEntryDto created =
         service.create(
             new PasswordEntry(dto),
             user.userId(),
             dto.getCategoryId(),
             dto.getMasterPassword(),
             vaultToken);
-    return ResponseEntity.created(URI.create("/api/passwords/" + created.getId()))
-        .body(new PasswordEntryDto(created));
+    return ResponseEntity.created(URI.create("/api/passwords/" + created.getId())).body(created);
   }
 
   /**
    * Retrieves all password entries.
    *
+   * <p>The response carries the owner's vault version as a strong ETag. A request whose {@code
+   * If-None-Match} matches it is answered with 304 Not Modified without loading any entries.
+   *
+   * <p>Once the vault is initialized the usernames, urls and notes are stored encrypted, so reading
+   * entries requires an active vault session ({@code X-Vault-Token}); the same holds for the other
+   * read endpoints below.
+   *
+   * <p>{@code sort=frequent} lists the most used entries first, {@code sort=recent} the most
+   * recently used (revealed or matched for autofill). That order changes without the vault
+   * changing, so these listings carry no ETag.
+   *
+   * @param sort {@code frequent} or {@code recent}; omit for the stored order
    * @return a ResponseEntity containing a list of PasswordEntryDto objects representing all stored
-   *     password entries.
+   *     password entries, or an empty 304 response if the client's copy is current.
    */
   @GetMapping
   public ResponseEntity<List<PasswordEntryDto>> getAll(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      @RequestParam(required = false) String sort,
+      WebRequest request) {
+    byte[] dek = vaultSessionService.resolveDek(user.userId(), vaultToken);
+    if (sort != null) {
+      return ResponseEntity.ok(service.getAll(user.userId(), dek, sort));
+    }
+    String etag = vaultVersionService.etag(user.userId());
+    if (request.checkNotModified(etag)) {
+      return null;
+    }
+    return ResponseEntity.ok()
+        .eTag(etag)
+        .varyBy(HttpHeaders.ACCEPT)
+        .body(service.getAll(user.userId(), dek));
+  }
+
+  /**
+   * Streams all password entries as newline-delimited JSON ({@code Accept: application/x-ndjson}),
+   * one {@link PasswordEntryDto} per line.
+   *
+   * <p>Entries are written as they are read from a database cursor, so the response starts
+   * immediately and memory use does not depend on the size of the vault. The ETag behaves as for
+   * {@link #getAll}, with a {@code -ndjson} suffix: both listings share a URL and differ only by
+   * {@code Accept}, so they must not share a validator.
+   *
+   * @return a ResponseEntity streaming the entries, or an empty 304 response if the client's copy
+   *     is current.
+   */
+  @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamAll(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      WebRequest request) {
+    byte[] dek = vaultSessionService.resolveDek(user.userId(), vaultToken);
+    String etag = vaultVersionService.etag(user.userId()) + "-ndjson";
+    if (request.checkNotModified(etag)) {
+      return null;
+    }
+    Long ownerId = user.userId();
+    StreamingResponseBody body =
+        out -> {
+          // Commit the headers before the query runs; lines then go out as the buffer fills.
+          out.flush();
+          service.streamAll(ownerId, dek, dto -> writeLine(out, dto));
+        };
+    return ResponseEntity.ok()
+        .eTag(etag)
+        .varyBy(HttpHeaders.ACCEPT)
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(body);
+  }
+
+  private void writeLine(OutputStream out, PasswordEntryDto dto) {
+    try {
+      out.write(jsonMapper.writeValueAsBytes(dto));
+      out.write('\n');
+    } catch (IOException e) {
+      // The client went away; abort the cursor.
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the categories and entries created or updated since a sync cursor, plus tombstones for
+   * anything deleted since then.
+   *
+   * @param since the cursor returned by the previous sync; omit (or pass 0) for a full sync
+   * @return the changes and the cursor to pass on the next sync
+   */
+  @GetMapping("/changes")
+  public ResponseEntity<VaultChangesResponseDto> changes(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      @RequestParam(defaultValue = "0") long since) {
+    byte[] dek = vaultSessionService.resolveDek(user.userId(), vaultToken);
+    return ResponseEntity.ok(vaultSyncService.changesSince(user.userId(), since, dek));
+  }
+
+  /**
+   * Lists the entries that share a password with another entry, using the stored password
+   * fingerprints; nothing is decrypted, so the vault does not have to be unlocked.
+   *
+   * @return groups of entries with the same password, and how many entries are not covered
+   */
+  @GetMapping("/reuse")
+  public ResponseEntity<PasswordReuseReportDto> reuseReport(
       @AuthenticationPrincipal AuthenticatedUser user) {
-    List<PasswordEntryDto> dtos =
-        service.getAll(user.userId()).stream().map(PasswordEntryDto::new).toList();
-    return ResponseEntity.ok(dtos);
+    return ResponseEntity.ok(service.reuseReport(user.userId()));
+  }
+
+  /**
+   * Lists the entries for a site, e.g. the page an autofill client is on: entries whose url has the
+   * same registrable domain (public suffix plus one label), exact host matches first. Passwords are
+   * not included; reveal the chosen entries with {@code POST /api/passwords/reveal}.
+   *
+   * @param url the url (or bare host) of the site
+   * @param username only entries with this username (ignoring case); may be given without a url
+   * @return the matching entries, possibly none
+   */
+  @GetMapping("/match")
+  public ResponseEntity<List<PasswordEntryDto>> match(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      @RequestParam(required = false) String url,
+      @RequestParam(required = false) String username) {
+    byte[] dek = vaultSessionService.resolveDek(user.userId(), vaultToken);
+    return ResponseEntity.ok(service.match(user.userId(), url, username, dek));
+  }
+
+  /**
+   * Searches the names, usernames, urls and category names of the entries, tolerating typos. The
+   * owner's search index is kept in server memory and follows every change to the vault.
+   *
+   * @param q the search text
+   * @param limit maximum number of results (1 to {@value VaultSearchService#MAX_RESULTS})
+   * @return the best matching entries, without passwords
+   */
+  @GetMapping("/search")
+  public ResponseEntity<PasswordSearchResponseDto> search(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      @RequestParam String q,
+      @RequestParam(defaultValue = "20") int limit) {
+    byte[] dek = vaultSessionService.resolveDek(user.userId(), vaultToken);
+    return ResponseEntity.ok(vaultSearchService.search(user.userId(), q, limit, dek));
   }
 
   /**
@@ -72,10 +237,13 @@ public class PasswordEntryController {
    */
   @GetMapping("/{id}")
   public ResponseEntity<PasswordEntryDto> getById(
-      @AuthenticationPrincipal AuthenticatedUser user, @PathVariable Long id) {
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      @PathVariable Long id) {
+    byte[] dek = vaultSessionService.resolveDek(user.userId(), vaultToken);
     return service
-        .getById(id, user.userId())
-        .map(entry -> ResponseEntity.ok(new PasswordEntryDto(entry)))
+        .getDto(id, user.userId(), dek)
+        .map(ResponseEntity::ok)
         .orElse(ResponseEntity.notFound().build());
   }
 
@@ -98,12 +266,43 @@ public class PasswordEntryController {
     }
 
     return service
-        .getById(id, user.userId())
-        .map(PasswordRevealResponseDto::fromEntry)
+        .revealUnencrypted(id, user.userId())
         .map(ResponseEntity::ok)
         .orElse(ResponseEntity.notFound().build());
   }
 
+  /**
+   * Reveals several passwords in one request, e.g. every login an autofill client matched on a
+   * page. The vault is unlocked once for the whole request.
+   *
+   * @param dto the ids to reveal (at most {@value PasswordRevealBulkRequestDto#MAX_ITEMS}), plus
+   *     the master password when no vault token is supplied
+   * @return the revealed entries in request order, plus the ids that were not found
+   */
+  @PostMapping("/reveal")
+  public ResponseEntity<PasswordRevealBulkResponseDto> revealAll(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      @Valid @RequestBody PasswordRevealBulkRequestDto dto) {
+    return ResponseEntity.ok(
+        service.revealAll(dto.getIds(), user.userId(), dto.getMasterPassword(), vaultToken));
+  }
+
+  /**
+   * Returns the current one-time codes of several entries, e.g. everything an authenticator view
+   * shows, so refreshing it takes one request. Only the requested TOTP secrets are decrypted.
+   *
+   * @param dto the entry ids (at most {@value PasswordEntryBulkIdsRequestDto#MAX_ITEMS})
+   * @return the codes in request order with their expiry, plus the ids that have no TOTP secret
+   */
+  @PostMapping("/totp")
+  public ResponseEntity<TotpCodesResponseDto> totpCodes(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      @Valid @RequestBody PasswordEntryBulkIdsRequestDto dto) {
+    return ResponseEntity.ok(totpService.codes(dto.getIds(), user.userId(), vaultToken));
+  }
+
   /** Reveals a password for vault-enabled users. Requires masterPassword in the request body. */
   @PostMapping("/{id}/reveal")
   public ResponseEntity<PasswordRevealResponseDto> revealWithMasterPassword(
@@ -137,15 +336,33 @@ public class PasswordEntryController {
       @PathVariable Long id,
       @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
       @Valid @RequestBody PasswordEntryDto dto) {
-    PasswordEntry updated =
+    return ResponseEntity.ok(
         service.update(
             id,
             new PasswordEntry(dto),
             user.userId(),
             dto.getCategoryId(),
             dto.getMasterPassword(),
-            vaultToken);
-    return ResponseEntity.ok(new PasswordEntryDto(updated));
+            vaultToken));
+  }
+
+  /**
+   * Partially updates a password entry. Only the supplied fields change, and only those are
+   * re-encrypted; changing the password, username, url or notes of a vault entry requires the vault
+   * token or master password. Passing the entry's {@code version} makes the update conditional: if
+   * the entry changed in the meantime the request fails with 409 Conflict.
+   *
+   * @param id the unique identifier of the password entry to be patched
+   * @param dto the fields to change
+   * @return a ResponseEntity containing the patched PasswordEntryDto object
+   */
+  @PatchMapping("/{id}")
+  public ResponseEntity<PasswordEntryDto> patch(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @PathVariable Long id,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      @Valid @RequestBody PasswordEntryPatchRequestDto dto) {
+    return ResponseEntity.ok(service.patch(id, dto, user.userId(), vaultToken));
   }
 
   /**
@@ -160,4 +377,67 @@ public class PasswordEntryController {
     service.delete(id, user.userId());
     return ResponseEntity.noContent().build();
   }
+
+  /**
+   * Creates many password entries in one request and one transaction.
+   *
+   * @param dto the entries to create, plus the master password when no vault token is supplied
+   * @return the per-item results, in request order
+   */
+  @PostMapping("/bulk")
+  public ResponseEntity<PasswordEntryBulkResponseDto> createAll(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      @Valid @RequestBody PasswordEntryBulkCreateRequestDto dto) {
+    return ResponseEntity.ok(
+        service.createAll(dto.getEntries(), user.userId(), dto.getMasterPassword(), vaultToken));
+  }
+
+  /**
+   * Deletes a set of password entries.
+   *
+   * @param dto the ids of the entries to delete
+   * @return the per-item results, in request order
+   */
+  @PostMapping("/bulk/delete")
+  public ResponseEntity<PasswordEntryBulkResponseDto> deleteAll(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @Valid @RequestBody PasswordEntryBulkIdsRequestDto dto) {
+    return ResponseEntity.ok(service.deleteAll(dto.getIds(), user.userId()));
+  }
+
+  /**
+   * Moves a set of password entries into a category, or out of any category when no categoryId is
+   * given.
+   *
+   * @param dto the ids of the entries to move and the target category
+   * @return the per-item results, in request order
+   */
+  @PostMapping("/bulk/move")
+  public ResponseEntity<PasswordEntryBulkResponseDto> moveAll(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @Valid @RequestBody PasswordEntryBulkMoveRequestDto dto) {
+    return ResponseEntity.ok(service.moveAll(dto.getIds(), user.userId(), dto.getCategoryId()));
+  }
+
+  /**
+   * Applies the same username, url and/or notes to a set of password entries.
+   *
+   * @param dto the ids of the entries to patch and the field values to apply
+   * @return the per-item results, in request order
+   */
+  @PatchMapping("/bulk")
+  public ResponseEntity<PasswordEntryBulkResponseDto> patchAll(
+      @AuthenticationPrincipal AuthenticatedUser user,
+      @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
+      @Valid @RequestBody PasswordEntryBulkPatchRequestDto dto) {
+    return ResponseEntity.ok(
+        service.patchAll(
+            dto.getIds(),
+            user.userId(),
+            dto.getUsername(),
+            dto.getUrl(),
+            dto.getNotes(),
+            vaultToken));
+  }
 }
@@ -1,5 +1,7 @@
 package com.vaultweb.passwordmanager.backend.controllers;
 
+import com.vaultweb.passwordmanager.backend.model.VaultMigrationJob;
+import com.vaultweb.passwordmanager.backend.model.dtos.VaultHealthResponseDto;
 import com.vaultweb.passwordmanager.backend.model.dtos.VaultMigrateRequestDto;
 import com.vaultweb.passwordmanager.backend.model.dtos.VaultMigrateResponseDto;
 import com.vaultweb.passwordmanager.backend.model.dtos.VaultRotateRequestDto;
@@ -9,18 +11,24 @@ import com.vaultweb.passwordmanager.backend.model.dtos.VaultUnlockResponseDto;
 import com.vaultweb.passwordmanager.backend.model.dtos.VaultVerifyRequestDto;
 import com.vaultweb.passwordmanager.backend.model.dtos.VaultVerifyResponseDto;
 import com.vaultweb.passwordmanager.backend.security.AuthenticatedUser;
+import com.vaultweb.passwordmanager.backend.services.VaultEventService;
+import com.vaultweb.passwordmanager.backend.services.VaultHealthService;
+import com.vaultweb.passwordmanager.backend.services.VaultMigrationService;
 import com.vaultweb.passwordmanager.backend.services.VaultService;
 import com.vaultweb.passwordmanager.backend.services.VaultSessionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/vault")
@@ -29,6 +37,9 @@ public class VaultController {
 
   private final VaultService vaultService;
   private final VaultSessionService vaultSessionService;
+  private final VaultEventService vaultEventService;
+  private final VaultMigrationService vaultMigrationService;
+  private final VaultHealthService vaultHealthService;
 
   /**
    * Checks if the vault is initialized for the authenticated user.
@@ -42,6 +53,32 @@ public class VaultController {
     return ResponseEntity.ok(new VaultStatusResponseDto(vaultService.isInitialized(user.userId())));
   }
 
+  /**
+   * Reports how many of the user's entries have weak, reused, old or breached passwords. Read from
+   * maintained totals; does not require the vault to be unlocked.
+   *
+   * @param user
+   * @return the vault health totals
+   */
+  @GetMapping("/health")
+  public ResponseEntity<VaultHealthResponseDto> health(
+      @AuthenticationPrincipal AuthenticatedUser user) {
+    return ResponseEntity.ok(vaultHealthService.get(user.userId()));
+  }
+
+  /**
+   * Opens a server-sent event stream that emits a {@code vault-changed} event carrying the new sync
+   * cursor whenever the user's entries or categories change. The first event is sent immediately
+   * with the current cursor.
+   *
+   * @param user
+   * @return the event stream
+   */
+  @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter events(@AuthenticationPrincipal AuthenticatedUser user) {
+    return vaultEventService.subscribe(user.userId());
+  }
+
   /**
    * Sets up the vault with the provided master password.
    *
@@ -118,22 +155,23 @@ public class VaultController {
   }
 
   /**
-   * Migrates all plaintext passwords to vault-encrypted format.
+   * Starts migrating all plaintext passwords to vault-encrypted format in the background. Returns
+   * the migration job; poll {@code GET /api/vault/migrate/{jobId}} for its progress.
    *
    * @param user
    * @param vaultToken
    * @param dto
-   * @return the vault migrate response with number of passwords migrated
+   * @return the accepted migration job
    */
   @PostMapping("/migrate")
   public ResponseEntity<VaultMigrateResponseDto> migrate(
       @AuthenticationPrincipal AuthenticatedUser user,
       @RequestHeader(value = "X-Vault-Token", required = false) String vaultToken,
       @RequestBody(required = false) VaultMigrateRequestDto dto) {
-    int migrated;
+    VaultMigrationJob job;
     if (vaultToken != null && !vaultToken.isBlank()) {
       byte[] dek = vaultSessionService.requireDek(user.userId(), vaultToken);
-      migrated = vaultService.migrateAllPasswords(user.userId(), dek);
+      job = vaultService.startMigration(user.userId(), dek);
     } else {
       if (dto == null || dto.getMasterPassword() == null || dto.getMasterPassword().isBlank()) {
         throw new IllegalArgumentException(
@@ -146,8 +184,22 @@ public class VaultController {
             "masterPassword must be between 8 and 1024 characters when no X-Vault-Token is provided");
       }
 
-      migrated = vaultService.migrateAllPasswords(user.userId(), dto.getMasterPassword());
+      job = vaultService.startMigration(user.userId(), dto.getMasterPassword());
     }
-    return ResponseEntity.ok(new VaultMigrateResponseDto(migrated));
+    return ResponseEntity.accepted().body(VaultMigrateResponseDto.fromJob(job));
+  }
+
+  /**
+   * Reports the progress of a password migration job.
+   *
+   * @param user
+   * @param jobId
+   * @return the migration job
+   */
+  @GetMapping("/migrate/{jobId}")
+  public ResponseEntity<VaultMigrateResponseDto> migrationStatus(
+      @AuthenticationPrincipal AuthenticatedUser user, @PathVariable Long jobId) {
+    return ResponseEntity.ok(
+        VaultMigrateResponseDto.fromJob(vaultMigrationService.status(user.userId(), jobId)));
   }
 }
@@ -5,8 +5,10 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -42,6 +44,16 @@ public class GlobalExceptionHandler {
     return buildErrorResponse(ex.getMessage(), HttpStatus.CONFLICT, "CONFLICT");
   }
 
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  public ResponseEntity<Map<String, Object>> handleOptimisticLockingFailure(
+      OptimisticLockingFailureException ex, WebRequest request) {
+    log.warn("Concurrent modification - Path: {}", request.getDescription(false));
+    return buildErrorResponse(
+        "The resource was modified concurrently; reload it and retry",
+        HttpStatus.CONFLICT,
+        "CONFLICT");
+  }
+
   @ExceptionHandler(VaultNotInitializedException.class)
   public ResponseEntity<Map<String, Object>> handleVaultNotInitialized(
       VaultNotInitializedException ex, WebRequest request) {
@@ -63,6 +75,13 @@ public class GlobalExceptionHandler {
     return buildErrorResponse(ex.getMessage(), HttpStatus.NOT_FOUND, "NOT_FOUND");
   }
 
+  @ExceptionHandler(QuotaExceededException.class)
+  public ResponseEntity<Map<String, Object>> handleQuotaExceeded(
+      QuotaExceededException ex, WebRequest request) {
+    log.warn("Quota exceeded - Path: {}", request.getDescription(false));
+    return buildErrorResponse(ex.getMessage(), HttpStatus.CONTENT_TOO_LARGE, "QUOTA_EXCEEDED");
+  }
+
   @ExceptionHandler(PasswordBreachCheckException.class)
   public ResponseEntity<Map<String, Object>> handlePasswordBreachCheckError(
       PasswordBreachCheckException ex, WebRequest request) {
@@ -104,6 +123,14 @@ public class GlobalExceptionHandler {
     return buildErrorResponse(errorMessage, HttpStatus.BAD_REQUEST, "VALIDATION_ERROR");
   }
 
+  @ExceptionHandler(HttpMediaTypeNotSupportedException.class)
+  public ResponseEntity<Map<String, Object>> handleUnsupportedMediaType(
+      HttpMediaTypeNotSupportedException ex, WebRequest request) {
+    log.warn("Unsupported media type - Path: {}", request.getDescription(false));
+    return buildErrorResponse(
+        ex.getMessage(), HttpStatus.UNSUPPORTED_MEDIA_TYPE, "UNSUPPORTED_MEDIA_TYPE");
+  }
+
   // Catch-all for unexpected errors
   @ExceptionHandler(Exception.class)
   public ResponseEntity<Map<String, Object>> handleGeneralErrors(Exception ex, WebRequest request) {
@@ -0,0 +1,7 @@
+package com.vaultweb.passwordmanager.backend.exceptions;
+
+public class QuotaExceededException extends RuntimeException {
+  public QuotaExceededException(String message) {
+    super(message);
+  }
+}
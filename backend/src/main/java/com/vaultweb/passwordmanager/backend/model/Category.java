@@ -5,6 +5,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -25,7 +26,8 @@ import org.hibernate.annotations.UpdateTimestamp;
 public class Category {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "categories_seq")
+  @SequenceGenerator(name = "categories_seq", sequenceName = "categories_seq", allocationSize = 50)
   private Long id;
 
   @NotNull(message = "Owner is required")
@@ -42,6 +44,10 @@ public class Category {
   @Size(max = 200)
   private String description;
 
+  /** Vault version of the last change to this row; used as the delta sync cursor. */
+  @Column(name = "change_seq", nullable = false)
+  private long changeSeq;
+
   @CreationTimestamp private LocalDateTime createdAt;
 
   @UpdateTimestamp private LocalDateTime updatedAt;
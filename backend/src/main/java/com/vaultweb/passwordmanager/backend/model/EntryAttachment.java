@@ -0,0 +1,54 @@
+package com.vaultweb.passwordmanager.backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+/**
+ * A file attached to a password entry. The content is stored encrypted in the attachment store
+ * under {@link #storageKey} (see {@code AttachmentService}); the name and content type are
+ * encrypted with the vault DEK.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "entry_attachments")
+public class EntryAttachment {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "owner_id", nullable = false)
+  private Long ownerId;
+
+  @Column(name = "entry_id", nullable = false)
+  private Long entryId;
+
+  @Column(nullable = false, columnDefinition = "TEXT")
+  private String name;
+
+  @Column(name = "content_type", nullable = false, columnDefinition = "TEXT")
+  private String contentType;
+
+  /** Plaintext size in bytes; counts against the owner's quota. */
+  @Column(nullable = false)
+  private long size;
+
+  /** Random name of the encrypted file, also the input of its key derivation. */
+  @Column(name = "storage_key", nullable = false, length = 32, unique = true)
+  private String storageKey;
+
+  @CreationTimestamp
+  @Column(name = "created_at", nullable = false, updatable = false)
+  private LocalDateTime createdAt;
+}
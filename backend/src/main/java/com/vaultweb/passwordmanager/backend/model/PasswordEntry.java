@@ -11,7 +11,9 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
@@ -20,36 +22,107 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.PartitionKey;
 import org.hibernate.annotations.UpdateTimestamp;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@DynamicUpdate
 @Table(name = "password_entries")
 public class PasswordEntry {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "password_entries_seq")
+  @SequenceGenerator(
+      name = "password_entries_seq",
+      sequenceName = "password_entries_seq",
+      allocationSize = 50)
   private Long id;
 
   @NotBlank(message = "Name (service/site) is required")
   @Size(max = 100)
   private String name;
 
+  /**
+   * Encrypted with the vault DEK once the owner has a vault (see {@code EntryFieldCryptoService}),
+   * like {@link #url} and {@link #notes}; plaintext otherwise.
+   */
   @NotBlank(message = "Username is required")
+  @Column(columnDefinition = "TEXT")
   private String username;
 
+  /** Blind index of the username; null unless it is encrypted. */
+  @Column(name = "username_bidx")
+  private Integer usernameBlindIndex;
+
   @NotBlank(message = "Password is required")
   @Convert(converter = AttributeEncryptor.class)
   @Column(columnDefinition = "TEXT")
   private String password;
 
+  /**
+   * Keyed fingerprint of the plaintext password (see {@code
+   * VaultCryptoService#fingerprintPassword}); null while the owner has no vault or the entry
+   * predates fingerprints.
+   */
+  @Column(name = "password_fingerprint", length = 44)
+  @ToString.Exclude
+  private String passwordFingerprint;
+
+  /**
+   * {@code PasswordStrengthService} score of the password, set whenever it is written; null for
+   * entries that predate health records until the vault migration assesses them.
+   */
+  @Column(name = "strength_score")
+  private Integer strengthScore;
+
+  /** Occurrences of the password in the breach corpus; null until the background check ran. */
+  @Column(name = "breach_count")
+  private Integer breachCount;
+
+  /** When the password itself (not just the entry) was last changed. */
+  @Column(name = "password_changed_at")
+  private LocalDateTime passwordChangedAt;
+
+  @Column(columnDefinition = "TEXT")
   private String url;
 
-  @Column(length = 500)
+  /**
+   * Host of {@link #url}, normalized by {@code UrlDomainService}; null if the url has no
+   * recognizable host or is encrypted (or, until the backfill reaches it, for an entry written
+   * before V13).
+   */
+  @Column(name = "url_host")
+  private String urlHost;
+
+  /** Registrable domain of {@link #url} (eTLD+1), the key of credential lookup by site. */
+  @Column(name = "url_domain")
+  private String urlDomain;
+
+  /** Blind indexes of the host and domain of an encrypted url, in place of the two above. */
+  @Column(name = "url_host_bidx")
+  private Integer urlHostBlindIndex;
+
+  @Column(name = "url_domain_bidx")
+  private Integer urlDomainBlindIndex;
+
+  @Column(columnDefinition = "TEXT")
   private String notes;
 
+  /**
+   * Base32 secret or {@code otpauth://totp/} URI of the entry's authenticator, encrypted like
+   * {@link #notes}; null if the entry has none. Never returned, only used to compute codes (see
+   * {@code TotpService}).
+   */
+  @Column(name = "totp_secret", columnDefinition = "TEXT")
+  @ToString.Exclude
+  private String totpSecret;
+
+  /** Partition key of {@code password_entries}; included in entity updates and deletes. */
+  @PartitionKey
   @Column(name = "owner_id", nullable = false)
   private Long ownerId;
 
@@ -58,6 +131,12 @@ public class PasswordEntry {
   @ToString.Exclude
   private Category category;
 
+  /** Vault version of the last change to this row; used as the delta sync cursor. */
+  @Column(name = "change_seq", nullable = false)
+  private long changeSeq;
+
+  @Version private long version;
+
   @CreationTimestamp private LocalDateTime createdAt;
 
   @UpdateTimestamp private LocalDateTime updatedAt;
@@ -68,5 +147,6 @@ public class PasswordEntry {
     this.password = dto.getPassword();
     this.url = dto.getUrl();
     this.notes = dto.getNotes();
+    this.totpSecret = dto.getTotpSecret();
   }
 }
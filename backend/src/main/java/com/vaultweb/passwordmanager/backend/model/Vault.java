@@ -5,6 +5,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
@@ -21,7 +22,11 @@ import org.hibernate.annotations.UpdateTimestamp;
 public class Vault {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_vaults_seq")
+  @SequenceGenerator(
+      name = "user_vaults_seq",
+      sequenceName = "user_vaults_seq",
+      allocationSize = 50)
   private Long id;
 
   @Column(name = "owner_id", nullable = false, unique = true)
@@ -0,0 +1,51 @@
+package com.vaultweb.passwordmanager.backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-owner totals of the entries' health records. Maintained by a database trigger on {@code
+ * password_entries} (see migration V12); the application only reads it.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "vault_health")
+public class VaultHealth {
+
+  @Id
+  @Column(name = "owner_id")
+  private Long ownerId;
+
+  @Column(name = "entry_count", nullable = false)
+  private long entryCount;
+
+  /** Entries whose strength score is below 50 ("Weak"). */
+  @Column(name = "weak_count", nullable = false)
+  private long weakCount;
+
+  /** Entries sharing their password fingerprint with at least one other entry. */
+  @Column(name = "reused_count", nullable = false)
+  private long reusedCount;
+
+  /** Entries whose password is older than {@code vault.health.maxPasswordAge}. */
+  @Column(name = "old_count", nullable = false)
+  private long oldCount;
+
+  @Column(name = "breached_count", nullable = false)
+  private long breachedCount;
+
+  /** Entries without a strength score yet. */
+  @Column(name = "unscored_count", nullable = false)
+  private long unscoredCount;
+
+  /** Entries whose password has not been checked against the breach corpus yet. */
+  @Column(name = "unchecked_count", nullable = false)
+  private long uncheckedCount;
+}
@@ -0,0 +1,66 @@
+package com.vaultweb.passwordmanager.backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of a background migration of an owner's legacy plaintext passwords. {@code lastEntryId}
+ * is the checkpoint: every entry with a smaller or equal id has been processed and committed.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "vault_migration_jobs")
+public class VaultMigrationJob {
+
+  /** Lifecycle of a migration job. */
+  public enum Status {
+    RUNNING,
+    COMPLETED,
+    FAILED
+  }
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "owner_id", nullable = false)
+  private Long ownerId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 16)
+  private Status status;
+
+  /** Number of entries the owner had when the job started. */
+  @Column(name = "total_count", nullable = false)
+  private long totalCount;
+
+  @Column(name = "scanned_count", nullable = false)
+  private long scannedCount;
+
+  @Column(name = "migrated_count", nullable = false)
+  private long migratedCount;
+
+  @Column(name = "last_entry_id", nullable = false)
+  private long lastEntryId;
+
+  @Column(length = 500)
+  private String error;
+
+  @Column(name = "created_at", nullable = false)
+  private LocalDateTime createdAt;
+
+  @Column(name = "updated_at", nullable = false)
+  private LocalDateTime updatedAt;
+}
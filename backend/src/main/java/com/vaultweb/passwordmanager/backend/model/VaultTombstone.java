@@ -0,0 +1,52 @@
+package com.vaultweb.passwordmanager.backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Marker left behind when an entry or category is deleted, so delta sync can report the deletion.
+ * Tombstones are written with set-based native inserts and removed after a retention window.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "vault_tombstones")
+public class VaultTombstone {
+
+  /** Kind of row a tombstone refers to. */
+  public enum EntityType {
+    ENTRY,
+    CATEGORY
+  }
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "owner_id", nullable = false)
+  private Long ownerId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "entity_type", nullable = false, length = 16)
+  private EntityType entityType;
+
+  @Column(name = "entity_id", nullable = false)
+  private Long entityId;
+
+  @Column(name = "change_seq", nullable = false)
+  private long changeSeq;
+
+  @Column(name = "deleted_at", nullable = false)
+  private LocalDateTime deletedAt;
+}
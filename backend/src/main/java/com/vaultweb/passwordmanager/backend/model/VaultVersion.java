@@ -0,0 +1,29 @@
+package com.vaultweb.passwordmanager.backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Monotonic per-owner counter of changes to the owner's entries and categories. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "vault_versions")
+public class VaultVersion {
+
+  @Id
+  @Column(name = "owner_id")
+  private Long ownerId;
+
+  @Column(nullable = false)
+  private Long version;
+
+  /** Highest tombstone version removed by compaction; older sync cursors need a full resync. */
+  @Column(name = "compacted_seq", nullable = false)
+  private long compactedSeq;
+}
@@ -0,0 +1,29 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A file attached to a password entry; the content is downloaded separately. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AttachmentDto {
+
+  private Long id;
+
+  private Long entryId;
+
+  @Schema(description = "File name given on upload")
+  private String name;
+
+  @Schema(description = "Media type given on upload")
+  private String contentType;
+
+  @Schema(description = "Size of the file in bytes")
+  private long size;
+
+  private LocalDateTime createdAt;
+}
@@ -0,0 +1,17 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CategoryCountsResponseDto {
+
+  @Schema(description = "The owner's categories, each with its entryCount")
+  private List<CategoryDto> categories;
+
+  @Schema(description = "Number of entries not assigned to any category")
+  private long uncategorizedCount;
+}
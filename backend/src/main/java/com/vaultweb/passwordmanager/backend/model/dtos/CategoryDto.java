@@ -1,6 +1,9 @@
 package com.vaultweb.passwordmanager.backend.model.dtos;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.vaultweb.passwordmanager.backend.model.Category;
+import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
@@ -25,6 +28,12 @@ public class CategoryDto {
   @Size(max = 200)
   private String description;
 
+  @Schema(
+      description = "Number of entries in the category; only present when counts were requested")
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private Long entryCount;
+
   public CategoryDto(Category category) {
     this.id = category.getId();
     this.name = category.getName();
@@ -0,0 +1,28 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.Data;
+import lombok.ToString;
+
+/**
+ * Request body for creating many password entries at once.
+ *
+ * <p>Either {@code masterPassword} or the {@code X-Vault-Token} header unlocks the vault once for
+ * the whole batch; a {@code masterPassword} on the individual entries is ignored.
+ */
+@Data
+public class PasswordEntryBulkCreateRequestDto {
+
+  @NotEmpty(message = "At least one entry is required")
+  @Size(max = PasswordEntryBulkIdsRequestDto.MAX_ITEMS)
+  private List<@Valid PasswordEntryDto> entries;
+
+  @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+  @Size(min = 8, max = 1024)
+  @ToString.Exclude
+  private String masterPassword;
+}
@@ -0,0 +1,19 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.Data;
+
+/** Request body for bulk operations that only target a set of password entry ids. */
+@Data
+public class PasswordEntryBulkIdsRequestDto {
+
+  /** Upper bound on the number of items a single bulk request may touch. */
+  public static final int MAX_ITEMS = 500;
+
+  @NotEmpty(message = "At least one id is required")
+  @Size(max = MAX_ITEMS)
+  private List<@NotNull Long> ids;
+}
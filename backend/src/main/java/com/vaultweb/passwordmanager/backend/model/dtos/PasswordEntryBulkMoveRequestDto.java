@@ -0,0 +1,21 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * Request body for moving a set of password entries into a category. A {@code null} {@code
+ * categoryId} removes the entries from their category.
+ */
+@Data
+public class PasswordEntryBulkMoveRequestDto {
+
+  @NotEmpty(message = "At least one id is required")
+  @Size(max = PasswordEntryBulkIdsRequestDto.MAX_ITEMS)
+  private List<@NotNull Long> ids;
+
+  private Long categoryId;
+}
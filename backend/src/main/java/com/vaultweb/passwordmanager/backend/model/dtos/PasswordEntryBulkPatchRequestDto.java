@@ -0,0 +1,29 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * Request body for applying the same field values to a set of password entries. Fields left {@code
+ * null} are not changed. Once the owner has a vault, a vault token is required, as these fields are
+ * stored encrypted.
+ */
+@Data
+public class PasswordEntryBulkPatchRequestDto {
+
+  @NotEmpty(message = "At least one id is required")
+  @Size(max = PasswordEntryBulkIdsRequestDto.MAX_ITEMS)
+  private List<@NotNull Long> ids;
+
+  @Size(min = 1, max = 255, message = "Username must be between 1 and 255 characters")
+  private String username;
+
+  @Size(max = 255)
+  private String url;
+
+  @Size(max = 500)
+  private String notes;
+}
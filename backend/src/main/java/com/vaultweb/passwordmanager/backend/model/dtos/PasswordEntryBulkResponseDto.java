@@ -0,0 +1,49 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Per-item outcome of a bulk password entry operation, in request order. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PasswordEntryBulkResponseDto {
+
+  private int succeeded;
+  private int failed;
+  private List<Item> results;
+
+  public static PasswordEntryBulkResponseDto of(List<Item> results) {
+    int succeeded = (int) results.stream().filter(Item::isSuccess).count();
+    return new PasswordEntryBulkResponseDto(succeeded, results.size() - succeeded, results);
+  }
+
+  /** Outcome for a single requested item. */
+  public enum Status {
+    CREATED,
+    UPDATED,
+    DELETED,
+    NOT_FOUND,
+    CATEGORY_NOT_FOUND
+  }
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Item {
+
+    /** Position of the item in the request. */
+    private int index;
+
+    /** Id of the affected entry, or null when no entry was created. */
+    private Long id;
+
+    private Status status;
+
+    public boolean isSuccess() {
+      return status == Status.CREATED || status == Status.UPDATED || status == Status.DELETED;
+    }
+  }
+}
@@ -21,6 +21,7 @@ public class PasswordEntryDto {
   private String name;
 
   @NotBlank(message = "Username is required")
+  @Size(max = 255)
   private String username;
 
   @NotBlank(message = "Password is required")
@@ -33,19 +34,57 @@ public class PasswordEntryDto {
   @ToString.Exclude
   private String masterPassword;
 
+  @Size(max = 255)
   private String url;
 
   @Size(max = 500)
   private String notes;
 
+  /**
+   * Base32 secret or {@code otpauth://totp/} URI for the entry's one-time codes. Write-only; on
+   * update, null keeps the stored secret and an empty value removes it.
+   */
+  @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+  @Size(max = 1024)
+  @ToString.Exclude
+  private String totpSecret;
+
+  /** Whether the entry has a TOTP secret, i.e. codes from {@code POST /api/passwords/totp}. */
+  @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+  private boolean totp;
+
   private Long categoryId;
 
+  private Long version;
+
+  /** Metadata-only constructor used by the streaming query; the password fields stay null. */
+  public PasswordEntryDto(
+      Long id,
+      String name,
+      String username,
+      String url,
+      String notes,
+      Long categoryId,
+      Long version,
+      boolean totp) {
+    this.id = id;
+    this.name = name;
+    this.username = username;
+    this.url = url;
+    this.notes = notes;
+    this.categoryId = categoryId;
+    this.version = version;
+    this.totp = totp;
+  }
+
   public PasswordEntryDto(PasswordEntry entry) {
     this.id = entry.getId();
     this.name = entry.getName();
     this.username = entry.getUsername();
     this.url = entry.getUrl();
     this.notes = entry.getNotes();
+    this.totp = entry.getTotpSecret() != null;
     this.categoryId = entry.getCategory() != null ? entry.getCategory().getId() : null;
+    this.version = entry.getVersion();
   }
 }
@@ -0,0 +1,52 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.ToString;
+
+/**
+ * Request body for a partial update of a single password entry. Fields left {@code null} are not
+ * changed; an empty {@code url}, {@code notes} or {@code totpSecret} clears that field, and {@code
+ * clearCategory} moves the entry out of its category. Once the owner has a vault, the master
+ * password (or a vault token) is needed when {@code password}, {@code username}, {@code url},
+ * {@code notes} or {@code totpSecret} is supplied, as those are stored encrypted.
+ */
+@Data
+public class PasswordEntryPatchRequestDto {
+
+  @Size(min = 1, max = 100)
+  private String name;
+
+  @Size(min = 1, max = 255, message = "Username must be between 1 and 255 characters")
+  private String username;
+
+  @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+  @Size(min = 1, message = "Password must not be empty")
+  @ToString.Exclude
+  private String password;
+
+  @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+  @Size(min = 8, max = 1024)
+  @ToString.Exclude
+  private String masterPassword;
+
+  @Size(max = 255)
+  private String url;
+
+  @Size(max = 500)
+  private String notes;
+
+  @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+  @Size(max = 1024)
+  @ToString.Exclude
+  private String totpSecret;
+
+  private Long categoryId;
+
+  /** Moves the entry out of its category; cannot be combined with {@code categoryId}. */
+  private boolean clearCategory;
+
+  /** Version the client last saw; if set and no longer current, the patch is rejected with 409. */
+  private Long version;
+}
@@ -0,0 +1,42 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Entries that share a password with another entry of the same vault. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PasswordReuseReportDto {
+
+  @Schema(description = "One group per reused password, largest group first")
+  private List<Group> groups;
+
+  @Schema(
+      description =
+          "Number of entries without a fingerprint (no vault, or stored before fingerprints were "
+              + "introduced); these are not covered by the report until POST /api/vault/migrate "
+              + "has run")
+  private long unfingerprintedCount;
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Group {
+
+    @Schema(description = "The entries using the same password, in id order")
+    private List<Entry> entries;
+  }
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Entry {
+
+    private Long id;
+    private String name;
+  }
+}
@@ -0,0 +1,29 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.Data;
+import lombok.ToString;
+
+/**
+ * Request body for revealing several passwords at once. Either {@code masterPassword} or the {@code
+ * X-Vault-Token} header unlocks the vault once for the whole request.
+ */
+@Data
+public class PasswordRevealBulkRequestDto {
+
+  /** Upper bound on the number of passwords a single request may reveal. */
+  public static final int MAX_ITEMS = 100;
+
+  @NotEmpty(message = "At least one id is required")
+  @Size(max = MAX_ITEMS)
+  private List<@NotNull Long> ids;
+
+  @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+  @Size(min = 8, max = 1024)
+  @ToString.Exclude
+  private String masterPassword;
+}
@@ -0,0 +1,19 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PasswordRevealBulkResponseDto {
+
+  @Schema(description = "Revealed entries, in request order")
+  private List<PasswordRevealResponseDto> results;
+
+  @Schema(description = "Requested ids that do not exist or belong to another user")
+  private List<Long> notFound;
+}
@@ -0,0 +1,45 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import com.vaultweb.passwordmanager.backend.support.EntrySearchIndex;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Result of a search over the metadata of a vault's entries. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PasswordSearchResponseDto {
+
+  @Schema(description = "The best matching entries, best first")
+  private List<Result> results;
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Result {
+
+    private Long id;
+    private String name;
+    private String username;
+    private String url;
+    private Long categoryId;
+
+    @Schema(
+        description =
+            "Relevance of the match; only meaningful for ordering the results of one search")
+    private double score;
+
+    public Result(EntrySearchIndex.Hit hit) {
+      this(
+          hit.document().id(),
+          hit.document().name(),
+          hit.document().username(),
+          hit.document().url(),
+          hit.document().categoryId(),
+          hit.score());
+    }
+  }
+}
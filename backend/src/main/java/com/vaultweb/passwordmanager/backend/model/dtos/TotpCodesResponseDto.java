@@ -0,0 +1,41 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Instant;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** The current one-time codes of a set of entries. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TotpCodesResponseDto {
+
+  @Schema(description = "Codes, in request order")
+  private List<Code> codes;
+
+  @Schema(
+      description =
+          "Requested ids that do not exist, belong to another user or have no TOTP secret")
+  private List<Long> notFound;
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Code {
+
+    private Long id;
+    private String name;
+
+    @Schema(description = "The code valid now", example = "492039")
+    private String code;
+
+    @Schema(description = "Seconds each code is valid", example = "30")
+    private int period;
+
+    @Schema(description = "When the code expires; the next one is valid from then on")
+    private Instant validUntil;
+  }
+}
@@ -0,0 +1,17 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Payload of a {@code vault-changed} server-sent event. Clients react by calling the delta sync
+ * endpoint with their last cursor; an event whose cursor they already have can be ignored.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class VaultChangeEventDto {
+
+  private long cursor;
+}
@@ -0,0 +1,34 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import com.vaultweb.passwordmanager.backend.model.VaultTombstone;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Changes to an owner's vault since a sync cursor. Clients apply {@code categories} and {@code
+ * entries} as upserts, remove everything listed in {@code deleted}, and pass {@code cursor} as
+ * {@code since} on their next sync. When {@code fullResync} is true the lists hold the complete
+ * vault and the client must replace its local copy instead of merging.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class VaultChangesResponseDto {
+
+  private long cursor;
+  private boolean fullResync;
+  private List<CategoryDto> categories;
+  private List<PasswordEntryDto> entries;
+  private List<Deletion> deleted;
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Deletion {
+
+    private VaultTombstone.EntityType type;
+    private Long id;
+  }
+}
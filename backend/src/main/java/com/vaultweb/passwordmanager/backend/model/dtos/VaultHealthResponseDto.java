@@ -0,0 +1,51 @@
+package com.vaultweb.passwordmanager.backend.model.dtos;
+
+import com.vaultweb.passwordmanager.backend.model.VaultHealth;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Health summary of a vault: how many entries have weak, reused, old or breached passwords. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class VaultHealthResponseDto {
+
+  private long entryCount;
+
+  @Schema(description = "Entries whose password is rated Weak (strength score below 50)")
+  private long weakCount;
+
+  @Schema(description = "Entries sharing their password with at least one other entry")
+  private long reusedCount;
+
+  @Schema(description = "Entries whose password is older than the configured maximum age")
+  private long oldCount;
+
+  @Schema(description = "Entries whose password appears in the breach corpus")
+  private long breachedCount;
+
+  @Schema(
+      description =
+          "Entries stored before health records existed; they are assessed by POST "
+              + "/api/vault/migrate and not counted as weak or reused until then")
+  private long unscoredCount;
+
+  @Schema(
+      description =
+          "Entries whose breach check is still pending (it runs in the background after a "
+              + "password is stored) or failed")
+  private long uncheckedCount;
+
+  public VaultHealthResponseDto(VaultHealth health) {
+    this(
+        health.getEntryCount(),
+        health.getWeakCount(),
+        health.getReusedCount(),
+        health.getOldCount(),
+        health.getBreachedCount(),
+        health.getUnscoredCount(),
+        health.getUncheckedCount());
+  }
+}
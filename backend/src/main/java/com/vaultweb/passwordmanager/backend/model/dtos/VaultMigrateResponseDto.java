@@ -1,10 +1,39 @@
 package com.vaultweb.passwordmanager.backend.model.dtos;
 
+import com.vaultweb.passwordmanager.backend.model.VaultMigrationJob;
+import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
 @Data
 @AllArgsConstructor
 public class VaultMigrateResponseDto {
-  private int migratedCount;
+
+  @Schema(description = "Identifier of the migration job, for GET /api/vault/migrate/{jobId}")
+  private Long jobId;
+
+  @Schema(description = "RUNNING, COMPLETED or FAILED")
+  private VaultMigrationJob.Status status;
+
+  @Schema(description = "Number of entries the vault had when the job started")
+  private long totalCount;
+
+  @Schema(description = "Number of entries processed so far")
+  private long scannedCount;
+
+  @Schema(description = "Number of plaintext passwords encrypted so far")
+  private long migratedCount;
+
+  @Schema(description = "Number of entries still to be processed")
+  private long remainingCount;
+
+  public static VaultMigrateResponseDto fromJob(VaultMigrationJob job) {
+    return new VaultMigrateResponseDto(
+        job.getId(),
+        job.getStatus(),
+        job.getTotalCount(),
+        job.getScannedCount(),
+        job.getMigratedCount(),
+        Math.max(0, job.getTotalCount() - job.getScannedCount()));
+  }
 }
@@ -1,6 +1,7 @@
 package com.vaultweb.passwordmanager.backend.repositories;
 
 import com.vaultweb.passwordmanager.backend.model.Category;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -9,5 +10,9 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
 
   List<Category> findAllByOwnerId(Long ownerId);
 
+  List<Category> findAllByOwnerIdAndIdIn(Long ownerId, Collection<Long> ids);
+
   Optional<Category> findByIdAndOwnerId(Long id, Long ownerId);
+
+  List<Category> findAllByOwnerIdAndChangeSeqGreaterThan(Long ownerId, long changeSeq);
 }
@@ -0,0 +1,39 @@
+package com.vaultweb.passwordmanager.backend.repositories;
+
+import com.vaultweb.passwordmanager.backend.model.EntryAttachment;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface EntryAttachmentRepository extends JpaRepository<EntryAttachment, Long> {
+
+  List<EntryAttachment> findAllByOwnerIdAndEntryIdOrderById(Long ownerId, Long entryId);
+
+  Optional<EntryAttachment> findByIdAndOwnerIdAndEntryId(Long id, Long ownerId, Long entryId);
+
+  /** Plaintext bytes the owner has stored in attachments. */
+  @Query("select coalesce(sum(a.size), 0) from EntryAttachment a where a.ownerId = :ownerId")
+  long totalSize(Long ownerId);
+
+  @Query(
+      value =
+          "select storage_key from entry_attachments "
+              + "where owner_id = :ownerId and entry_id = any(:entryIds)",
+      nativeQuery = true)
+  List<String> findStorageKeys(Long ownerId, Long[] entryIds);
+
+  @Modifying
+  @Query(
+      value =
+          "delete from entry_attachments where owner_id = :ownerId and entry_id = any(:entryIds)",
+      nativeQuery = true)
+  int deleteByEntryIds(Long ownerId, Long[] entryIds);
+
+  /** The given storage keys that belong to an attachment. */
+  @Query(
+      value = "select storage_key from entry_attachments where storage_key = any(:storageKeys)",
+      nativeQuery = true)
+  List<String> findExistingStorageKeys(String[] storageKeys);
+}
@@ -1,13 +1,337 @@
 package com.vaultweb.passwordmanager.backend.repositories;
 
 import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 public interface PasswordEntryRepository extends JpaRepository<PasswordEntry, Long> {
 
   List<PasswordEntry> findAllByOwnerId(Long ownerId);
 
   Optional<PasswordEntry> findByIdAndOwnerId(Long id, Long ownerId);
+
+  List<PasswordEntry> findAllByOwnerIdAndChangeSeqGreaterThan(Long ownerId, long changeSeq);
+
+  /**
+   * Keyset page of the owner's entries: the next {@code limit} entries with an id above {@code
+   * afterId}.
+   */
+  List<PasswordEntry> findByOwnerIdAndIdGreaterThanOrderByIdAsc(
+      Long ownerId, Long afterId, Limit limit);
+
+  long countByOwnerId(Long ownerId);
+
+  /**
+   * Number of the owner's entries per category, in one aggregate over the (owner_id, category_id)
+   * index. Uncategorized entries are reported with a null category id. Counts rows rather than ids:
+   * {@code count(e)} would read the id column and rule out an index-only scan.
+   */
+  @Query(
+      "select e.category.id as categoryId, count(*) as entryCount from PasswordEntry e "
+          + "where e.ownerId = :ownerId group by e.category.id")
+  List<CategoryEntryCount> countByCategory(Long ownerId);
+
+  /** Row of {@link #countByCategory}. */
+  interface CategoryEntryCount {
+    Long getCategoryId();
+
+    long getEntryCount();
+  }
+
+  /**
+   * The owner's entries whose password fingerprint occurs more than once, ordered by fingerprint.
+   * The reused fingerprints are found with one aggregate over the (owner_id, password_fingerprint)
+   * index; only the matching rows are read.
+   */
+  @Query(
+      "select e.passwordFingerprint as fingerprint, e.id as entryId, e.name as name "
+          + "from PasswordEntry e where e.ownerId = :ownerId and e.passwordFingerprint in ("
+          + "select r.passwordFingerprint from PasswordEntry r "
+          + "where r.ownerId = :ownerId and r.passwordFingerprint is not null "
+          + "group by r.passwordFingerprint having count(*) > 1) "
+          + "order by e.passwordFingerprint, e.id")
+  List<ReusedPassword> findReusedPasswords(Long ownerId);
+
+  /** Row of {@link #findReusedPasswords}. */
+  interface ReusedPassword {
+    String getFingerprint();
+
+    Long getEntryId();
+
+    String getName();
+  }
+
+  long countByOwnerIdAndPasswordFingerprintIsNull(Long ownerId);
+
+  /**
+   * Streams the owner's entries as DTOs, without the password column, in id order. Rows are read
+   * through a forward-only cursor 500 at a time and are never managed by the persistence context,
+   * so memory use does not grow with the vault. Must be consumed (and closed) inside a transaction.
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  @Query(
+      "select new com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto("
+          + "e.id, e.name, e.username, e.url, e.notes, e.category.id, e.version, "
+          + "case when e.totpSecret is not null then true else false end) "
+          + "from PasswordEntry e where e.ownerId = :ownerId order by e.id")
+  Stream<PasswordEntryDto> streamDtosByOwnerId(Long ownerId);
+
+  /**
+   * The owner's entries for a registrable domain, as DTOs without the password column: exact host
+   * matches first, then by name. Plaintext urls match on the domain, encrypted ones on its blind
+   * index (which may also match other domains); a bitmap scan of the (owner_id, url_domain) and
+   * (owner_id, url_domain_bidx) indexes.
+   */
+  @Query(
+      "select new com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto("
+          + "e.id, e.name, e.username, e.url, e.notes, e.category.id, e.version, "
+          + "case when e.totpSecret is not null then true else false end) "
+          + "from PasswordEntry e where e.ownerId = :ownerId "
+          + "and (e.urlDomain = :domain or e.urlDomainBlindIndex = :domainIndex) "
+          + "order by case when e.urlHost = :host or e.urlHostBlindIndex = :hostIndex "
+          + "then 0 else 1 end, e.name, e.id")
+  List<PasswordEntryDto> findDtosByUrlDomain(
+      Long ownerId, String domain, String host, Integer domainIndex, Integer hostIndex);
+
+  /**
+   * The owner's entries with the given username blind index (which may also match other usernames),
+   * as DTOs without the password column, by name. A scan of the (owner_id, username_bidx) index.
+   */
+  @Query(
+      "select new com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto("
+          + "e.id, e.name, e.username, e.url, e.notes, e.category.id, e.version, "
+          + "case when e.totpSecret is not null then true else false end) "
+          + "from PasswordEntry e where e.ownerId = :ownerId "
+          + "and e.usernameBlindIndex = :usernameIndex order by e.name, e.id")
+  List<PasswordEntryDto> findDtosByUsernameIndex(Long ownerId, int usernameIndex);
+
+  /**
+   * The owner's entries with the given plaintext username, ignoring case, as DTOs without the
+   * password column, by name. For owners without a vault; filters the owner's rows.
+   */
+  @Query(
+      "select new com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto("
+          + "e.id, e.name, e.username, e.url, e.notes, e.category.id, e.version, "
+          + "case when e.totpSecret is not null then true else false end) "
+          + "from PasswordEntry e where e.ownerId = :ownerId "
+          + "and lower(trim(e.username)) = :username order by e.name, e.id")
+  List<PasswordEntryDto> findDtosByUsername(Long ownerId, String username);
+
+  /**
+   * Next {@code limit} entries of the owner, by id above {@code afterId}, that have a plaintext url
+   * but no normalized host: rows written before the host was stored (and urls without a host).
+   */
+  @Query(
+      value =
+          "select id, version, url from password_entries "
+              + "where owner_id = :ownerId and id > :afterId and url is not null "
+              + "and url_host is null and url not like 'v1:%' order by id limit :limit",
+      nativeQuery = true)
+  List<UnresolvedUrl> findUnresolvedUrls(Long ownerId, long afterId, int limit);
+
+  /** Row of {@link #findUnresolvedUrls}. */
+  interface UnresolvedUrl {
+    Long getId();
+
+    long getVersion();
+
+    String getUrl();
+  }
+
+  /**
+   * Stores the normalized host and domain of the given entries (element-wise arrays) in one
+   * statement, under the same version guard as {@link #migratePassword}; the version itself is not
+   * incremented.
+   */
+  @Modifying
+  @Query(
+      value =
+          "update password_entries e set url_host = u.host, url_domain = u.domain "
+              + "from unnest(:ids, :versions, :hosts, :domains) as u(id, version, host, domain) "
+              + "where e.owner_id = :ownerId and e.id = u.id and e.version = u.version",
+      nativeQuery = true)
+  int resolveUrls(Long ownerId, Long[] ids, Long[] versions, String[] hosts, String[] domains);
+
+  // The bulk statements below bind the id set as a single array parameter (id = any(?)), so the
+  // statement text and its server-side plan are the same regardless of how many ids are passed.
+
+  @Query(
+      value = "select id from password_entries where owner_id = :ownerId and id = any(:ids)",
+      nativeQuery = true)
+  List<Long> findOwnedIds(Long ownerId, Long[] ids);
+
+  @Query(
+      value = "select * from password_entries where owner_id = :ownerId and id = any(:ids)",
+      nativeQuery = true)
+  List<PasswordEntry> findAllOwned(Long ownerId, Long[] ids);
+
+  /** The TOTP secrets of those of the given entries that have one, without the rest of the row. */
+  @Query(
+      value =
+          "select id, name, totp_secret as \"totpSecret\" from password_entries "
+              + "where owner_id = :ownerId and id = any(:ids) and totp_secret is not null",
+      nativeQuery = true)
+  List<TotpSecret> findTotpSecrets(Long ownerId, Long[] ids);
+
+  /** Row of {@link #findTotpSecrets}. */
+  interface TotpSecret {
+    Long getId();
+
+    String getName();
+
+    String getTotpSecret();
+  }
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      value = "delete from password_entries where owner_id = :ownerId and id = any(:ids)",
+      nativeQuery = true)
+  int deleteOwned(Long ownerId, Long[] ids);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      value =
+          "update password_entries set category_id = :categoryId, updated_at = :now, "
+              + "change_seq = :changeSeq, version = version + 1 where owner_id = :ownerId and id = any(:ids)",
+      nativeQuery = true)
+  int moveOwned(Long ownerId, Long[] ids, Long categoryId, LocalDateTime now, long changeSeq);
+
+  /**
+   * Sets username, url and/or notes on the given entries from element-wise arrays, one element per
+   * entry, so each entry can carry its own ciphertext. Only the fields whose flag is set are
+   * written, and null elements clear them. The username's blind index and the url's normalized host
+   * and domain (or their blind indexes) are set along with them.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      value =
+          "update password_entries e set "
+              + "username = case when :setUsername then u.username else e.username end, "
+              + "username_bidx = case when :setUsername then u.username_bidx "
+              + "else e.username_bidx end, "
+              + "url = case when :setUrl then u.url else e.url end, "
+              + "url_host = case when :setUrl then u.url_host else e.url_host end, "
+              + "url_domain = case when :setUrl then u.url_domain else e.url_domain end, "
+              + "url_host_bidx = case when :setUrl then u.url_host_bidx else e.url_host_bidx end, "
+              + "url_domain_bidx = case when :setUrl then u.url_domain_bidx "
+              + "else e.url_domain_bidx end, "
+              + "notes = case when :setNotes then u.notes else e.notes end, "
+              + "updated_at = :now, change_seq = :changeSeq, version = e.version + 1 "
+              + "from unnest(:ids, :usernames, :usernameIndexes, :urls, :urlHosts, :urlDomains, "
+              + ":urlHostIndexes, :urlDomainIndexes, :notes) as u(id, username, username_bidx, "
+              + "url, url_host, url_domain, url_host_bidx, url_domain_bidx, notes) "
+              + "where e.owner_id = :ownerId and e.id = u.id",
+      nativeQuery = true)
+  int patchOwned(
+      Long ownerId,
+      boolean setUsername,
+      boolean setUrl,
+      boolean setNotes,
+      Long[] ids,
+      String[] usernames,
+      Integer[] usernameIndexes,
+      String[] urls,
+      String[] urlHosts,
+      String[] urlDomains,
+      Integer[] urlHostIndexes,
+      Integer[] urlDomainIndexes,
+      String[] notes,
+      LocalDateTime now,
+      long changeSeq);
+
+  /**
+   * Replaces the plaintext username, url, notes and TOTP secret of an entry with their ciphertext
+   * and blind indexes, clearing the plaintext url host and domain, under the same version guard as
+   * {@link #migratePassword}; the version is not incremented.
+   */
+  @Modifying
+  @Query(
+      "update PasswordEntry e set e.username = :username, e.usernameBlindIndex = :usernameIndex, "
+          + "e.url = :url, e.urlHost = null, e.urlDomain = null, "
+          + "e.urlHostBlindIndex = :urlHostIndex, e.urlDomainBlindIndex = :urlDomainIndex, "
+          + "e.notes = :notes, e.totpSecret = :totpSecret "
+          + "where e.id = :id and e.ownerId = :ownerId and e.version = :version")
+  int sealFields(
+      Long id,
+      Long ownerId,
+      long version,
+      String username,
+      Integer usernameIndex,
+      String url,
+      Integer urlHostIndex,
+      Integer urlDomainIndex,
+      String notes,
+      String totpSecret);
+
+  /**
+   * Replaces a legacy plaintext password with its vault ciphertext and fingerprint, but only if the
+   * entry is still at the version it had when the plaintext was read. The version is deliberately
+   * not incremented: the visible entry does not change, so clients holding that version must not
+   * get a conflict.
+   */
+  @Modifying
+  @Query(
+      "update PasswordEntry e set e.password = :password, e.passwordFingerprint = :fingerprint "
+          + "where e.id = :id and e.ownerId = :ownerId and e.version = :version")
+  int migratePassword(Long id, Long ownerId, long version, String password, String fingerprint);
+
+  /**
+   * Stores the fingerprint and strength score of an entry that predates them, under the same
+   * version guard as {@link #migratePassword}.
+   */
+  @Modifying
+  @Query(
+      "update PasswordEntry e set e.passwordFingerprint = :fingerprint, "
+          + "e.strengthScore = :strengthScore "
+          + "where e.id = :id and e.ownerId = :ownerId and e.version = :version")
+  int refreshHealth(Long id, Long ownerId, long version, String fingerprint, int strengthScore);
+
+  /**
+   * Stores the result of a background breach check, under the same version guard as {@link
+   * #migratePassword}: if the entry changed meanwhile, the check was for an outdated password.
+   */
+  @Modifying
+  @Query(
+      "update PasswordEntry e set e.breachCount = :breachCount "
+          + "where e.id = :id and e.ownerId = :ownerId and e.version = :version")
+  int recordBreachCount(Long id, Long ownerId, long version, int breachCount);
+
+  /**
+   * Whether any of the owner's entries has a {@code password_aged} flag that is out of date for the
+   * given cutoff. Lets the aging job skip an owner without locking it.
+   */
+  @Query(
+      value =
+          "select exists (select 1 from password_entries where owner_id = :ownerId "
+              + "and ((not password_aged and coalesce(password_changed_at, updated_at) < :cutoff) "
+              + "or (password_aged and coalesce(password_changed_at, updated_at) >= :cutoff)))",
+      nativeQuery = true)
+  boolean hasEntriesToAge(Long ownerId, LocalDateTime cutoff);
+
+  /**
+   * Brings the {@code password_aged} flag of up to {@code limit} of the owner's entries in line
+   * with the cutoff: set when the password was last changed before it, cleared otherwise. Neither
+   * the version nor {@code updated_at} changes; the entries themselves do not.
+   */
+  @Modifying
+  @Query(
+      value =
+          "update password_entries set password_aged = "
+              + "coalesce(password_changed_at, updated_at) < :cutoff "
+              + "where owner_id = :ownerId and id in (select id from password_entries "
+              + "where owner_id = :ownerId and ((not password_aged "
+              + "and coalesce(password_changed_at, updated_at) < :cutoff) or (password_aged "
+              + "and coalesce(password_changed_at, updated_at) >= :cutoff)) limit :limit)",
+      nativeQuery = true)
+  int ageOwned(Long ownerId, LocalDateTime cutoff, int limit);
 }
@@ -0,0 +1,21 @@
+package com.vaultweb.passwordmanager.backend.repositories;
+
+import com.vaultweb.passwordmanager.backend.model.VaultHealth;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface VaultHealthRepository extends JpaRepository<VaultHealth, Long> {
+
+  /**
+   * Next {@code limit} owners, by id above {@code afterOwnerId}, that have entries. Background jobs
+   * page through owners here and then query {@code password_entries} one owner at a time, so each
+   * of their queries reads a single partition.
+   */
+  @Query(
+      value =
+          "select owner_id from vault_health where owner_id > :afterOwnerId and entry_count > 0 "
+              + "order by owner_id limit :limit",
+      nativeQuery = true)
+  List<Long> findOwnersWithEntries(long afterOwnerId, int limit);
+}
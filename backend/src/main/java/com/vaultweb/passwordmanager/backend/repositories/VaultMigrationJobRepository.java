@@ -0,0 +1,45 @@
+package com.vaultweb.passwordmanager.backend.repositories;
+
+import com.vaultweb.passwordmanager.backend.model.VaultMigrationJob;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface VaultMigrationJobRepository extends JpaRepository<VaultMigrationJob, Long> {
+
+  Optional<VaultMigrationJob> findByIdAndOwnerId(Long id, Long ownerId);
+
+  Optional<VaultMigrationJob> findByOwnerIdAndStatus(Long ownerId, VaultMigrationJob.Status status);
+
+  Optional<VaultMigrationJob> findFirstByOwnerIdOrderByIdDesc(Long ownerId);
+
+  /**
+   * Takes over an abandoned job: succeeds (returns 1) only for the caller that still sees the
+   * heartbeat the job was judged stale by, so two instances cannot both resume it.
+   */
+  @Modifying
+  @Query(
+      "update VaultMigrationJob j set j.updatedAt = :now "
+          + "where j.id = :id and j.updatedAt = :seenUpdatedAt")
+  int claim(Long id, LocalDateTime seenUpdatedAt, LocalDateTime now);
+
+  /**
+   * Restarts a failed job from its checkpoint: succeeds (returns 1) only for the caller that still
+   * sees it failed, so two instances cannot both restart it.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query(
+      "update VaultMigrationJob j set j.status = :running, j.error = null, j.updatedAt = :now "
+          + "where j.id = :id and j.status = :failed")
+  int retry(
+      Long id,
+      LocalDateTime now,
+      VaultMigrationJob.Status running,
+      VaultMigrationJob.Status failed);
+
+  default int retry(Long id, LocalDateTime now) {
+    return retry(id, now, VaultMigrationJob.Status.RUNNING, VaultMigrationJob.Status.FAILED);
+  }
+}
@@ -0,0 +1,32 @@
+package com.vaultweb.passwordmanager.backend.repositories;
+
+import com.vaultweb.passwordmanager.backend.model.VaultOutboxEvent;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+public interface VaultOutboxRepository extends JpaRepository<VaultOutboxEvent, Long> {
+
+  @Modifying
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "vault_outbox"))
+  @Query(
+      value =
+          "insert into vault_outbox (owner_id, change_seq, created_at) "
+              + "values (:ownerId, :changeSeq, :now)",
+      nativeQuery = true)
+  int append(Long ownerId, long changeSeq, LocalDateTime now);
+
+  List<VaultOutboxEvent> findTop500ByIdGreaterThanOrderByIdAsc(long id);
+
+  @Query("select coalesce(max(e.id), 0) from VaultOutboxEvent e")
+  long findMaxId();
+
+  @Modifying
+  @Query(value = "delete from vault_outbox where created_at < :cutoff", nativeQuery = true)
+  int deleteOlderThan(LocalDateTime cutoff);
+}
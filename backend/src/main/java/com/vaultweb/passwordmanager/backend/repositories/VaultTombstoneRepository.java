@@ -0,0 +1,26 @@
+package com.vaultweb.passwordmanager.backend.repositories;
+
+import com.vaultweb.passwordmanager.backend.model.VaultTombstone;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface VaultTombstoneRepository extends JpaRepository<VaultTombstone, Long> {
+
+  List<VaultTombstone> findAllByOwnerIdAndChangeSeqGreaterThan(Long ownerId, long changeSeq);
+
+  /** Writes one tombstone per id with a single statement. */
+  @Modifying
+  @Query(
+      value =
+          "insert into vault_tombstones (owner_id, entity_type, entity_id, change_seq, deleted_at) "
+              + "select :ownerId, :entityType, unnest(:ids), :changeSeq, :now",
+      nativeQuery = true)
+  int insertAll(Long ownerId, String entityType, Long[] ids, long changeSeq, LocalDateTime now);
+
+  @Modifying
+  @Query(value = "delete from vault_tombstones where deleted_at < :cutoff", nativeQuery = true)
+  int deleteOlderThan(LocalDateTime cutoff);
+}
@@ -0,0 +1,53 @@
+package com.vaultweb.passwordmanager.backend.repositories;
+
+import com.vaultweb.passwordmanager.backend.model.VaultVersion;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+public interface VaultVersionRepository extends JpaRepository<VaultVersion, Long> {
+
+  @Query("select v.version from VaultVersion v where v.ownerId = :ownerId")
+  Optional<Long> findVersion(Long ownerId);
+
+  /**
+   * Atomically increments (or creates) the owner's counter and returns the new value. The query
+   * space hint tells Hibernate this statement only touches vault_versions, so calling it in the
+   * middle of an entity update does not force an early flush (and a second UPDATE) of that entity.
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "vault_versions"))
+  @Query(
+      value =
+          "insert into vault_versions (owner_id, version) values (:ownerId, 1) "
+              + "on conflict (owner_id) do update set version = vault_versions.version + 1 "
+              + "returning version",
+      nativeQuery = true)
+  long increment(Long ownerId);
+
+  /** Row-locks the owner's counter without changing it (no row: nothing to lock). */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "vault_versions"))
+  @Query(
+      value = "select owner_id from vault_versions where owner_id = :ownerId for update",
+      nativeQuery = true)
+  List<Long> lock(Long ownerId);
+
+  /**
+   * Records, per owner, the highest version among tombstones that are about to be compacted. Must
+   * run in the same transaction as the matching {@link VaultTombstoneRepository#deleteOlderThan}.
+   */
+  @Modifying
+  @Query(
+      value =
+          "update vault_versions v set compacted_seq = t.max_seq "
+              + "from (select owner_id, max(change_seq) as max_seq from vault_tombstones "
+              + "where deleted_at < :cutoff group by owner_id) t "
+              + "where v.owner_id = t.owner_id and v.compacted_seq < t.max_seq",
+      nativeQuery = true)
+  int raiseCompactedSeq(LocalDateTime cutoff);
+}
@@ -0,0 +1,301 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.exceptions.NotFoundException;
+import com.vaultweb.passwordmanager.backend.exceptions.QuotaExceededException;
+import com.vaultweb.passwordmanager.backend.exceptions.VaultNotInitializedException;
+import com.vaultweb.passwordmanager.backend.model.EntryAttachment;
+import com.vaultweb.passwordmanager.backend.model.dtos.AttachmentDto;
+import com.vaultweb.passwordmanager.backend.repositories.EntryAttachmentRepository;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.support.ChunkedAesGcm;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Files attached to password entries, e.g. SSH keys, recovery codes or license files.
+ *
+ * <p>Uploads are streamed: the request body is read one chunk at a time, encrypted with {@link
+ * ChunkedAesGcm} under a key derived from the vault DEK and written to the {@link AttachmentStore},
+ * so memory use does not depend on the size of the file. Downloads map the stored file and decrypt
+ * it chunk by chunk into the response. Attachments therefore require an initialized vault and an
+ * active vault session.
+ *
+ * <p>An attachment may be at most {@code vault.attachments.maxSize}, and all of an owner's
+ * attachments together at most {@code vault.attachments.quota}. The quota is checked before the
+ * upload, enforced while streaming, and checked again under the owner's lock when the attachment is
+ * recorded, so concurrent uploads cannot overshoot it together.
+ */
+@Service
+public class AttachmentService {
+
+  private static final int MAX_NAME_LENGTH = 255;
+  private static final int MAX_CONTENT_TYPE_LENGTH = 100;
+
+  /** A decrypted attachment, ready to be written to a response. */
+  public record Download(String name, String contentType, long size, Content content) {}
+
+  /** Writes the decrypted content of an attachment. */
+  @FunctionalInterface
+  public interface Content {
+    void writeTo(OutputStream out) throws IOException;
+  }
+
+  private final EntryAttachmentRepository repository;
+  private final PasswordEntryRepository entryRepository;
+  private final AttachmentStore store;
+  private final VaultService vaultService;
+  private final VaultSessionService vaultSessionService;
+  private final VaultCryptoService crypto;
+  private final VaultVersionService vaultVersionService;
+  private final VaultAuditLog auditLog;
+  private final TransactionTemplate transactionTemplate;
+  private final long maxSize;
+  private final long quota;
+
+  public AttachmentService(
+      EntryAttachmentRepository repository,
+      PasswordEntryRepository entryRepository,
+      AttachmentStore store,
+      VaultService vaultService,
+      VaultSessionService vaultSessionService,
+      VaultCryptoService crypto,
+      VaultVersionService vaultVersionService,
+      VaultAuditLog auditLog,
+      PlatformTransactionManager transactionManager,
+      @Value("${vault.attachments.maxSize:10MB}") DataSize maxSize,
+      @Value("${vault.attachments.quota:100MB}") DataSize quota) {
+    this.repository = repository;
+    this.entryRepository = entryRepository;
+    this.store = store;
+    this.vaultService = vaultService;
+    this.vaultSessionService = vaultSessionService;
+    this.crypto = crypto;
+    this.vaultVersionService = vaultVersionService;
+    this.auditLog = auditLog;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.maxSize = maxSize.toBytes();
+    this.quota = quota.toBytes();
+  }
+
+  /**
+   * Stores a new attachment of an entry, reading its content from {@code content}.
+   *
+   * @param ownerId the owner of the entry
+   * @param entryId the entry to attach the file to
+   * @param name the file name
+   * @param contentType the media type of the file, or null for {@code application/octet-stream}
+   * @param content the file content; read to the end
+   * @param vaultToken active vault session token
+   * @return the stored attachment
+   * @throws QuotaExceededException if the file is larger than the maximum size or the owner's
+   *     remaining quota
+   */
+  public AttachmentDto upload(
+      Long ownerId,
+      Long entryId,
+      String name,
+      String contentType,
+      InputStream content,
+      String vaultToken) {
+    if (name == null || name.isBlank() || name.length() > MAX_NAME_LENGTH) {
+      throw new IllegalArgumentException("name must be 1 to " + MAX_NAME_LENGTH + " characters");
+    }
+    if (contentType == null || contentType.isBlank()) {
+      contentType = "application/octet-stream";
+    } else if (contentType.length() > MAX_CONTENT_TYPE_LENGTH) {
+      throw new IllegalArgumentException("Content type too long");
+    }
+    byte[] dek = requireDek(ownerId, vaultToken);
+    requireEntry(ownerId, entryId);
+
+    long remaining = quota - repository.totalSize(ownerId);
+    if (remaining <= 0) {
+      throw quotaExceeded();
+    }
+    long limit = Math.min(maxSize, remaining);
+
+    String storageKey = store.newKey();
+    long size;
+    try {
+      try (FileChannel file = store.create(storageKey)) {
+        size = ChunkedAesGcm.encrypt(crypto.attachmentKey(dek, storageKey), content, file, limit);
+        file.force(true);
+      }
+      store.publish(storageKey);
+    } catch (ChunkedAesGcm.LimitExceededException e) {
+      store.delete(storageKey);
+      throw limit == maxSize
+          ? new QuotaExceededException("Attachments may be at most " + format(maxSize))
+          : quotaExceeded();
+    } catch (IOException e) {
+      store.delete(storageKey);
+      throw new UncheckedIOException(e);
+    }
+
+    EntryAttachment pending =
+        new EntryAttachment(
+            null,
+            ownerId,
+            entryId,
+            crypto.encryptPasswordWithDek(dek, name, ownerId),
+            crypto.encryptPasswordWithDek(dek, contentType, ownerId),
+            size,
+            storageKey,
+            null);
+    EntryAttachment saved;
+    try {
+      saved =
+          transactionTemplate.execute(
+              status -> {
+                vaultVersionService.lock(ownerId);
+                requireEntry(ownerId, entryId);
+                if (repository.totalSize(ownerId) + size > quota) {
+                  throw quotaExceeded();
+                }
+                return repository.save(pending);
+              });
+    } catch (RuntimeException e) {
+      store.delete(storageKey);
+      throw e;
+    }
+    return view(saved, name, contentType);
+  }
+
+  /**
+   * Lists the attachments of an entry, oldest first.
+   *
+   * @param ownerId the owner of the entry
+   * @param entryId the entry
+   * @param vaultToken active vault session token, needed to decrypt the file names
+   * @return the attachments
+   */
+  @Transactional(readOnly = true)
+  public List<AttachmentDto> list(Long ownerId, Long entryId, String vaultToken) {
+    byte[] dek = requireDek(ownerId, vaultToken);
+    requireEntry(ownerId, entryId);
+    return repository.findAllByOwnerIdAndEntryIdOrderById(ownerId, entryId).stream()
+        .map(
+            attachment ->
+                view(
+                    attachment,
+                    crypto.decryptPasswordWithDek(dek, attachment.getName(), ownerId),
+                    crypto.decryptPasswordWithDek(dek, attachment.getContentType(), ownerId)))
+        .toList();
+  }
+
+  /**
+   * Opens an attachment for download. The content is decrypted only as it is written.
+   *
+   * @param ownerId the owner of the entry
+   * @param entryId the entry
+   * @param id the attachment
+   * @param vaultToken active vault session token
+   * @return the attachment's name, type, size and content
+   */
+  @Transactional(readOnly = true)
+  public Download download(Long ownerId, Long entryId, Long id, String vaultToken) {
+    byte[] dek = requireDek(ownerId, vaultToken);
+    EntryAttachment attachment = require(ownerId, entryId, id);
+    byte[] key = crypto.attachmentKey(dek, attachment.getStorageKey());
+    String storageKey = attachment.getStorageKey();
+    auditLog.record(
+        ownerId, VaultAuditLog.EventType.ATTACHMENT_DOWNLOAD, entryId, "attachment " + id);
+    return new Download(
+        crypto.decryptPasswordWithDek(dek, attachment.getName(), ownerId),
+        crypto.decryptPasswordWithDek(dek, attachment.getContentType(), ownerId),
+        attachment.getSize(),
+        out -> ChunkedAesGcm.decrypt(key, store.map(storageKey), out));
+  }
+
+  /**
+   * Deletes an attachment. Works while the vault is locked.
+   *
+   * @param ownerId the owner of the entry
+   * @param entryId the entry
+   * @param id the attachment
+   */
+  @Transactional
+  public void delete(Long ownerId, Long entryId, Long id) {
+    EntryAttachment attachment = require(ownerId, entryId, id);
+    repository.delete(attachment);
+    deleteFilesAfterCommit(List.of(attachment.getStorageKey()));
+  }
+
+  /**
+   * Deletes the attachments of entries that are being deleted, as part of the caller's transaction;
+   * the files are removed once it commits.
+   *
+   * @param ownerId the owner of the entries
+   * @param entryIds the entries
+   */
+  @Transactional
+  public void deleteForEntries(Long ownerId, List<Long> entryIds) {
+    Long[] ids = entryIds.toArray(Long[]::new);
+    List<String> storageKeys = repository.findStorageKeys(ownerId, ids);
+    if (storageKeys.isEmpty()) {
+      return;
+    }
+    repository.deleteByEntryIds(ownerId, ids);
+    deleteFilesAfterCommit(storageKeys);
+  }
+
+  private void deleteFilesAfterCommit(List<String> storageKeys) {
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            storageKeys.forEach(store::delete);
+          }
+        });
+  }
+
+  private byte[] requireDek(Long ownerId, String vaultToken) {
+    if (!vaultService.isInitialized(ownerId)) {
+      throw new VaultNotInitializedException("Attachments require an initialized vault");
+    }
+    return vaultSessionService.requireDek(ownerId, vaultToken);
+  }
+
+  private void requireEntry(Long ownerId, Long entryId) {
+    if (entryRepository.findOwnedIds(ownerId, new Long[] {entryId}).isEmpty()) {
+      throw new NotFoundException("Password entry not found with id " + entryId);
+    }
+  }
+
+  private EntryAttachment require(Long ownerId, Long entryId, Long id) {
+    return repository
+        .findByIdAndOwnerIdAndEntryId(id, ownerId, entryId)
+        .orElseThrow(() -> new NotFoundException("Attachment not found with id " + id));
+  }
+
+  private QuotaExceededException quotaExceeded() {
+    return new QuotaExceededException("Attachment quota of " + format(quota) + " exceeded");
+  }
+
+  private static String format(long bytes) {
+    DataSize size = DataSize.ofBytes(bytes);
+    return size.toMegabytes() > 0 ? size.toMegabytes() + " MB" : size.toKilobytes() + " KB";
+  }
+
+  private static AttachmentDto view(EntryAttachment attachment, String name, String contentType) {
+    return new AttachmentDto(
+        attachment.getId(),
+        attachment.getEntryId(),
+        name,
+        contentType,
+        attachment.getSize(),
+        attachment.getCreatedAt());
+  }
+}
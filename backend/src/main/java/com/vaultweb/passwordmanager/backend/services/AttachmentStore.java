@@ -0,0 +1,177 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.repositories.EntryAttachmentRepository;
+import com.vaultweb.passwordmanager.backend.support.SecureRandoms;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Local file store for encrypted attachment content. Each file is named by a random storage key and
+ * kept in a subdirectory named by its first two characters, so no directory grows too large.
+ *
+ * <p>A file is written under a temporary name and renamed into place once complete and synced, so a
+ * stored file is never partial. Files are read by mapping them into memory, which keeps their
+ * content off the heap and lets the operating system page it in as it is decrypted.
+ *
+ * <p>Files and their database rows are written in separate steps, so a crash in between can leave a
+ * file without a row; {@link #sweep} removes those.
+ */
+@Slf4j
+@Service
+public class AttachmentStore {
+
+  private static final String PART_SUFFIX = ".part";
+  private static final int SWEEP_BATCH = 500;
+
+  private final SecureRandom secureRandom = SecureRandoms.drbg();
+  private final Path root;
+  private final EntryAttachmentRepository repository;
+  private final Duration sweepGrace;
+
+  public AttachmentStore(
+      EntryAttachmentRepository repository,
+      @Value("${vault.attachments.dir:data/attachments}") Path root,
+      @Value("${vault.attachments.sweepGrace:PT1H}") Duration sweepGrace) {
+    this.repository = repository;
+    this.root = root;
+    this.sweepGrace = sweepGrace;
+  }
+
+  /** A new random storage key (128 bits, hex). */
+  public String newKey() {
+    byte[] bytes = new byte[16];
+    secureRandom.nextBytes(bytes);
+    return HexFormat.of().formatHex(bytes);
+  }
+
+  /** Opens the temporary file a new attachment is written to; see {@link #publish}. */
+  public FileChannel create(String key) throws IOException {
+    Path part = partPath(key);
+    Files.createDirectories(part.getParent());
+    return FileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+  }
+
+  /** Moves a completely written temporary file into place. */
+  public void publish(String key) throws IOException {
+    Path target = path(key);
+    if (Files.exists(target)) {
+      throw new FileAlreadyExistsException(target.toString());
+    }
+    Files.move(partPath(key), target, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Maps a stored file read-only. */
+  public ByteBuffer map(String key) throws IOException {
+    try (FileChannel channel = FileChannel.open(path(key), StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  /** Deletes a stored file and its temporary file, if any; failures are logged, not thrown. */
+  public void delete(String key) {
+    try {
+      Files.deleteIfExists(partPath(key));
+      Files.deleteIfExists(path(key));
+    } catch (IOException e) {
+      log.warn("Could not delete attachment file {}: {}", key, e.getMessage());
+    }
+  }
+
+  /**
+   * Deletes files that belong to no attachment, and temporary files of abandoned uploads, once they
+   * are older than {@code vault.attachments.sweepGrace} (so uploads in progress are spared).
+   */
+  @Scheduled(
+      initialDelayString = "${vault.attachments.sweepDelayMs:86400000}",
+      fixedDelayString = "${vault.attachments.sweepDelayMs:86400000}")
+  public void sweep() {
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    Instant cutoff = Instant.now().minus(sweepGrace);
+    List<Path> candidates = new ArrayList<>();
+    try (Stream<Path> files = Files.walk(root, 2)) {
+      files
+          .filter(Files::isRegularFile)
+          .filter(file -> modifiedBefore(file, cutoff))
+          .forEach(
+              file -> {
+                if (file.getFileName().toString().endsWith(PART_SUFFIX)) {
+                  deleteQuietly(file);
+                  return;
+                }
+                candidates.add(file);
+                if (candidates.size() == SWEEP_BATCH) {
+                  deleteOrphans(candidates);
+                  candidates.clear();
+                }
+              });
+    } catch (IOException | UncheckedIOException e) {
+      log.warn("Could not sweep the attachment store: {}", e.getMessage());
+    }
+    deleteOrphans(candidates);
+  }
+
+  private void deleteOrphans(List<Path> files) {
+    if (files.isEmpty()) {
+      return;
+    }
+    String[] keys =
+        files.stream().map(file -> file.getFileName().toString()).toArray(String[]::new);
+    Set<String> existing = new HashSet<>(repository.findExistingStorageKeys(keys));
+    for (Path file : files) {
+      if (!existing.contains(file.getFileName().toString())) {
+        log.info("Deleting orphaned attachment file {}", file.getFileName());
+        deleteQuietly(file);
+      }
+    }
+  }
+
+  private static boolean modifiedBefore(Path file, Instant cutoff) {
+    try {
+      return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Could not delete {}: {}", file, e.getMessage());
+    }
+  }
+
+  private Path path(String key) {
+    if (!key.matches("[0-9a-f]{32}")) {
+      throw new IllegalArgumentException("Invalid storage key");
+    }
+    return root.resolve(key.substring(0, 2)).resolve(key);
+  }
+
+  private Path partPath(String key) {
+    Path path = path(key);
+    return path.resolveSibling(path.getFileName() + PART_SUFFIX);
+  }
+}
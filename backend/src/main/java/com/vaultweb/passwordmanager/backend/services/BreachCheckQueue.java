@@ -0,0 +1,157 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.exceptions.PasswordBreachCheckException;
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Background breach checks of newly stored passwords. A breach lookup is a remote call, too slow
+ * for the write path, and the plaintext is only at hand while the password is written; so the write
+ * hashes it (SHA-1, as the range API needs) and queues the hash here. The checks run on a fixed
+ * delay and store their result in {@code breach_count}.
+ *
+ * <p>Pending checks are keyed by entry id, so a later write of the same entry replaces an earlier
+ * one. A check that is lost (queue full, restart) or fails leaves {@code breach_count} null; it is
+ * reported as unchecked and redone by {@code POST /api/vault/migrate}.
+ */
+@Slf4j
+@Service
+public class BreachCheckQueue {
+
+  record PendingCheck(Long entryId, Long ownerId, long version, String hash) {}
+
+  private final BreachedPasswordService breachedPasswordService;
+  private final PasswordEntryRepository repository;
+  private final VaultVersionService vaultVersionService;
+  private final TransactionTemplate transactionTemplate;
+  private final int maxPending;
+  private final int batchSize;
+  private final Map<Long, PendingCheck> pending = new ConcurrentHashMap<>();
+
+  public BreachCheckQueue(
+      BreachedPasswordService breachedPasswordService,
+      PasswordEntryRepository repository,
+      VaultVersionService vaultVersionService,
+      PlatformTransactionManager transactionManager,
+      @Value("${vault.health.breachCheck.maxPending:10000}") int maxPending,
+      @Value("${vault.health.breachCheck.batchSize:100}") int batchSize) {
+    this.breachedPasswordService = breachedPasswordService;
+    this.repository = repository;
+    this.vaultVersionService = vaultVersionService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.maxPending = maxPending;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Queues a breach check of the password being stored on the entry. Inside a transaction the check
+   * is only queued once it commits, when the entry has its id and final version.
+   *
+   * @param entry the entry being written (its id, owner and version guard the later write)
+   * @param password the plaintext password; only its hash is kept
+   */
+  public void enqueue(PasswordEntry entry, String password) {
+    String hash = BreachedPasswordService.sha1Hex(password);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      offer(entry, hash);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            offer(entry, hash);
+          }
+        });
+  }
+
+  private void offer(PasswordEntry entry, String hash) {
+    if (entry.getId() == null) {
+      return;
+    }
+    if (pending.size() >= maxPending && !pending.containsKey(entry.getId())) {
+      return;
+    }
+    pending.put(
+        entry.getId(),
+        new PendingCheck(entry.getId(), entry.getOwnerId(), entry.getVersion(), hash));
+  }
+
+  /** Number of checks waiting to run. */
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Runs up to one batch of pending checks and stores the results in a single transaction, locking
+   * the owners in order as {@link LegacyPasswordMigrator#flush} does. Checks that fail are dropped;
+   * entries that changed since they were queued are skipped.
+   */
+  @Scheduled(fixedDelayString = "${vault.health.breachCheck.delayMs:1000}")
+  public void flush() {
+    List<PendingCheck> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+    Iterator<PendingCheck> it = pending.values().iterator();
+    while (it.hasNext() && batch.size() < batchSize) {
+      batch.add(it.next());
+      it.remove();
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    // Reused passwords are looked up once
+    Map<String, Integer> counts = new HashMap<>();
+    List<PendingCheck> checked = new ArrayList<>(batch.size());
+    for (PendingCheck check : batch) {
+      if (!counts.containsKey(check.hash())) {
+        try {
+          counts.put(check.hash(), breachedPasswordService.countBreaches(check.hash()));
+        } catch (PasswordBreachCheckException e) {
+          continue;
+        }
+      }
+      checked.add(check);
+    }
+    if (checked.isEmpty()) {
+      log.debug("All {} breach checks failed", batch.size());
+      return;
+    }
+    checked.sort(Comparator.comparing(PendingCheck::ownerId));
+
+    int stored =
+        transactionTemplate.execute(
+            status -> {
+              int updated = 0;
+              Long lockedOwner = null;
+              for (PendingCheck check : checked) {
+                if (!check.ownerId().equals(lockedOwner)) {
+                  lockedOwner = check.ownerId();
+                  vaultVersionService.lock(lockedOwner);
+                }
+                updated +=
+                    repository.recordBreachCount(
+                        check.entryId(),
+                        check.ownerId(),
+                        check.version(),
+                        counts.get(check.hash()));
+              }
+              return updated;
+            });
+    log.debug("Stored {} of {} breach checks", stored, batch.size());
+  }
+}
@@ -3,6 +3,9 @@ package com.vaultweb.passwordmanager.backend.services;
 import com.vaultweb.passwordmanager.backend.exceptions.PasswordBreachCheckException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
@@ -13,23 +16,32 @@ import org.springframework.web.reactive.function.client.WebClient;
 public class BreachedPasswordService {
 
   private final WebClient webClient;
+  private final Duration timeout;
 
-  public BreachedPasswordService(WebClient webClient) {
+  public BreachedPasswordService(
+      WebClient webClient, @Value("${vault.breach.timeout:PT5S}") Duration timeout) {
     this.webClient = webClient;
+    this.timeout = timeout;
   }
 
   public int checkIfBreached(String password) {
-    try {
-      MessageDigest digest = MessageDigest.getInstance("SHA-1");
-      byte[] hashBytes = digest.digest(password.getBytes(StandardCharsets.UTF_8));
-      StringBuilder sb = new StringBuilder();
-      for (byte b : hashBytes) sb.append(String.format("%02X", b));
-      String hash = sb.toString();
+    return countBreaches(sha1Hex(password));
+  }
 
+  /**
+   * Looks up a password by its SHA-1 hash, so callers can hash it right away and do the (slow)
+   * lookup later without keeping the plaintext. Only the first five hex digits leave the service.
+   *
+   * @param hash uppercase hex SHA-1 of the password, as returned by {@link #sha1Hex}
+   * @return the number of occurrences in the breach corpus, 0 if none
+   */
+  public int countBreaches(String hash) {
+    try {
       String prefix = hash.substring(0, 5);
       String suffix = hash.substring(5);
 
-      String response = webClient.get().uri(prefix).retrieve().bodyToMono(String.class).block();
+      String response =
+          webClient.get().uri(prefix).retrieve().bodyToMono(String.class).block(timeout);
 
       if (response != null) {
         for (String line : response.split("\\R")) {
@@ -44,4 +56,16 @@ public class BreachedPasswordService {
     }
     return 0;
   }
+
+  public static String sha1Hex(String password) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      byte[] hashBytes = digest.digest(password.getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder();
+      for (byte b : hashBytes) sb.append(String.format("%02X", b));
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 not available", e);
+    }
+  }
 }
@@ -2,17 +2,28 @@ package com.vaultweb.passwordmanager.backend.services;
 
 import com.vaultweb.passwordmanager.backend.exceptions.NotFoundException;
 import com.vaultweb.passwordmanager.backend.model.Category;
+import com.vaultweb.passwordmanager.backend.model.VaultTombstone;
+import com.vaultweb.passwordmanager.backend.model.dtos.CategoryCountsResponseDto;
 import com.vaultweb.passwordmanager.backend.model.dtos.CategoryDto;
 import com.vaultweb.passwordmanager.backend.repositories.CategoryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository.CategoryEntryCount;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
 public class CategoryService {
 
   private final CategoryRepository repository;
+  private final PasswordEntryRepository passwordEntryRepository;
+  private final VaultVersionService vaultVersionService;
+  private final VaultSyncService vaultSyncService;
+  private final OwnerMetadataCache metadataCache;
 
   /**
    * Creates and persists a new category for a specified owner using the provided category details.
@@ -21,12 +32,15 @@ public class CategoryService {
    * @param ownerId the ID of the owner associated with the category
    * @return a {@code CategoryDto} representing the newly created category
    */
+  @Transactional
   public CategoryDto create(CategoryDto dto, Long ownerId) {
     Category category = new Category();
     category.setName(dto.getName());
     category.setColor(dto.getColor());
     category.setDescription(dto.getDescription());
     category.setOwnerId(ownerId);
+    category.setChangeSeq(vaultVersionService.bump(ownerId));
+    metadataCache.evictCategories(ownerId);
     return new CategoryDto(repository.save(category));
   }
 
@@ -37,10 +51,39 @@ public class CategoryService {
    * @return a list of {@code CategoryDto} objects representing the categories of the specified
    *     owner
    */
+  @Transactional(readOnly = true)
   public List<CategoryDto> getAll(Long ownerId) {
+    // Not from the category cache: the listing goes out under the vault version's ETag, so it must
+    // be at least as new as that version
     return repository.findAllByOwnerId(ownerId).stream().map(CategoryDto::new).toList();
   }
 
+  /**
+   * Retrieves all categories of the specified owner together with the number of entries in each,
+   * plus the number of uncategorized entries. The counts come from a single aggregate query; no
+   * entries are loaded.
+   *
+   * @param ownerId the ID of the owner whose categories are to be retrieved
+   * @return the categories with their {@code entryCount} set, and the uncategorized count
+   */
+  @Transactional(readOnly = true)
+  public CategoryCountsResponseDto getAllWithCounts(Long ownerId) {
+    Map<Long, Long> counts = new HashMap<>();
+    for (CategoryEntryCount row : passwordEntryRepository.countByCategory(ownerId)) {
+      counts.put(row.getCategoryId(), row.getEntryCount());
+    }
+    List<CategoryDto> categories =
+        repository.findAllByOwnerId(ownerId).stream()
+            .map(
+                category -> {
+                  CategoryDto dto = new CategoryDto(category);
+                  dto.setEntryCount(counts.getOrDefault(category.getId(), 0L));
+                  return dto;
+                })
+            .toList();
+    return new CategoryCountsResponseDto(categories, counts.getOrDefault(null, 0L));
+  }
+
   /**
    * Retrieves a category based on its ID and the owner's ID.
    *
@@ -49,6 +92,7 @@ public class CategoryService {
    * @return a {@code CategoryDto} representing the data of the retrieved category
    * @throws NotFoundException if no category is found with the specified ID and owner ID
    */
+  @Transactional(readOnly = true)
   public CategoryDto get(Long id, Long ownerId) {
     return new CategoryDto(findOwned(id, ownerId));
   }
@@ -62,11 +106,14 @@ public class CategoryService {
    * @param dto the data transfer object containing the updated category details
    * @return a {@code CategoryDto} representing the updated category
    */
+  @Transactional
   public CategoryDto update(Long id, Long ownerId, CategoryDto dto) {
     Category category = findOwned(id, ownerId);
     category.setName(dto.getName());
     category.setColor(dto.getColor());
     category.setDescription(dto.getDescription());
+    category.setChangeSeq(vaultVersionService.bump(ownerId));
+    metadataCache.evictCategories(ownerId);
     return new CategoryDto(repository.save(category));
   }
 
@@ -78,9 +125,14 @@ public class CategoryService {
    * @param ownerId the ID of the owner associated with the category
    * @throws NotFoundException if no category is found with the specified ID and ownerId
    */
+  @Transactional
   public void delete(Long id, Long ownerId) {
     Category category = findOwned(id, ownerId);
     repository.delete(category);
+    metadataCache.evictCategories(ownerId);
+    long changeSeq = vaultVersionService.bump(ownerId);
+    vaultSyncService.recordDeletions(
+        ownerId, VaultTombstone.EntityType.CATEGORY, List.of(category.getId()), changeSeq);
   }
 
   /**
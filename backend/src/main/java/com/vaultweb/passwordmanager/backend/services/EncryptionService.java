@@ -1,5 +1,6 @@
 package com.vaultweb.passwordmanager.backend.services;
 
+import com.vaultweb.passwordmanager.backend.support.SecureRandoms;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
@@ -17,7 +18,7 @@ public class EncryptionService {
   private static final int GCM_TAG_LENGTH = 128;
 
   private final SecretKeySpec secretKey;
-  private final SecureRandom secureRandom = new SecureRandom();
+  private final SecureRandom secureRandom = SecureRandoms.drbg();
 
   /**
    * Initializes an instance of the EncryptionService with the provided encryption key. This
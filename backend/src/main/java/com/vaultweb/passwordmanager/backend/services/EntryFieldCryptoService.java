@@ -0,0 +1,210 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Encrypts the username, url, notes and TOTP secret of the entries of owners with a vault, like
+ * their passwords, with the vault DEK; the name stays plaintext so a locked vault can still be
+ * listed by name in the reuse and health reports. Next to the ciphertext it stores truncated blind
+ * indexes (see {@link VaultCryptoService#blindIndex}) of the username and of the url's host and
+ * domain, which keep lookup by username and by site index scans without decrypting any row that
+ * does not match.
+ *
+ * <p>Values received from a request or an import are always encrypted, whatever they look like, so
+ * a note that happens to start with {@link VaultCryptoService#PASSWORD_PREFIX} is not mistaken for
+ * ciphertext. Only the vault migration job tells stored plaintext (written before the vault
+ * existed) from ciphertext by that prefix, see {@link #sealStored}; until then both are read side
+ * by side. Without a vault (no DEK) everything stays plaintext, so such values are rejected there.
+ */
+@Service
+@RequiredArgsConstructor
+public class EntryFieldCryptoService {
+
+  static final String USERNAME = "username";
+  static final String URL_HOST = "url-host";
+  static final String URL_DOMAIN = "url-domain";
+
+  /** The encrypted fields of an entry. */
+  public enum Field {
+    USERNAME,
+    URL,
+    NOTES,
+    TOTP_SECRET
+  }
+
+  private final VaultCryptoService crypto;
+  private final UrlDomainService urlDomainService;
+
+  /**
+   * Encrypts the entry's username, url, notes and TOTP secret, all of which must be plaintext as
+   * received, and sets their blind indexes. An encrypted url replaces the plaintext host and domain
+   * with their blind indexes.
+   *
+   * @param entry the entry being written, with its owner set
+   * @param dek the owner's DEK, or null if the vault is not initialized (nothing is encrypted)
+   * @throws IllegalArgumentException if there is no DEK and a value looks encrypted
+   */
+  public void seal(PasswordEntry entry, byte[] dek) {
+    seal(entry, dek, EnumSet.allOf(Field.class));
+  }
+
+  /**
+   * Encrypts the given fields of the entry, which must be plaintext as received; the other fields
+   * are stored fields and are only encrypted if still plaintext, like {@link #sealStored} does.
+   *
+   * @param entry the entry being written, with its owner set
+   * @param dek the owner's DEK, or null if the vault is not initialized (nothing is encrypted)
+   * @param fields the fields set from the request
+   * @throws IllegalArgumentException if there is no DEK and one of the values looks encrypted
+   */
+  public void seal(PasswordEntry entry, byte[] dek, Set<Field> fields) {
+    if (entry.getUrl() == null) {
+      entry.setUrlHostBlindIndex(null);
+      entry.setUrlDomainBlindIndex(null);
+    }
+    for (Field field : Field.values()) {
+      String value = get(entry, field);
+      if (!fields.contains(field)) {
+        if (dek != null && needsSealing(value)) {
+          seal(entry, dek, field, value);
+        }
+      } else if (value != null && dek != null) {
+        seal(entry, dek, field, value);
+      } else if (crypto.isVaultEncryptedPassword(value)) {
+        // Stored as is, it would be read back as ciphertext
+        throw new IllegalArgumentException(
+            field.name().toLowerCase(Locale.ROOT)
+                + " must not start with \""
+                + VaultCryptoService.PASSWORD_PREFIX
+                + "\" before the vault is set up");
+      }
+    }
+  }
+
+  /**
+   * Encrypts the fields of a stored entry that are still plaintext; used by the vault migration
+   * job.
+   *
+   * @param entry the stored entry, with its owner set
+   * @param dek the owner's DEK
+   */
+  public void sealStored(PasswordEntry entry, byte[] dek) {
+    seal(entry, dek, EnumSet.noneOf(Field.class));
+  }
+
+  /**
+   * Checks whether any of the entry's fields is still stored in plaintext.
+   *
+   * @param entry the stored entry
+   * @return true if {@link #sealStored} would encrypt something
+   */
+  public boolean needsSealing(PasswordEntry entry) {
+    return needsSealing(entry.getUsername())
+        || needsSealing(entry.getUrl())
+        || needsSealing(entry.getNotes())
+        || needsSealing(entry.getTotpSecret());
+  }
+
+  /**
+   * Decrypts the encrypted fields of an entry read from the database, in place.
+   *
+   * @param dto the entry, as stored
+   * @param ownerId the owner of the entry
+   * @param dek the owner's DEK, or null if the vault is not initialized or not unlocked (encrypted
+   *     fields are then left out)
+   * @return {@code dto}, with plaintext username, url and notes
+   */
+  public PasswordEntryDto open(PasswordEntryDto dto, Long ownerId, byte[] dek) {
+    dto.setUsername(open(dto.getUsername(), ownerId, dek));
+    dto.setUrl(open(dto.getUrl(), ownerId, dek));
+    dto.setNotes(open(dto.getNotes(), ownerId, dek));
+    return dto;
+  }
+
+  /**
+   * Decrypts a single stored field, e.g. a TOTP secret, which entry DTOs do not carry.
+   *
+   * @param value the field as stored, or null
+   * @param ownerId the owner of the entry
+   * @param dek the owner's DEK, or null (an encrypted value then opens to null)
+   * @return the plaintext value
+   */
+  public String open(String value, Long ownerId, byte[] dek) {
+    if (!crypto.isVaultEncryptedPassword(value)) {
+      return value;
+    }
+    return dek != null ? crypto.decryptPasswordWithDek(dek, value, ownerId) : null;
+  }
+
+  /**
+   * Blind index of a username; usernames match ignoring case and surrounding whitespace.
+   *
+   * @return the index, or null without a DEK
+   */
+  public Integer usernameIndex(byte[] dek, String username) {
+    return dek != null ? crypto.blindIndex(dek, USERNAME, normalizeUsername(username)) : null;
+  }
+
+  /**
+   * Blind index of a normalized url host ({@link UrlDomainService.UrlDomain#host}).
+   *
+   * @return the index, or null without a DEK
+   */
+  public Integer hostIndex(byte[] dek, String host) {
+    return dek != null ? crypto.blindIndex(dek, URL_HOST, host) : null;
+  }
+
+  /**
+   * Blind index of a registrable domain ({@link UrlDomainService.UrlDomain#domain}).
+   *
+   * @return the index, or null without a DEK
+   */
+  public Integer domainIndex(byte[] dek, String domain) {
+    return dek != null ? crypto.blindIndex(dek, URL_DOMAIN, domain) : null;
+  }
+
+  /** The form of a username that lookups compare. */
+  public static String normalizeUsername(String username) {
+    return username.strip().toLowerCase(Locale.ROOT);
+  }
+
+  private boolean needsSealing(String value) {
+    return value != null && !crypto.isVaultEncryptedPassword(value);
+  }
+
+  private static String get(PasswordEntry entry, Field field) {
+    return switch (field) {
+      case USERNAME -> entry.getUsername();
+      case URL -> entry.getUrl();
+      case NOTES -> entry.getNotes();
+      case TOTP_SECRET -> entry.getTotpSecret();
+    };
+  }
+
+  private void seal(PasswordEntry entry, byte[] dek, Field field, String value) {
+    Long ownerId = entry.getOwnerId();
+    String sealed = crypto.encryptPasswordWithDek(dek, value, ownerId);
+    switch (field) {
+      case USERNAME -> {
+        entry.setUsernameBlindIndex(usernameIndex(dek, value));
+        entry.setUsername(sealed);
+      }
+      case URL -> {
+        UrlDomainService.UrlDomain site = urlDomainService.normalize(value);
+        entry.setUrlHostBlindIndex(site != null ? hostIndex(dek, site.host()) : null);
+        entry.setUrlDomainBlindIndex(site != null ? domainIndex(dek, site.domain()) : null);
+        entry.setUrlHost(null);
+        entry.setUrlDomain(null);
+        entry.setUrl(sealed);
+      }
+      case NOTES -> entry.setNotes(sealed);
+      case TOTP_SECRET -> entry.setTotpSecret(sealed);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Completes the online conversion of {@code password_entries} to a hash-partitioned table started
+ * by migration V10. While the conversion is pending, a trigger mirrors every write into {@code
+ * password_entries_partitioned}; this service copies the rows that existed before, in id order and
+ * in chunks that each commit with their checkpoint, and then swaps the tables.
+ *
+ * <p>Rows are read {@code FOR SHARE}: a concurrent delete either waits for the chunk to commit (and
+ * its trigger then removes the copy) or commits first (and the row is skipped), so no deleted row
+ * is resurrected. Rows the trigger already copied are left alone. Instances coordinate through an
+ * advisory lock, so only one copies at a time. Once the table is partitioned (including new
+ * installations, where V10 swaps the empty table itself) the service stops after one catalog
+ * lookup.
+ */
+@Slf4j
+@Service
+public class EntryPartitioningService {
+
+  private static final long ADVISORY_LOCK_KEY = 0x70617274L; // "part"
+
+  // The columns are read from the catalog on every step rather than listed here, so a migration
+  // that adds a column to both tables while the conversion is pending needs no change in this class
+  // (see V20); the swap refuses to run if password_entries has a column the copy would drop.
+  private static final String PARTITIONED_COLUMNS =
+      "select string_agg(quote_ident(column_name), ', ' order by ordinal_position) "
+          + "from information_schema.columns "
+          + "where table_schema = current_schema() and table_name = 'password_entries_partitioned'";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final int chunkSize;
+  private final String swapLockTimeout;
+
+  private volatile boolean finished;
+
+  public EntryPartitioningService(
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      @Value("${vault.partitioning.chunkSize:5000}") int chunkSize,
+      @Value("${vault.partitioning.swapLockTimeout:2s}") String swapLockTimeout) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.chunkSize = chunkSize;
+    this.swapLockTimeout = swapLockTimeout;
+  }
+
+  /** Copies one chunk, or swaps the tables once there is nothing left to copy. */
+  @Scheduled(fixedDelayString = "${vault.partitioning.delayMs:1000}")
+  public void backfill() {
+    if (finished) {
+      return;
+    }
+    try {
+      Boolean pending = transactionTemplate.execute(status -> step());
+      finished = !Boolean.TRUE.equals(pending);
+    } catch (DataAccessException e) {
+      // Typically the swap not getting its lock within the timeout; try again on the next run.
+      log.warn("password_entries partitioning step failed, retrying: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Runs one step in the current transaction.
+   *
+   * @return whether the conversion is still pending afterwards
+   */
+  boolean step() {
+    if (!conversionPending()) {
+      return false;
+    }
+    if (!Boolean.TRUE.equals(
+        jdbcTemplate.queryForObject(
+            "select pg_try_advisory_xact_lock(?)", Boolean.class, ADVISORY_LOCK_KEY))) {
+      return true; // another instance is on it
+    }
+    if (!conversionPending()) {
+      return false; // swapped by another instance in the meantime
+    }
+
+    long lastId =
+        jdbcTemplate.queryForObject("select last_id from password_entries_backfill", Long.class);
+    String columns = jdbcTemplate.queryForObject(PARTITIONED_COLUMNS, String.class);
+    Long copiedUpTo =
+        jdbcTemplate.queryForObject(copyChunk(columns), Long.class, lastId, chunkSize);
+    if (copiedUpTo != null) {
+      jdbcTemplate.update("update password_entries_backfill set last_id = ?", copiedUpTo);
+      return true;
+    }
+
+    // Everything that existed before the trigger has been copied, and everything since was
+    // mirrored: make the partitioned table the live one.
+    jdbcTemplate.execute("set local lock_timeout = '" + swapLockTimeout + "'");
+    jdbcTemplate.execute("select password_entries_swap_partitioned()");
+    jdbcTemplate.execute("drop function password_entries_swap_partitioned()");
+    log.info(
+        "password_entries is now hash-partitioned; the old table was kept as "
+            + "password_entries_unpartitioned and can be dropped");
+    return false;
+  }
+
+  private static String copyChunk(String columns) {
+    return "with chunk as (select "
+        + columns
+        + " from password_entries where id > ? order by id limit ? for share), "
+        + "copied as (insert into password_entries_partitioned ("
+        + columns
+        + ") select "
+        + columns
+        + " from chunk on conflict (owner_id, id) do nothing) "
+        + "select max(id) from chunk";
+  }
+
+  private boolean conversionPending() {
+    return Boolean.TRUE.equals(
+        jdbcTemplate.queryForObject(
+            "select to_regclass('password_entries_partitioned') is not null", Boolean.class));
+  }
+}
@@ -0,0 +1,206 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Tracks how often and when entries are used (revealed or returned by an autofill match), for the
+ * frequent and recent orders of the entry listing.
+ *
+ * <p>Uses are counted in memory, per entry, with striped counters, so recording one is a few
+ * uncontended increments and never a database write. The counts are written behind on a fixed
+ * delay: each flush adds what accumulated since the last one to {@code password_entry_usage} with
+ * one upsert per {@code vault.usage.batchSize} entries (V16). Counts that are lost (too many
+ * entries tracked, failed write, crash) are harmless; they only influence the order of a listing.
+ */
+@Slf4j
+@Service
+public class EntryUsageService {
+
+  /** Stored usage of an entry. */
+  public record Usage(long useCount, LocalDateTime lastUsedAt) {}
+
+  record EntryKey(Long ownerId, Long entryId) {}
+
+  /** Uses of an entry since the last flush. */
+  static final class Counter {
+    final LongAdder count = new LongAdder();
+    final LongAccumulator lastUsed = new LongAccumulator(Math::max, Long.MIN_VALUE);
+  }
+
+  static final String UPSERT =
+      "insert into password_entry_usage as u (owner_id, entry_id, use_count, last_used_at) "
+          + "select * from unnest(?::bigint[], ?::bigint[], ?::bigint[], ?::timestamp[]) "
+          + "on conflict (owner_id, entry_id) do update "
+          + "set use_count = u.use_count + excluded.use_count, "
+          + "last_used_at = greatest(u.last_used_at, excluded.last_used_at)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final int maxTracked;
+  private final int batchSize;
+  final Map<EntryKey, Counter> counters = new ConcurrentHashMap<>();
+
+  /** Counters removed for being idle, drained once more by the next flush. */
+  private List<Map.Entry<EntryKey, Counter>> retired = new ArrayList<>();
+
+  private final ReentrantLock flushLock = new ReentrantLock();
+
+  public EntryUsageService(
+      JdbcTemplate jdbcTemplate,
+      @Value("${vault.usage.maxTracked:100000}") int maxTracked,
+      @Value("${vault.usage.batchSize:1000}") int batchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.maxTracked = maxTracked;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Counts a use of an entry.
+   *
+   * @param ownerId the owner of the entry
+   * @param entryId the entry that was used
+   */
+  public void record(Long ownerId, Long entryId) {
+    EntryKey key = new EntryKey(ownerId, entryId);
+    Counter counter = counters.get(key);
+    if (counter == null) {
+      if (counters.size() >= maxTracked) {
+        return;
+      }
+      counter = counters.computeIfAbsent(key, k -> new Counter());
+    }
+    counter.count.increment();
+    counter.lastUsed.accumulate(System.currentTimeMillis());
+  }
+
+  /**
+   * Returns the stored usage of the owner's entries, by entry id. Entries that were never used, or
+   * only since the last flush, are absent.
+   */
+  public Map<Long, Usage> usageOf(Long ownerId) {
+    Map<Long, Usage> usage = new HashMap<>();
+    jdbcTemplate.query(
+        "select entry_id, use_count, last_used_at from password_entry_usage where owner_id = ?",
+        rs -> {
+          usage.put(rs.getLong(1), new Usage(rs.getLong(2), rs.getTimestamp(3).toLocalDateTime()));
+        },
+        ownerId);
+    return usage;
+  }
+
+  /**
+   * Writes the uses counted since the last flush. A counter that saw no use since the last flush is
+   * removed; since a concurrent {@link #record} may still have been holding it, it is drained once
+   * more by the following flush. By then the entry may have a new counter too, so the uses are
+   * summed per entry first: one upsert cannot affect the same row twice.
+   */
+  @Scheduled(fixedDelayString = "${vault.usage.flushDelayMs:30000}")
+  public void flush() {
+    flushLock.lock();
+    try {
+      Map<EntryKey, Row> byKey = new LinkedHashMap<>();
+      for (Map.Entry<EntryKey, Counter> entry : retired) {
+        take(entry.getKey(), entry.getValue(), byKey);
+      }
+      retired = new ArrayList<>();
+      for (Map.Entry<EntryKey, Counter> entry : counters.entrySet()) {
+        if (!take(entry.getKey(), entry.getValue(), byKey)
+            && counters.remove(entry.getKey(), entry.getValue())) {
+          retired.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+      }
+      List<Row> rows = new ArrayList<>(byKey.values());
+      for (int from = 0; from < rows.size(); from += batchSize) {
+        write(rows.subList(from, Math.min(rows.size(), from + batchSize)));
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private record Row(EntryKey key, long count, LocalDateTime lastUsedAt) {
+
+    Row plus(Row other) {
+      return new Row(
+          key,
+          count + other.count,
+          lastUsedAt.isAfter(other.lastUsedAt) ? lastUsedAt : other.lastUsedAt);
+    }
+  }
+
+  private static boolean take(EntryKey key, Counter counter, Map<EntryKey, Row> rows) {
+    long count = counter.count.sumThenReset();
+    if (count == 0) {
+      return false;
+    }
+    LocalDateTime lastUsedAt =
+        LocalDateTime.ofInstant(
+            Instant.ofEpochMilli(counter.lastUsed.get()), ZoneId.systemDefault());
+    rows.merge(key, new Row(key, count, lastUsedAt), Row::plus);
+    return true;
+  }
+
+  private void write(List<Row> rows) {
+    Long[] ownerIds = new Long[rows.size()];
+    Long[] entryIds = new Long[rows.size()];
+    Long[] counts = new Long[rows.size()];
+    Timestamp[] lastUsed = new Timestamp[rows.size()];
+    for (int i = 0; i < rows.size(); i++) {
+      Row row = rows.get(i);
+      ownerIds[i] = row.key().ownerId();
+      entryIds[i] = row.key().entryId();
+      counts[i] = row.count();
+      lastUsed[i] = Timestamp.valueOf(row.lastUsedAt());
+    }
+    try {
+      jdbcTemplate.update(
+          UPSERT,
+          ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("bigint", ownerIds));
+            ps.setArray(2, connection.createArrayOf("bigint", entryIds));
+            ps.setArray(3, connection.createArrayOf("bigint", counts));
+            ps.setArray(4, connection.createArrayOf("timestamp", lastUsed));
+          });
+    } catch (DataAccessException e) {
+      log.warn("Could not write the usage of {} entries: {}", rows.size(), e.getMessage());
+    }
+  }
+
+  /** Deletes the stored usage of entries that no longer exist. */
+  @Scheduled(
+      initialDelayString = "${vault.usage.purgeDelayMs:86400000}",
+      fixedDelayString = "${vault.usage.purgeDelayMs:86400000}")
+  public void purgeDeleted() {
+    int purged =
+        jdbcTemplate.update(
+            "delete from password_entry_usage u where not exists (select 1 from password_entries e"
+                + " where e.owner_id = u.owner_id and e.id = u.entry_id)");
+    log.debug("Purged the usage of {} deleted entries", purged);
+  }
+
+  @PreDestroy
+  void drain() {
+    flush();
+    flush(); // retired counters
+  }
+}
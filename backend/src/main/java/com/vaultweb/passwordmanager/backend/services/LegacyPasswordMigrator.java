@@ -0,0 +1,132 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Write-behind migration of legacy plaintext passwords discovered by the reveal path. Reveal
+ * computes the vault ciphertext (it holds the DEK at that moment) and queues it here instead of
+ * writing, so reveal stays a read-only transaction. Pending migrations are keyed by entry id, so
+ * repeated reveals of the same entry coalesce, and are written in batches on a fixed delay.
+ *
+ * <p>Only ciphertext and fingerprints are queued. A queued migration that is lost (queue full,
+ * crash) is harmless: the entry stays plaintext and is queued again on its next reveal.
+ */
+@Slf4j
+@Service
+public class LegacyPasswordMigrator {
+
+  record PendingMigration(
+      Long entryId, Long ownerId, long version, String ciphertext, String fingerprint) {}
+
+  private final PasswordEntryRepository repository;
+  private final VaultVersionService vaultVersionService;
+  private final TransactionTemplate transactionTemplate;
+  private final int maxPending;
+  private final int batchSize;
+  private final Map<Long, PendingMigration> pending = new ConcurrentHashMap<>();
+
+  public LegacyPasswordMigrator(
+      PasswordEntryRepository repository,
+      VaultVersionService vaultVersionService,
+      PlatformTransactionManager transactionManager,
+      @Value("${vault.reveal.migration.maxPending:10000}") int maxPending,
+      @Value("${vault.reveal.migration.batchSize:200}") int batchSize) {
+    this.repository = repository;
+    this.vaultVersionService = vaultVersionService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.maxPending = maxPending;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Queues the migration of an entry whose stored password is still plaintext.
+   *
+   * @param entry the entry as it was read (its id, owner and version guard the later write)
+   * @param ciphertext the vault ciphertext to store in place of the plaintext
+   * @param fingerprint the password's reuse fingerprint
+   */
+  public void enqueue(PasswordEntry entry, String ciphertext, String fingerprint) {
+    if (entry.getId() == null) {
+      return;
+    }
+    if (pending.size() >= maxPending && !pending.containsKey(entry.getId())) {
+      return;
+    }
+    pending.put(
+        entry.getId(),
+        new PendingMigration(
+            entry.getId(), entry.getOwnerId(), entry.getVersion(), ciphertext, fingerprint));
+  }
+
+  /** Number of migrations waiting to be written. */
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Writes up to one batch of pending migrations in a single transaction. Entries that changed
+   * since they were revealed are skipped; their new value came from a regular write. Owners are
+   * locked one after the other (see {@link VaultVersionService#lock}), in owner order.
+   */
+  @Scheduled(fixedDelayString = "${vault.reveal.migration.flushDelayMs:1000}")
+  public void flush() {
+    List<PendingMigration> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+    Iterator<PendingMigration> it = pending.values().iterator();
+    while (it.hasNext() && batch.size() < batchSize) {
+      batch.add(it.next());
+      it.remove();
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+    batch.sort(Comparator.comparing(PendingMigration::ownerId));
+
+    int migrated =
+        transactionTemplate.execute(
+            status -> {
+              int updated = 0;
+              Long lockedOwner = null;
+              for (PendingMigration migration : batch) {
+                if (!migration.ownerId().equals(lockedOwner)) {
+                  lockedOwner = migration.ownerId();
+                  vaultVersionService.lock(lockedOwner);
+                }
+                updated +=
+                    repository.migratePassword(
+                        migration.entryId(),
+                        migration.ownerId(),
+                        migration.version(),
+                        migration.ciphertext(),
+                        migration.fingerprint());
+              }
+              return updated;
+            });
+    log.debug("Migrated {} of {} revealed legacy passwords", migrated, batch.size());
+  }
+
+  @PreDestroy
+  void drain() {
+    try {
+      while (!pending.isEmpty()) {
+        flush();
+      }
+    } catch (RuntimeException e) {
+      log.warn(
+          "Dropping {} pending legacy password migrations: {}", pending.size(), e.getMessage());
+    }
+  }
+}
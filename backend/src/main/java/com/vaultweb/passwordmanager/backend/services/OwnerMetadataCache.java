@@ -0,0 +1,142 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.model.Category;
+import com.vaultweb.passwordmanager.backend.model.Vault;
+import com.vaultweb.passwordmanager.backend.repositories.CategoryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.VaultRepository;
+import com.vaultweb.passwordmanager.backend.support.RecentWriteTracker;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded, owner-keyed cache of the small rows that almost every request needs: the owner's vault
+ * and the owner's categories. Size, TTL and statistics are configured through {@code
+ * spring.cache.caffeine.spec}; hit/miss counts are published as {@code cache.gets} metrics.
+ *
+ * <p>Cached entities are detached, shared instances and must be treated as read-only. Code that
+ * modifies a vault or category loads it from the repository and evicts the owner's entry here. A
+ * change made through another instance only shows up here once the entry expires, so the cache only
+ * serves lookups that can fall back to the repository on a miss (see {@link #ownsCategory}), never
+ * listings that are served under the vault version's ETag.
+ */
+@Service
+@RequiredArgsConstructor
+public class OwnerMetadataCache {
+
+  public static final String VAULTS = "vaults";
+  public static final String CATEGORIES = "categories";
+
+  private final CacheManager cacheManager;
+  private final VaultRepository vaultRepository;
+  private final CategoryRepository categoryRepository;
+  private final RecentWriteTracker recentWrites;
+
+  /**
+   * Returns the owner's vault, if one has been set up.
+   *
+   * <p>Only an existing vault is cached. A legacy owner is looked up again on every call: a vault
+   * set up through another instance must take effect at once, since without one entries are stored
+   * and revealed in plaintext.
+   *
+   * @param ownerId the vault owner
+   * @return the cached vault, or empty if the owner has none
+   */
+  public Optional<Vault> findVault(Long ownerId) {
+    Cache cache = cache(VAULTS);
+    Vault cached = cache.get(ownerId, Vault.class);
+    if (cached != null) {
+      return Optional.of(cached);
+    }
+    Optional<Vault> vault = vaultRepository.findByOwnerId(ownerId);
+    vault.ifPresent(found -> cache.put(ownerId, found));
+    return vault;
+  }
+
+  /**
+   * Returns the owner's categories keyed by id, in repository order.
+   *
+   * @param ownerId the category owner
+   * @return an unmodifiable map of category id to category
+   */
+  public Map<Long, Category> findCategories(Long ownerId) {
+    return cache(CATEGORIES)
+        .get(
+            ownerId,
+            () -> {
+              Map<Long, Category> byId = new LinkedHashMap<>();
+              for (Category category : categoryRepository.findAllByOwnerId(ownerId)) {
+                byId.put(category.getId(), category);
+              }
+              return Collections.unmodifiableMap(byId);
+            });
+  }
+
+  /**
+   * Checks that a category exists and belongs to the owner. A category missing from the cached list
+   * may have been created through another instance since the list was loaded, so a miss is checked
+   * against the repository; if the category exists there, the stale list is dropped.
+   *
+   * @param ownerId the category owner
+   * @param categoryId the category to check
+   * @return true if the owner has the category
+   */
+  public boolean ownsCategory(Long ownerId, Long categoryId) {
+    if (findCategories(ownerId).containsKey(categoryId)) {
+      return true;
+    }
+    if (categoryRepository.findByIdAndOwnerId(categoryId, ownerId).isEmpty()) {
+      return false;
+    }
+    cache(CATEGORIES).evict(ownerId);
+    return true;
+  }
+
+  /** Drops the cached vault of the owner, now and again once the current transaction ends. */
+  public void evictVault(Long ownerId) {
+    recentWrites.markWritten(ownerId);
+    evict(cache(VAULTS), ownerId);
+  }
+
+  /**
+   * Drops the cached vault of the owner because it may be stale, without recording a write; used
+   * when a read suspects a change made through another instance.
+   */
+  public void evictStaleVault(Long ownerId) {
+    cache(VAULTS).evict(ownerId);
+  }
+
+  /** Drops the cached categories of the owner, now and again once the current transaction ends. */
+  public void evictCategories(Long ownerId) {
+    recentWrites.markWritten(ownerId);
+    evict(cache(CATEGORIES), ownerId);
+  }
+
+  // The second eviction covers a concurrent request that re-read the old row between the first
+  // eviction and the commit; evicting only after commit would leave this instance serving the old
+  // row to its own transaction's later reads.
+  private static void evict(Cache cache, Long ownerId) {
+    cache.evict(ownerId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              cache.evict(ownerId);
+            }
+          });
+    }
+  }
+
+  private Cache cache(String name) {
+    return Objects.requireNonNull(cacheManager.getCache(name), "Cache not configured: " + name);
+  }
+}
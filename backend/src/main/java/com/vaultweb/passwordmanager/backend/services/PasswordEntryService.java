@@ -1,15 +1,35 @@
 package com.vaultweb.passwordmanager.backend.services;
 
+import com.vaultweb.passwordmanager.backend.exceptions.ConflictException;
 import com.vaultweb.passwordmanager.backend.exceptions.NotFoundException;
 import com.vaultweb.passwordmanager.backend.model.Category;
 import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.VaultTombstone;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryBulkResponseDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryPatchRequestDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordReuseReportDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordRevealBulkResponseDto;
 import com.vaultweb.passwordmanager.backend.model.dtos.PasswordRevealResponseDto;
 import com.vaultweb.passwordmanager.backend.repositories.CategoryRepository;
 import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.support.Totp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
@@ -19,16 +39,30 @@ public class PasswordEntryService {
   private final CategoryRepository categoryRepository;
   private final VaultService vaultService;
   private final VaultSessionService vaultSessionService;
+  private final VaultVersionService vaultVersionService;
+  private final VaultSyncService vaultSyncService;
+  private final VaultHealthService vaultHealthService;
+  private final UrlDomainService urlDomainService;
+  private final EntryFieldCryptoService entryFieldCrypto;
+  private final OwnerMetadataCache metadataCache;
+  private final VaultAuditLog auditLog;
+  private final EntryUsageService entryUsage;
+  private final AttachmentService attachmentService;
 
   /**
    * Create entry in "legacy" mode (no master password / no vault token).
    *
    * @return the created PasswordEntry
    */
+  @Transactional
   public PasswordEntry create(PasswordEntry entry, Long ownerId, Long categoryId) {
     entry.setOwnerId(ownerId);
     entry.setCategory(resolveCategory(categoryId, ownerId));
-    entry.setPassword(vaultService.encryptPasswordForStorage(ownerId, null, entry.getPassword()));
+    storePassword(entry, ownerId, null, entry.getPassword());
+    urlDomainService.apply(entry);
+    entry.setTotpSecret(totpSecret(entry.getTotpSecret()));
+    entryFieldCrypto.seal(entry, null);
+    entry.setChangeSeq(vaultVersionService.bump(ownerId));
     return repository.save(entry);
   }
 
@@ -37,21 +71,27 @@ public class PasswordEntryService {
    *
    * @return the created PasswordEntry
    */
+  @Transactional
   public PasswordEntry create(
       PasswordEntry entry, Long ownerId, Long categoryId, String masterPassword) {
     entry.setOwnerId(ownerId);
     entry.setCategory(resolveCategory(categoryId, ownerId));
-    entry.setPassword(
-        vaultService.encryptPasswordForStorage(ownerId, masterPassword, entry.getPassword()));
+    byte[] dek = vaultSessionService.resolveDek(ownerId, masterPassword, null);
+    storePassword(entry, ownerId, dek, entry.getPassword());
+    urlDomainService.apply(entry);
+    entry.setTotpSecret(totpSecret(entry.getTotpSecret()));
+    entryFieldCrypto.seal(entry, dek);
+    entry.setChangeSeq(vaultVersionService.bump(ownerId));
     return repository.save(entry);
   }
 
   /**
    * Create entry using either an active vault session token or a master password.
    *
-   * @return the created PasswordEntry
+   * @return the created entry, with its fields decrypted
    */
-  public PasswordEntry create(
+  @Transactional
+  public PasswordEntryDto create(
       PasswordEntry entry,
       Long ownerId,
       Long categoryId,
@@ -59,26 +99,76 @@ public class PasswordEntryService {
       String vaultToken) {
     entry.setOwnerId(ownerId);
     entry.setCategory(resolveCategory(categoryId, ownerId));
+    byte[] dek = vaultSessionService.resolveDek(ownerId, masterPassword, vaultToken);
+    storePassword(entry, ownerId, dek, entry.getPassword());
+    urlDomainService.apply(entry);
+    entry.setTotpSecret(totpSecret(entry.getTotpSecret()));
+    entryFieldCrypto.seal(entry, dek);
+    entry.setChangeSeq(vaultVersionService.bump(ownerId));
+    return view(repository.save(entry), dek);
+  }
 
-    if (vaultToken != null && !vaultToken.isBlank()) {
-      byte[] dek = vaultSessionService.requireDek(ownerId, vaultToken);
-      entry.setPassword(
-          vaultService.encryptPasswordForStorageWithDek(ownerId, dek, entry.getPassword()));
-      return repository.save(entry);
-    }
+  /**
+   * Retrieves all of the owner's entries.
+   *
+   * @param ownerId the owner of the entries
+   * @param dek the owner's DEK (see {@link VaultSessionService#resolveDek(Long, String)}), or null
+   * @return the entries, with their fields decrypted
+   */
+  @Transactional(readOnly = true)
+  public List<PasswordEntryDto> getAll(Long ownerId, byte[] dek) {
+    return repository.findAllByOwnerId(ownerId).stream().map(entry -> view(entry, dek)).toList();
+  }
 
-    entry.setPassword(
-        vaultService.encryptPasswordForStorage(ownerId, masterPassword, entry.getPassword()));
-    return repository.save(entry);
+  /**
+   * Retrieves all of the owner's entries, most used first ({@code frequent}) or most recently used
+   * first ({@code recent}). Entries that were never used follow in id order. Uses are counted when
+   * an entry is revealed or returned by {@link #match} and stored with a delay (see {@link
+   * EntryUsageService}), so the order trails the latest uses slightly.
+   *
+   * @param ownerId the owner of the entries
+   * @param dek the owner's DEK, or null
+   * @param sort {@code frequent} or {@code recent}
+   * @return the entries in the requested order, with their fields decrypted
+   */
+  @Transactional(readOnly = true)
+  public List<PasswordEntryDto> getAll(Long ownerId, byte[] dek, String sort) {
+    Map<Long, EntryUsageService.Usage> usage = entryUsage.usageOf(ownerId);
+    EntryUsageService.Usage unused = new EntryUsageService.Usage(0, LocalDateTime.MIN);
+    Comparator<PasswordEntry> recent =
+        Comparator.comparing(
+            (PasswordEntry entry) -> usage.getOrDefault(entry.getId(), unused).lastUsedAt(),
+            Comparator.reverseOrder());
+    Comparator<PasswordEntry> order =
+        switch (sort) {
+          case "frequent" ->
+              Comparator.comparingLong(
+                      (PasswordEntry entry) -> usage.getOrDefault(entry.getId(), unused).useCount())
+                  .reversed()
+                  .thenComparing(recent);
+          case "recent" -> recent;
+          default -> throw new IllegalArgumentException("sort must be frequent or recent");
+        };
+    return repository.findAllByOwnerId(ownerId).stream()
+        .sorted(order.thenComparing(PasswordEntry::getId))
+        .map(entry -> view(entry, dek))
+        .toList();
   }
 
   /**
-   * Retrieves all PasswordEntry entities from the repository.
+   * Hands the owner's entries to {@code sink} one at a time as they are read from the database,
+   * without materialising the list.
    *
-   * @return a list of all PasswordEntry entities
+   * @param ownerId the owner whose entries are streamed
+   * @param dek the owner's DEK, or null
+   * @param sink receives each entry's metadata in id order, decrypted; an exception thrown by it
+   *     aborts the stream
    */
-  public List<PasswordEntry> getAll(Long ownerId) {
-    return repository.findAllByOwnerId(ownerId);
+  @Transactional(readOnly = true)
+  public void streamAll(Long ownerId, byte[] dek, Consumer<PasswordEntryDto> sink) {
+    try (Stream<PasswordEntryDto> rows = repository.streamDtosByOwnerId(ownerId)) {
+      rows.forEach(dto -> sink.accept(entryFieldCrypto.open(dto, ownerId, dek)));
+    }
   }
 
   /**
@@ -87,15 +177,30 @@ public class PasswordEntryService {
    * @param id the unique identifier of the PasswordEntry to retrieve
    * @return an Optional containing the PasswordEntry if found, or an empty Optional if not found
    */
+  @Transactional(readOnly = true)
   public Optional<PasswordEntry> getById(Long id, Long ownerId) {
     return repository.findByIdAndOwnerId(id, ownerId);
   }
 
+  /**
+   * Retrieves an entry with its fields decrypted.
+   *
+   * @param id the entry id
+   * @param ownerId the owner of the entry
+   * @param dek the owner's DEK, or null
+   * @return the entry, or an empty Optional if not found
+   */
+  @Transactional(readOnly = true)
+  public Optional<PasswordEntryDto> getDto(Long id, Long ownerId, byte[] dek) {
+    return repository.findByIdAndOwnerId(id, ownerId).map(entry -> view(entry, dek));
+  }
+
   /**
    * Update entry in "legacy" mode (no master password / no vault token).
    *
    * @return the updated PasswordEntry
    */
+  @Transactional
   public PasswordEntry update(Long id, PasswordEntry updated, Long ownerId, Long categoryId) {
     PasswordEntry existing =
         repository
@@ -104,12 +209,17 @@ public class PasswordEntryService {
 
     existing.setName(updated.getName());
     existing.setUsername(updated.getUsername());
-    existing.setPassword(
-        vaultService.encryptPasswordForStorage(ownerId, null, updated.getPassword()));
+    storePassword(existing, ownerId, null, updated.getPassword());
     existing.setUrl(updated.getUrl());
+    urlDomainService.apply(existing);
     existing.setNotes(updated.getNotes());
+    if (updated.getTotpSecret() != null) {
+      existing.setTotpSecret(totpSecret(updated.getTotpSecret()));
+    }
+    entryFieldCrypto.seal(existing, null, updatedFields(updated));
     existing.setCategory(resolveCategory(categoryId, ownerId));
 
+    existing.setChangeSeq(vaultVersionService.bump(ownerId));
     return repository.save(existing);
   }
 
@@ -118,6 +228,7 @@ public class PasswordEntryService {
    *
    * @return the updated PasswordEntry
    */
+  @Transactional
   public PasswordEntry update(
       Long id, PasswordEntry updated, Long ownerId, Long categoryId, String masterPassword) {
     PasswordEntry existing =
@@ -127,21 +238,28 @@ public class PasswordEntryService {
 
     existing.setName(updated.getName());
     existing.setUsername(updated.getUsername());
-    existing.setPassword(
-        vaultService.encryptPasswordForStorage(ownerId, masterPassword, updated.getPassword()));
+    byte[] dek = vaultSessionService.resolveDek(ownerId, masterPassword, null);
+    storePassword(existing, ownerId, dek, updated.getPassword());
     existing.setUrl(updated.getUrl());
+    urlDomainService.apply(existing);
     existing.setNotes(updated.getNotes());
+    if (updated.getTotpSecret() != null) {
+      existing.setTotpSecret(totpSecret(updated.getTotpSecret()));
+    }
+    entryFieldCrypto.seal(existing, dek, updatedFields(updated));
     existing.setCategory(resolveCategory(categoryId, ownerId));
 
+    existing.setChangeSeq(vaultVersionService.bump(ownerId));
     return repository.save(existing);
   }
 
   /**
    * Update entry using either an active vault session token or a master password.
    *
-   * @return the updated PasswordEntry
+   * @return the updated entry, with its fields decrypted
    */
-  public PasswordEntry update(
+  @Transactional
+  public PasswordEntryDto update(
       Long id,
       PasswordEntry updated,
       Long ownerId,
@@ -155,21 +273,107 @@ public class PasswordEntryService {
 
     existing.setName(updated.getName());
     existing.setUsername(updated.getUsername());
-
-    if (vaultToken != null && !vaultToken.isBlank()) {
-      byte[] dek = vaultSessionService.requireDek(ownerId, vaultToken);
-      existing.setPassword(
-          vaultService.encryptPasswordForStorageWithDek(ownerId, dek, updated.getPassword()));
-    } else {
-      existing.setPassword(
-          vaultService.encryptPasswordForStorage(ownerId, masterPassword, updated.getPassword()));
-    }
-
+    byte[] dek = vaultSessionService.resolveDek(ownerId, masterPassword, vaultToken);
+    storePassword(existing, ownerId, dek, updated.getPassword());
     existing.setUrl(updated.getUrl());
+    urlDomainService.apply(existing);
     existing.setNotes(updated.getNotes());
+    if (updated.getTotpSecret() != null) {
+      existing.setTotpSecret(totpSecret(updated.getTotpSecret()));
+    }
+    entryFieldCrypto.seal(existing, dek, updatedFields(updated));
     existing.setCategory(resolveCategory(categoryId, ownerId));
 
-    return repository.save(existing);
+    existing.setChangeSeq(vaultVersionService.bump(ownerId));
+    return view(repository.save(existing), dek);
+  }
+
+  /**
+   * Partially updates an entry: only the supplied fields are changed, and only those are
+   * re-encrypted. Together with the entity's dynamic update this makes an edit a single UPDATE of
+   * the changed columns; the vault key is only needed for the encrypted fields (password, username,
+   * url, notes, TOTP secret), so renaming or moving an entry works on a locked vault.
+   *
+   * @param id the entry to patch
+   * @param patch the fields to change; null fields are left as they are
+   * @param ownerId the owner of the entry
+   * @param vaultToken active vault session token, or null (only required when an encrypted field is
+   *     supplied)
+   * @return the patched entry, with its fields decrypted (or without the encrypted ones if neither
+   *     a key was needed nor a token supplied)
+   * @throws NotFoundException if the entry does not exist for the owner
+   * @throws ConflictException if {@code patch.version} is set and no longer current
+   */
+  @Transactional
+  public PasswordEntryDto patch(
+      Long id, PasswordEntryPatchRequestDto patch, Long ownerId, String vaultToken) {
+    PasswordEntry existing =
+        repository
+            .findByIdAndOwnerId(id, ownerId)
+            .orElseThrow(() -> new NotFoundException("Password entry not found with id " + id));
+    if (patch.getVersion() != null && patch.getVersion() != existing.getVersion()) {
+      throw new ConflictException(
+          "Password entry " + id + " was modified concurrently; reload it and retry");
+    }
+
+    byte[] dek = null;
+    if (patch.getPassword() != null
+        || patch.getUsername() != null
+        || patch.getUrl() != null
+        || patch.getNotes() != null
+        || patch.getTotpSecret() != null) {
+      dek = vaultSessionService.resolveDek(ownerId, patch.getMasterPassword(), vaultToken);
+    } else if (vaultToken != null && !vaultToken.isBlank()) {
+      // Only to decrypt the response
+      dek = vaultSessionService.resolveDek(ownerId, vaultToken);
+    }
+
+    boolean changed = false;
+    Set<EntryFieldCryptoService.Field> patched =
+        EnumSet.noneOf(EntryFieldCryptoService.Field.class);
+    if (patch.getName() != null) {
+      existing.setName(requireText(patch.getName(), "name"));
+      changed = true;
+    }
+    if (patch.getUsername() != null) {
+      existing.setUsername(requireText(patch.getUsername(), "username"));
+      patched.add(EntryFieldCryptoService.Field.USERNAME);
+    }
+    if (patch.getUrl() != null) {
+      existing.setUrl(patch.getUrl().isEmpty() ? null : patch.getUrl());
+      urlDomainService.apply(existing);
+      patched.add(EntryFieldCryptoService.Field.URL);
+    }
+    if (patch.getNotes() != null) {
+      existing.setNotes(patch.getNotes().isEmpty() ? null : patch.getNotes());
+      patched.add(EntryFieldCryptoService.Field.NOTES);
+    }
+    if (patch.getTotpSecret() != null) {
+      existing.setTotpSecret(totpSecret(patch.getTotpSecret()));
+      patched.add(EntryFieldCryptoService.Field.TOTP_SECRET);
+    }
+    if (patch.isClearCategory()) {
+      if (patch.getCategoryId() != null) {
+        throw new IllegalArgumentException("categoryId cannot be combined with clearCategory");
+      }
+      existing.setCategory(null);
+      changed = true;
+    } else if (patch.getCategoryId() != null) {
+      existing.setCategory(resolveCategory(patch.getCategoryId(), ownerId));
+      changed = true;
+    }
+    if (patch.getPassword() != null) {
+      String password = requireText(patch.getPassword(), "password");
+      storePassword(existing, ownerId, dek, password);
+      changed = true;
+    }
+
+    if (!changed && patched.isEmpty()) {
+      return view(existing, dek);
+    }
+    entryFieldCrypto.seal(existing, dek, patched);
+    existing.setChangeSeq(vaultVersionService.bump(ownerId));
+    return view(repository.save(existing), dek);
   }
 
   /**
@@ -177,6 +381,7 @@ public class PasswordEntryService {
    *
    * @return the PasswordRevealResponseDto containing the revealed password
    */
+  @Transactional(readOnly = true)
   public PasswordRevealResponseDto reveal(Long id, Long ownerId, String masterPassword) {
     PasswordEntry entry =
         repository
@@ -184,14 +389,32 @@ public class PasswordEntryService {
             .orElseThrow(() -> new NotFoundException("Password entry not found with id " + id));
 
     String plainPassword = vaultService.decryptPasswordForReveal(ownerId, masterPassword, entry);
+    revealed(ownerId, entry.getId());
     return new PasswordRevealResponseDto(entry.getId(), entry.getName(), plainPassword);
   }
 
+  /**
+   * Reveals a password stored without vault encryption (legacy mode, no vault initialized).
+   *
+   * @return the revealed password, or an empty Optional if the entry does not exist
+   */
+  @Transactional(readOnly = true)
+  public Optional<PasswordRevealResponseDto> revealUnencrypted(Long id, Long ownerId) {
+    return repository
+        .findByIdAndOwnerId(id, ownerId)
+        .map(
+            entry -> {
+              revealed(ownerId, entry.getId());
+              return PasswordRevealResponseDto.fromEntry(entry);
+            });
+  }
+
   /**
    * Reveal (decrypt) a password using either an active vault session token or a master password.
    *
    * @return the PasswordRevealResponseDto containing the revealed password
    */
+  @Transactional(readOnly = true)
   public PasswordRevealResponseDto reveal(
       Long id, Long ownerId, String masterPassword, String vaultToken) {
     PasswordEntry entry =
@@ -207,25 +430,436 @@ public class PasswordEntryService {
       plainPassword = vaultService.decryptPasswordForReveal(ownerId, masterPassword, entry);
     }
 
+    revealed(ownerId, entry.getId());
     return new PasswordRevealResponseDto(entry.getId(), entry.getName(), plainPassword);
   }
 
+  /**
+   * Reveals several passwords at once. The vault is unlocked once, all entries are loaded with a
+   * single query and decrypted in memory. Ids that do not exist or belong to another owner are
+   * reported in {@code notFound}; duplicates are revealed once.
+   *
+   * @param ids the entry ids to reveal
+   * @param ownerId the owner of the entries
+   * @param masterPassword master password, used when no vault token is supplied
+   * @param vaultToken active vault session token, or null
+   * @return the revealed entries in request order, plus the ids that were not found
+   */
+  @Transactional(readOnly = true)
+  public PasswordRevealBulkResponseDto revealAll(
+      List<Long> ids, Long ownerId, String masterPassword, String vaultToken) {
+    byte[] dek = vaultSessionService.resolveDek(ownerId, masterPassword, vaultToken);
+
+    Long[] distinct = new LinkedHashSet<>(ids).toArray(Long[]::new);
+    Map<Long, PasswordEntry> entries = new HashMap<>();
+    for (PasswordEntry entry : repository.findAllOwned(ownerId, distinct)) {
+      entries.put(entry.getId(), entry);
+    }
+
+    List<PasswordRevealResponseDto> results = new ArrayList<>(entries.size());
+    List<Long> notFound = new ArrayList<>();
+    for (Long id : distinct) {
+      PasswordEntry entry = entries.get(id);
+      if (entry == null) {
+        notFound.add(id);
+        continue;
+      }
+      results.add(
+          new PasswordRevealResponseDto(
+              entry.getId(),
+              entry.getName(),
+              vaultService.decryptPasswordForReveal(ownerId, dek, entry)));
+      revealed(ownerId, entry.getId());
+    }
+    return new PasswordRevealBulkResponseDto(results, notFound);
+  }
+
+  /**
+   * Reports the owner's reused passwords. Entries are grouped by their stored fingerprint, so no
+   * password is decrypted and no vault unlock is needed.
+   *
+   * @param ownerId the owner of the entries
+   * @return groups of entries sharing a password, largest first
+   */
+  @Transactional(readOnly = true)
+  public PasswordReuseReportDto reuseReport(Long ownerId) {
+    List<PasswordReuseReportDto.Group> groups = new ArrayList<>();
+    String fingerprint = null;
+    for (PasswordEntryRepository.ReusedPassword row : repository.findReusedPasswords(ownerId)) {
+      if (!row.getFingerprint().equals(fingerprint)) {
+        fingerprint = row.getFingerprint();
+        groups.add(new PasswordReuseReportDto.Group(new ArrayList<>()));
+      }
+      groups
+          .getLast()
+          .getEntries()
+          .add(new PasswordReuseReportDto.Entry(row.getEntryId(), row.getName()));
+    }
+    groups.sort(
+        Comparator.comparingInt((PasswordReuseReportDto.Group group) -> group.getEntries().size())
+            .reversed());
+    return new PasswordReuseReportDto(
+        groups, repository.countByOwnerIdAndPasswordFingerprintIsNull(ownerId));
+  }
+
+  /**
+   * Finds the owner's entries for a site, e.g. the page an autofill client is on (those whose url
+   * has the same registrable domain, with exact host matches first), for a username, or for both.
+   * The lookup reads the stored domain or username index, plaintext or blind, so its cost does not
+   * depend on the size of the vault; only the matching rows are decrypted, and those that matched
+   * on a colliding blind index are dropped.
+   *
+   * @param ownerId the owner of the entries
+   * @param url the url of the site, or null
+   * @param username the username (compared ignoring case), or null
+   * @param dek the owner's DEK, or null
+   * @return the matching entries without passwords, exact host matches first, then by name
+   * @throws IllegalArgumentException if neither is given, or the url has no recognizable host
+   */
+  @Transactional(readOnly = true)
+  public List<PasswordEntryDto> match(Long ownerId, String url, String username, byte[] dek) {
+    if (url == null && username == null) {
+      throw new IllegalArgumentException("url or username is required");
+    }
+    String wantedUsername =
+        username != null ? EntryFieldCryptoService.normalizeUsername(username) : null;
+    List<PasswordEntryDto> candidates;
+    UrlDomainService.UrlDomain site = null;
+    if (url != null) {
+      site = urlDomainService.normalize(url);
+      if (site == null) {
+        throw new IllegalArgumentException("url has no recognizable host");
+      }
+      candidates =
+          repository.findDtosByUrlDomain(
+              ownerId,
+              site.domain(),
+              site.host(),
+              entryFieldCrypto.domainIndex(dek, site.domain()),
+              entryFieldCrypto.hostIndex(dek, site.host()));
+    } else if (dek != null) {
+      candidates =
+          repository.findDtosByUsernameIndex(
+              ownerId, entryFieldCrypto.usernameIndex(dek, username));
+    } else {
+      candidates = repository.findDtosByUsername(ownerId, wantedUsername);
+    }
+
+    List<PasswordEntryDto> matches = new ArrayList<>(candidates.size());
+    for (PasswordEntryDto dto : candidates) {
+      entryFieldCrypto.open(dto, ownerId, dek);
+      UrlDomainService.UrlDomain entrySite =
+          site != null ? urlDomainService.normalize(dto.getUrl()) : null;
+      if (site != null && (entrySite == null || !site.domain().equals(entrySite.domain()))) {
+        continue;
+      }
+      if (wantedUsername != null
+          && (dto.getUsername() == null
+              || !wantedUsername.equals(
+                  EntryFieldCryptoService.normalizeUsername(dto.getUsername())))) {
+        continue;
+      }
+      matches.add(dto);
+      entryUsage.record(ownerId, dto.getId());
+    }
+    return matches;
+  }
+
   /**
    * Deletes a PasswordEntry entity with the specified ID. If the PasswordEntry does not exist, a
    * NotFoundException is thrown.
    *
    * @param id the ID of the PasswordEntry to be deleted
    */
+  @Transactional
   public void delete(Long id, Long ownerId) {
     PasswordEntry entry =
         repository
             .findByIdAndOwnerId(id, ownerId)
             .orElseThrow(() -> new NotFoundException("Password entry not found with id " + id));
     repository.delete(entry);
+    attachmentService.deleteForEntries(ownerId, List.of(entry.getId()));
+    long changeSeq = vaultVersionService.bump(ownerId);
+    vaultSyncService.recordDeletions(
+        ownerId, VaultTombstone.EntityType.ENTRY, List.of(entry.getId()), changeSeq);
+  }
+
+  /**
+   * Creates many entries in one transaction. The vault is unlocked once for the whole batch, all
+   * referenced categories are loaded with a single query, and the entries are persisted with one
+   * batched {@code saveAll}. Entries that reference an unknown category are reported and skipped.
+   *
+   * @param dtos the entries to create
+   * @param ownerId the owner of the new entries
+   * @param masterPassword master password (used when no vault token is supplied)
+   * @param vaultToken active vault session token, or null
+   * @return the per-item results, in request order
+   */
+  @Transactional
+  public PasswordEntryBulkResponseDto createAll(
+      List<PasswordEntryDto> dtos, Long ownerId, String masterPassword, String vaultToken) {
+    byte[] dek = vaultSessionService.resolveDek(ownerId, masterPassword, vaultToken);
+
+    List<PasswordEntryBulkResponseDto.Item> results = new ArrayList<>();
+    List<PasswordEntry> toCreate = new ArrayList<>();
+    for (int i = 0; i < dtos.size(); i++) {
+      PasswordEntryDto dto = dtos.get(i);
+      Category category = null;
+      if (dto.getCategoryId() != null) {
+        if (!metadataCache.ownsCategory(ownerId, dto.getCategoryId())) {
+          results.add(
+              new PasswordEntryBulkResponseDto.Item(
+                  i, null, PasswordEntryBulkResponseDto.Status.CATEGORY_NOT_FOUND));
+          continue;
+        }
+        category = categoryRepository.getReferenceById(dto.getCategoryId());
+      }
+
+      PasswordEntry entry = new PasswordEntry(dto);
+      entry.setOwnerId(ownerId);
+      entry.setCategory(category);
+      urlDomainService.apply(entry);
+      entry.setTotpSecret(totpSecret(entry.getTotpSecret()));
+      entryFieldCrypto.seal(entry, dek);
+      storePassword(entry, ownerId, dek, dto.getPassword());
+      toCreate.add(entry);
+      results.add(
+          new PasswordEntryBulkResponseDto.Item(
+              i, null, PasswordEntryBulkResponseDto.Status.CREATED));
+    }
+
+    if (!toCreate.isEmpty()) {
+      long changeSeq = vaultVersionService.bump(ownerId);
+      toCreate.forEach(entry -> entry.setChangeSeq(changeSeq));
+      repository.saveAll(toCreate);
+    }
+
+    // Ids are assigned on persist; hand them back to the matching CREATED results.
+    int created = 0;
+    for (PasswordEntryBulkResponseDto.Item item : results) {
+      if (item.getStatus() == PasswordEntryBulkResponseDto.Status.CREATED) {
+        item.setId(toCreate.get(created++).getId());
+      }
+    }
+    return PasswordEntryBulkResponseDto.of(results);
+  }
+
+  /**
+   * Deletes the given entries with a single set-based statement.
+   *
+   * @param ids the entry ids to delete
+   * @param ownerId the owner of the entries
+   * @return the per-item results, in request order
+   */
+  @Transactional
+  public PasswordEntryBulkResponseDto deleteAll(List<Long> ids, Long ownerId) {
+    Set<Long> owned = findOwnedIds(ids, ownerId);
+    if (!owned.isEmpty()) {
+      // Bump first: every write locks the owner's version before its entries
+      long changeSeq = vaultVersionService.bump(ownerId);
+      repository.deleteOwned(ownerId, owned.toArray(Long[]::new));
+      attachmentService.deleteForEntries(ownerId, List.copyOf(owned));
+      vaultSyncService.recordDeletions(ownerId, VaultTombstone.EntityType.ENTRY, owned, changeSeq);
+    }
+    return bulkResults(ids, owned, PasswordEntryBulkResponseDto.Status.DELETED);
   }
 
   /**
-   * Resolves the Category entity for the given categoryId and ownerId.
+   * Moves the given entries into a category (or out of any category when {@code categoryId} is
+   * null) with a single set-based statement.
+   *
+   * @param ids the entry ids to move
+   * @param ownerId the owner of the entries
+   * @param categoryId the target category, or null
+   * @return the per-item results, in request order
+   * @throws NotFoundException if the target category does not exist for the owner
+   */
+  @Transactional
+  public PasswordEntryBulkResponseDto moveAll(List<Long> ids, Long ownerId, Long categoryId) {
+    Category category = resolveCategory(categoryId, ownerId);
+    Set<Long> owned = findOwnedIds(ids, ownerId);
+    if (!owned.isEmpty()) {
+      repository.moveOwned(
+          ownerId,
+          owned.toArray(Long[]::new),
+          category != null ? category.getId() : null,
+          LocalDateTime.now(),
+          vaultVersionService.bump(ownerId));
+    }
+    return bulkResults(ids, owned, PasswordEntryBulkResponseDto.Status.UPDATED);
+  }
+
+  /**
+   * Applies the same username, url and/or notes to the given entries with a single set-based
+   * statement. Null values leave the corresponding field unchanged; an empty url or notes clears
+   * it, as in {@link #patch}. Once the owner has a vault the values are encrypted for each entry
+   * separately, so no two entries share a ciphertext.
+   *
+   * @param ids the entry ids to patch
+   * @param ownerId the owner of the entries
+   * @param username new username, or null
+   * @param url new url, empty to clear, or null
+   * @param notes new notes, empty to clear, or null
+   * @param vaultToken active vault session token, or null
+   * @return the per-item results, in request order
+   */
+  @Transactional
+  public PasswordEntryBulkResponseDto patchAll(
+      List<Long> ids, Long ownerId, String username, String url, String notes, String vaultToken) {
+    Set<Long> owned = findOwnedIds(ids, ownerId);
+    if (owned.isEmpty() || (username == null && url == null && notes == null)) {
+      return bulkResults(ids, owned, PasswordEntryBulkResponseDto.Status.UPDATED);
+    }
+
+    Set<EntryFieldCryptoService.Field> patched =
+        EnumSet.noneOf(EntryFieldCryptoService.Field.class);
+    if (username != null) {
+      username = requireText(username, "username");
+      patched.add(EntryFieldCryptoService.Field.USERNAME);
+    }
+    if (url != null) {
+      url = url.isEmpty() ? null : url;
+      patched.add(EntryFieldCryptoService.Field.URL);
+    }
+    if (notes != null) {
+      notes = notes.isEmpty() ? null : notes;
+      patched.add(EntryFieldCryptoService.Field.NOTES);
+    }
+    byte[] dek = vaultSessionService.resolveDek(ownerId, vaultToken);
+
+    Long[] rowIds = owned.toArray(Long[]::new);
+    int n = rowIds.length;
+    String[] usernames = new String[n];
+    Integer[] usernameIndexes = new Integer[n];
+    String[] urls = new String[n];
+    String[] urlHosts = new String[n];
+    String[] urlDomains = new String[n];
+    Integer[] urlHostIndexes = new Integer[n];
+    Integer[] urlDomainIndexes = new Integer[n];
+    String[] notesValues = new String[n];
+    for (int i = 0; i < n; i++) {
+      PasswordEntry values = new PasswordEntry();
+      values.setOwnerId(ownerId);
+      values.setUsername(username);
+      values.setUrl(url);
+      urlDomainService.apply(values);
+      values.setNotes(notes);
+      entryFieldCrypto.seal(values, dek, patched);
+      usernames[i] = values.getUsername();
+      usernameIndexes[i] = values.getUsernameBlindIndex();
+      urls[i] = values.getUrl();
+      urlHosts[i] = values.getUrlHost();
+      urlDomains[i] = values.getUrlDomain();
+      urlHostIndexes[i] = values.getUrlHostBlindIndex();
+      urlDomainIndexes[i] = values.getUrlDomainBlindIndex();
+      notesValues[i] = values.getNotes();
+    }
+    repository.patchOwned(
+        ownerId,
+        patched.contains(EntryFieldCryptoService.Field.USERNAME),
+        patched.contains(EntryFieldCryptoService.Field.URL),
+        patched.contains(EntryFieldCryptoService.Field.NOTES),
+        rowIds,
+        usernames,
+        usernameIndexes,
+        urls,
+        urlHosts,
+        urlDomains,
+        urlHostIndexes,
+        urlDomainIndexes,
+        notesValues,
+        LocalDateTime.now(),
+        vaultVersionService.bump(ownerId));
+    return bulkResults(ids, owned, PasswordEntryBulkResponseDto.Status.UPDATED);
+  }
+
+  /** The encrypted fields a full update sets from the request; the TOTP secret only if given. */
+  private static Set<EntryFieldCryptoService.Field> updatedFields(PasswordEntry updated) {
+    Set<EntryFieldCryptoService.Field> fields =
+        EnumSet.of(
+            EntryFieldCryptoService.Field.USERNAME,
+            EntryFieldCryptoService.Field.URL,
+            EntryFieldCryptoService.Field.NOTES);
+    if (updated.getTotpSecret() != null) {
+      fields.add(EntryFieldCryptoService.Field.TOTP_SECRET);
+    }
+    return fields;
+  }
+
+  private Set<Long> findOwnedIds(List<Long> ids, Long ownerId) {
+    Long[] distinct = new LinkedHashSet<>(ids).toArray(Long[]::new);
+    return new HashSet<>(repository.findOwnedIds(ownerId, distinct));
+  }
+
+  private static PasswordEntryBulkResponseDto bulkResults(
+      List<Long> ids, Set<Long> owned, PasswordEntryBulkResponseDto.Status success) {
+    List<PasswordEntryBulkResponseDto.Item> results = new ArrayList<>(ids.size());
+    for (int i = 0; i < ids.size(); i++) {
+      Long id = ids.get(i);
+      results.add(
+          new PasswordEntryBulkResponseDto.Item(
+              i, id, owned.contains(id) ? success : PasswordEntryBulkResponseDto.Status.NOT_FOUND));
+    }
+    return PasswordEntryBulkResponseDto.of(results);
+  }
+
+  private void revealed(Long ownerId, Long entryId) {
+    auditLog.record(ownerId, VaultAuditLog.EventType.REVEAL, entryId, null);
+    entryUsage.record(ownerId, entryId);
+  }
+
+  private PasswordEntryDto view(PasswordEntry entry, byte[] dek) {
+    return entryFieldCrypto.open(new PasswordEntryDto(entry), entry.getOwnerId(), dek);
+  }
+
+  /**
+   * Validates a TOTP secret (see {@link Totp#parse}) before it is stored.
+   *
+   * @return the secret, trimmed, or null for a blank value (no secret)
+   */
+  private static String totpSecret(String value) {
+    if (value == null || value.isBlank()) {
+      return null;
+    }
+    Totp.parse(value);
+    return value.strip();
+  }
+
+  private static String requireText(String value, String field) {
+    if (value.isBlank()) {
+      throw new IllegalArgumentException(field + " must not be blank");
+    }
+    return value;
+  }
+
+  /**
+   * Sets the stored form of a new password on the entry: the vault ciphertext (or, without a DEK,
+   * whatever legacy mode stores), its reuse fingerprint and its health record. A password that did
+   * not actually change (same fingerprint) keeps its health record and change date.
+   *
+   * @param dek the owner's DEK, or null if the vault is not initialized
+   */
+  private void storePassword(PasswordEntry entry, Long ownerId, byte[] dek, String password) {
+    if (dek == null) {
+      entry.setPassword(vaultService.encryptPasswordForStorage(ownerId, null, password));
+    } else {
+      entry.setPassword(vaultService.encryptPasswordForStorageWithDek(ownerId, dek, password));
+    }
+    String fingerprint = vaultService.fingerprintPasswordWithDek(dek, password);
+    boolean unchanged =
+        fingerprint != null
+            && fingerprint.equals(entry.getPasswordFingerprint())
+            && entry.getPasswordChangedAt() != null;
+    entry.setPasswordFingerprint(fingerprint);
+    if (!unchanged) {
+      vaultHealthService.assess(entry, password);
+    }
+  }
+
+  /**
+   * Resolves the Category entity for the given categoryId and ownerId. Ownership is checked against
+   * the cached category list (and the repository if the id is not in it); the returned reference is
+   * an uninitialized proxy, so linking an entry to its category costs no query.
    *
    * @param categoryId
    * @param ownerId
@@ -235,11 +869,9 @@ public class PasswordEntryService {
     if (categoryId == null) {
       return null;
     }
-    return categoryRepository
-        .findByIdAndOwnerId(categoryId, ownerId)
-        .orElseThrow(
-            () ->
-                new NotFoundException(
-                    "Category not found with id " + categoryId + " for current user"));
+    if (!metadataCache.ownsCategory(ownerId, categoryId)) {
+      throw new NotFoundException("Category not found with id " + categoryId + " for current user");
+    }
+    return categoryRepository.getReferenceById(categoryId);
   }
 }
@@ -0,0 +1,105 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.model.dtos.TotpCodesResponseDto;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.support.Totp;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Computes the current one-time codes of entries with a TOTP secret, for an authenticator view that
+ * refreshes all of its codes with one request.
+ *
+ * <p>Only the secrets of the requested entries are read and decrypted. Codes are computed by {@link
+ * Totp.Engine}s, which are not thread-safe but allocate nothing once warm; requests run on virtual
+ * threads, so instead of one engine per thread a small pool is kept and each request borrows one
+ * for its batch.
+ */
+@Service
+public class TotpService {
+
+  private final PasswordEntryRepository repository;
+  private final VaultSessionService vaultSessionService;
+  private final EntryFieldCryptoService entryFieldCrypto;
+  private final Clock clock;
+  private final BlockingQueue<Totp.Engine> engines =
+      new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+  @Autowired
+  public TotpService(
+      PasswordEntryRepository repository,
+      VaultSessionService vaultSessionService,
+      EntryFieldCryptoService entryFieldCrypto) {
+    this(repository, vaultSessionService, entryFieldCrypto, Clock.systemUTC());
+  }
+
+  // Visible for testing
+  TotpService(
+      PasswordEntryRepository repository,
+      VaultSessionService vaultSessionService,
+      EntryFieldCryptoService entryFieldCrypto,
+      Clock clock) {
+    this.repository = repository;
+    this.vaultSessionService = vaultSessionService;
+    this.entryFieldCrypto = entryFieldCrypto;
+    this.clock = clock;
+  }
+
+  /**
+   * Computes the codes valid now for the given entries.
+   *
+   * @param ids the entries; duplicates are answered once
+   * @param ownerId the owner of the entries
+   * @param vaultToken active vault session token (required once the vault is initialized)
+   * @return the codes in request order, plus the ids without a secret
+   */
+  @Transactional(readOnly = true)
+  public TotpCodesResponseDto codes(List<Long> ids, Long ownerId, String vaultToken) {
+    byte[] dek = vaultSessionService.resolveDek(ownerId, vaultToken);
+
+    Long[] distinct = new LinkedHashSet<>(ids).toArray(Long[]::new);
+    Map<Long, PasswordEntryRepository.TotpSecret> secrets = new HashMap<>();
+    for (PasswordEntryRepository.TotpSecret row : repository.findTotpSecrets(ownerId, distinct)) {
+      secrets.put(row.getId(), row);
+    }
+
+    long now = clock.instant().getEpochSecond();
+    List<TotpCodesResponseDto.Code> codes = new ArrayList<>(secrets.size());
+    List<Long> notFound = new ArrayList<>();
+    Totp.Engine engine = engines.poll();
+    if (engine == null) {
+      engine = new Totp.Engine();
+    }
+    try {
+      for (Long id : distinct) {
+        PasswordEntryRepository.TotpSecret row = secrets.get(id);
+        if (row == null) {
+          notFound.add(id);
+          continue;
+        }
+        Totp.Parameters parameters =
+            Totp.parse(entryFieldCrypto.open(row.getTotpSecret(), ownerId, dek));
+        codes.add(
+            new TotpCodesResponseDto.Code(
+                id,
+                row.getName(),
+                Totp.format(engine.code(parameters, now), parameters.digits()),
+                parameters.period(),
+                Instant.ofEpochSecond(parameters.nextPeriod(now))));
+      }
+    } finally {
+      engines.offer(engine);
+    }
+    return new TotpCodesResponseDto(codes, notFound);
+  }
+}
@@ -0,0 +1,134 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository.UnresolvedUrl;
+import com.vaultweb.passwordmanager.backend.repositories.VaultHealthRepository;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fills in the normalized host and domain of entries written before they were stored (migration
+ * V13). Entries written since get them on every write, so the backfill makes a single pass over the
+ * entries with a url but no host and then stops. Urls without a recognizable host are left as they
+ * are and revisited once per start.
+ *
+ * <p>The pass goes owner by owner (as listed in {@code vault_health}) and, within an owner, in id
+ * order and {@code vault.urlDomains.backfillChunkSize} rows per transaction, so every query reads a
+ * single partition of {@code password_entries}. Each chunk locks its owner before writing, and each
+ * write is guarded by the version the entry had when it was read.
+ */
+@Slf4j
+@Service
+public class UrlDomainBackfill {
+
+  private final PasswordEntryRepository repository;
+  private final VaultHealthRepository vaultHealthRepository;
+  private final UrlDomainService urlDomainService;
+  private final VaultVersionService vaultVersionService;
+  private final TransactionTemplate transactionTemplate;
+  private final int chunkSize;
+  private volatile long ownerCursor;
+  private volatile long cursor;
+  private volatile boolean done;
+
+  public UrlDomainBackfill(
+      PasswordEntryRepository repository,
+      VaultHealthRepository vaultHealthRepository,
+      UrlDomainService urlDomainService,
+      VaultVersionService vaultVersionService,
+      PlatformTransactionManager transactionManager,
+      @Value("${vault.urlDomains.backfillChunkSize:1000}") int chunkSize) {
+    this.repository = repository;
+    this.vaultHealthRepository = vaultHealthRepository;
+    this.urlDomainService = urlDomainService;
+    this.vaultVersionService = vaultVersionService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.chunkSize = chunkSize;
+  }
+
+  /** Whether the pass over the existing entries is complete. */
+  public boolean isDone() {
+    return done;
+  }
+
+  /**
+   * Continues the pass from the last committed chunk until it has been through every owner. A
+   * failed chunk is retried on the next run.
+   */
+  @Scheduled(fixedDelayString = "${vault.urlDomains.backfillDelayMs:60000}")
+  public void backfill() {
+    if (done) {
+      return;
+    }
+    int resolved = 0;
+    try {
+      List<Long> owners;
+      do {
+        owners = vaultHealthRepository.findOwnersWithEntries(ownerCursor, chunkSize);
+        for (Long ownerId : owners) {
+          int read;
+          do {
+            int[] chunk = transactionTemplate.execute(status -> resolveChunk(ownerId));
+            read = chunk[0];
+            resolved += chunk[1];
+          } while (read == chunkSize);
+          ownerCursor = ownerId;
+          cursor = 0;
+        }
+      } while (owners.size() == chunkSize);
+    } catch (DataAccessException e) {
+      log.warn("Url domain backfill failed after {} entries: {}", resolved, e.getMessage());
+      return;
+    }
+    done = true;
+    if (resolved > 0) {
+      log.info("Url domain backfill resolved {} entries", resolved);
+    }
+  }
+
+  /**
+   * Resolves the owner's next chunk and advances the cursor; returns the rows read and the rows
+   * written.
+   */
+  private int[] resolveChunk(Long ownerId) {
+    List<UnresolvedUrl> rows = repository.findUnresolvedUrls(ownerId, cursor, chunkSize);
+    if (rows.isEmpty()) {
+      return new int[] {0, 0};
+    }
+
+    List<Long> ids = new ArrayList<>();
+    List<Long> versions = new ArrayList<>();
+    List<String> hosts = new ArrayList<>();
+    List<String> domains = new ArrayList<>();
+    for (UnresolvedUrl row : rows) {
+      UrlDomainService.UrlDomain site = urlDomainService.normalize(row.getUrl());
+      if (site != null) {
+        ids.add(row.getId());
+        versions.add(row.getVersion());
+        hosts.add(site.host());
+        domains.add(site.domain());
+      }
+    }
+
+    int written = 0;
+    if (!ids.isEmpty()) {
+      vaultVersionService.lock(ownerId);
+      written =
+          repository.resolveUrls(
+              ownerId,
+              ids.toArray(Long[]::new),
+              versions.toArray(Long[]::new),
+              hosts.toArray(String[]::new),
+              domains.toArray(String[]::new));
+    }
+    cursor = rows.getLast().getId();
+    return new int[] {rows.size(), written};
+  }
+}
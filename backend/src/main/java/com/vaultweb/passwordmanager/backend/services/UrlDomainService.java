@@ -0,0 +1,186 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.springframework.stereotype.Service;
+
+/**
+ * Normalizes the free-form {@code url} of an entry to the host and registrable domain (public
+ * suffix plus one label, "eTLD+1") that credential lookup by site matches on. The public suffixes
+ * come from the Mozilla Public Suffix List bundled as {@code publicsuffix/public_suffix_list.dat},
+ * ICANN and private sections alike, so {@code alice.github.io} and {@code bob.github.io} are
+ * different sites while {@code login.example.co.uk} and {@code www.example.co.uk} are the same one.
+ *
+ * <p>To update the list, replace the resource with the current
+ * https://publicsuffix.org/list/public_suffix_list.dat; stored domains are not recomputed.
+ */
+@Service
+public class UrlDomainService {
+
+  static final String PUBLIC_SUFFIX_LIST = "publicsuffix/public_suffix_list.dat";
+
+  private static final int MAX_HOST_LENGTH = 253;
+  private static final Pattern HOST = Pattern.compile("[a-z0-9_-]+(\\.[a-z0-9_-]+)*");
+  private static final Pattern NUMERIC_LABEL = Pattern.compile(".*\\.[0-9]+|[0-9]+");
+
+  /** Host and registrable domain of a url; both are lower-case ASCII (IDNs in punycode). */
+  public record UrlDomain(String host, String domain) {}
+
+  private final Set<String> rules = new HashSet<>();
+  private final Set<String> wildcardRules = new HashSet<>();
+  private final Set<String> exceptionRules = new HashSet<>();
+
+  public UrlDomainService() {
+    InputStream in = getClass().getClassLoader().getResourceAsStream(PUBLIC_SUFFIX_LIST);
+    if (in == null) {
+      throw new IllegalStateException("Public suffix list not found: " + PUBLIC_SUFFIX_LIST);
+    }
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        addRule(line.strip());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read " + PUBLIC_SUFFIX_LIST, e);
+    }
+  }
+
+  private void addRule(String line) {
+    if (line.isEmpty() || line.startsWith("//")) {
+      return;
+    }
+    String rule = line.split("\\s", 2)[0];
+    Set<String> target = rules;
+    if (rule.startsWith("!")) {
+      target = exceptionRules;
+      rule = rule.substring(1);
+    } else if (rule.startsWith("*.")) {
+      target = wildcardRules;
+      rule = rule.substring(2);
+    }
+    try {
+      target.add(IDN.toASCII(rule, IDN.ALLOW_UNASSIGNED).toLowerCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      // Not representable as an ASCII host, so no stored host can match it either
+    }
+  }
+
+  /**
+   * Sets the entry's host and domain columns from its current url (or clears them).
+   *
+   * @param entry the entry being written
+   */
+  public void apply(PasswordEntry entry) {
+    UrlDomain normalized = normalize(entry.getUrl());
+    entry.setUrlHost(normalized != null ? normalized.host() : null);
+    entry.setUrlDomain(normalized != null ? normalized.domain() : null);
+  }
+
+  /**
+   * Extracts the host of a url and its registrable domain. Accepts anything people put in the url
+   * field: full urls, bare hosts ({@code example.com}), hosts with a port or path, user info, IP
+   * addresses, internationalized names.
+   *
+   * @param url the url, possibly null
+   * @return the host and domain, or null if the url has no recognizable host
+   */
+  public UrlDomain normalize(String url) {
+    String host = extractHost(url);
+    if (host == null) {
+      return null;
+    }
+    if (host.contains(":") || NUMERIC_LABEL.matcher(host).matches() || host.indexOf('.') < 0) {
+      // IP addresses and single-label hosts (localhost, intranet names) are their own site
+      return new UrlDomain(host, host);
+    }
+    return new UrlDomain(host, registrableDomain(host));
+  }
+
+  private static String extractHost(String url) {
+    if (url == null) {
+      return null;
+    }
+    String rest = url.strip();
+    int scheme = rest.indexOf("://");
+    if (scheme >= 0) {
+      rest = rest.substring(scheme + 3);
+    } else if (rest.startsWith("//")) {
+      rest = rest.substring(2);
+    }
+    for (char terminator : new char[] {'/', '?', '#'}) {
+      int end = rest.indexOf(terminator);
+      if (end >= 0) {
+        rest = rest.substring(0, end);
+      }
+    }
+    rest = rest.substring(rest.lastIndexOf('@') + 1);
+
+    if (rest.startsWith("[")) {
+      int end = rest.indexOf(']');
+      String address = end > 1 ? rest.substring(1, end).toLowerCase(Locale.ROOT) : "";
+      return address.matches("[0-9a-f:.]+") ? address : null;
+    }
+    int port = rest.lastIndexOf(':');
+    if (port >= 0) {
+      rest = rest.substring(0, port);
+    }
+    if (rest.endsWith(".")) {
+      rest = rest.substring(0, rest.length() - 1);
+    }
+
+    String host;
+    try {
+      host = IDN.toASCII(rest, IDN.ALLOW_UNASSIGNED).toLowerCase(Locale.ROOT);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    if (host.length() > MAX_HOST_LENGTH || !HOST.matcher(host).matches()) {
+      return null;
+    }
+    return host;
+  }
+
+  /**
+   * Applies the public suffix algorithm: the longest matching rule wins, exception rules beat the
+   * wildcard they carve out of, and a host no rule matches has its last label as public suffix.
+   */
+  private String registrableDomain(String host) {
+    // Suffixes of the host from the longest (the host itself) to the shortest (its last label)
+    int suffixStart = -1;
+    int start = 0;
+    while (start >= 0) {
+      String candidate = host.substring(start);
+      int next = host.indexOf('.', start);
+      String parent = next >= 0 ? host.substring(next + 1) : null;
+      if (exceptionRules.contains(candidate)) {
+        suffixStart = next + 1;
+        break;
+      }
+      if (rules.contains(candidate) || (parent != null && wildcardRules.contains(parent))) {
+        suffixStart = start;
+        break;
+      }
+      start = next >= 0 ? next + 1 : -1;
+    }
+    if (suffixStart < 0) {
+      suffixStart = host.lastIndexOf('.') + 1;
+    }
+    if (suffixStart == 0) {
+      // The host is itself a public suffix
+      return host;
+    }
+    // One more label to the left of the public suffix
+    return host.substring(host.lastIndexOf('.', suffixStart - 2) + 1);
+  }
+}
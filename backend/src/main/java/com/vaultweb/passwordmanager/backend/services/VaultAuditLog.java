@@ -0,0 +1,196 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.support.RingBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Audit trail of sensitive vault operations (password reveals, attachment downloads, exports,
+ * unlocks, master password rotations and failed master password attempts) in the append-only {@code
+ * vault_audit_log} table, which is partitioned by month (V15).
+ *
+ * <p>Recording an event must not add a database round trip to the operation, so {@link #record}
+ * only puts it into a bounded lock-free {@link RingBuffer}. A background flush writes the buffered
+ * events in batches, each sent as multi-row inserts (the JDBC batch is rewritten by the driver, see
+ * {@code reWriteBatchedInserts}), and the buffer is drained once more on shutdown. If the writer
+ * falls behind by more than the buffer holds, further events are dropped rather than blocking the
+ * caller; drops and failed writes are counted ({@code vault.audit.dropped}, {@code
+ * vault.audit.failed}) and logged.
+ *
+ * <p>Events are recorded when the operation happens, whether or not its transaction commits, so
+ * failed attempts are kept as well.
+ */
+@Slf4j
+@Service
+public class VaultAuditLog {
+
+  public enum EventType {
+    REVEAL,
+    EXPORT,
+    UNLOCK,
+    ROTATE,
+    MASTER_PASSWORD_FAILED,
+    ATTACHMENT_DOWNLOAD
+  }
+
+  record Event(
+      Long ownerId, EventType type, Long entryId, String detail, LocalDateTime occurredAt) {}
+
+  static final String INSERT =
+      "insert into vault_audit_log (owner_id, event_type, entry_id, detail, occurred_at) "
+          + "values (?, ?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final RingBuffer<Event> buffer;
+  private final int batchSize;
+  private final int partitionsAhead;
+
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder written = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+
+  /** Makes this the buffer's only consumer; see {@link RingBuffer#drain}. */
+  private final ReentrantLock flushLock = new ReentrantLock();
+
+  private long reportedDrops;
+
+  public VaultAuditLog(
+      JdbcTemplate jdbcTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${vault.audit.bufferSize:65536}") int bufferSize,
+      @Value("${vault.audit.batchSize:1000}") int batchSize,
+      @Value("${vault.audit.partitionsAhead:2}") int partitionsAhead) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.buffer = new RingBuffer<>(bufferSize);
+    this.batchSize = batchSize;
+    this.partitionsAhead = partitionsAhead;
+
+    Gauge.builder("vault.audit.pending", buffer, RingBuffer::size)
+        .description("Audit events waiting to be written")
+        .register(meterRegistry);
+    FunctionCounter.builder("vault.audit.written", written, LongAdder::sum)
+        .description("Audit events written")
+        .register(meterRegistry);
+    FunctionCounter.builder("vault.audit.dropped", dropped, LongAdder::sum)
+        .description("Audit events dropped because the buffer was full")
+        .register(meterRegistry);
+    FunctionCounter.builder("vault.audit.failed", failed, LongAdder::sum)
+        .description("Audit events lost to a failed write")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Records an event. Never blocks; if the buffer is full the event is dropped and counted.
+   *
+   * @param ownerId the vault owner
+   * @param type what happened
+   * @param entryId the entry concerned, or null
+   * @param detail additional information (at most 255 characters), or null
+   */
+  public void record(Long ownerId, EventType type, Long entryId, String detail) {
+    if (!buffer.offer(new Event(ownerId, type, entryId, detail, LocalDateTime.now()))) {
+      dropped.increment();
+    }
+  }
+
+  /** Records an event that concerns the vault as a whole. */
+  public void record(Long ownerId, EventType type) {
+    record(ownerId, type, null, null);
+  }
+
+  /** Writes the buffered events, in batches of at most {@code vault.audit.batchSize}. */
+  @Scheduled(fixedDelayString = "${vault.audit.flushDelayMs:200}")
+  public void flush() {
+    flushLock.lock();
+    try {
+      List<Event> batch = new ArrayList<>();
+      int taken;
+      do {
+        taken = buffer.drain(batch::add, batchSize);
+        if (taken > 0) {
+          write(batch);
+          batch.clear();
+        }
+      } while (taken == batchSize);
+
+      long drops = dropped.sum();
+      if (drops > reportedDrops) {
+        log.warn(
+            "Audit buffer full, dropped {} events (vault.audit.bufferSize={})",
+            drops - reportedDrops,
+            buffer.capacity());
+        reportedDrops = drops;
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void write(List<Event> batch) {
+    try {
+      jdbcTemplate.batchUpdate(
+          INSERT,
+          batch,
+          batch.size(),
+          (ps, event) -> {
+            ps.setLong(1, event.ownerId());
+            ps.setString(2, event.type().name());
+            ps.setObject(3, event.entryId(), Types.BIGINT);
+            ps.setString(4, event.detail());
+            ps.setObject(5, event.occurredAt());
+          });
+      written.add(batch.size());
+    } catch (DataAccessException e) {
+      failed.add(batch.size());
+      log.warn("Could not write {} audit events: {}", batch.size(), e.getMessage());
+    }
+  }
+
+  /**
+   * Creates the monthly partitions of the current and the next {@code vault.audit.partitionsAhead}
+   * months, so events never have to go to the default partition. A month that already has a
+   * partition is skipped.
+   */
+  @Scheduled(initialDelay = 0, fixedDelayString = "${vault.audit.partitionCheckDelayMs:3600000}")
+  public void createPartitions() {
+    YearMonth month = YearMonth.now();
+    for (int i = 0; i <= partitionsAhead; i++) {
+      createPartition(month.plusMonths(i));
+    }
+  }
+
+  private void createPartition(YearMonth month) {
+    String sql =
+        String.format(
+            "create table if not exists vault_audit_log_y%04dm%02d partition of vault_audit_log "
+                + "for values from ('%s') to ('%s')",
+            month.getYear(), month.getMonthValue(), month.atDay(1), month.plusMonths(1).atDay(1));
+    try {
+      jdbcTemplate.execute(sql);
+    } catch (DataAccessException e) {
+      // Typically rows for that month already in the default partition
+      log.warn("Could not create audit log partition for {}: {}", month, e.getMessage());
+    }
+  }
+
+  /** Writes what is still buffered. */
+  @PreDestroy
+  public void shutdown() {
+    flush();
+  }
+}
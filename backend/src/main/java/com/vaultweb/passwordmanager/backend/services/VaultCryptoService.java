@@ -1,12 +1,18 @@
 package com.vaultweb.passwordmanager.backend.services;
 
 import com.vaultweb.passwordmanager.backend.exceptions.InvalidCredentialsException;
+import com.vaultweb.passwordmanager.backend.support.SecureRandoms;
+import jakarta.annotation.PreDestroy;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.Mac;
@@ -14,6 +20,7 @@ import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -38,16 +45,38 @@ public class VaultCryptoService {
 
   private static final String KDF_ALGORITHM = "PBKDF2WithHmacSHA256";
 
-  private final SecureRandom secureRandom = new SecureRandom();
+  private final SecureRandom secureRandom = SecureRandoms.drbg();
   private final int defaultPbkdf2Iterations;
 
+  /**
+   * Platform threads that run PBKDF2. Key derivation is deliberately slow CPU work; running it on a
+   * bounded pool keeps a burst of unlocks from occupying every core (or, with virtual threads
+   * enabled, every carrier thread), while the waiting request threads simply park.
+   */
+  private final ExecutorService kdfPool;
+
+  public VaultCryptoService(int defaultPbkdf2Iterations) {
+    this(defaultPbkdf2Iterations, Runtime.getRuntime().availableProcessors());
+  }
+
+  @Autowired
   public VaultCryptoService(
       @Value("${vault.crypto.pbkdf2.iterations:" + DEFAULT_PBKDF2_ITERATIONS + "}")
-          int defaultPbkdf2Iterations) {
+          int defaultPbkdf2Iterations,
+      @Value("${vault.crypto.kdf.threads:0}") int kdfThreads) {
     if (defaultPbkdf2Iterations <= 0) {
       throw new IllegalStateException("vault.crypto.pbkdf2.iterations must be > 0");
     }
     this.defaultPbkdf2Iterations = defaultPbkdf2Iterations;
+    int threads = kdfThreads > 0 ? kdfThreads : Runtime.getRuntime().availableProcessors();
+    this.kdfPool =
+        Executors.newFixedThreadPool(
+            threads, Thread.ofPlatform().name("kdf-", 0).daemon(true).factory());
+  }
+
+  @PreDestroy
+  void shutdown() {
+    kdfPool.shutdownNow();
   }
 
   public int defaultIterations() {
@@ -70,6 +99,22 @@ public class VaultCryptoService {
    * @return the derived KEK bytes
    */
   public byte[] deriveKek(String masterPassword, byte[] salt, int iterations) {
+    Future<byte[]> derived = kdfPool.submit(() -> pbkdf2(masterPassword, salt, iterations));
+    try {
+      return derived.get();
+    } catch (InterruptedException e) {
+      derived.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while deriving key", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException("Unable to derive key", e.getCause());
+    }
+  }
+
+  private static byte[] pbkdf2(String masterPassword, byte[] salt, int iterations) {
     PBEKeySpec spec =
         new PBEKeySpec(masterPassword.toCharArray(), salt, iterations, 8 * PBKDF2_KEY_LEN_BYTES);
     try {
@@ -187,6 +232,74 @@ public class VaultCryptoService {
     return new String(plainBytes, StandardCharsets.UTF_8);
   }
 
+  /**
+   * Computes the keyed fingerprint of a plaintext password: HMAC-SHA256 under a fingerprint key
+   * derived from the DEK (never the DEK itself). Equal passwords within one vault have equal
+   * fingerprints; without the DEK a fingerprint reveals nothing and cannot be brute-forced.
+   *
+   * @param dekBytes
+   * @param plaintext
+   * @return the Base64-encoded fingerprint (44 characters)
+   */
+  public String fingerprintPassword(byte[] dekBytes, String plaintext) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(dekBytes, "HmacSHA256"));
+      byte[] fingerprintKey =
+          mac.doFinal("vault-web-password-fingerprint".getBytes(StandardCharsets.UTF_8));
+
+      mac.init(new SecretKeySpec(fingerprintKey, "HmacSHA256"));
+      return Base64.getEncoder()
+          .encodeToString(mac.doFinal(plaintext.getBytes(StandardCharsets.UTF_8)));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Unable to compute password fingerprint", e);
+    }
+  }
+
+  /**
+   * Computes the blind index of an entry field value: HMAC-SHA256 under a key derived from the DEK
+   * for that field, truncated to its first 32 bits. Equal values of a field have equal indexes, so
+   * an exact-match lookup stays an index scan over encrypted data. The truncation keeps the index
+   * small and lets unrelated values collide now and then; callers decrypt the matching rows and
+   * drop those that do not actually match.
+   *
+   * @param dekBytes
+   * @param field names the field, so equal values of different fields have unrelated indexes
+   * @param value the normalized plaintext value
+   * @return the blind index
+   */
+  public int blindIndex(byte[] dekBytes, String field, String value) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(dekBytes, "HmacSHA256"));
+      byte[] indexKey =
+          mac.doFinal(("vault-web-blind-index:" + field).getBytes(StandardCharsets.UTF_8));
+
+      mac.init(new SecretKeySpec(indexKey, "HmacSHA256"));
+      return ByteBuffer.wrap(mac.doFinal(value.getBytes(StandardCharsets.UTF_8))).getInt();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Unable to compute blind index", e);
+    }
+  }
+
+  /**
+   * Derives the key of an attachment file: HMAC-SHA256 under the DEK of the file's random storage
+   * key, so every file is encrypted under its own key (see {@code ChunkedAesGcm}).
+   *
+   * @param dekBytes
+   * @param storageKey the random name the file is stored under
+   * @return the 256-bit AES key of the file
+   */
+  public byte[] attachmentKey(byte[] dekBytes, String storageKey) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(dekBytes, "HmacSHA256"));
+      return mac.doFinal(("vault-web-attachment:" + storageKey).getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Unable to derive attachment key", e);
+    }
+  }
+
   /**
    * Checks whether the given value is a password-encrypted vault export envelope.
    *
@@ -0,0 +1,252 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.model.VaultOutboxEvent;
+import com.vaultweb.passwordmanager.backend.model.dtos.VaultChangeEventDto;
+import com.vaultweb.passwordmanager.backend.repositories.VaultOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Server-sent change feed. Mutations append to the {@code vault_outbox} table in their own
+ * transaction (see {@link VaultVersionService#bump}); this service polls the outbox and notifies
+ * the owner's connected clients, who then pull the actual changes through delta sync.
+ *
+ * <p>Subscriptions are async servlet responses, so an idle subscriber holds a socket and a map
+ * entry but no thread. Sends run on virtual threads so a slow client cannot stall the relay.
+ */
+@Slf4j
+@Service
+public class VaultEventService {
+
+  static final String EVENT_NAME = "vault-changed";
+
+  private final VaultOutboxRepository outboxRepository;
+  private final VaultVersionService vaultVersionService;
+  private final long emitterTimeoutMs;
+  private final Duration outboxRetention;
+  private final Duration gapTimeout;
+
+  private final Map<Long, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+  private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+  /**
+   * Serialises relay passes. A lock rather than {@code synchronized}: with virtual threads enabled
+   * the scheduler runs on them, and blocking on the outbox query inside a monitor pins the carrier.
+   */
+  private final ReentrantLock relayLock = new ReentrantLock();
+
+  private OutboxWatermark watermark;
+
+  public VaultEventService(
+      VaultOutboxRepository outboxRepository,
+      VaultVersionService vaultVersionService,
+      @Value("${vault.events.timeoutMs:1800000}") long emitterTimeoutMs,
+      @Value("${vault.events.outboxRetention:PT10M}") Duration outboxRetention,
+      @Value("${vault.events.gapTimeout:PT5S}") Duration gapTimeout) {
+    this.outboxRepository = outboxRepository;
+    this.vaultVersionService = vaultVersionService;
+    this.emitterTimeoutMs = emitterTimeoutMs;
+    this.outboxRetention = outboxRetention;
+    this.gapTimeout = gapTimeout;
+  }
+
+  /**
+   * Opens a change feed for the owner. The first event carries the current cursor so the client can
+   * catch up on anything that happened while it was disconnected.
+   *
+   * @param ownerId the vault owner
+   * @return the emitter backing the event stream
+   */
+  public SseEmitter subscribe(Long ownerId) {
+    SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+    Set<SseEmitter> owned =
+        subscribers.computeIfAbsent(ownerId, id -> ConcurrentHashMap.newKeySet());
+    owned.add(emitter);
+    Runnable remove = () -> unsubscribe(ownerId, emitter);
+    emitter.onCompletion(remove);
+    emitter.onTimeout(remove);
+    emitter.onError(error -> remove.run());
+
+    send(ownerId, emitter, vaultVersionService.current(ownerId));
+    return emitter;
+  }
+
+  /** Relays newly committed outbox rows to the subscribers of their owners. */
+  @Scheduled(fixedDelayString = "${vault.events.pollDelayMs:500}")
+  public void relay() {
+    relayLock.lock();
+    try {
+      relayLocked();
+    } finally {
+      relayLock.unlock();
+    }
+  }
+
+  private void relayLocked() {
+    if (subscribers.isEmpty()) {
+      // Nobody to notify; new subscribers receive the current cursor when they connect.
+      watermark = null;
+      return;
+    }
+    if (watermark == null) {
+      watermark = new OutboxWatermark(outboxRepository.findMaxId(), gapTimeout);
+    }
+
+    List<VaultOutboxEvent> fresh =
+        watermark.advance(
+            outboxRepository.findTop500ByIdGreaterThanOrderByIdAsc(watermark.position()),
+            Instant.now());
+
+    // Clients only need the latest cursor per owner, however many changes happened in between.
+    Map<Long, Long> latest = new HashMap<>();
+    for (VaultOutboxEvent event : fresh) {
+      latest.merge(event.getOwnerId(), event.getChangeSeq(), Math::max);
+    }
+    latest.forEach(
+        (ownerId, cursor) -> {
+          Set<SseEmitter> owned = subscribers.get(ownerId);
+          if (owned != null) {
+            for (SseEmitter emitter : owned) {
+              senders.execute(() -> send(ownerId, emitter, cursor));
+            }
+          }
+        });
+  }
+
+  /** Keeps idle connections alive through proxies and detects clients that went away. */
+  @Scheduled(fixedDelayString = "${vault.events.heartbeatMs:25000}")
+  public void heartbeat() {
+    subscribers.forEach(
+        (ownerId, owned) -> {
+          for (SseEmitter emitter : owned) {
+            senders.execute(
+                () -> {
+                  try {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                  } catch (IOException | IllegalStateException e) {
+                    unsubscribe(ownerId, emitter);
+                  }
+                });
+          }
+        });
+  }
+
+  /** Removes outbox rows that every running instance has had ample time to relay. */
+  @Scheduled(fixedDelayString = "${vault.events.cleanupDelayMs:60000}")
+  @Transactional
+  public void purgeOutbox() {
+    outboxRepository.deleteOlderThan(LocalDateTime.now().minus(outboxRetention));
+  }
+
+  @PreDestroy
+  void shutdown() {
+    subscribers.values().forEach(owned -> owned.forEach(SseEmitter::complete));
+    subscribers.clear();
+    senders.shutdown();
+  }
+
+  private void send(Long ownerId, SseEmitter emitter, long cursor) {
+    try {
+      emitter.send(
+          SseEmitter.event()
+              .name(EVENT_NAME)
+              .id(Long.toString(cursor))
+              .data(new VaultChangeEventDto(cursor)));
+    } catch (IOException | IllegalStateException e) {
+      log.debug("Dropping vault event subscriber for owner {}: {}", ownerId, e.getMessage());
+      unsubscribe(ownerId, emitter);
+    }
+  }
+
+  private void unsubscribe(Long ownerId, SseEmitter emitter) {
+    subscribers.computeIfPresent(
+        ownerId,
+        (id, owned) -> {
+          owned.remove(emitter);
+          return owned.isEmpty() ? null : owned;
+        });
+  }
+
+  /**
+   * Tracks which outbox rows have been relayed. Identity values are assigned at insert time but
+   * become visible at commit time, so a lower id can show up after a higher one. Ids that are
+   * skipped over are remembered as gaps and waited for (up to {@code gapTimeout}, after which the
+   * id is assumed to belong to a rolled-back transaction) before the position moves past them.
+   */
+  static final class OutboxWatermark {
+
+    private final Duration gapTimeout;
+    private final Set<Long> relayed = new HashSet<>();
+    private final NavigableMap<Long, Instant> gaps = new TreeMap<>();
+    private long position;
+
+    OutboxWatermark(long position, Duration gapTimeout) {
+      this.position = position;
+      this.gapTimeout = gapTimeout;
+    }
+
+    long position() {
+      return position;
+    }
+
+    /**
+     * Accepts the rows found after {@link #position()} and returns those not relayed before.
+     *
+     * @param rows outbox rows with an id greater than the current position, in id order
+     * @param now the current time, used to expire gaps
+     * @return the rows to relay now
+     */
+    List<VaultOutboxEvent> advance(List<VaultOutboxEvent> rows, Instant now) {
+      List<VaultOutboxEvent> fresh = new ArrayList<>();
+      long highest = position;
+      for (VaultOutboxEvent row : rows) {
+        if (relayed.add(row.getId())) {
+          fresh.add(row);
+          gaps.remove(row.getId());
+        }
+        highest = Math.max(highest, row.getId());
+      }
+      for (long id = position + 1; id < highest; id++) {
+        if (!relayed.contains(id)) {
+          gaps.putIfAbsent(id, now);
+        }
+      }
+
+      while (true) {
+        long next = position + 1;
+        if (relayed.remove(next)) {
+          position = next;
+          continue;
+        }
+        Instant seenMissing = gaps.get(next);
+        if (seenMissing != null && !seenMissing.plus(gapTimeout).isAfter(now)) {
+          gaps.remove(next);
+          position = next;
+          continue;
+        }
+        return fresh;
+      }
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.dtos.VaultHealthResponseDto;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.VaultHealthRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Vault health: weak, reused, old and breached passwords. Each entry carries its own health record
+ * (strength score, fingerprint, breach count, last password change), assessed when its password is
+ * written; the per-owner totals in {@code vault_health} follow every change of those columns (see
+ * migration V12), so reading them is a primary key lookup.
+ *
+ * <p>Two parts of the record are completed in the background: the breach check ({@link
+ * BreachCheckQueue}) and the age, which changes without any write. The aging job flags entries
+ * whose password has become older than {@code vault.health.maxPasswordAge} (and unflags them if the
+ * limit was raised), touching only those entries. It goes owner by owner, as listed in {@code
+ * vault_health}, so each of its queries reads a single partition of {@code password_entries}.
+ */
+@Slf4j
+@Service
+public class VaultHealthService {
+
+  private final VaultHealthRepository repository;
+  private final PasswordEntryRepository passwordEntryRepository;
+  private final PasswordStrengthService strengthService;
+  private final BreachCheckQueue breachCheckQueue;
+  private final VaultVersionService vaultVersionService;
+  private final TransactionTemplate transactionTemplate;
+  private final Duration maxPasswordAge;
+  private final int agingChunkSize;
+
+  public VaultHealthService(
+      VaultHealthRepository repository,
+      PasswordEntryRepository passwordEntryRepository,
+      PasswordStrengthService strengthService,
+      BreachCheckQueue breachCheckQueue,
+      VaultVersionService vaultVersionService,
+      PlatformTransactionManager transactionManager,
+      @Value("${vault.health.maxPasswordAge:P365D}") Duration maxPasswordAge,
+      @Value("${vault.health.agingChunkSize:1000}") int agingChunkSize) {
+    this.repository = repository;
+    this.passwordEntryRepository = passwordEntryRepository;
+    this.strengthService = strengthService;
+    this.breachCheckQueue = breachCheckQueue;
+    this.vaultVersionService = vaultVersionService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.maxPasswordAge = maxPasswordAge;
+    this.agingChunkSize = agingChunkSize;
+  }
+
+  /**
+   * Sets the health record of a password that is being stored on the entry: its strength score and
+   * change date, and a pending breach check.
+   *
+   * @param entry the entry being written
+   * @param password the new plaintext password
+   */
+  public void assess(PasswordEntry entry, String password) {
+    entry.setStrengthScore(strengthService.calculateStrength(password));
+    entry.setPasswordChangedAt(LocalDateTime.now());
+    entry.setBreachCount(null);
+    breachCheckQueue.enqueue(entry, password);
+  }
+
+  /**
+   * Returns the owner's vault health totals.
+   *
+   * @param ownerId the vault owner
+   * @return the totals; all zero for an owner without entries
+   */
+  @Transactional(readOnly = true)
+  public VaultHealthResponseDto get(Long ownerId) {
+    return repository
+        .findById(ownerId)
+        .map(VaultHealthResponseDto::new)
+        .orElseGet(VaultHealthResponseDto::new);
+  }
+
+  /**
+   * Updates the age flag of entries that crossed {@code vault.health.maxPasswordAge} since the last
+   * run, one owner and chunk at a time.
+   */
+  @Scheduled(fixedDelayString = "${vault.health.agingDelayMs:3600000}")
+  public void age() {
+    LocalDateTime cutoff = LocalDateTime.now().minus(maxPasswordAge);
+    int aged = 0;
+    try {
+      long ownerCursor = 0;
+      List<Long> owners;
+      do {
+        owners = repository.findOwnersWithEntries(ownerCursor, agingChunkSize);
+        for (Long ownerId : owners) {
+          if (passwordEntryRepository.hasEntriesToAge(ownerId, cutoff)) {
+            aged += ageOwner(ownerId, cutoff);
+          }
+          ownerCursor = ownerId;
+        }
+      } while (owners.size() == agingChunkSize);
+    } catch (DataAccessException e) {
+      log.warn("Password aging failed after {} entries: {}", aged, e.getMessage());
+      return;
+    }
+    if (aged > 0) {
+      log.debug("Updated the age of {} entries", aged);
+    }
+  }
+
+  private int ageOwner(Long ownerId, LocalDateTime cutoff) {
+    int aged = 0;
+    int changed;
+    do {
+      changed =
+          transactionTemplate.execute(
+              status -> {
+                vaultVersionService.lock(ownerId);
+                return passwordEntryRepository.ageOwned(ownerId, cutoff, agingChunkSize);
+              });
+      aged += changed;
+    } while (changed == agingChunkSize);
+    return aged;
+  }
+}
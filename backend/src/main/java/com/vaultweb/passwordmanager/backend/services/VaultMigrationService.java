@@ -0,0 +1,330 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.exceptions.ConflictException;
+import com.vaultweb.passwordmanager.backend.exceptions.NotFoundException;
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.VaultMigrationJob;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.VaultMigrationJobRepository;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs the migration of an owner's legacy plaintext passwords, usernames, urls and notes to vault
+ * encryption (see {@link EntryFieldCryptoService}) as a background job. The job walks the entries
+ * in id order (keyset paging), encrypts each chunk in parallel and commits it in its own
+ * transaction together with the job checkpoint, so memory use and transaction length are bounded by
+ * the chunk size and an interrupted job resumes after its last chunk. Entries with an incomplete
+ * health record (stored before fingerprints or strength scores existed, or whose breach check was
+ * lost) are completed on the same pass.
+ *
+ * <p>The DEK is only held in memory by the worker; it is never persisted. A job whose worker died
+ * (restart, crash) therefore stays {@code RUNNING} until the owner starts the migration again, at
+ * which point it is resumed from its checkpoint once its heartbeat is older than {@code
+ * vault.migration.staleAfter}. A job that {@code FAILED} is likewise resumed from its checkpoint
+ * when the owner starts the migration again.
+ */
+@Slf4j
+@Service
+public class VaultMigrationService {
+
+  /**
+   * A chunk entry to write; {@code ciphertext} is null if the password is already encrypted, and
+   * {@code sealed} (a detached copy holding the encrypted fields) is null if the other fields are.
+   */
+  private record Migration(
+      PasswordEntry entry,
+      String ciphertext,
+      PasswordEntry sealed,
+      String fingerprint,
+      int strengthScore,
+      String plaintext) {}
+
+  /** The owner's job and whether the caller has to start a worker for it. */
+  private record Claim(VaultMigrationJob job, boolean needsWorker) {}
+
+  private final PasswordEntryRepository passwordEntryRepository;
+  private final VaultMigrationJobRepository jobRepository;
+  private final VaultCryptoService crypto;
+  private final EntryFieldCryptoService entryFieldCrypto;
+  private final PasswordStrengthService strengthService;
+  private final BreachCheckQueue breachCheckQueue;
+  private final VaultVersionService vaultVersionService;
+  private final TransactionTemplate transactionTemplate;
+  private final int chunkSize;
+  private final Duration staleAfter;
+  private final ExecutorService workers;
+
+  /** Jobs with a worker in this instance. */
+  private final Set<Long> activeJobs = ConcurrentHashMap.newKeySet();
+
+  public VaultMigrationService(
+      PasswordEntryRepository passwordEntryRepository,
+      VaultMigrationJobRepository jobRepository,
+      VaultCryptoService crypto,
+      EntryFieldCryptoService entryFieldCrypto,
+      PasswordStrengthService strengthService,
+      BreachCheckQueue breachCheckQueue,
+      VaultVersionService vaultVersionService,
+      PlatformTransactionManager transactionManager,
+      @Value("${vault.migration.chunkSize:500}") int chunkSize,
+      @Value("${vault.migration.staleAfter:PT5M}") Duration staleAfter,
+      @Value("${vault.migration.workers:2}") int workers) {
+    this.passwordEntryRepository = passwordEntryRepository;
+    this.jobRepository = jobRepository;
+    this.crypto = crypto;
+    this.entryFieldCrypto = entryFieldCrypto;
+    this.strengthService = strengthService;
+    this.breachCheckQueue = breachCheckQueue;
+    this.vaultVersionService = vaultVersionService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.chunkSize = chunkSize;
+    this.staleAfter = staleAfter;
+    this.workers = Executors.newFixedThreadPool(workers);
+  }
+
+  /**
+   * Starts (or joins) the owner's migration job. If a job is already running it is returned as is;
+   * an abandoned or failed one is resumed from its checkpoint.
+   *
+   * @param ownerId
+   * @param dek the owner's unwrapped DEK; copied, the caller keeps ownership of the array
+   * @return the job, as of the moment it was started
+   */
+  public VaultMigrationJob start(Long ownerId, byte[] dek) {
+    Claim claim;
+    try {
+      claim = transactionTemplate.execute(status -> claimOrCreate(ownerId));
+    } catch (DataIntegrityViolationException e) {
+      // Another request created the owner's job between our lookup and insert
+      throw new ConflictException("A password migration is already running");
+    }
+
+    VaultMigrationJob job = claim.job();
+    if (claim.needsWorker() && activeJobs.add(job.getId())) {
+      Long jobId = job.getId();
+      byte[] key = dek.clone();
+      workers.execute(() -> run(jobId, ownerId, key));
+    }
+    return job;
+  }
+
+  /**
+   * Returns the owner's migration job.
+   *
+   * @param ownerId
+   * @param jobId
+   * @return the job
+   */
+  public VaultMigrationJob status(Long ownerId, Long jobId) {
+    return jobRepository
+        .findByIdAndOwnerId(jobId, ownerId)
+        .orElseThrow(() -> new NotFoundException("Migration job not found"));
+  }
+
+  private Claim claimOrCreate(Long ownerId) {
+    LocalDateTime now = LocalDateTime.now();
+    VaultMigrationJob running =
+        jobRepository
+            .findByOwnerIdAndStatus(ownerId, VaultMigrationJob.Status.RUNNING)
+            .orElse(null);
+    if (running != null) {
+      boolean stale = running.getUpdatedAt().isBefore(now.minus(staleAfter));
+      if (activeJobs.contains(running.getId())
+          || !stale
+          || jobRepository.claim(running.getId(), running.getUpdatedAt(), now) == 0) {
+        // Still being worked on, here or by another instance
+        return new Claim(running, false);
+      }
+      log.info(
+          "Resuming migration job {} after entry {}", running.getId(), running.getLastEntryId());
+      return new Claim(running, true);
+    }
+
+    VaultMigrationJob latest = jobRepository.findFirstByOwnerIdOrderByIdDesc(ownerId).orElse(null);
+    if (latest != null && latest.getStatus() == VaultMigrationJob.Status.FAILED) {
+      if (jobRepository.retry(latest.getId(), now) == 0) {
+        // Restarted by a concurrent request
+        throw new ConflictException("A password migration is already running");
+      }
+      log.info(
+          "Retrying failed migration job {} after entry {}",
+          latest.getId(),
+          latest.getLastEntryId());
+      return new Claim(jobRepository.findById(latest.getId()).orElseThrow(), true);
+    }
+
+    VaultMigrationJob job = new VaultMigrationJob();
+    job.setOwnerId(ownerId);
+    job.setStatus(VaultMigrationJob.Status.RUNNING);
+    job.setTotalCount(passwordEntryRepository.countByOwnerId(ownerId));
+    job.setCreatedAt(now);
+    job.setUpdatedAt(now);
+    return new Claim(jobRepository.saveAndFlush(job), true);
+  }
+
+  void run(Long jobId, Long ownerId, byte[] dek) {
+    try {
+      boolean more = true;
+      while (more && !Thread.currentThread().isInterrupted()) {
+        more =
+            Boolean.TRUE.equals(
+                transactionTemplate.execute(status -> migrateChunk(jobId, ownerId, dek)));
+      }
+    } catch (RuntimeException e) {
+      log.warn("Migration job {} failed: {}", jobId, e.getMessage());
+      transactionTemplate.executeWithoutResult(status -> fail(jobId, e));
+    } finally {
+      Arrays.fill(dek, (byte) 0);
+      activeJobs.remove(jobId);
+    }
+  }
+
+  /**
+   * Migrates the next chunk after the job's checkpoint and advances the checkpoint in the same
+   * transaction. Entries are updated only if still at the version that was read, without bumping
+   * it; an entry written concurrently was encrypted and assessed by that write. Entries without a
+   * breach check are queued for one.
+   *
+   * @return whether more entries may follow
+   */
+  Boolean migrateChunk(Long jobId, Long ownerId, byte[] dek) {
+    VaultMigrationJob job = jobRepository.findById(jobId).orElse(null);
+    if (job == null || job.getStatus() != VaultMigrationJob.Status.RUNNING) {
+      return false;
+    }
+    vaultVersionService.lock(ownerId);
+
+    List<PasswordEntry> chunk =
+        passwordEntryRepository.findByOwnerIdAndIdGreaterThanOrderByIdAsc(
+            ownerId, job.getLastEntryId(), Limit.of(chunkSize));
+
+    List<Migration> migrations =
+        chunk.parallelStream()
+            .filter(
+                entry ->
+                    !crypto.isVaultEncryptedPassword(entry.getPassword())
+                        || entryFieldCrypto.needsSealing(entry)
+                        || entry.getPasswordFingerprint() == null
+                        || entry.getStrengthScore() == null
+                        || entry.getBreachCount() == null)
+            .map(entry -> migrate(entry, ownerId, dek))
+            .toList();
+
+    int migrated = 0;
+    for (Migration migration : migrations) {
+      PasswordEntry entry = migration.entry();
+      int written = 0;
+      if (migration.ciphertext() != null) {
+        written +=
+            passwordEntryRepository.migratePassword(
+                entry.getId(),
+                ownerId,
+                entry.getVersion(),
+                migration.ciphertext(),
+                migration.fingerprint());
+      }
+      PasswordEntry sealed = migration.sealed();
+      if (sealed != null) {
+        written +=
+            passwordEntryRepository.sealFields(
+                entry.getId(),
+                ownerId,
+                entry.getVersion(),
+                sealed.getUsername(),
+                sealed.getUsernameBlindIndex(),
+                sealed.getUrl(),
+                sealed.getUrlHostBlindIndex(),
+                sealed.getUrlDomainBlindIndex(),
+                sealed.getNotes(),
+                sealed.getTotpSecret());
+      }
+      if (written > 0) {
+        migrated++;
+      }
+      if (!migration.fingerprint().equals(entry.getPasswordFingerprint())
+          || !Integer.valueOf(migration.strengthScore()).equals(entry.getStrengthScore())) {
+        passwordEntryRepository.refreshHealth(
+            entry.getId(),
+            ownerId,
+            entry.getVersion(),
+            migration.fingerprint(),
+            migration.strengthScore());
+      }
+      if (entry.getBreachCount() == null) {
+        breachCheckQueue.enqueue(entry, migration.plaintext());
+      }
+    }
+
+    boolean more = chunk.size() == chunkSize;
+    if (!chunk.isEmpty()) {
+      job.setLastEntryId(chunk.getLast().getId());
+    }
+    job.setScannedCount(job.getScannedCount() + chunk.size());
+    job.setMigratedCount(job.getMigratedCount() + migrated);
+    job.setUpdatedAt(LocalDateTime.now());
+    if (!more) {
+      job.setStatus(VaultMigrationJob.Status.COMPLETED);
+    }
+    return more;
+  }
+
+  private Migration migrate(PasswordEntry entry, Long ownerId, byte[] dek) {
+    String stored = entry.getPassword();
+    boolean encrypted = crypto.isVaultEncryptedPassword(stored);
+    String plaintext = encrypted ? crypto.decryptPasswordWithDek(dek, stored, ownerId) : stored;
+    return new Migration(
+        entry,
+        encrypted ? null : crypto.encryptPasswordWithDek(dek, plaintext, ownerId),
+        entryFieldCrypto.needsSealing(entry) ? seal(entry, dek) : null,
+        crypto.fingerprintPassword(dek, plaintext),
+        strengthService.calculateStrength(plaintext),
+        plaintext);
+  }
+
+  /** Seals a copy of the entry's fields; the managed entity itself must stay unchanged. */
+  private PasswordEntry seal(PasswordEntry entry, byte[] dek) {
+    PasswordEntry copy = new PasswordEntry();
+    copy.setOwnerId(entry.getOwnerId());
+    copy.setUsername(entry.getUsername());
+    copy.setUsernameBlindIndex(entry.getUsernameBlindIndex());
+    copy.setUrl(entry.getUrl());
+    copy.setUrlHostBlindIndex(entry.getUrlHostBlindIndex());
+    copy.setUrlDomainBlindIndex(entry.getUrlDomainBlindIndex());
+    copy.setNotes(entry.getNotes());
+    copy.setTotpSecret(entry.getTotpSecret());
+    entryFieldCrypto.sealStored(copy, dek);
+    return copy;
+  }
+
+  private void fail(Long jobId, RuntimeException e) {
+    jobRepository
+        .findById(jobId)
+        .ifPresent(
+            job -> {
+              job.setStatus(VaultMigrationJob.Status.FAILED);
+              job.setError(e.getClass().getSimpleName());
+              job.setUpdatedAt(LocalDateTime.now());
+            });
+  }
+
+  @PreDestroy
+  void shutdown() {
+    // Interrupted jobs keep their checkpoint and are resumed by the next start
+    workers.shutdownNow();
+  }
+}
@@ -1,8 +1,8 @@
 package com.vaultweb.passwordmanager.backend.services;
 
-import com.vaultweb.passwordmanager.backend.exceptions.VaultLockedException;
 import com.vaultweb.passwordmanager.backend.model.Category;
 import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto;
 import com.vaultweb.passwordmanager.backend.model.dtos.VaultImportResponseDto;
 import com.vaultweb.passwordmanager.backend.repositories.CategoryRepository;
 import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
@@ -43,6 +43,12 @@ public class VaultPortabilityService {
   private final VaultService vaultService;
   private final VaultSessionService vaultSessionService;
   private final VaultCryptoService crypto;
+  private final VaultVersionService vaultVersionService;
+  private final VaultHealthService vaultHealthService;
+  private final UrlDomainService urlDomainService;
+  private final EntryFieldCryptoService entryFieldCrypto;
+  private final OwnerMetadataCache metadataCache;
+  private final VaultAuditLog auditLog;
 
   /** Result of an export: the file content, whether it is encrypted, and the entry count. */
   public record VaultExportResult(String content, boolean encrypted, int entryCount) {}
@@ -75,24 +81,30 @@ public class VaultPortabilityService {
           "Plaintext export must be explicitly confirmed (confirmPlaintext=true)");
     }
 
-    byte[] dek = resolveDek(ownerId, masterPassword, vaultToken);
+    byte[] dek = vaultSessionService.resolveDek(ownerId, masterPassword, vaultToken);
     List<PasswordEntry> entries = passwordEntryRepository.findAllByOwnerId(ownerId);
 
     List<String[]> rows = new ArrayList<>();
     rows.add(CSV_HEADER.clone());
     for (PasswordEntry entry : entries) {
       String category = entry.getCategory() != null ? entry.getCategory().getName() : "";
+      PasswordEntryDto fields = entryFieldCrypto.open(new PasswordEntryDto(entry), ownerId, dek);
       rows.add(
           new String[] {
             nullToEmpty(entry.getName()),
-            nullToEmpty(entry.getUsername()),
+            nullToEmpty(fields.getUsername()),
             decryptForExport(ownerId, dek, entry),
-            nullToEmpty(entry.getUrl()),
-            nullToEmpty(entry.getNotes()),
+            nullToEmpty(fields.getUrl()),
+            nullToEmpty(fields.getNotes()),
             nullToEmpty(category)
           });
     }
     String csv = CsvSupport.write(rows);
+    auditLog.record(
+        ownerId,
+        VaultAuditLog.EventType.EXPORT,
+        null,
+        (encrypted ? "encrypted, " : "plaintext, ") + entries.size() + " entries");
 
     if (encrypted) {
       String envelope =
@@ -143,14 +155,14 @@ public class VaultPortabilityService {
           "Unrecognized CSV header; expected columns such as name, username, password, url, notes, category");
     }
 
-    byte[] dek = resolveDek(ownerId, masterPassword, vaultToken);
+    byte[] dek = vaultSessionService.resolveDek(ownerId, masterPassword, vaultToken);
     Map<String, Category> categoriesByName = new HashMap<>();
     for (Category category : categoryRepository.findAllByOwnerId(ownerId)) {
       categoriesByName.put(category.getName().toLowerCase(Locale.ROOT), category);
     }
 
-    int imported = 0;
-    int categoriesCreated = 0;
+    List<Category> newCategories = new ArrayList<>();
+    List<PasswordEntry> toImport = new ArrayList<>();
     int skipped = 0;
     for (int r = 1; r < rows.size(); r++) {
       String[] row = rows.get(r);
@@ -169,7 +181,9 @@ public class VaultPortabilityService {
       entry.setName(name);
       entry.setUsername(username);
       entry.setUrl(emptyToNull(field(row, columns, "url")));
+      urlDomainService.apply(entry);
       entry.setNotes(emptyToNull(field(row, columns, "notes")));
+      entryFieldCrypto.seal(entry, dek);
 
       String categoryName = field(row, columns, "category");
       if (!isBlank(categoryName)) {
@@ -179,32 +193,31 @@ public class VaultPortabilityService {
           category = new Category();
           category.setName(categoryName.trim());
           category.setOwnerId(ownerId);
-          category = categoryRepository.save(category);
           categoriesByName.put(key, category);
-          categoriesCreated++;
+          newCategories.add(category);
         }
         entry.setCategory(category);
       }
 
       entry.setPassword(encryptForStorage(ownerId, dek, password));
-      passwordEntryRepository.save(entry);
-      imported++;
+      entry.setPasswordFingerprint(vaultService.fingerprintPasswordWithDek(dek, password));
+      vaultHealthService.assess(entry, password);
+      toImport.add(entry);
     }
-    return new VaultImportResponseDto(imported, categoriesCreated, skipped);
-  }
 
-  /** Resolves the DEK once: null when the vault is not initialized (passwords are plaintext). */
-  private byte[] resolveDek(Long ownerId, String masterPassword, String vaultToken) {
-    if (!vaultService.isInitialized(ownerId)) {
-      return null;
-    }
-    if (!isBlank(vaultToken)) {
-      return vaultSessionService.requireDek(ownerId, vaultToken);
-    }
-    if (isBlank(masterPassword)) {
-      throw new VaultLockedException("Master password or vault token required (vault initialized)");
+    if (!toImport.isEmpty() || !newCategories.isEmpty()) {
+      long changeSeq = vaultVersionService.bump(ownerId);
+      newCategories.forEach(category -> category.setChangeSeq(changeSeq));
+      toImport.forEach(entry -> entry.setChangeSeq(changeSeq));
+      // A single saveAll lets Hibernate send the inserts as JDBC batches instead of one round
+      // trip per row. Categories go first so the entries can reference them.
+      categoryRepository.saveAll(newCategories);
+      if (!newCategories.isEmpty()) {
+        metadataCache.evictCategories(ownerId);
+      }
+      passwordEntryRepository.saveAll(toImport);
     }
-    return vaultService.unwrapDekForSession(ownerId, masterPassword);
+    return new VaultImportResponseDto(toImport.size(), newCategories.size(), skipped);
   }
 
   /** Decrypts a stored password for export without triggering the reveal-path migration write. */
@@ -0,0 +1,195 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vaultweb.passwordmanager.backend.model.Category;
+import com.vaultweb.passwordmanager.backend.model.VaultTombstone;
+import com.vaultweb.passwordmanager.backend.model.dtos.CategoryDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordSearchResponseDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.VaultChangesResponseDto;
+import com.vaultweb.passwordmanager.backend.repositories.CategoryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.support.EntrySearchIndex;
+import java.util.List;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Server-side search over the metadata of an owner's entries (name, username, url, category name),
+ * typo-tolerant and ranked; see {@link EntrySearchIndex}. Each owner's index is built on their
+ * first search and kept in memory, up to {@code vault.search.maxMemory} for all owners together;
+ * the least recently used indexes are dropped beyond that.
+ *
+ * <p>An index records the vault version it reflects. Every search compares it with the current
+ * version, a primary key lookup, and when the vault changed fetches the changes since through
+ * {@link VaultSyncService#changesSince} and applies them to the index, so it follows every write
+ * (including set-based bulk statements and writes through other instances) without being rebuilt.
+ * Only a delta that needs a full resync (tombstones compacted) replaces the index.
+ *
+ * <p>Usernames and urls of vault entries are encrypted at rest, so building and updating an index
+ * needs the owner's DEK, which every search of a vault owner brings along; the index itself holds
+ * the decrypted text in memory.
+ */
+@Slf4j
+@Service
+public class VaultSearchService {
+
+  public static final int MAX_RESULTS = 100;
+
+  private final PasswordEntryRepository entryRepository;
+  private final CategoryRepository categoryRepository;
+  private final VaultVersionService vaultVersionService;
+  private final VaultSyncService vaultSyncService;
+  private final EntryFieldCryptoService entryFieldCrypto;
+  private final TransactionTemplate snapshotTemplate;
+  private final Cache<Long, EntrySearchIndex> indexes;
+  private final long maxMemory;
+
+  public VaultSearchService(
+      PasswordEntryRepository entryRepository,
+      CategoryRepository categoryRepository,
+      VaultVersionService vaultVersionService,
+      VaultSyncService vaultSyncService,
+      EntryFieldCryptoService entryFieldCrypto,
+      PlatformTransactionManager transactionManager,
+      @Value("${vault.search.maxMemory:64MB}") DataSize maxMemory) {
+    this.entryRepository = entryRepository;
+    this.categoryRepository = categoryRepository;
+    this.vaultVersionService = vaultVersionService;
+    this.vaultSyncService = vaultSyncService;
+    this.entryFieldCrypto = entryFieldCrypto;
+    this.maxMemory = maxMemory.toBytes();
+    this.snapshotTemplate = new TransactionTemplate(transactionManager);
+    this.snapshotTemplate.setReadOnly(true);
+    this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    this.indexes =
+        Caffeine.newBuilder()
+            .maximumWeight(this.maxMemory)
+            .<Long, EntrySearchIndex>weigher(
+                (ownerId, index) -> (int) Math.min(Integer.MAX_VALUE, index.estimatedBytes()))
+            .build();
+  }
+
+  /**
+   * Searches the owner's entries.
+   *
+   * @param ownerId the vault owner
+   * @param query the search text
+   * @param limit maximum number of results, at most {@value #MAX_RESULTS}
+   * @param dek the owner's DEK, or null if the vault is not initialized
+   * @return the best matches, best first; never any password data
+   * @throws IllegalArgumentException if the query is blank or the limit out of range
+   */
+  public PasswordSearchResponseDto search(Long ownerId, String query, int limit, byte[] dek) {
+    if (query == null || query.isBlank()) {
+      throw new IllegalArgumentException("q must not be blank");
+    }
+    if (limit < 1 || limit > MAX_RESULTS) {
+      throw new IllegalArgumentException("limit must be between 1 and " + MAX_RESULTS);
+    }
+    EntrySearchIndex index = currentIndex(ownerId, dek);
+    List<EntrySearchIndex.Hit> hits;
+    synchronized (index) {
+      hits = index.search(query, limit);
+    }
+    return new PasswordSearchResponseDto(
+        hits.stream().map(PasswordSearchResponseDto.Result::new).toList());
+  }
+
+  private EntrySearchIndex currentIndex(Long ownerId, byte[] dek) {
+    EntrySearchIndex index = indexes.getIfPresent(ownerId);
+    if (index == null) {
+      index = build(ownerId, dek);
+      indexes.put(ownerId, index);
+      return index;
+    }
+
+    long since;
+    synchronized (index) {
+      since = index.getVersion();
+    }
+    if (vaultVersionService.current(ownerId) == since) {
+      return index;
+    }
+    VaultChangesResponseDto changes = vaultSyncService.changesSince(ownerId, since, dek);
+    if (changes.getCursor() <= since) {
+      // Nothing new (or a replica that is behind the index)
+      return index;
+    }
+    if (changes.isFullResync()) {
+      index = new EntrySearchIndex();
+      apply(index, changes);
+      indexes.put(ownerId, index);
+      return index;
+    }
+    synchronized (index) {
+      // A concurrent search may have applied the same changes already; applying them twice is
+      // harmless, but an older delta must not roll back a newer one.
+      if (changes.getCursor() > index.getVersion()) {
+        apply(index, changes);
+      }
+    }
+    // Re-insert so the cache re-weighs the index
+    indexes.put(ownerId, index);
+    return index;
+  }
+
+  private EntrySearchIndex build(Long ownerId, byte[] dek) {
+    long started = System.nanoTime();
+    EntrySearchIndex index =
+        snapshotTemplate.execute(
+            status -> {
+              EntrySearchIndex built = new EntrySearchIndex();
+              built.setVersion(vaultVersionService.current(ownerId));
+              for (Category category : categoryRepository.findAllByOwnerId(ownerId)) {
+                built.putCategory(category.getId(), category.getName());
+              }
+              try (Stream<PasswordEntryDto> rows = entryRepository.streamDtosByOwnerId(ownerId)) {
+                rows.forEach(dto -> built.put(document(entryFieldCrypto.open(dto, ownerId, dek))));
+              }
+              return built;
+            });
+    log.debug(
+        "Built search index of owner {} ({} entries) in {} ms",
+        ownerId,
+        index.size(),
+        (System.nanoTime() - started) / 1_000_000);
+    if (index.estimatedBytes() > maxMemory) {
+      log.warn(
+          "Search index of owner {} ({} entries) exceeds vault.search.maxMemory and is rebuilt on"
+              + " every search",
+          ownerId,
+          index.size());
+    }
+    return index;
+  }
+
+  private static void apply(EntrySearchIndex index, VaultChangesResponseDto changes) {
+    for (CategoryDto category : changes.getCategories()) {
+      index.putCategory(category.getId(), category.getName());
+    }
+    for (PasswordEntryDto entry : changes.getEntries()) {
+      index.put(document(entry));
+    }
+    for (VaultChangesResponseDto.Deletion deletion : changes.getDeleted()) {
+      if (deletion.getType() == VaultTombstone.EntityType.ENTRY) {
+        index.remove(deletion.getId());
+      } else {
+        index.putCategory(deletion.getId(), null);
+      }
+    }
+    index.setVersion(changes.getCursor());
+  }
+
+  private static EntrySearchIndex.Document document(PasswordEntryDto dto) {
+    return new EntrySearchIndex.Document(
+        dto.getId(), dto.getName(), dto.getUsername(), dto.getUrl(), dto.getCategoryId());
+  }
+}
@@ -6,11 +6,10 @@ import com.vaultweb.passwordmanager.backend.exceptions.VaultLockedException;
 import com.vaultweb.passwordmanager.backend.exceptions.VaultNotInitializedException;
 import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
 import com.vaultweb.passwordmanager.backend.model.Vault;
-import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.model.VaultMigrationJob;
 import com.vaultweb.passwordmanager.backend.repositories.VaultRepository;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -21,8 +20,11 @@ import org.springframework.transaction.annotation.Transactional;
 public class VaultService {
 
   private final VaultRepository vaultRepository;
-  private final PasswordEntryRepository passwordEntryRepository;
   private final VaultCryptoService crypto;
+  private final OwnerMetadataCache metadataCache;
+  private final LegacyPasswordMigrator legacyPasswordMigrator;
+  private final VaultMigrationService vaultMigrationService;
+  private final VaultAuditLog auditLog;
 
   @Value("${vault.requireInitialization:false}")
   private boolean requireInitialization;
@@ -32,7 +34,7 @@ public class VaultService {
   }
 
   public boolean isInitialized(Long ownerId) {
-    return vaultRepository.existsByOwnerId(ownerId);
+    return metadataCache.findVault(ownerId).isPresent();
   }
 
   /**
@@ -64,6 +66,7 @@ public class VaultService {
     vault.setVerifier(Base64.getEncoder().encodeToString(verifier));
 
     vaultRepository.save(vault);
+    metadataCache.evictVault(ownerId);
   }
 
   /**
@@ -73,23 +76,8 @@ public class VaultService {
    * @param masterPassword
    */
   public void verify(Long ownerId, String masterPassword) {
-    Vault vault =
-        vaultRepository
-            .findByOwnerId(ownerId)
-            .orElseThrow(() -> new VaultNotInitializedException("Vault is not initialized"));
-
-    byte[] salt = Base64.getDecoder().decode(vault.getKdfSalt());
-    byte[] kek = crypto.deriveKek(masterPassword, salt, vault.getKdfIterations());
-
-    byte[] expectedVerifier = Base64.getDecoder().decode(vault.getVerifier());
-    byte[] actualVerifier = crypto.computeVerifier(kek);
-
-    if (!crypto.constantTimeEquals(expectedVerifier, actualVerifier)) {
-      throw new InvalidCredentialsException("Invalid master password");
-    }
-
-    // Also validate by trying to unwrap DEK (detect corrupted vault data)
-    crypto.unwrapDek(kek, vault.getWrappedDek(), ownerId);
+    // Also validates by trying to unwrap the DEK (detects corrupted vault data)
+    unwrapDek(ownerId, masterPassword);
   }
 
   /**
@@ -120,6 +108,7 @@ public class VaultService {
 
     byte[] expectedVerifier = Base64.getDecoder().decode(vault.getVerifier());
     if (!crypto.constantTimeEquals(expectedVerifier, crypto.computeVerifier(oldKek))) {
+      auditLog.record(ownerId, VaultAuditLog.EventType.MASTER_PASSWORD_FAILED);
       throw new InvalidCredentialsException("Invalid master password");
     }
 
@@ -136,6 +125,8 @@ public class VaultService {
     vault.setWrappedDek(crypto.wrapDek(newKek, dek, ownerId));
 
     vaultRepository.save(vault);
+    metadataCache.evictVault(ownerId);
+    auditLog.record(ownerId, VaultAuditLog.EventType.ROTATE);
   }
 
   /**
@@ -177,15 +168,30 @@ public class VaultService {
     return crypto.encryptPasswordWithDek(dek, plainPassword, ownerId);
   }
 
+  /**
+   * Computes the reuse fingerprint to store alongside a password. Returns null when there is no DEK
+   * (vault not initialized): such passwords are not fingerprinted.
+   *
+   * @param dek the owner's DEK, or null
+   * @param plainPassword
+   * @return the fingerprint, or null
+   */
+  public String fingerprintPasswordWithDek(byte[] dek, String plainPassword) {
+    return dek == null ? null : crypto.fingerprintPassword(dek, plainPassword);
+  }
+
   /**
    * Decrypts a stored password for reveal. If vault is not initialized, returns stored value.
    *
+   * <p>Never writes: a legacy plaintext value is handed to {@link LegacyPasswordMigrator}, which
+   * re-encrypts it in the background.
+   *
    * @param ownerId
    * @param masterPassword
    * @param entry
    * @return the plaintext password
    */
-  @Transactional
+  @Transactional(readOnly = true)
   public String decryptPasswordForReveal(Long ownerId, String masterPassword, PasswordEntry entry) {
     if (!isInitialized(ownerId)) {
       if (requireInitialization) {
@@ -206,21 +212,23 @@ public class VaultService {
     }
 
     // stored value is plaintext (after server-side decrypt). Require master password anyway
-    String migrated = crypto.encryptPasswordWithDek(dek, stored, ownerId);
-    entry.setPassword(migrated);
-    passwordEntryRepository.save(entry);
+    legacyPasswordMigrator.enqueue(
+        entry,
+        crypto.encryptPasswordWithDek(dek, stored, ownerId),
+        crypto.fingerprintPassword(dek, stored));
     return stored;
   }
 
   /**
-   * Decrypts a stored password for reveal. If vault is not initialized, returns stored value.
+   * Decrypts a stored password for reveal. If vault is not initialized, returns stored value. Never
+   * writes; see {@link #decryptPasswordForReveal(Long, String, PasswordEntry)}.
    *
    * @param ownerId
    * @param dek
    * @param entry
    * @return the plaintext password
    */
-  @Transactional
+  @Transactional(readOnly = true)
   public String decryptPasswordForReveal(Long ownerId, byte[] dek, PasswordEntry entry) {
     if (!isInitialized(ownerId)) {
       if (requireInitialization) {
@@ -238,21 +246,21 @@ public class VaultService {
       return crypto.decryptPasswordWithDek(dek, stored, ownerId);
     }
 
-    String migrated = crypto.encryptPasswordWithDek(dek, stored, ownerId);
-    entry.setPassword(migrated);
-    passwordEntryRepository.save(entry);
+    legacyPasswordMigrator.enqueue(
+        entry,
+        crypto.encryptPasswordWithDek(dek, stored, ownerId),
+        crypto.fingerprintPassword(dek, stored));
     return stored;
   }
 
   /**
-   * Migrates all plaintext passwords to vault-encrypted format.
+   * Starts the background migration of all plaintext passwords to vault-encrypted format.
    *
    * @param ownerId
    * @param masterPassword
-   * @return the number of passwords migrated
+   * @return the migration job
    */
-  @Transactional
-  public int migrateAllPasswords(Long ownerId, String masterPassword) {
+  public VaultMigrationJob startMigration(Long ownerId, String masterPassword) {
     if (!isInitialized(ownerId)) {
       throw new VaultNotInitializedException("Vault is not initialized");
     }
@@ -261,61 +269,28 @@ public class VaultService {
     }
 
     byte[] dek = unwrapDek(ownerId, masterPassword);
-
-    List<PasswordEntry> entries = passwordEntryRepository.findAllByOwnerId(ownerId);
-    List<PasswordEntry> toUpdate = new ArrayList<>();
-    int migrated = 0;
-    for (PasswordEntry entry : entries) {
-      String stored = entry.getPassword();
-      if (crypto.isVaultEncryptedPassword(stored)) {
-        continue;
-      }
-      entry.setPassword(crypto.encryptPasswordWithDek(dek, stored, ownerId));
-      toUpdate.add(entry);
-      migrated++;
+    try {
+      return vaultMigrationService.start(ownerId, dek);
+    } finally {
+      Arrays.fill(dek, (byte) 0);
     }
-
-    if (!toUpdate.isEmpty()) {
-      passwordEntryRepository.saveAll(toUpdate);
-    }
-
-    return migrated;
   }
 
   /**
-   * Migrates all plaintext passwords to vault-encrypted format.
+   * Starts the background migration of all plaintext passwords to vault-encrypted format.
    *
    * @param ownerId
    * @param dek
-   * @return the number of passwords migrated
+   * @return the migration job
    */
-  @Transactional
-  public int migrateAllPasswords(Long ownerId, byte[] dek) {
+  public VaultMigrationJob startMigration(Long ownerId, byte[] dek) {
     if (!isInitialized(ownerId)) {
       throw new VaultNotInitializedException("Vault is not initialized");
     }
     if (dek == null) {
       throw new VaultLockedException("Vault is locked");
     }
-
-    List<PasswordEntry> entries = passwordEntryRepository.findAllByOwnerId(ownerId);
-    List<PasswordEntry> toUpdate = new ArrayList<>();
-    int migrated = 0;
-    for (PasswordEntry entry : entries) {
-      String stored = entry.getPassword();
-      if (crypto.isVaultEncryptedPassword(stored)) {
-        continue;
-      }
-      entry.setPassword(crypto.encryptPasswordWithDek(dek, stored, ownerId));
-      toUpdate.add(entry);
-      migrated++;
-    }
-
-    if (!toUpdate.isEmpty()) {
-      passwordEntryRepository.saveAll(toUpdate);
-    }
-
-    return migrated;
+    return vaultMigrationService.start(ownerId, dek);
   }
 
   /**
@@ -327,20 +302,41 @@ public class VaultService {
    */
   private byte[] unwrapDek(Long ownerId, String masterPassword) {
     Vault vault =
-        vaultRepository
-            .findByOwnerId(ownerId)
+        metadataCache
+            .findVault(ownerId)
             .orElseThrow(() -> new VaultNotInitializedException("Vault is not initialized"));
 
-    byte[] salt = Base64.getDecoder().decode(vault.getKdfSalt());
-    byte[] kek = crypto.deriveKek(masterPassword, salt, vault.getKdfIterations());
-
-    byte[] expectedVerifier = Base64.getDecoder().decode(vault.getVerifier());
-    byte[] actualVerifier = crypto.computeVerifier(kek);
-
-    if (!crypto.constantTimeEquals(expectedVerifier, actualVerifier)) {
-      throw new InvalidCredentialsException("Invalid master password");
+    byte[] kek = deriveKek(vault, masterPassword);
+    if (!matchesVerifier(vault, kek)) {
+      // The cached row may predate a rotation made through another instance; re-check against
+      // the stored row, but only pay for a second key derivation if the row actually changed.
+      metadataCache.evictStaleVault(ownerId);
+      Vault current =
+          vaultRepository
+              .findByOwnerId(ownerId)
+              .orElseThrow(() -> new VaultNotInitializedException("Vault is not initialized"));
+      if (current.getVerifier().equals(vault.getVerifier())) {
+        auditLog.record(ownerId, VaultAuditLog.EventType.MASTER_PASSWORD_FAILED);
+        throw new InvalidCredentialsException("Invalid master password");
+      }
+      vault = current;
+      kek = deriveKek(vault, masterPassword);
+      if (!matchesVerifier(vault, kek)) {
+        auditLog.record(ownerId, VaultAuditLog.EventType.MASTER_PASSWORD_FAILED);
+        throw new InvalidCredentialsException("Invalid master password");
+      }
     }
 
     return crypto.unwrapDek(kek, vault.getWrappedDek(), ownerId);
   }
+
+  private byte[] deriveKek(Vault vault, String masterPassword) {
+    byte[] salt = Base64.getDecoder().decode(vault.getKdfSalt());
+    return crypto.deriveKek(masterPassword, salt, vault.getKdfIterations());
+  }
+
+  private boolean matchesVerifier(Vault vault, byte[] kek) {
+    byte[] expectedVerifier = Base64.getDecoder().decode(vault.getVerifier());
+    return crypto.constantTimeEquals(expectedVerifier, crypto.computeVerifier(kek));
+  }
 }
@@ -2,6 +2,7 @@ package com.vaultweb.passwordmanager.backend.services;
 
 import com.vaultweb.passwordmanager.backend.exceptions.VaultLockedException;
 import com.vaultweb.passwordmanager.backend.exceptions.VaultNotInitializedException;
+import com.vaultweb.passwordmanager.backend.support.SecureRandoms;
 import java.security.SecureRandom;
 import java.time.Clock;
 import java.time.Instant;
@@ -19,22 +20,27 @@ public class VaultSessionService {
 
   private static final int TOKEN_BYTES = 32;
 
-  private final SecureRandom secureRandom = new SecureRandom();
+  private final SecureRandom secureRandom = SecureRandoms.drbg();
   private final Map<String, VaultSession> sessions = new ConcurrentHashMap<>();
   private final Clock clock;
 
   private final VaultService vaultService;
+  private final VaultAuditLog auditLog;
   private final long ttlSeconds;
 
   @Autowired
   public VaultSessionService(
-      VaultService vaultService, @Value("${vault.session.ttlSeconds:900}") long ttlSeconds) {
-    this(vaultService, ttlSeconds, Clock.systemUTC());
+      VaultService vaultService,
+      VaultAuditLog auditLog,
+      @Value("${vault.session.ttlSeconds:900}") long ttlSeconds) {
+    this(vaultService, auditLog, ttlSeconds, Clock.systemUTC());
   }
 
   // Visible for testing
-  VaultSessionService(VaultService vaultService, long ttlSeconds, Clock clock) {
+  VaultSessionService(
+      VaultService vaultService, VaultAuditLog auditLog, long ttlSeconds, Clock clock) {
     this.vaultService = vaultService;
+    this.auditLog = auditLog;
     this.ttlSeconds = ttlSeconds;
     this.clock = clock;
   }
@@ -58,6 +64,7 @@ public class VaultSessionService {
     Instant expiresAt = clock.instant().plusSeconds(ttlSeconds);
 
     sessions.put(token, new VaultSession(ownerId, dek, expiresAt));
+    auditLog.record(ownerId, VaultAuditLog.EventType.UNLOCK);
     return new VaultUnlock(token, expiresAt);
   }
 
@@ -91,6 +98,44 @@ public class VaultSessionService {
     return session.dek();
   }
 
+  /**
+   * Resolves the DEK for an operation that may be authorized either by an active vault session or
+   * by the master password. Returns {@code null} when the owner has no vault (legacy mode, where
+   * passwords are stored without vault encryption).
+   *
+   * @param ownerId
+   * @param masterPassword master password, used when no vault token is supplied
+   * @param token active vault session token, or null
+   * @return the DEK bytes, or null if the vault is not initialized
+   */
+  public byte[] resolveDek(Long ownerId, String masterPassword, String token) {
+    if (!vaultService.isInitialized(ownerId)) {
+      return null;
+    }
+    if (token != null && !token.isBlank()) {
+      return requireDek(ownerId, token);
+    }
+    if (masterPassword == null || masterPassword.isBlank()) {
+      throw new VaultLockedException("Master password or vault token required (vault initialized)");
+    }
+    return vaultService.unwrapDekForSession(ownerId, masterPassword);
+  }
+
+  /**
+   * Resolves the DEK for reading entries, whose username, url and notes are encrypted once the
+   * vault is initialized. Returns {@code null} when the owner has no vault.
+   *
+   * @param ownerId
+   * @param token active vault session token, or null
+   * @return the DEK bytes, or null if the vault is not initialized
+   */
+  public byte[] resolveDek(Long ownerId, String token) {
+    if (!vaultService.isInitialized(ownerId)) {
+      return null;
+    }
+    return requireDek(ownerId, token);
+  }
+
   /**
    * Locks the vault session associated with the given token.
    *
@@ -0,0 +1,77 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import com.vaultweb.passwordmanager.backend.repositories.VaultOutboxRepository;
+import com.vaultweb.passwordmanager.backend.repositories.VaultVersionRepository;
+import com.vaultweb.passwordmanager.backend.support.RecentWriteTracker;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Tracks a per-owner version number that changes whenever the owner's entries or categories change,
+ * so clients can revalidate listings with a conditional GET instead of re-downloading them.
+ */
+@Service
+@RequiredArgsConstructor
+public class VaultVersionService {
+
+  private final VaultVersionRepository repository;
+  private final VaultOutboxRepository outboxRepository;
+  private final RecentWriteTracker recentWrites;
+
+  /**
+   * Records a change for the owner. Must run inside the transaction that performs the change so the
+   * new version only becomes visible together with it. The same transaction appends the new version
+   * to the outbox that feeds {@link VaultEventService}, so subscribers are notified exactly for
+   * committed changes.
+   *
+   * @param ownerId the owner whose vault changed
+   * @return the new version
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public long bump(Long ownerId) {
+    long version = repository.increment(ownerId);
+    outboxRepository.append(ownerId, version, LocalDateTime.now());
+    recentWrites.markWritten(ownerId);
+    return version;
+  }
+
+  /**
+   * Takes the lock that {@link #bump} takes, without recording a change. User writes bump before
+   * touching entries, and an entry whose health changes then locks the owner's {@code vault_health}
+   * row; background jobs that update several entries of an owner in one transaction call this
+   * first, so they take the same locks in the same order and cannot deadlock with a user write.
+   *
+   * @param ownerId the owner whose entries are about to be updated
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void lock(Long ownerId) {
+    repository.lock(ownerId);
+  }
+
+  /**
+   * Returns the owner's current version, or 0 if nothing has been changed yet.
+   *
+   * @param ownerId the vault owner
+   * @return the current version
+   */
+  @Transactional(readOnly = true)
+  public long current(Long ownerId) {
+    return repository.findVersion(ownerId).orElse(0L);
+  }
+
+  /**
+   * Returns a strong entity tag for the owner's current version. Read it before loading the listing
+   * it describes: a concurrent change then yields a stale tag (forcing a refetch later) rather than
+   * a tag that claims content the response does not contain.
+   *
+   * @param ownerId the vault owner
+   * @return the entity tag value (unquoted)
+   */
+  @Transactional(readOnly = true)
+  public String etag(Long ownerId) {
+    return "v" + current(ownerId);
+  }
+}
@@ -0,0 +1,155 @@
+package com.vaultweb.passwordmanager.backend.support;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Streaming AES-GCM for data of any size: the plaintext is cut into chunks of {@link #CHUNK_SIZE}
+ * bytes and each chunk is encrypted and authenticated on its own, so neither side ever holds more
+ * than one chunk.
+ *
+ * <p>Layout: the 6-byte magic {@code VWATT1}, then the chunks, each its ciphertext followed by the
+ * 16-byte tag. Every chunk but the last is full; the last is shorter (possibly empty), so a file
+ * whose length is a multiple of the chunk size ends with an empty chunk. The nonce of a chunk is
+ * its index and its additional data says whether it is the last one, so reordered, dropped or
+ * appended chunks and a truncated file all fail authentication. Because nonces repeat across files,
+ * every file must be encrypted under its own key.
+ */
+public final class ChunkedAesGcm {
+
+  public static final int CHUNK_SIZE = 64 * 1024;
+
+  private static final byte[] MAGIC = "VWATT1".getBytes(StandardCharsets.US_ASCII);
+  private static final int TAG_LENGTH = 16;
+  private static final int NONCE_LENGTH = 12;
+
+  private ChunkedAesGcm() {}
+
+  /** Thrown when the plaintext is longer than allowed; nothing more is read from the input. */
+  public static final class LimitExceededException extends IOException {
+    public LimitExceededException(long limit) {
+      super("Input exceeds " + limit + " bytes");
+    }
+  }
+
+  /**
+   * Encrypts {@code in} to {@code out}.
+   *
+   * @param key the file's AES key
+   * @param in the plaintext; read to the end, not closed
+   * @param out receives the encrypted file
+   * @param limit the most plaintext bytes accepted
+   * @return the number of plaintext bytes
+   * @throws LimitExceededException if {@code in} holds more than {@code limit} bytes
+   */
+  public static long encrypt(byte[] key, InputStream in, WritableByteChannel out, long limit)
+      throws IOException {
+    Cipher cipher = cipher();
+    byte[] plain = new byte[CHUNK_SIZE];
+    ByteBuffer sealed = ByteBuffer.allocate(CHUNK_SIZE + TAG_LENGTH);
+    writeFully(out, ByteBuffer.wrap(MAGIC));
+
+    long total = 0;
+    long index = 0;
+    while (true) {
+      int n = in.readNBytes(plain, 0, CHUNK_SIZE);
+      total += n;
+      if (total > limit) {
+        throw new LimitExceededException(limit);
+      }
+      boolean last = n < CHUNK_SIZE;
+      sealed.clear();
+      try {
+        init(cipher, Cipher.ENCRYPT_MODE, key, index++, last);
+        cipher.doFinal(ByteBuffer.wrap(plain, 0, n), sealed);
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException("Encryption failed", e);
+      }
+      writeFully(out, sealed.flip());
+      if (last) {
+        Arrays.fill(plain, (byte) 0);
+        return total;
+      }
+    }
+  }
+
+  /**
+   * Decrypts a file written by {@link #encrypt} to {@code out}, chunk by chunk.
+   *
+   * @param key the file's AES key
+   * @param file the whole encrypted file, e.g. memory-mapped; read from its position to its limit
+   * @param out receives the plaintext; chunks are only written once authenticated, but an error in
+   *     a later chunk leaves the output incomplete
+   * @throws IOException if writing fails, or the file is damaged or not encrypted under {@code key}
+   */
+  public static void decrypt(byte[] key, ByteBuffer file, OutputStream out) throws IOException {
+    if (file.remaining() < MAGIC.length + TAG_LENGTH) {
+      throw new IOException("Encrypted file is truncated");
+    }
+    byte[] magic = new byte[MAGIC.length];
+    file.get(magic);
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new IOException("Not an encrypted attachment");
+    }
+
+    Cipher cipher = cipher();
+    byte[] plain = new byte[CHUNK_SIZE];
+    long index = 0;
+    while (true) {
+      int remaining = file.remaining();
+      boolean last = remaining < CHUNK_SIZE + TAG_LENGTH;
+      if (last && remaining < TAG_LENGTH) {
+        throw new IOException("Encrypted file is truncated");
+      }
+      ByteBuffer chunk = file.slice(file.position(), last ? remaining : CHUNK_SIZE + TAG_LENGTH);
+      file.position(file.position() + chunk.remaining());
+      int n;
+      try {
+        init(cipher, Cipher.DECRYPT_MODE, key, index++, last);
+        n = cipher.doFinal(chunk, ByteBuffer.wrap(plain));
+      } catch (GeneralSecurityException e) {
+        throw new IOException("Encrypted file is damaged or was encrypted under another key", e);
+      }
+      out.write(plain, 0, n);
+      if (last) {
+        Arrays.fill(plain, (byte) 0);
+        return;
+      }
+    }
+  }
+
+  /** Length of the encrypted file for {@code size} bytes of plaintext. */
+  public static long encryptedSize(long size) {
+    return MAGIC.length + size + (size / CHUNK_SIZE + 1) * TAG_LENGTH;
+  }
+
+  private static Cipher cipher() {
+    try {
+      return Cipher.getInstance("AES/GCM/NoPadding");
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("AES/GCM is not available", e);
+    }
+  }
+
+  private static void init(Cipher cipher, int mode, byte[] key, long index, boolean last)
+      throws GeneralSecurityException {
+    byte[] nonce = ByteBuffer.allocate(NONCE_LENGTH).putLong(4, index).array();
+    cipher.init(mode, new SecretKeySpec(key, "AES"), new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+    cipher.updateAAD(new byte[] {(byte) (last ? 1 : 0)});
+  }
+
+  private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    }
+  }
+}
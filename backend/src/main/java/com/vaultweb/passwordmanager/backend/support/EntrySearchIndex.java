@@ -0,0 +1,369 @@
+package com.vaultweb.passwordmanager.backend.support;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory trigram index over the searchable metadata of one owner's entries: name, username, url
+ * and category name. Never holds password data.
+ *
+ * <p>Every field is lower-cased, stripped of accents and split into words; each word contributes
+ * its trigrams, padded as in {@code pg_trgm} ({@code " git"}, {@code " gi"}, ..., {@code "ub "}) so
+ * word starts weigh in and a one- or two-letter query matches word prefixes. A field matches a
+ * query when it contains at least {@value #MIN_SIMILARITY} of the query's trigrams, which tolerates
+ * a typo or two in a word ("gthub" shares four of six trigrams with "github"). Results are ranked
+ * by the best field match, weighted by field, with a bonus when the name starts with or contains
+ * the query verbatim.
+ *
+ * <p>Entries are added, replaced and removed one at a time, so the index can follow a vault's
+ * changes without being rebuilt. Not thread-safe; callers synchronize on the index.
+ */
+public class EntrySearchIndex {
+
+  /** The indexed fields of an entry. */
+  public record Document(Long id, String name, String username, String url, Long categoryId) {}
+
+  /** A ranked search result. */
+  public record Hit(Document document, double score) {}
+
+  static final double MIN_SIMILARITY = 0.3;
+
+  private static final int NAME = 0;
+  private static final int USERNAME = 1;
+  private static final int URL = 2;
+  private static final int CATEGORY = 3;
+  private static final int FIELDS = 4;
+  private static final double[] FIELD_WEIGHTS = {1.0, 0.8, 0.7, 0.5};
+
+  private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+  private static final Pattern URL_PREFIX = Pattern.compile("^[a-z][a-z0-9+.-]*://(www\\.)?");
+
+  private long version;
+  private final Map<Long, String> categoryNames = new HashMap<>();
+
+  // Entries live in slots; a posting is slot * FIELDS + field, so one array covers all fields.
+  private final Map<Long, Integer> slotsById = new HashMap<>();
+  private Document[] documents = new Document[16];
+  private String[] normalizedNames = new String[16];
+  private String[] indexedCategories = new String[16];
+  private int[] gramCounts = new int[16 * FIELDS];
+  private int slotCount;
+  private final Deque<Integer> freeSlots = new ArrayDeque<>();
+  private final Map<String, Postings> postings = new HashMap<>();
+
+  // Scratch space of search(), all zero between searches
+  private int[] matches = new int[0];
+  private double[] scores = new double[0];
+  private int[] touched = new int[64];
+
+  /** Vault version the index reflects. */
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
+  /** Number of indexed entries. */
+  public int size() {
+    return slotsById.size();
+  }
+
+  /**
+   * Adds an entry, or replaces it if its id is already indexed.
+   *
+   * @param document the entry's searchable fields
+   */
+  public void put(Document document) {
+    remove(document.id());
+    int slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+    ensureCapacity(slotCount);
+    documents[slot] = document;
+    normalizedNames[slot] = normalize(document.name());
+    indexedCategories[slot] = categoryName(document.categoryId());
+    slotsById.put(document.id(), slot);
+    String[] fields = fieldsOf(slot);
+    for (int field = 0; field < FIELDS; field++) {
+      Set<String> grams = grams(fields[field]);
+      gramCounts[slot * FIELDS + field] = grams.size();
+      for (String gram : grams) {
+        postings.computeIfAbsent(gram, g -> new Postings()).add(slot * FIELDS + field);
+      }
+    }
+  }
+
+  /**
+   * Removes an entry; unknown ids are ignored.
+   *
+   * @param id the entry id
+   */
+  public void remove(Long id) {
+    Integer slot = slotsById.remove(id);
+    if (slot == null) {
+      return;
+    }
+    String[] fields = fieldsOf(slot);
+    for (int field = 0; field < FIELDS; field++) {
+      for (String gram : grams(fields[field])) {
+        Postings list = postings.get(gram);
+        if (list != null && list.remove(slot * FIELDS + field) && list.size == 0) {
+          postings.remove(gram);
+        }
+      }
+    }
+    documents[slot] = null;
+    normalizedNames[slot] = null;
+    indexedCategories[slot] = null;
+    freeSlots.push(slot);
+  }
+
+  /**
+   * Sets a category's name (null when it was deleted) and re-indexes the entries filed under it.
+   *
+   * @param categoryId the category id
+   * @param name the new name, or null
+   */
+  public void putCategory(Long categoryId, String name) {
+    if (name == null) {
+      categoryNames.remove(categoryId);
+    } else {
+      categoryNames.put(categoryId, name);
+    }
+    List<Document> filed = new ArrayList<>();
+    for (int slot = 0; slot < slotCount; slot++) {
+      if (documents[slot] != null && categoryId.equals(documents[slot].categoryId())) {
+        filed.add(documents[slot]);
+      }
+    }
+    filed.forEach(this::put);
+  }
+
+  /**
+   * Finds the best matching entries.
+   *
+   * @param query the search text
+   * @param limit maximum number of results
+   * @return the matches, best first (equal scores by name, then id)
+   */
+  public List<Hit> search(String query, int limit) {
+    Set<String> queryGrams = grams(query);
+    if (queryGrams.isEmpty() || limit <= 0) {
+      return List.of();
+    }
+    if (matches.length < slotCount * FIELDS) {
+      matches = new int[documents.length * FIELDS];
+      scores = new double[documents.length];
+    }
+
+    // Trigrams shared by the query and each (entry, field)
+    int touchedCount = 0;
+    for (String gram : queryGrams) {
+      Postings list = postings.get(gram);
+      if (list == null) {
+        continue;
+      }
+      int[] items = list.items;
+      for (int i = 0; i < list.size; i++) {
+        int posting = items[i];
+        if (matches[posting]++ == 0) {
+          if (touchedCount == touched.length) {
+            touched = Arrays.copyOf(touched, touchedCount * 2);
+          }
+          touched[touchedCount++] = posting;
+        }
+      }
+    }
+
+    // Best field score per entry; the scratch arrays are cleared again on the way
+    int minMatches = (int) Math.ceil(MIN_SIMILARITY * queryGrams.size() - 1e-9);
+    double perGram = 1.0 / queryGrams.size();
+    int candidateCount = 0;
+    for (int i = 0; i < touchedCount; i++) {
+      int posting = touched[i];
+      int matched = matches[posting];
+      matches[posting] = 0;
+      if (matched < minMatches) {
+        continue;
+      }
+      // Mostly how much of the query the field covers, a little how much of the field it covers
+      double coverage = matched / (double) Math.max(1, gramCounts[posting]);
+      double score = FIELD_WEIGHTS[posting % FIELDS] * (0.8 * matched * perGram + 0.2 * coverage);
+      int slot = posting / FIELDS;
+      if (scores[slot] == 0) {
+        touched[candidateCount++] = slot;
+      }
+      scores[slot] = Math.max(scores[slot], score);
+    }
+
+    // Top entries, kept unsorted with the worst one tracked
+    String phrase = normalize(query).strip();
+    int[] topSlots = new int[Math.min(limit, candidateCount)];
+    double[] topScores = new double[topSlots.length];
+    int topCount = 0;
+    int worst = 0;
+    for (int i = 0; i < candidateCount; i++) {
+      int slot = touched[i];
+      double score = scores[slot];
+      scores[slot] = 0;
+      if (!phrase.isEmpty()) {
+        if (normalizedNames[slot].startsWith(phrase)) {
+          score += 0.5;
+        } else if (normalizedNames[slot].contains(phrase)) {
+          score += 0.25;
+        }
+      }
+      if (topCount < topSlots.length) {
+        topSlots[topCount] = slot;
+        topScores[topCount++] = score;
+      } else if (ranksBefore(slot, score, topSlots[worst], topScores[worst])) {
+        topSlots[worst] = slot;
+        topScores[worst] = score;
+      } else {
+        continue;
+      }
+      if (topCount == topSlots.length) {
+        worst = 0;
+        for (int j = 1; j < topCount; j++) {
+          if (ranksBefore(topSlots[worst], topScores[worst], topSlots[j], topScores[j])) {
+            worst = j;
+          }
+        }
+      }
+    }
+
+    List<Hit> hits = new ArrayList<>(topCount);
+    for (int i = 0; i < topCount; i++) {
+      hits.add(new Hit(documents[topSlots[i]], topScores[i]));
+    }
+    hits.sort(
+        Comparator.comparingDouble(Hit::score)
+            .reversed()
+            .thenComparing(hit -> hit.document().name())
+            .thenComparing(hit -> hit.document().id()));
+    return hits;
+  }
+
+  private boolean ranksBefore(int slot, double score, int otherSlot, double otherScore) {
+    if (score != otherScore) {
+      return score > otherScore;
+    }
+    int byName = documents[slot].name().compareTo(documents[otherSlot].name());
+    return byName != 0 ? byName < 0 : documents[slot].id() < documents[otherSlot].id();
+  }
+
+  /**
+   * Rough heap footprint in bytes, used as the index's weight in a memory-bounded cache.
+   *
+   * @return the estimated size
+   */
+  public long estimatedBytes() {
+    long bytes = 256L + documents.length * (4L * 8 + FIELDS * 4L) + matches.length * 4L;
+    bytes += scores.length * 8L + touched.length * 4L;
+    for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+      bytes += 96 + entry.getValue().items.length * 4L;
+    }
+    for (int slot = 0; slot < slotCount; slot++) {
+      Document document = documents[slot];
+      if (document != null) {
+        // Strings are two bytes per char here; the name is held twice (as is and normalized)
+        bytes += 160 + 2L * (2 * length(document.name()) + length(document.username()));
+        bytes += 2L * length(document.url());
+      }
+    }
+    return bytes + categoryNames.size() * 96L;
+  }
+
+  private String[] fieldsOf(int slot) {
+    Document document = documents[slot];
+    String[] fields = new String[FIELDS];
+    fields[NAME] = document.name();
+    fields[USERNAME] = document.username();
+    fields[URL] = document.url();
+    fields[CATEGORY] = indexedCategories[slot];
+    return fields;
+  }
+
+  private String categoryName(Long categoryId) {
+    return categoryId != null ? categoryNames.get(categoryId) : null;
+  }
+
+  private void ensureCapacity(int slots) {
+    if (slots <= documents.length) {
+      return;
+    }
+    int capacity = Math.max(slots, documents.length * 2);
+    documents = Arrays.copyOf(documents, capacity);
+    normalizedNames = Arrays.copyOf(normalizedNames, capacity);
+    indexedCategories = Arrays.copyOf(indexedCategories, capacity);
+    gramCounts = Arrays.copyOf(gramCounts, capacity * FIELDS);
+  }
+
+  private static int length(String value) {
+    return value != null ? value.length() : 0;
+  }
+
+  static String normalize(String text) {
+    if (text == null) {
+      return "";
+    }
+    String plain = text.toLowerCase(Locale.ROOT);
+    if (!plain.chars().allMatch(c -> c < 0x80)) {
+      plain = MARKS.matcher(Normalizer.normalize(plain, Normalizer.Form.NFKD)).replaceAll("");
+    }
+    return plain.contains("://") ? URL_PREFIX.matcher(plain).replaceFirst("") : plain;
+  }
+
+  static Set<String> grams(String text) {
+    Set<String> grams = new LinkedHashSet<>();
+    for (String word : NON_WORD.split(normalize(text))) {
+      if (word.isEmpty()) {
+        continue;
+      }
+      String padded = "  " + word + " ";
+      for (int i = 0; i + 3 <= padded.length(); i++) {
+        grams.add(padded.substring(i, i + 3));
+      }
+    }
+    return grams;
+  }
+
+  /** Growable list of postings; removal swaps in the last element, so order is not kept. */
+  private static final class Postings {
+
+    private int[] items = new int[4];
+    private int size;
+
+    void add(int posting) {
+      if (size == items.length) {
+        items = Arrays.copyOf(items, size * 2);
+      }
+      items[size++] = posting;
+    }
+
+    boolean remove(int posting) {
+      for (int i = 0; i < size; i++) {
+        if (items[i] == posting) {
+          items[i] = items[--size];
+          if (size > 16 && size < items.length / 4) {
+            items = Arrays.copyOf(items, items.length / 2);
+          }
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package com.vaultweb.passwordmanager.backend.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vaultweb.passwordmanager.backend.security.AuthenticatedUser;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Remembers which owners committed a change recently, so their reads can be kept on the primary
+ * database while a read replica may not have replayed the change yet (read-your-writes). The window
+ * matches the largest replica lag that is tolerated at all; see {@code ReplicaLagMonitor}.
+ *
+ * <p>Only writes made through this instance are known; a change made through another instance can
+ * be missing from a replica read for up to the tolerated lag.
+ */
+@Component
+public class RecentWriteTracker {
+
+  private final Cache<Long, Boolean> recentWriters;
+
+  public RecentWriteTracker(@Value("${vault.datasource.replica.maxLag:PT2S}") Duration window) {
+    this.recentWriters = Caffeine.newBuilder().expireAfterWrite(window).build();
+  }
+
+  /**
+   * Records a change by the owner. Inside a transaction the window starts once it commits, since
+   * the replica cannot see the change before that.
+   *
+   * @param ownerId the owner whose data changed
+   */
+  public void markWritten(Long ownerId) {
+    recentWriters.put(ownerId, Boolean.TRUE);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              recentWriters.put(ownerId, Boolean.TRUE);
+            }
+          });
+    }
+  }
+
+  /** Whether the authenticated user of the current request changed data within the window. */
+  public boolean currentUserWroteRecently() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return authentication != null
+        && authentication.getPrincipal() instanceof AuthenticatedUser user
+        && recentWriters.getIfPresent(user.userId()) != null;
+  }
+}
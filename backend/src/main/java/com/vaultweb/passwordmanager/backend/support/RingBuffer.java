@@ -0,0 +1,116 @@
+package com.vaultweb.passwordmanager.backend.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer, on a fixed array of slots.
+ *
+ * <p>Each slot carries a sequence number that says whose turn it is: a producer claims the next
+ * position with one compare-and-set on the tail, writes the element and publishes it by advancing
+ * the slot's sequence; the consumer takes elements in position order and hands each slot back to
+ * the producers one lap ahead. A producer never waits: when the slot it would need still holds an
+ * element the consumer has not taken, {@link #offer} fails instead. Nothing is allocated per
+ * element.
+ *
+ * <p>{@link #drain} must not be called by two threads at the same time.
+ *
+ * @param <E> the element type
+ */
+public final class RingBuffer<E> {
+
+  private final Object[] elements;
+  private final AtomicLongArray sequences;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+
+  /** Next position to take; only written by the consumer (volatile for {@link #size}). */
+  private volatile long head;
+
+  /**
+   * @param capacity the number of slots, rounded up to a power of two
+   */
+  public RingBuffer(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    elements = new Object[size];
+    sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+    mask = size - 1;
+  }
+
+  /**
+   * Adds an element unless the buffer is full.
+   *
+   * @param element the element, not null
+   * @return false if the buffer is full
+   */
+  public boolean offer(E element) {
+    long position = tail.get();
+    while (true) {
+      int index = (int) (position & mask);
+      long sequence = sequences.getAcquire(index);
+      if (sequence == position) {
+        if (tail.compareAndSet(position, position + 1)) {
+          elements[index] = element;
+          sequences.setRelease(index, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (sequence < position) {
+        return false; // the consumer has not taken this slot's element of the previous lap yet
+      } else {
+        position = tail.get(); // another producer took this position
+      }
+    }
+  }
+
+  /**
+   * Takes up to {@code max} elements, oldest first.
+   *
+   * @param sink receives the elements
+   * @param max the most elements to take
+   * @return the number of elements taken
+   */
+  @SuppressWarnings("unchecked")
+  public int drain(Consumer<? super E> sink, int max) {
+    long position = head;
+    int taken = 0;
+    try {
+      while (taken < max) {
+        int index = (int) (position & mask);
+        if (sequences.getAcquire(index) != position + 1) {
+          break; // empty, or the producer of the next position has not published yet
+        }
+        E element = (E) elements[index];
+        elements[index] = null;
+        sequences.setRelease(index, position + elements.length);
+        position++;
+        taken++;
+        sink.accept(element);
+      }
+    } finally {
+      head = position;
+    }
+    return taken;
+  }
+
+  /** Approximate number of elements in the buffer. */
+  public int size() {
+    long size = tail.get() - head;
+    return (int) Math.max(0, Math.min(size, elements.length));
+  }
+
+  /** The number of slots. */
+  public int capacity() {
+    return elements.length;
+  }
+}
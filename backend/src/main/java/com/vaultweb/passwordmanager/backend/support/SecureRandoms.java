@@ -0,0 +1,33 @@
+package com.vaultweb.passwordmanager.backend.support;
+
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Factory for the {@link SecureRandom} instances used by the services.
+ *
+ * <p>{@code new SecureRandom()} resolves to {@code NativePRNG} on Linux, whose {@code nextBytes}
+ * reads {@code /dev/urandom} while holding a JVM-wide monitor. On a virtual thread that blocking
+ * read inside {@code synchronized} pins the carrier thread, and all callers contend on the same
+ * lock. A DRBG instance is seeded once from the system entropy source and then generates bytes in
+ * memory, so each service keeps its own instance and never blocks on I/O while generating.
+ */
+public final class SecureRandoms {
+
+  private SecureRandoms() {}
+
+  /**
+   * Creates a new 256-bit-strength Hash_DRBG instance (NIST SP 800-90Ar1).
+   *
+   * @return a freshly seeded generator
+   */
+  public static SecureRandom drbg() {
+    try {
+      return SecureRandom.getInstance(
+          "DRBG", DrbgParameters.instantiation(256, DrbgParameters.Capability.RESEED_ONLY, null));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("DRBG SecureRandom is not available", e);
+    }
+  }
+}
@@ -0,0 +1,263 @@
+package com.vaultweb.passwordmanager.backend.support;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Time-based one-time passwords (RFC 6238), the codes of authenticator apps.
+ *
+ * <p>A secret is given either as its Base32 form (spaces, hyphens and padding ignored), which
+ * implies SHA-1, 6 digits and a 30 second period, or as the {@code otpauth://totp/...} URI of an
+ * authenticator QR code, whose {@code algorithm}, {@code digits} and {@code period} parameters
+ * override those defaults.
+ */
+public final class Totp {
+
+  public static final int DEFAULT_DIGITS = 6;
+  public static final int DEFAULT_PERIOD = 30;
+
+  /** Longest accepted secret; HMAC hashes longer keys down to the digest size anyway. */
+  public static final int MAX_SECRET_BYTES = 128;
+
+  private static final int MAX_PERIOD = 3600;
+  private static final int[] POWERS_OF_TEN = {
+    1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000
+  };
+
+  private Totp() {}
+
+  public enum Algorithm {
+    SHA1("SHA-1", 64),
+    SHA256("SHA-256", 64),
+    SHA512("SHA-512", 128);
+
+    private final String digest;
+    private final int blockSize;
+
+    Algorithm(String digest, int blockSize) {
+      this.digest = digest;
+      this.blockSize = blockSize;
+    }
+  }
+
+  /**
+   * A decoded secret and its parameters.
+   *
+   * @param secret the HMAC key
+   * @param algorithm the HMAC hash function
+   * @param digits the length of a code, 6 to 8
+   * @param period the seconds a code is valid
+   */
+  public record Parameters(byte[] secret, Algorithm algorithm, int digits, int period) {
+
+    /** Start of the period after the one containing {@code epochSecond}, in epoch seconds. */
+    public long nextPeriod(long epochSecond) {
+      return (Math.floorDiv(epochSecond, period) + 1) * period;
+    }
+  }
+
+  /**
+   * Parses a Base32 secret or an {@code otpauth://totp/} URI.
+   *
+   * @throws IllegalArgumentException if the value is neither, or its parameters are unsupported
+   */
+  public static Parameters parse(String value) {
+    String trimmed = value.strip();
+    if (!trimmed.regionMatches(true, 0, "otpauth:", 0, 8)) {
+      return new Parameters(decodeBase32(trimmed), Algorithm.SHA1, DEFAULT_DIGITS, DEFAULT_PERIOD);
+    }
+
+    URI uri;
+    try {
+      uri = new URI(trimmed);
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException("Invalid otpauth URI");
+    }
+    if (!"totp".equalsIgnoreCase(uri.getHost())) {
+      throw new IllegalArgumentException("Only otpauth://totp/ URIs are supported");
+    }
+    String secret = null;
+    Algorithm algorithm = Algorithm.SHA1;
+    int digits = DEFAULT_DIGITS;
+    int period = DEFAULT_PERIOD;
+    String query = uri.getRawQuery() != null ? uri.getRawQuery() : "";
+    for (String parameter : query.split("&")) {
+      int eq = parameter.indexOf('=');
+      if (eq < 0) {
+        continue;
+      }
+      String name = parameter.substring(0, eq).toLowerCase(Locale.ROOT);
+      String arg = URLDecoder.decode(parameter.substring(eq + 1), StandardCharsets.UTF_8);
+      switch (name) {
+        case "secret" -> secret = arg;
+        case "algorithm" -> algorithm = algorithm(arg);
+        case "digits" -> digits = number(arg, "digits", 6, 8);
+        case "period" -> period = number(arg, "period", 1, MAX_PERIOD);
+        default -> {
+          // issuer, image and the like
+        }
+      }
+    }
+    if (secret == null) {
+      throw new IllegalArgumentException("otpauth URI has no secret");
+    }
+    return new Parameters(decodeBase32(secret), algorithm, digits, period);
+  }
+
+  /** A code as shown to the user: {@code digits} long, with leading zeros. */
+  public static String format(int code, int digits) {
+    String text = Integer.toString(code);
+    return "0".repeat(digits - text.length()) + text;
+  }
+
+  private static Algorithm algorithm(String value) {
+    try {
+      return Algorithm.valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unsupported TOTP algorithm " + value);
+    }
+  }
+
+  private static int number(String value, String name, int min, int max) {
+    try {
+      int number = Integer.parseInt(value);
+      if (number >= min && number <= max) {
+        return number;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException("TOTP " + name + " must be between " + min + " and " + max);
+  }
+
+  /** RFC 4648 Base32, case-insensitive. */
+  private static byte[] decodeBase32(String value) {
+    byte[] out = new byte[value.length() * 5 / 8];
+    int length = 0;
+    int buffer = 0;
+    int bits = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      int digit;
+      if (c >= 'A' && c <= 'Z') {
+        digit = c - 'A';
+      } else if (c >= 'a' && c <= 'z') {
+        digit = c - 'a';
+      } else if (c >= '2' && c <= '7') {
+        digit = c - '2' + 26;
+      } else if (c == ' ' || c == '-' || c == '=') {
+        continue;
+      } else {
+        throw new IllegalArgumentException("TOTP secret is not Base32");
+      }
+      buffer = buffer << 5 | digit;
+      bits += 5;
+      if (bits >= 8) {
+        bits -= 8;
+        out[length++] = (byte) (buffer >> bits);
+      }
+    }
+    if (length == 0 || length > MAX_SECRET_BYTES) {
+      throw new IllegalArgumentException(
+          "TOTP secret must be 1 to " + MAX_SECRET_BYTES + " bytes long");
+    }
+    return Arrays.copyOf(out, length);
+  }
+
+  /**
+   * Computes codes. An engine keeps one digest per algorithm and fixed buffers for the HMAC pads,
+   * the counter and the hash, so after its first use of an algorithm it computes codes without
+   * allocating; {@link javax.crypto.Mac} would allocate a key and a result array for every code.
+   * Not thread-safe: use one engine per thread at a time.
+   */
+  public static final class Engine {
+
+    private static final byte IPAD = 0x36;
+    private static final byte OPAD = 0x5c;
+
+    private final MessageDigest[] digests = new MessageDigest[Algorithm.values().length];
+    private final byte[] pad = new byte[128];
+    private final byte[] hash = new byte[64];
+    private final byte[] counter = new byte[8];
+
+    /**
+     * The code valid at {@code epochSecond}.
+     *
+     * @return the code as a number; see {@link #format}
+     */
+    public int code(Parameters parameters, long epochSecond) {
+      long step = Math.floorDiv(epochSecond, parameters.period());
+      for (int i = counter.length - 1; i >= 0; i--) {
+        counter[i] = (byte) step;
+        step >>>= 8;
+      }
+      int length = hmac(parameters.algorithm(), parameters.secret());
+
+      // Dynamic truncation (RFC 4226, section 5.3)
+      int offset = hash[length - 1] & 0x0f;
+      int binary =
+          (hash[offset] & 0x7f) << 24
+              | (hash[offset + 1] & 0xff) << 16
+              | (hash[offset + 2] & 0xff) << 8
+              | (hash[offset + 3] & 0xff);
+      return binary % POWERS_OF_TEN[parameters.digits()];
+    }
+
+    /** HMAC (RFC 2104) of {@link #counter} under {@code key}, into {@link #hash}. */
+    private int hmac(Algorithm algorithm, byte[] key) {
+      MessageDigest digest = digest(algorithm);
+      int block = algorithm.blockSize;
+      int length = digest.getDigestLength();
+      try {
+        Arrays.fill(pad, 0, block, (byte) 0);
+        if (key.length > block) {
+          digest.update(key);
+          digest.digest(pad, 0, length);
+        } else {
+          System.arraycopy(key, 0, pad, 0, key.length);
+        }
+
+        xor(block, IPAD);
+        digest.update(pad, 0, block);
+        digest.update(counter);
+        digest.digest(hash, 0, length);
+
+        xor(block, (byte) (IPAD ^ OPAD));
+        digest.update(pad, 0, block);
+        digest.update(hash, 0, length);
+        digest.digest(hash, 0, length);
+      } catch (DigestException e) {
+        throw new IllegalStateException("HMAC failed", e);
+      } finally {
+        Arrays.fill(pad, 0, block, (byte) 0);
+      }
+      return length;
+    }
+
+    private void xor(int length, byte value) {
+      for (int i = 0; i < length; i++) {
+        pad[i] ^= value;
+      }
+    }
+
+    private MessageDigest digest(Algorithm algorithm) {
+      MessageDigest digest = digests[algorithm.ordinal()];
+      if (digest == null) {
+        try {
+          digest = MessageDigest.getInstance(algorithm.digest);
+        } catch (NoSuchAlgorithmException e) {
+          throw new IllegalStateException(algorithm.digest + " is not available", e);
+        }
+        digests[algorithm.ordinal()] = digest;
+      }
+      return digest;
+    }
+  }
+}
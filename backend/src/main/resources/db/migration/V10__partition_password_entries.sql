@@ -0,0 +1,130 @@
+-- Hash-partition password_entries on owner_id. Every query the application issues is scoped by
+-- owner_id (entity updates and deletes too, via @PartitionKey), so each one touches a single
+-- partition, and vacuum and index maintenance work on partitions of 1/16th the size.
+--
+-- Converting a large table must not lock it for the duration of a copy, so this migration only
+-- prepares the conversion:
+--   1. password_entries_partitioned is created with the same columns and indexes;
+--   2. a trigger mirrors every write on password_entries into it from now on;
+--   3. EntryPartitioningService copies the existing rows in chunks in the background
+--      (password_entries_backfill records how far it got);
+--   4. once the copy is complete, password_entries_swap_partitioned() renames the tables under a
+--      short exclusive lock. The old table is kept as password_entries_unpartitioned until it is
+--      dropped by hand.
+-- An empty table (new installations) is swapped right here.
+--
+-- The primary key of a partitioned table must include the partition key, hence (owner_id, id).
+-- The number of partitions cannot be changed without another conversion; 16 keeps partitions in
+-- the tens of millions of rows at a few hundred million entries.
+
+CREATE TABLE password_entries_partitioned (
+    id          BIGINT       NOT NULL,
+    owner_id    BIGINT       NOT NULL,
+    category_id BIGINT,
+    name        VARCHAR(100) NOT NULL,
+    username    VARCHAR(255) NOT NULL,
+    password    TEXT         NOT NULL,
+    url         VARCHAR(255),
+    notes       VARCHAR(500),
+    created_at  TIMESTAMP(6),
+    updated_at  TIMESTAMP(6),
+    change_seq  BIGINT       NOT NULL DEFAULT 0,
+    version     BIGINT       NOT NULL DEFAULT 0,
+    CONSTRAINT password_entries_partitioned_pkey PRIMARY KEY (owner_id, id),
+    CONSTRAINT fk_password_entries_category FOREIGN KEY (category_id) REFERENCES categories (id)
+) PARTITION BY HASH (owner_id);
+
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        EXECUTE format(
+            'CREATE TABLE password_entries_p%s PARTITION OF password_entries_partitioned '
+                || 'FOR VALUES WITH (MODULUS 16, REMAINDER %s)', i, i);
+    END LOOP;
+END $$;
+
+-- Same indexes as password_entries (V2, V5, V9); (owner_id, id) is covered by the primary key.
+CREATE INDEX ix_password_entries_partitioned_owner_id_change_seq
+    ON password_entries_partitioned (owner_id, change_seq);
+CREATE INDEX ix_password_entries_partitioned_owner_id_category_id
+    ON password_entries_partitioned (owner_id, category_id);
+CREATE INDEX ix_password_entries_partitioned_category_id
+    ON password_entries_partitioned (category_id)
+    WHERE category_id IS NOT NULL;
+
+CREATE TABLE password_entries_backfill (
+    last_id BIGINT NOT NULL
+);
+INSERT INTO password_entries_backfill (last_id) VALUES (0);
+
+-- Column lists are spelled out: databases baselined from ddl-auto=update may order the columns of
+-- password_entries differently.
+CREATE FUNCTION password_entries_mirror() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        DELETE FROM password_entries_partitioned WHERE owner_id = OLD.owner_id AND id = OLD.id;
+        RETURN OLD;
+    END IF;
+    INSERT INTO password_entries_partitioned (id, owner_id, category_id, name, username, password,
+                                              url, notes, created_at, updated_at, change_seq,
+                                              version)
+    VALUES (NEW.id, NEW.owner_id, NEW.category_id, NEW.name, NEW.username, NEW.password, NEW.url,
+            NEW.notes, NEW.created_at, NEW.updated_at, NEW.change_seq, NEW.version)
+    ON CONFLICT (owner_id, id) DO UPDATE
+        SET category_id = EXCLUDED.category_id,
+            name        = EXCLUDED.name,
+            username    = EXCLUDED.username,
+            password    = EXCLUDED.password,
+            url         = EXCLUDED.url,
+            notes       = EXCLUDED.notes,
+            created_at  = EXCLUDED.created_at,
+            updated_at  = EXCLUDED.updated_at,
+            change_seq  = EXCLUDED.change_seq,
+            version     = EXCLUDED.version;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER password_entries_mirror
+    AFTER INSERT OR UPDATE OR DELETE ON password_entries
+    FOR EACH ROW EXECUTE FUNCTION password_entries_mirror();
+
+-- Makes the partitioned table the live one. Only valid once every row has been copied; the caller
+-- drops the function afterwards.
+CREATE FUNCTION password_entries_swap_partitioned() RETURNS void AS $$
+BEGIN
+    LOCK TABLE password_entries IN ACCESS EXCLUSIVE MODE;
+    DROP TRIGGER password_entries_mirror ON password_entries;
+    DROP FUNCTION password_entries_mirror();
+    DROP TABLE password_entries_backfill;
+
+    ALTER TABLE password_entries RENAME TO password_entries_unpartitioned;
+    ALTER INDEX IF EXISTS password_entries_pkey RENAME TO password_entries_unpartitioned_pkey;
+    ALTER INDEX IF EXISTS ix_password_entries_owner_id_id
+        RENAME TO ix_password_entries_unpartitioned_owner_id_id;
+    ALTER INDEX IF EXISTS ix_password_entries_owner_id_change_seq
+        RENAME TO ix_password_entries_unpartitioned_owner_id_change_seq;
+    ALTER INDEX IF EXISTS ix_password_entries_owner_id_category_id
+        RENAME TO ix_password_entries_unpartitioned_owner_id_category_id;
+    ALTER INDEX IF EXISTS ix_password_entries_category_id
+        RENAME TO ix_password_entries_unpartitioned_category_id;
+
+    ALTER TABLE password_entries_partitioned RENAME TO password_entries;
+    ALTER INDEX password_entries_partitioned_pkey RENAME TO password_entries_pkey;
+    ALTER INDEX ix_password_entries_partitioned_owner_id_change_seq
+        RENAME TO ix_password_entries_owner_id_change_seq;
+    ALTER INDEX ix_password_entries_partitioned_owner_id_category_id
+        RENAME TO ix_password_entries_owner_id_category_id;
+    ALTER INDEX ix_password_entries_partitioned_category_id
+        RENAME TO ix_password_entries_category_id;
+END
+$$ LANGUAGE plpgsql;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM password_entries) THEN
+        PERFORM password_entries_swap_partitioned();
+        DROP FUNCTION password_entries_swap_partitioned();
+        DROP TABLE password_entries_unpartitioned;
+    END IF;
+END $$;
@@ -0,0 +1,69 @@
+-- Keyed password fingerprints: HMAC-SHA256 of the plaintext password under a key derived from the
+-- owner's vault DEK (Base64, 44 characters). Equal passwords of one owner have equal fingerprints,
+-- so the reuse report (GET /api/passwords/reuse) is a single aggregate over the (owner_id,
+-- password_fingerprint) index instead of a decryption of every entry. Without the DEK a
+-- fingerprint cannot be computed or tested, and fingerprints of different owners are unrelated.
+-- Entries without a vault, or stored before this migration, have no fingerprint until they are
+-- written again or POST /api/vault/migrate fills it in.
+ALTER TABLE password_entries ADD COLUMN password_fingerprint VARCHAR(44);
+CREATE INDEX ix_password_entries_owner_id_password_fingerprint
+    ON password_entries (owner_id, password_fingerprint);
+
+-- If the partitioning started by V10 is still being copied, the new column must reach the
+-- partitioned table too: add it there, mirror it, and rename its index along with the others when
+-- the tables are swapped.
+DO $outer$
+BEGIN
+    IF to_regclass('password_entries_partitioned') IS NULL THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE password_entries_partitioned ADD COLUMN password_fingerprint VARCHAR(44);
+    CREATE INDEX ix_password_entries_partitioned_owner_id_password_fingerprint
+        ON password_entries_partitioned (owner_id, password_fingerprint);
+
+    EXECUTE $fn$
+    CREATE OR REPLACE FUNCTION password_entries_mirror() RETURNS trigger AS $$
+    BEGIN
+        IF TG_OP = 'DELETE' THEN
+            DELETE FROM password_entries_partitioned WHERE owner_id = OLD.owner_id AND id = OLD.id;
+            RETURN OLD;
+        END IF;
+        INSERT INTO password_entries_partitioned (id, owner_id, category_id, name, username,
+                                                  password, url, notes, created_at, updated_at,
+                                                  change_seq, version, password_fingerprint)
+        VALUES (NEW.id, NEW.owner_id, NEW.category_id, NEW.name, NEW.username, NEW.password,
+                NEW.url, NEW.notes, NEW.created_at, NEW.updated_at, NEW.change_seq, NEW.version,
+                NEW.password_fingerprint)
+        ON CONFLICT (owner_id, id) DO UPDATE
+            SET category_id          = EXCLUDED.category_id,
+                name                 = EXCLUDED.name,
+                username             = EXCLUDED.username,
+                password             = EXCLUDED.password,
+                url                  = EXCLUDED.url,
+                notes                = EXCLUDED.notes,
+                created_at           = EXCLUDED.created_at,
+                updated_at           = EXCLUDED.updated_at,
+                change_seq           = EXCLUDED.change_seq,
+                version              = EXCLUDED.version,
+                password_fingerprint = EXCLUDED.password_fingerprint;
+        RETURN NEW;
+    END
+    $$ LANGUAGE plpgsql
+    $fn$;
+
+    ALTER FUNCTION password_entries_swap_partitioned() RENAME TO password_entries_swap_v10;
+    EXECUTE $fn$
+    CREATE FUNCTION password_entries_swap_partitioned() RETURNS void AS $$
+    BEGIN
+        PERFORM password_entries_swap_v10();
+        DROP FUNCTION password_entries_swap_v10();
+        ALTER INDEX ix_password_entries_owner_id_password_fingerprint
+            RENAME TO ix_password_entries_unpartitioned_owner_id_password_fingerprint;
+        ALTER INDEX ix_password_entries_partitioned_owner_id_password_fingerprint
+            RENAME TO ix_password_entries_owner_id_password_fingerprint;
+    END
+    $$ LANGUAGE plpgsql
+    $fn$;
+END
+$outer$;
@@ -0,0 +1,255 @@
+-- Vault health dashboard (GET /api/vault/health).
+--
+-- Every entry carries its own health record, computed by the application whenever a password is
+-- written (it is the only time the plaintext is at hand):
+--   strength_score       PasswordStrengthService score, 0-100 (null: not assessed yet)
+--   breach_count         occurrences in the breach corpus (null: not checked yet)
+--   password_changed_at  when the password was last set (null: before this migration)
+--   password_aged        whether the entry is currently counted as old; set by VaultHealthService
+--                        once password_changed_at (or, for older rows, updated_at) passes
+--                        vault.health.maxPasswordAge
+-- together with password_fingerprint (V11) for reuse.
+--
+-- vault_health holds the owner's totals, so the dashboard is a primary key lookup. The totals are
+-- kept by triggers rather than by the application because entries also change through set-based
+-- statements and background jobs. They are statement-level triggers: a statement changing many
+-- entries (import, bulk delete, the aging job) updates each owner's totals once, not once per row.
+
+ALTER TABLE password_entries
+    ADD COLUMN strength_score      INTEGER,
+    ADD COLUMN breach_count        INTEGER,
+    ADD COLUMN password_changed_at TIMESTAMP(6),
+    ADD COLUMN password_aged       BOOLEAN NOT NULL DEFAULT false;
+
+-- The aging job looks for entries crossing the age limit in either direction.
+CREATE INDEX ix_password_entries_not_aged
+    ON password_entries ((coalesce(password_changed_at, updated_at)))
+    WHERE NOT password_aged;
+CREATE INDEX ix_password_entries_aged
+    ON password_entries ((coalesce(password_changed_at, updated_at)))
+    WHERE password_aged;
+
+CREATE TABLE vault_health (
+    owner_id        BIGINT PRIMARY KEY,
+    entry_count     BIGINT NOT NULL DEFAULT 0,
+    weak_count      BIGINT NOT NULL DEFAULT 0,
+    reused_count    BIGINT NOT NULL DEFAULT 0,
+    old_count       BIGINT NOT NULL DEFAULT 0,
+    breached_count  BIGINT NOT NULL DEFAULT 0,
+    unscored_count  BIGINT NOT NULL DEFAULT 0,
+    unchecked_count BIGINT NOT NULL DEFAULT 0
+);
+
+-- Weak means a score below 50, PasswordStrengthService's "Weak" rating. An entry counts as reused
+-- when at least one other entry of the owner has the same fingerprint.
+CREATE FUNCTION password_entries_health() RETURNS trigger AS $$
+DECLARE
+    changes TEXT;
+    r       RECORD;
+    reused  BIGINT;
+BEGIN
+    -- Every entry state leaving (-1) or entering (+1) the totals; an update is both
+    changes := CASE TG_OP
+        WHEN 'INSERT' THEN 'SELECT 1 AS s, * FROM new_entries'
+        WHEN 'DELETE' THEN 'SELECT -1 AS s, * FROM old_entries'
+        ELSE 'SELECT 1 AS s, * FROM new_entries UNION ALL SELECT -1, * FROM old_entries'
+    END;
+
+    FOR r IN EXECUTE format($q$
+        WITH changes AS (%s),
+        totals AS (
+            SELECT owner_id,
+                   sum(s) AS entries,
+                   coalesce(sum(s) FILTER (WHERE strength_score < 50), 0) AS weak,
+                   coalesce(sum(s) FILTER (WHERE password_aged), 0) AS old,
+                   coalesce(sum(s) FILTER (WHERE breach_count > 0), 0) AS breached,
+                   coalesce(sum(s) FILTER (WHERE strength_score IS NULL), 0) AS unscored,
+                   coalesce(sum(s) FILTER (WHERE breach_count IS NULL), 0) AS unchecked
+            FROM changes
+            GROUP BY owner_id),
+        fingerprints AS (
+            SELECT owner_id, array_agg(password_fingerprint) AS fps, array_agg(d) AS ds
+            FROM (SELECT owner_id, password_fingerprint, sum(s) AS d
+                  FROM changes
+                  WHERE password_fingerprint IS NOT NULL
+                  GROUP BY owner_id, password_fingerprint
+                  HAVING sum(s) <> 0) f
+            GROUP BY owner_id)
+        SELECT t.*, f.fps, f.ds
+        FROM totals t LEFT JOIN fingerprints f USING (owner_id)
+        ORDER BY owner_id
+        $q$, changes)
+    LOOP
+        reused := 0;
+        IF r.fps IS NOT NULL THEN
+            -- Counting fingerprints needs the owner's totals locked first: concurrent writers of
+            -- the same owner then count one after the other, each seeing what the previous one
+            -- committed. Each fingerprint group of n entries (d of which this statement added)
+            -- contributes n reused entries if n > 1.
+            INSERT INTO vault_health (owner_id) VALUES (r.owner_id) ON CONFLICT (owner_id) DO NOTHING;
+            PERFORM 1 FROM vault_health WHERE owner_id = r.owner_id FOR UPDATE;
+            SELECT coalesce(sum(CASE WHEN c.n > 1 THEN c.n ELSE 0 END
+                                - CASE WHEN c.n - f.d > 1 THEN c.n - f.d ELSE 0 END), 0)
+            INTO reused
+            FROM unnest(r.fps, r.ds) AS f(fp, d)
+            CROSS JOIN LATERAL (SELECT count(*) AS n FROM password_entries
+                                WHERE owner_id = r.owner_id
+                                  AND password_fingerprint = f.fp) c;
+        ELSIF r.entries = 0 AND r.weak = 0 AND r.old = 0 AND r.breached = 0 AND r.unscored = 0
+                AND r.unchecked = 0 THEN
+            -- An update that changed none of the health columns
+            CONTINUE;
+        END IF;
+
+        INSERT INTO vault_health AS h (owner_id, entry_count, weak_count, reused_count, old_count,
+                                       breached_count, unscored_count, unchecked_count)
+        VALUES (r.owner_id, r.entries, r.weak, reused, r.old, r.breached, r.unscored, r.unchecked)
+        ON CONFLICT (owner_id) DO UPDATE
+            SET entry_count     = h.entry_count + EXCLUDED.entry_count,
+                weak_count      = h.weak_count + EXCLUDED.weak_count,
+                reused_count    = h.reused_count + EXCLUDED.reused_count,
+                old_count       = h.old_count + EXCLUDED.old_count,
+                breached_count  = h.breached_count + EXCLUDED.breached_count,
+                unscored_count  = h.unscored_count + EXCLUDED.unscored_count,
+                unchecked_count = h.unchecked_count + EXCLUDED.unchecked_count;
+    END LOOP;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER password_entries_health_insert
+    AFTER INSERT ON password_entries
+    REFERENCING NEW TABLE AS new_entries
+    FOR EACH STATEMENT EXECUTE FUNCTION password_entries_health();
+CREATE TRIGGER password_entries_health_update
+    AFTER UPDATE ON password_entries
+    REFERENCING OLD TABLE AS old_entries NEW TABLE AS new_entries
+    FOR EACH STATEMENT EXECUTE FUNCTION password_entries_health();
+CREATE TRIGGER password_entries_health_delete
+    AFTER DELETE ON password_entries
+    REFERENCING OLD TABLE AS old_entries
+    FOR EACH STATEMENT EXECUTE FUNCTION password_entries_health();
+
+-- A new password is not old, whatever the aging job decided for the previous one.
+CREATE FUNCTION password_entries_password_changed() RETURNS trigger AS $$
+BEGIN
+    NEW.password_aged := false;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER password_entries_password_changed
+    BEFORE UPDATE OF password_changed_at ON password_entries
+    FOR EACH ROW
+    WHEN (NEW.password_changed_at IS DISTINCT FROM OLD.password_changed_at)
+    EXECUTE FUNCTION password_entries_password_changed();
+
+-- Totals of the existing entries (none of which has been assessed yet).
+INSERT INTO vault_health (owner_id, entry_count, reused_count, old_count, breached_count,
+                          unscored_count, unchecked_count)
+SELECT e.owner_id, count(*), coalesce(max(r.reused), 0), 0, 0, count(*), count(*)
+FROM password_entries e
+LEFT JOIN (SELECT owner_id, sum(n) AS reused
+           FROM (SELECT owner_id, count(*) AS n FROM password_entries
+                 WHERE password_fingerprint IS NOT NULL
+                 GROUP BY owner_id, password_fingerprint
+                 HAVING count(*) > 1) f
+           GROUP BY owner_id) r ON r.owner_id = e.owner_id
+GROUP BY e.owner_id;
+
+-- If the partitioning started by V10 is still being copied: add the columns to the partitioned
+-- table, mirror them, and move the triggers and rename the indexes when the tables are swapped.
+-- Until then the triggers stay on the live table only, so mirrored writes are not counted twice.
+DO $outer$
+BEGIN
+    IF to_regclass('password_entries_partitioned') IS NULL THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE password_entries_partitioned
+        ADD COLUMN strength_score      INTEGER,
+        ADD COLUMN breach_count        INTEGER,
+        ADD COLUMN password_changed_at TIMESTAMP(6),
+        ADD COLUMN password_aged       BOOLEAN NOT NULL DEFAULT false;
+    CREATE INDEX ix_password_entries_partitioned_not_aged
+        ON password_entries_partitioned ((coalesce(password_changed_at, updated_at)))
+        WHERE NOT password_aged;
+    CREATE INDEX ix_password_entries_partitioned_aged
+        ON password_entries_partitioned ((coalesce(password_changed_at, updated_at)))
+        WHERE password_aged;
+
+    EXECUTE $fn$
+    CREATE OR REPLACE FUNCTION password_entries_mirror() RETURNS trigger AS $$
+    BEGIN
+        IF TG_OP = 'DELETE' THEN
+            DELETE FROM password_entries_partitioned WHERE owner_id = OLD.owner_id AND id = OLD.id;
+            RETURN OLD;
+        END IF;
+        INSERT INTO password_entries_partitioned (id, owner_id, category_id, name, username,
+                                                  password, url, notes, created_at, updated_at,
+                                                  change_seq, version, password_fingerprint,
+                                                  strength_score, breach_count,
+                                                  password_changed_at, password_aged)
+        VALUES (NEW.id, NEW.owner_id, NEW.category_id, NEW.name, NEW.username, NEW.password,
+                NEW.url, NEW.notes, NEW.created_at, NEW.updated_at, NEW.change_seq, NEW.version,
+                NEW.password_fingerprint, NEW.strength_score, NEW.breach_count,
+                NEW.password_changed_at, NEW.password_aged)
+        ON CONFLICT (owner_id, id) DO UPDATE
+            SET category_id          = EXCLUDED.category_id,
+                name                 = EXCLUDED.name,
+                username             = EXCLUDED.username,
+                password             = EXCLUDED.password,
+                url                  = EXCLUDED.url,
+                notes                = EXCLUDED.notes,
+                created_at           = EXCLUDED.created_at,
+                updated_at           = EXCLUDED.updated_at,
+                change_seq           = EXCLUDED.change_seq,
+                version              = EXCLUDED.version,
+                password_fingerprint = EXCLUDED.password_fingerprint,
+                strength_score       = EXCLUDED.strength_score,
+                breach_count         = EXCLUDED.breach_count,
+                password_changed_at  = EXCLUDED.password_changed_at,
+                password_aged        = EXCLUDED.password_aged;
+        RETURN NEW;
+    END
+    $$ LANGUAGE plpgsql
+    $fn$;
+
+    ALTER FUNCTION password_entries_swap_partitioned() RENAME TO password_entries_swap_v11;
+    EXECUTE $fn$
+    CREATE FUNCTION password_entries_swap_partitioned() RETURNS void AS $$
+    BEGIN
+        PERFORM password_entries_swap_v11();
+        DROP FUNCTION password_entries_swap_v11();
+        DROP TRIGGER password_entries_health_insert ON password_entries_unpartitioned;
+        DROP TRIGGER password_entries_health_update ON password_entries_unpartitioned;
+        DROP TRIGGER password_entries_health_delete ON password_entries_unpartitioned;
+        DROP TRIGGER password_entries_password_changed ON password_entries_unpartitioned;
+        CREATE TRIGGER password_entries_health_insert
+            AFTER INSERT ON password_entries
+            REFERENCING NEW TABLE AS new_entries
+            FOR EACH STATEMENT EXECUTE FUNCTION password_entries_health();
+        CREATE TRIGGER password_entries_health_update
+            AFTER UPDATE ON password_entries
+            REFERENCING OLD TABLE AS old_entries NEW TABLE AS new_entries
+            FOR EACH STATEMENT EXECUTE FUNCTION password_entries_health();
+        CREATE TRIGGER password_entries_health_delete
+            AFTER DELETE ON password_entries
+            REFERENCING OLD TABLE AS old_entries
+            FOR EACH STATEMENT EXECUTE FUNCTION password_entries_health();
+        CREATE TRIGGER password_entries_password_changed
+            BEFORE UPDATE OF password_changed_at ON password_entries
+            FOR EACH ROW
+            WHEN (NEW.password_changed_at IS DISTINCT FROM OLD.password_changed_at)
+            EXECUTE FUNCTION password_entries_password_changed();
+        ALTER INDEX ix_password_entries_not_aged
+            RENAME TO ix_password_entries_unpartitioned_not_aged;
+        ALTER INDEX ix_password_entries_aged RENAME TO ix_password_entries_unpartitioned_aged;
+        ALTER INDEX ix_password_entries_partitioned_not_aged
+            RENAME TO ix_password_entries_not_aged;
+        ALTER INDEX ix_password_entries_partitioned_aged RENAME TO ix_password_entries_aged;
+    END
+    $$ LANGUAGE plpgsql
+    $fn$;
+END
+$outer$;
@@ -0,0 +1,95 @@
+-- Credential lookup by site (GET /api/passwords/match?url=). The free-form url of an entry is
+-- normalized by the application (UrlDomainService, which holds the public suffix list) whenever it
+-- is written:
+--   url_host    lower-case ASCII host of the url (null: no recognizable host)
+--   url_domain  its registrable domain, public suffix plus one label (example.co.uk)
+-- and the lookup is a scan of the (owner_id, url_domain) index.
+--
+-- Rows written before this migration have a url but no host yet; UrlDomainBackfill fills them in
+-- through the partial index, which only holds those rows (and urls without a host) afterwards.
+ALTER TABLE password_entries
+    ADD COLUMN url_host   VARCHAR(255),
+    ADD COLUMN url_domain VARCHAR(255);
+CREATE INDEX ix_password_entries_owner_id_url_domain
+    ON password_entries (owner_id, url_domain);
+CREATE INDEX ix_password_entries_url_unresolved
+    ON password_entries (id)
+    WHERE url IS NOT NULL AND url_host IS NULL;
+
+-- If the partitioning started by V10 is still being copied, the new columns must reach the
+-- partitioned table too: add them there, mirror them, and rename their indexes along with the
+-- others when the tables are swapped.
+DO $outer$
+BEGIN
+    IF to_regclass('password_entries_partitioned') IS NULL THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE password_entries_partitioned
+        ADD COLUMN url_host   VARCHAR(255),
+        ADD COLUMN url_domain VARCHAR(255);
+    CREATE INDEX ix_password_entries_partitioned_owner_id_url_domain
+        ON password_entries_partitioned (owner_id, url_domain);
+    CREATE INDEX ix_password_entries_partitioned_url_unresolved
+        ON password_entries_partitioned (id)
+        WHERE url IS NOT NULL AND url_host IS NULL;
+
+    EXECUTE $fn$
+    CREATE OR REPLACE FUNCTION password_entries_mirror() RETURNS trigger AS $$
+    BEGIN
+        IF TG_OP = 'DELETE' THEN
+            DELETE FROM password_entries_partitioned WHERE owner_id = OLD.owner_id AND id = OLD.id;
+            RETURN OLD;
+        END IF;
+        INSERT INTO password_entries_partitioned (id, owner_id, category_id, name, username,
+                                                  password, url, notes, created_at, updated_at,
+                                                  change_seq, version, password_fingerprint,
+                                                  strength_score, breach_count,
+                                                  password_changed_at, password_aged, url_host,
+                                                  url_domain)
+        VALUES (NEW.id, NEW.owner_id, NEW.category_id, NEW.name, NEW.username, NEW.password,
+                NEW.url, NEW.notes, NEW.created_at, NEW.updated_at, NEW.change_seq, NEW.version,
+                NEW.password_fingerprint, NEW.strength_score, NEW.breach_count,
+                NEW.password_changed_at, NEW.password_aged, NEW.url_host, NEW.url_domain)
+        ON CONFLICT (owner_id, id) DO UPDATE
+            SET category_id          = EXCLUDED.category_id,
+                name                 = EXCLUDED.name,
+                username             = EXCLUDED.username,
+                password             = EXCLUDED.password,
+                url                  = EXCLUDED.url,
+                notes                = EXCLUDED.notes,
+                created_at           = EXCLUDED.created_at,
+                updated_at           = EXCLUDED.updated_at,
+                change_seq           = EXCLUDED.change_seq,
+                version              = EXCLUDED.version,
+                password_fingerprint = EXCLUDED.password_fingerprint,
+                strength_score       = EXCLUDED.strength_score,
+                breach_count         = EXCLUDED.breach_count,
+                password_changed_at  = EXCLUDED.password_changed_at,
+                password_aged        = EXCLUDED.password_aged,
+                url_host             = EXCLUDED.url_host,
+                url_domain           = EXCLUDED.url_domain;
+        RETURN NEW;
+    END
+    $$ LANGUAGE plpgsql
+    $fn$;
+
+    ALTER FUNCTION password_entries_swap_partitioned() RENAME TO password_entries_swap_v12;
+    EXECUTE $fn$
+    CREATE FUNCTION password_entries_swap_partitioned() RETURNS void AS $$
+    BEGIN
+        PERFORM password_entries_swap_v12();
+        DROP FUNCTION password_entries_swap_v12();
+        ALTER INDEX ix_password_entries_owner_id_url_domain
+            RENAME TO ix_password_entries_unpartitioned_owner_id_url_domain;
+        ALTER INDEX ix_password_entries_url_unresolved
+            RENAME TO ix_password_entries_unpartitioned_url_unresolved;
+        ALTER INDEX ix_password_entries_partitioned_owner_id_url_domain
+            RENAME TO ix_password_entries_owner_id_url_domain;
+        ALTER INDEX ix_password_entries_partitioned_url_unresolved
+            RENAME TO ix_password_entries_url_unresolved;
+    END
+    $$ LANGUAGE plpgsql
+    $fn$;
+END
+$outer$;
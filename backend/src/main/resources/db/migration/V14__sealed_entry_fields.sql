@@ -0,0 +1,130 @@
+-- Encrypted username, url and notes. Once an owner has a vault, the application stores these
+-- fields as DEK ciphertext (the v1: format of passwords, see EntryFieldCryptoService), so they no
+-- longer fit their VARCHAR limits; the length limits stay in the request validation. Changing
+-- VARCHAR to TEXT does not rewrite the table.
+--
+-- Exact-match lookups keep working through blind indexes: HMAC-SHA256 of the normalized value
+-- under a per-field key derived from the DEK, truncated to 32 bits. Collisions are filtered out by
+-- the application after decrypting the matching rows.
+--   username_bidx    username, trimmed and lower-cased
+--   url_host_bidx    url_host of the url (only used to rank exact host matches first)
+--   url_domain_bidx  url_domain of the url
+-- An encrypted url has no plaintext url_host/url_domain; the lookup by site reads both the
+-- (owner_id, url_domain) and the (owner_id, url_domain_bidx) index, so rows written before the
+-- owner's vault (which the vault migration job encrypts) are found as well. Owners without a vault
+-- keep plaintext usernames, looked up through an expression index of the same normalized form.
+ALTER TABLE password_entries
+    ALTER COLUMN username TYPE TEXT,
+    ALTER COLUMN url TYPE TEXT,
+    ALTER COLUMN notes TYPE TEXT,
+    ADD COLUMN username_bidx   INTEGER,
+    ADD COLUMN url_host_bidx   INTEGER,
+    ADD COLUMN url_domain_bidx INTEGER;
+CREATE INDEX ix_password_entries_owner_id_username_bidx
+    ON password_entries (owner_id, username_bidx);
+CREATE INDEX ix_password_entries_owner_id_url_domain_bidx
+    ON password_entries (owner_id, url_domain_bidx);
+CREATE INDEX ix_password_entries_owner_id_username_lower
+    ON password_entries (owner_id, lower(btrim(username)));
+
+-- UrlDomainBackfill cannot normalize an encrypted url; keep those rows out of its partial index.
+DROP INDEX ix_password_entries_url_unresolved;
+CREATE INDEX ix_password_entries_url_unresolved
+    ON password_entries (id)
+    WHERE url IS NOT NULL AND url_host IS NULL AND url NOT LIKE 'v1:%';
+
+-- If the partitioning started by V10 is still being copied, the new columns must reach the
+-- partitioned table too: add them there, mirror them, and rename their indexes along with the
+-- others when the tables are swapped.
+DO $outer$
+BEGIN
+    IF to_regclass('password_entries_partitioned') IS NULL THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE password_entries_partitioned
+        ALTER COLUMN username TYPE TEXT,
+        ALTER COLUMN url TYPE TEXT,
+        ALTER COLUMN notes TYPE TEXT,
+        ADD COLUMN username_bidx   INTEGER,
+        ADD COLUMN url_host_bidx   INTEGER,
+        ADD COLUMN url_domain_bidx INTEGER;
+    CREATE INDEX ix_password_entries_partitioned_owner_id_username_bidx
+        ON password_entries_partitioned (owner_id, username_bidx);
+    CREATE INDEX ix_password_entries_partitioned_owner_id_url_domain_bidx
+        ON password_entries_partitioned (owner_id, url_domain_bidx);
+    CREATE INDEX ix_password_entries_partitioned_owner_id_username_lower
+        ON password_entries_partitioned (owner_id, lower(btrim(username)));
+    DROP INDEX ix_password_entries_partitioned_url_unresolved;
+    CREATE INDEX ix_password_entries_partitioned_url_unresolved
+        ON password_entries_partitioned (id)
+        WHERE url IS NOT NULL AND url_host IS NULL AND url NOT LIKE 'v1:%';
+
+    EXECUTE $fn$
+    CREATE OR REPLACE FUNCTION password_entries_mirror() RETURNS trigger AS $$
+    BEGIN
+        IF TG_OP = 'DELETE' THEN
+            DELETE FROM password_entries_partitioned WHERE owner_id = OLD.owner_id AND id = OLD.id;
+            RETURN OLD;
+        END IF;
+        INSERT INTO password_entries_partitioned (id, owner_id, category_id, name, username,
+                                                  password, url, notes, created_at, updated_at,
+                                                  change_seq, version, password_fingerprint,
+                                                  strength_score, breach_count,
+                                                  password_changed_at, password_aged, url_host,
+                                                  url_domain, username_bidx, url_host_bidx,
+                                                  url_domain_bidx)
+        VALUES (NEW.id, NEW.owner_id, NEW.category_id, NEW.name, NEW.username, NEW.password,
+                NEW.url, NEW.notes, NEW.created_at, NEW.updated_at, NEW.change_seq, NEW.version,
+                NEW.password_fingerprint, NEW.strength_score, NEW.breach_count,
+                NEW.password_changed_at, NEW.password_aged, NEW.url_host, NEW.url_domain,
+                NEW.username_bidx, NEW.url_host_bidx, NEW.url_domain_bidx)
+        ON CONFLICT (owner_id, id) DO UPDATE
+            SET category_id          = EXCLUDED.category_id,
+                name                 = EXCLUDED.name,
+                username             = EXCLUDED.username,
+                password             = EXCLUDED.password,
+                url                  = EXCLUDED.url,
+                notes                = EXCLUDED.notes,
+                created_at           = EXCLUDED.created_at,
+                updated_at           = EXCLUDED.updated_at,
+                change_seq           = EXCLUDED.change_seq,
+                version              = EXCLUDED.version,
+                password_fingerprint = EXCLUDED.password_fingerprint,
+                strength_score       = EXCLUDED.strength_score,
+                breach_count         = EXCLUDED.breach_count,
+                password_changed_at  = EXCLUDED.password_changed_at,
+                password_aged        = EXCLUDED.password_aged,
+                url_host             = EXCLUDED.url_host,
+                url_domain           = EXCLUDED.url_domain,
+                username_bidx        = EXCLUDED.username_bidx,
+                url_host_bidx        = EXCLUDED.url_host_bidx,
+                url_domain_bidx      = EXCLUDED.url_domain_bidx;
+        RETURN NEW;
+    END
+    $$ LANGUAGE plpgsql
+    $fn$;
+
+    ALTER FUNCTION password_entries_swap_partitioned() RENAME TO password_entries_swap_v13;
+    EXECUTE $fn$
+    CREATE FUNCTION password_entries_swap_partitioned() RETURNS void AS $$
+    BEGIN
+        PERFORM password_entries_swap_v13();
+        DROP FUNCTION password_entries_swap_v13();
+        ALTER INDEX ix_password_entries_owner_id_username_bidx
+            RENAME TO ix_password_entries_unpartitioned_owner_id_username_bidx;
+        ALTER INDEX ix_password_entries_owner_id_url_domain_bidx
+            RENAME TO ix_password_entries_unpartitioned_owner_id_url_domain_bidx;
+        ALTER INDEX ix_password_entries_owner_id_username_lower
+            RENAME TO ix_password_entries_unpartitioned_owner_id_username_lower;
+        ALTER INDEX ix_password_entries_partitioned_owner_id_username_bidx
+            RENAME TO ix_password_entries_owner_id_username_bidx;
+        ALTER INDEX ix_password_entries_partitioned_owner_id_url_domain_bidx
+            RENAME TO ix_password_entries_owner_id_url_domain_bidx;
+        ALTER INDEX ix_password_entries_partitioned_owner_id_username_lower
+            RENAME TO ix_password_entries_owner_id_username_lower;
+    END
+    $$ LANGUAGE plpgsql
+    $fn$;
+END
+$outer$;
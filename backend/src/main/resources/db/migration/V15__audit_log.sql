@@ -0,0 +1,40 @@
+-- Audit trail of sensitive vault operations (reveals, exports, unlocks, master password rotations
+-- and failed master password attempts), written in batches by VaultAuditLog. The table is
+-- append-only and partitioned by month, so old months can be archived or detached as a whole. The
+-- application creates the partitions of the coming months; rows outside every monthly partition
+-- land in the default partition.
+CREATE TABLE vault_audit_log (
+    owner_id    BIGINT       NOT NULL,
+    event_type  VARCHAR(32)  NOT NULL,
+    entry_id    BIGINT,
+    detail      VARCHAR(255),
+    occurred_at TIMESTAMP(6) NOT NULL
+) PARTITION BY RANGE (occurred_at);
+
+CREATE TABLE vault_audit_log_default PARTITION OF vault_audit_log DEFAULT;
+
+CREATE INDEX ix_vault_audit_log_owner_id_occurred_at ON vault_audit_log (owner_id, occurred_at);
+
+-- Current and next month, so nothing is written to the default partition before the application
+-- has created its partitions
+DO $$
+DECLARE
+    month DATE := date_trunc('month', localtimestamp)::date;
+BEGIN
+    FOR i IN 0..1 LOOP
+        EXECUTE format(
+            'CREATE TABLE vault_audit_log_%s PARTITION OF vault_audit_log FOR VALUES FROM (%L) TO (%L)',
+            to_char(month, '"y"YYYY"m"MM'), month, (month + interval '1 month')::date);
+        month := (month + interval '1 month')::date;
+    END LOOP;
+END $$;
+
+CREATE FUNCTION vault_audit_log_append_only() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'vault_audit_log is append-only';
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER vault_audit_log_append_only
+    BEFORE UPDATE OR DELETE ON vault_audit_log
+    FOR EACH ROW EXECUTE FUNCTION vault_audit_log_append_only();
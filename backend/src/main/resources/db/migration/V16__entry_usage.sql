@@ -0,0 +1,11 @@
+-- How often and when each entry was last used (revealed or returned by an autofill match), for the
+-- frequent and recent orders of GET /api/passwords. Kept out of password_entries so the counters,
+-- which EntryUsageService accumulates in memory and upserts in batches, never rewrite entry rows or
+-- touch their versions. Rows of deleted entries are purged periodically.
+CREATE TABLE password_entry_usage (
+    owner_id     BIGINT       NOT NULL,
+    entry_id     BIGINT       NOT NULL,
+    use_count    BIGINT       NOT NULL,
+    last_used_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (owner_id, entry_id)
+);
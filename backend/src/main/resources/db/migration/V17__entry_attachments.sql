@@ -0,0 +1,16 @@
+-- Files attached to password entries (SSH keys, recovery codes, license files). The content lives
+-- encrypted in the attachment store (vault.attachments.dir), one file per row named by
+-- storage_key; name and content_type are encrypted with the vault DEK. size is the plaintext size,
+-- summed per owner for the attachment quota.
+CREATE TABLE entry_attachments (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    owner_id     BIGINT       NOT NULL,
+    entry_id     BIGINT       NOT NULL,
+    name         TEXT         NOT NULL,
+    content_type TEXT         NOT NULL,
+    size         BIGINT       NOT NULL,
+    storage_key  VARCHAR(32)  NOT NULL UNIQUE,
+    created_at   TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX ix_entry_attachments_owner_id_entry_id ON entry_attachments (owner_id, entry_id);
@@ -0,0 +1,64 @@
+-- TOTP secret of an entry (Base32 or otpauth:// URI), encrypted with the vault DEK like the notes
+-- once the owner has a vault (see EntryFieldCryptoService). Nullable, so adding it does not rewrite
+-- the table; codes are only computed for the entries a client asks for, so it needs no index.
+ALTER TABLE password_entries
+    ADD COLUMN totp_secret TEXT;
+
+-- If the partitioning started by V10 is still being copied, add the column to the partitioned
+-- table too and mirror it. No index is added, so the swap function stays as it is.
+DO $outer$
+BEGIN
+    IF to_regclass('password_entries_partitioned') IS NULL THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE password_entries_partitioned
+        ADD COLUMN totp_secret TEXT;
+
+    EXECUTE $fn$
+    CREATE OR REPLACE FUNCTION password_entries_mirror() RETURNS trigger AS $$
+    BEGIN
+        IF TG_OP = 'DELETE' THEN
+            DELETE FROM password_entries_partitioned WHERE owner_id = OLD.owner_id AND id = OLD.id;
+            RETURN OLD;
+        END IF;
+        INSERT INTO password_entries_partitioned (id, owner_id, category_id, name, username,
+                                                  password, url, notes, created_at, updated_at,
+                                                  change_seq, version, password_fingerprint,
+                                                  strength_score, breach_count,
+                                                  password_changed_at, password_aged, url_host,
+                                                  url_domain, username_bidx, url_host_bidx,
+                                                  url_domain_bidx, totp_secret)
+        VALUES (NEW.id, NEW.owner_id, NEW.category_id, NEW.name, NEW.username, NEW.password,
+                NEW.url, NEW.notes, NEW.created_at, NEW.updated_at, NEW.change_seq, NEW.version,
+                NEW.password_fingerprint, NEW.strength_score, NEW.breach_count,
+                NEW.password_changed_at, NEW.password_aged, NEW.url_host, NEW.url_domain,
+                NEW.username_bidx, NEW.url_host_bidx, NEW.url_domain_bidx, NEW.totp_secret)
+        ON CONFLICT (owner_id, id) DO UPDATE
+            SET category_id          = EXCLUDED.category_id,
+                name                 = EXCLUDED.name,
+                username             = EXCLUDED.username,
+                password             = EXCLUDED.password,
+                url                  = EXCLUDED.url,
+                notes                = EXCLUDED.notes,
+                created_at           = EXCLUDED.created_at,
+                updated_at           = EXCLUDED.updated_at,
+                change_seq           = EXCLUDED.change_seq,
+                version              = EXCLUDED.version,
+                password_fingerprint = EXCLUDED.password_fingerprint,
+                strength_score       = EXCLUDED.strength_score,
+                breach_count         = EXCLUDED.breach_count,
+                password_changed_at  = EXCLUDED.password_changed_at,
+                password_aged        = EXCLUDED.password_aged,
+                url_host             = EXCLUDED.url_host,
+                url_domain           = EXCLUDED.url_domain,
+                username_bidx        = EXCLUDED.username_bidx,
+                url_host_bidx        = EXCLUDED.url_host_bidx,
+                url_domain_bidx      = EXCLUDED.url_domain_bidx,
+                totp_secret          = EXCLUDED.totp_secret;
+        RETURN NEW;
+    END
+    $$ LANGUAGE plpgsql
+    $fn$;
+END
+$outer$;
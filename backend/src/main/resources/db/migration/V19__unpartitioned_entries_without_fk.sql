@@ -0,0 +1,27 @@
+-- The table that V10 swaps out is kept as password_entries_unpartitioned until it is dropped by
+-- hand, but it kept its foreign key to categories too: deleting a category that one of its stale
+-- rows still referenced failed. The old table is only a copy to fall back on, so it must not
+-- constrain the live data; its foreign key is dropped right after the swap, or now if the tables
+-- were already swapped.
+DO $outer$
+BEGIN
+    IF to_regclass('password_entries_partitioned') IS NULL THEN
+        IF to_regclass('password_entries_unpartitioned') IS NOT NULL THEN
+            ALTER TABLE password_entries_unpartitioned
+                DROP CONSTRAINT IF EXISTS fk_password_entries_category;
+        END IF;
+        RETURN;
+    END IF;
+
+    ALTER FUNCTION password_entries_swap_partitioned() RENAME TO password_entries_swap_v18;
+    EXECUTE $fn$
+    CREATE FUNCTION password_entries_swap_partitioned() RETURNS void AS $$
+    BEGIN
+        PERFORM password_entries_swap_v18();
+        DROP FUNCTION password_entries_swap_v18();
+        ALTER TABLE password_entries_unpartitioned DROP CONSTRAINT fk_password_entries_category;
+    END
+    $$ LANGUAGE plpgsql
+    $fn$;
+END
+$outer$;
@@ -0,0 +1,39 @@
+-- Baseline schema, matching what `spring.jpa.hibernate.ddl-auto=update` used to create.
+-- Existing databases are baselined at version 1 (spring.flyway.baseline-on-migrate), so this
+-- script only runs against an empty schema.
+
+CREATE TABLE user_vaults (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    owner_id       BIGINT        NOT NULL,
+    kdf_salt       VARCHAR(128)  NOT NULL,
+    kdf_iterations INTEGER       NOT NULL,
+    wrapped_dek    VARCHAR(1024) NOT NULL,
+    verifier       VARCHAR(128)  NOT NULL,
+    created_at     TIMESTAMP(6),
+    updated_at     TIMESTAMP(6),
+    CONSTRAINT uk_user_vaults_owner_id UNIQUE (owner_id)
+);
+
+CREATE TABLE categories (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    owner_id    BIGINT       NOT NULL,
+    name        VARCHAR(60)  NOT NULL,
+    color       VARCHAR(255),
+    description VARCHAR(200),
+    created_at  TIMESTAMP(6),
+    updated_at  TIMESTAMP(6)
+);
+
+CREATE TABLE password_entries (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    owner_id    BIGINT       NOT NULL,
+    category_id BIGINT,
+    name        VARCHAR(100) NOT NULL,
+    username    VARCHAR(255) NOT NULL,
+    password    TEXT         NOT NULL,
+    url         VARCHAR(255),
+    notes       VARCHAR(500),
+    created_at  TIMESTAMP(6),
+    updated_at  TIMESTAMP(6),
+    CONSTRAINT fk_password_entries_category FOREIGN KEY (category_id) REFERENCES categories (id)
+);
@@ -0,0 +1,89 @@
+-- While the partitioning started by V10 is pending, every migration that changed password_entries
+-- had to repeat its column list in the mirror trigger, in EntryPartitioningService and in the swap,
+-- and a column missed in one of them was silently dropped when the tables were swapped. From here
+-- on the mirror copies whatever columns the two tables share by name, the background copy reads
+-- them from the catalog, and the swap refuses to run while password_entries has a column (or a
+-- column type) that password_entries_partitioned lacks. A later migration that changes
+-- password_entries while the conversion is pending therefore only has to make the same change to
+-- password_entries_partitioned; indexes named ix_password_entries_partitioned_* are renamed to
+-- ix_password_entries_* by the swap.
+DO $outer$
+BEGIN
+    IF to_regclass('password_entries_partitioned') IS NULL THEN
+        RETURN;
+    END IF;
+
+    -- The row is rebuilt from NEW by column name, so the order of the columns in either table
+    -- does not matter. Delete and insert instead of an upsert, which would need the column list.
+    EXECUTE $fn$
+    CREATE OR REPLACE FUNCTION password_entries_mirror() RETURNS trigger AS $$
+    BEGIN
+        IF TG_OP <> 'INSERT' THEN
+            DELETE FROM password_entries_partitioned WHERE owner_id = OLD.owner_id AND id = OLD.id;
+        END IF;
+        IF TG_OP = 'DELETE' THEN
+            RETURN OLD;
+        END IF;
+        DELETE FROM password_entries_partitioned WHERE owner_id = NEW.owner_id AND id = NEW.id;
+        INSERT INTO password_entries_partitioned
+        SELECT * FROM jsonb_populate_record(NULL::password_entries_partitioned, to_jsonb(NEW));
+        RETURN NEW;
+    END
+    $$ LANGUAGE plpgsql
+    $fn$;
+
+    ALTER FUNCTION password_entries_swap_partitioned() RENAME TO password_entries_swap_v19;
+    EXECUTE $fn$
+    CREATE FUNCTION password_entries_swap_partitioned() RETURNS void AS $$
+    DECLARE
+        missing TEXT;
+        idx     RECORD;
+    BEGIN
+        SELECT string_agg(live.column_name || ' ' || live.data_type, ', ')
+        INTO missing
+        FROM information_schema.columns live
+        WHERE live.table_schema = current_schema()
+          AND live.table_name = 'password_entries'
+          AND NOT EXISTS (SELECT 1
+                          FROM information_schema.columns part
+                          WHERE part.table_schema = live.table_schema
+                            AND part.table_name = 'password_entries_partitioned'
+                            AND part.column_name = live.column_name
+                            AND part.data_type = live.data_type);
+        IF missing IS NOT NULL THEN
+            RAISE EXCEPTION 'password_entries_partitioned lacks columns of password_entries: %',
+                missing;
+        END IF;
+
+        PERFORM password_entries_swap_v19();
+        DROP FUNCTION password_entries_swap_v19();
+
+        -- Indexes that no earlier swap renamed explicitly: first move the old table's names out of
+        -- the way, then give the partitioned table's indexes the live names.
+        FOR idx IN SELECT c.relname
+                   FROM pg_index i
+                            JOIN pg_class c ON c.oid = i.indexrelid
+                   WHERE i.indrelid = 'password_entries_unpartitioned'::regclass
+                     AND c.relname LIKE 'ix\_password\_entries\_%'
+                     AND c.relname NOT LIKE 'ix\_password\_entries\_unpartitioned\_%'
+            LOOP
+                EXECUTE format('ALTER INDEX %I RENAME TO %I', idx.relname,
+                               'ix_password_entries_unpartitioned_'
+                                   || substr(idx.relname, length('ix_password_entries_') + 1));
+            END LOOP;
+        FOR idx IN SELECT c.relname
+                   FROM pg_index i
+                            JOIN pg_class c ON c.oid = i.indexrelid
+                   WHERE i.indrelid = 'password_entries'::regclass
+                     AND c.relname LIKE 'ix\_password\_entries\_partitioned\_%'
+            LOOP
+                EXECUTE format('ALTER INDEX %I RENAME TO %I', idx.relname,
+                               'ix_password_entries_'
+                                   || substr(idx.relname,
+                                             length('ix_password_entries_partitioned_') + 1));
+            END LOOP;
+    END
+    $$ LANGUAGE plpgsql
+    $fn$;
+END
+$outer$;
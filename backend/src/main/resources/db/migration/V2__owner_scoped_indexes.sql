@@ -0,0 +1,12 @@
+-- Every repository query is scoped by owner_id. The (owner_id, id) indexes serve both
+-- findAllByOwnerId (leading column) and findByIdAndOwnerId (exact match on both columns).
+
+CREATE INDEX IF NOT EXISTS ix_password_entries_owner_id_id ON password_entries (owner_id, id);
+
+CREATE INDEX IF NOT EXISTS ix_categories_owner_id_id ON categories (owner_id, id);
+
+-- Most entries are uncategorized; indexing only the rows that reference a category keeps the
+-- index small while still covering the foreign-key check when a category is deleted.
+CREATE INDEX IF NOT EXISTS ix_password_entries_category_id
+    ON password_entries (category_id)
+    WHERE category_id IS NOT NULL;
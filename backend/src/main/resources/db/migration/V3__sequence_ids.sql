@@ -0,0 +1,16 @@
+-- Switch primary keys from IDENTITY to sequences so Hibernate can batch inserts.
+-- The increment matches the entities' allocationSize (pooled optimizer): each nextval reserves a
+-- block of 50 ids in memory. Sequences are positioned past the current max id so that the first
+-- block never overlaps existing rows.
+
+CREATE SEQUENCE IF NOT EXISTS password_entries_seq INCREMENT BY 50;
+SELECT setval('password_entries_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM password_entries;
+ALTER TABLE password_entries ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS categories_seq INCREMENT BY 50;
+SELECT setval('categories_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM categories;
+ALTER TABLE categories ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS user_vaults_seq INCREMENT BY 50;
+SELECT setval('user_vaults_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM user_vaults;
+ALTER TABLE user_vaults ALTER COLUMN id DROP IDENTITY IF EXISTS;
@@ -0,0 +1,6 @@
+-- Per-owner counter bumped by every entry/category mutation. Listing endpoints expose it as an
+-- ETag so unchanged polls can be answered with 304 from this single-row lookup.
+CREATE TABLE vault_versions (
+    owner_id BIGINT PRIMARY KEY,
+    version  BIGINT NOT NULL
+);
@@ -0,0 +1,24 @@
+-- Delta sync: every entry/category row records the vault version (see V4) of its last change, and
+-- deletions leave a tombstone carrying the version of the delete. A client that remembers the
+-- version it last synced at can then fetch only rows with a higher change_seq.
+ALTER TABLE password_entries ADD COLUMN change_seq BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE categories ADD COLUMN change_seq BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX ix_password_entries_owner_id_change_seq ON password_entries (owner_id, change_seq);
+CREATE INDEX ix_categories_owner_id_change_seq ON categories (owner_id, change_seq);
+
+CREATE TABLE vault_tombstones (
+    id          BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    owner_id    BIGINT      NOT NULL,
+    entity_type VARCHAR(16) NOT NULL,
+    entity_id   BIGINT      NOT NULL,
+    change_seq  BIGINT      NOT NULL,
+    deleted_at  TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX ix_vault_tombstones_owner_id_change_seq ON vault_tombstones (owner_id, change_seq);
+CREATE INDEX ix_vault_tombstones_deleted_at ON vault_tombstones (deleted_at);
+
+-- Highest tombstone version removed by compaction; clients whose cursor is older than this may
+-- have missed deletions and must resync from scratch.
+ALTER TABLE vault_versions ADD COLUMN compacted_seq BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,11 @@
+-- Transactional outbox for the change feed: one row per vault version bump, written in the same
+-- transaction as the change itself. Each instance relays new rows to its SSE subscribers, so rows
+-- are never claimed or deleted by the relay; a scheduled cleanup removes them after a short window.
+CREATE TABLE vault_outbox (
+    id         BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    owner_id   BIGINT       NOT NULL,
+    change_seq BIGINT       NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX ix_vault_outbox_created_at ON vault_outbox (created_at);
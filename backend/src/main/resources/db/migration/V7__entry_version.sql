@@ -0,0 +1,2 @@
+-- Optimistic locking for password entries (JPA @Version). Bulk native updates increment it too.
+ALTER TABLE password_entries ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
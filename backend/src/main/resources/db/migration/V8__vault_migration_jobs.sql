@@ -0,0 +1,21 @@
+-- Background migration of legacy plaintext passwords to vault encryption (POST /api/vault/migrate).
+-- A job walks the owner's entries in id order and records the last id of every committed chunk, so
+-- an interrupted job resumes after its checkpoint instead of starting over.
+CREATE TABLE vault_migration_jobs (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    owner_id       BIGINT       NOT NULL,
+    status         VARCHAR(16)  NOT NULL,
+    total_count    BIGINT       NOT NULL,
+    scanned_count  BIGINT       NOT NULL DEFAULT 0,
+    migrated_count BIGINT       NOT NULL DEFAULT 0,
+    last_entry_id  BIGINT       NOT NULL DEFAULT 0,
+    error          VARCHAR(500),
+    created_at     TIMESTAMP(6) NOT NULL,
+    updated_at     TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX ix_vault_migration_jobs_owner_id ON vault_migration_jobs (owner_id);
+
+-- At most one unfinished job per owner
+CREATE UNIQUE INDEX ux_vault_migration_jobs_owner_id_active ON vault_migration_jobs (owner_id)
+    WHERE status = 'RUNNING';
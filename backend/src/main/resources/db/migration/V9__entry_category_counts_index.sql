@@ -0,0 +1,4 @@
+-- Per-category entry counts (GET /api/categories?withCounts=true) group the owner's entries by
+-- category_id. With both columns in the index the aggregate is an index-only scan over the
+-- owner's slice instead of a visit to every entry row.
+CREATE INDEX ix_password_entries_owner_id_category_id ON password_entries (owner_id, category_id);
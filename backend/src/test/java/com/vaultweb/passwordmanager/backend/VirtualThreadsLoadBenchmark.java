@@ -0,0 +1,202 @@
+package com.vaultweb.passwordmanager.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Measures what serving requests on virtual threads ({@code spring.threads.virtual.enabled}) buys
+ * when requests wait on a slow upstream: many concurrent clients call {@code POST
+ * /api/passwords/check} while a local stand-in for the breach API answers after a fixed delay. The
+ * service is started twice, on platform and on virtual threads, with the same small Tomcat pool,
+ * and the throughput and latency percentiles of both runs are printed.
+ *
+ * <p>Not part of the regular build (the class name does not match the Surefire includes, and the
+ * service needs a database of your choosing). Run it with, e.g.:
+ *
+ * <pre>
+ * ./mvnw test -Dtest=VirtualThreadsLoadBenchmark \
+ *     -Dbenchmark.jdbcUrl=jdbc:postgresql://localhost:5432/postgres \
+ *     -Dbenchmark.username=postgres -Dbenchmark.password=secret \
+ *     -Dbenchmark.clients=200 -Dbenchmark.tomcatThreads=20 -DargLine=-XX:ActiveProcessorCount=1
+ * </pre>
+ *
+ * <p>With these settings on one CPU, a 1 s upstream gave about 18 req/s on platform threads and
+ * 76-92 req/s on virtual threads. {@code -Dbenchmark.upstreamDelay=PT0S} measures the CPU ceiling
+ * of the request path itself, 70-83 req/s in the same runs: on virtual threads the slow upstream no
+ * longer limits throughput.
+ */
+@EnabledIfSystemProperty(named = "benchmark.jdbcUrl", matches = ".+")
+class VirtualThreadsLoadBenchmark {
+
+  private static final String URL = System.getProperty("benchmark.jdbcUrl");
+  private static final String USERNAME = System.getProperty("benchmark.username", "postgres");
+  private static final String PASSWORD = System.getProperty("benchmark.password", "");
+  private static final int CLIENTS = Integer.getInteger("benchmark.clients", 200);
+  private static final int REQUESTS_PER_CLIENT = Integer.getInteger("benchmark.requests", 5);
+  private static final int TOMCAT_THREADS = Integer.getInteger("benchmark.tomcatThreads", 20);
+  private static final Duration UPSTREAM_DELAY =
+      Duration.parse(System.getProperty("benchmark.upstreamDelay", "PT1S"));
+
+  // Any 35 hex digits: the suffix of the checked password is not in the range, so it counts 0
+  private static final byte[] RANGE =
+      "0018A45C4D1DEF81644B54AB7F969B88D65:3\r\n".getBytes(StandardCharsets.US_ASCII);
+
+  private static HttpServer upstream;
+
+  /** Throughput and latency of one run. */
+  private record Result(double requestsPerSecond, long p50Millis, long p99Millis) {}
+
+  @BeforeAll
+  static void startUpstream() throws IOException {
+    upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    upstream.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    upstream.createContext(
+        "/range/",
+        exchange -> {
+          try {
+            Thread.sleep(UPSTREAM_DELAY);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          exchange.sendResponseHeaders(200, RANGE.length);
+          try (OutputStream body = exchange.getResponseBody()) {
+            body.write(RANGE);
+          }
+        });
+    upstream.start();
+  }
+
+  @AfterAll
+  static void stopUpstream() {
+    upstream.stop(0);
+  }
+
+  @Test
+  void virtualThreadsServeMoreConcurrentRequests() throws Exception {
+    Result platform = run(false);
+    Result virtual = run(true);
+
+    System.out.printf(
+        "%d clients x %d requests, upstream delay %s, %d Tomcat threads%n",
+        CLIENTS, REQUESTS_PER_CLIENT, UPSTREAM_DELAY, TOMCAT_THREADS);
+    print("platform threads", platform);
+    print("virtual threads", virtual);
+    assertTrue(
+        virtual.requestsPerSecond() > platform.requestsPerSecond(),
+        "virtual threads should not be limited by the Tomcat pool");
+  }
+
+  private static Result run(boolean virtualThreads) throws Exception {
+    try (ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(BackendApplication.class)
+            .run(
+                "--server.port=0",
+                "--spring.devtools.restart.enabled=false",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                "--server.tomcat.max-connections=" + (CLIENTS * 2),
+                "--server.tomcat.accept-count=" + CLIENTS,
+                "--vault.breach.baseUrl=http://localhost:"
+                    + upstream.getAddress().getPort()
+                    + "/range/",
+                "--spring.datasource.url=" + URL,
+                "--spring.datasource.username=" + USERNAME,
+                "--spring.datasource.password=" + PASSWORD)) {
+      int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+      String token = token(context.getEnvironment().getRequiredProperty("jwt.secret"));
+      HttpRequest request =
+          HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/passwords/check"))
+              .header("Authorization", "Bearer " + token)
+              .header("Content-Type", "application/json")
+              .POST(HttpRequest.BodyPublishers.ofString("{\"password\":\"correct horse\"}"))
+              .build();
+
+      try (HttpClient client =
+          HttpClient.newBuilder()
+              .version(HttpClient.Version.HTTP_1_1)
+              .executor(Executors.newVirtualThreadPerTaskExecutor())
+              .build()) {
+        // Warm up the request path (JIT, connection pools) before measuring
+        send(client, request);
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+          List<Future<?>> running = new ArrayList<>();
+          for (int c = 0; c < CLIENTS; c++) {
+            running.add(
+                clients.submit(
+                    () -> {
+                      for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        long sent = System.nanoTime();
+                        send(client, request);
+                        latencies.add((System.nanoTime() - sent) / 1_000_000);
+                      }
+                      return null;
+                    }));
+          }
+          for (Future<?> future : running) {
+            future.get();
+          }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(
+            sorted.size() / seconds, percentile(sorted, 0.50), percentile(sorted, 0.99));
+      }
+    }
+  }
+
+  private static void send(HttpClient client, HttpRequest request) throws Exception {
+    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    assertEquals(200, response.statusCode(), response.body());
+  }
+
+  private static String token(String secret) {
+    return Jwts.builder()
+        .setSubject("benchmark")
+        .claim("userId", 1L)
+        .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+        .signWith(Keys.hmacShaKeyFor(secret.getBytes()))
+        .compact();
+  }
+
+  private static long percentile(List<Long> sorted, double fraction) {
+    return sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * fraction)));
+  }
+
+  private static void print(String label, Result result) {
+    System.out.printf(
+        "%-17s %6.1f req/s  p50 %5d ms  p99 %5d ms%n",
+        label + ":", result.requestsPerSecond(), result.p50Millis(), result.p99Millis());
+  }
+}
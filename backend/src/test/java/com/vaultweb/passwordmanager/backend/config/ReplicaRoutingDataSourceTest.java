@@ -0,0 +1,79 @@
+package com.vaultweb.passwordmanager.backend.config;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.support.RecentWriteTracker;
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ReplicaRoutingDataSourceTest {
+
+  private final Connection primaryConnection = mock(Connection.class);
+  private final Connection replicaConnection = mock(Connection.class);
+  private DataSource replica;
+  private ReplicaLagMonitor lagMonitor;
+  private RecentWriteTracker recentWrites;
+  private ReplicaRoutingDataSource routing;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    DataSource primary = mock(DataSource.class);
+    replica = mock(DataSource.class);
+    lagMonitor = mock(ReplicaLagMonitor.class);
+    recentWrites = mock(RecentWriteTracker.class);
+    when(primary.getConnection()).thenReturn(primaryConnection);
+    when(primary.getConnection("admin", "secret")).thenReturn(primaryConnection);
+    when(replica.getConnection()).thenReturn(replicaConnection);
+    when(lagMonitor.isUsable()).thenReturn(true);
+    routing = new ReplicaRoutingDataSource(primary, replica, lagMonitor, recentWrites);
+  }
+
+  @AfterEach
+  void tearDown() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+  }
+
+  @Test
+  void readOnlyTransactionsUseTheReplicaAndOthersThePrimary() throws SQLException {
+    assertSame(primaryConnection, routing.getConnection());
+
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    assertSame(replicaConnection, routing.getConnection());
+  }
+
+  @Test
+  void recentWritersAndLaggingReplicasReadFromThePrimary() throws SQLException {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    when(recentWrites.currentUserWroteRecently()).thenReturn(true);
+    assertSame(primaryConnection, routing.getConnection());
+
+    when(recentWrites.currentUserWroteRecently()).thenReturn(false);
+    when(lagMonitor.isUsable()).thenReturn(false);
+    assertSame(primaryConnection, routing.getConnection());
+  }
+
+  @Test
+  void explicitCredentialsAlwaysUseThePrimary() throws SQLException {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertSame(primaryConnection, routing.getConnection("admin", "secret"));
+  }
+
+  @Test
+  void unreachableReplicaFallsBackToThePrimary() throws SQLException {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+
+    assertSame(primaryConnection, routing.getConnection());
+    verify(lagMonitor).markUnusable("connection refused");
+  }
+}
@@ -53,6 +53,17 @@ class DtoToStringSecrecyTest {
     assertFalse(result.contains(OTHER_SECRET));
   }
 
+  @Test
+  void passwordEntryPatchRequestDto_toStringDoesNotLeakPasswordOrMasterPassword() {
+    PasswordEntryPatchRequestDto dto = new PasswordEntryPatchRequestDto();
+    dto.setNotes("rotated");
+    dto.setPassword(SECRET);
+    dto.setMasterPassword(OTHER_SECRET);
+    String result = dto.toString();
+    assertFalse(result.contains(SECRET));
+    assertFalse(result.contains(OTHER_SECRET));
+  }
+
   @Test
   void vaultMigrateRequestDto_toStringDoesNotLeakMasterPassword() {
     VaultMigrateRequestDto dto = new VaultMigrateRequestDto();
@@ -0,0 +1,131 @@
+package com.vaultweb.passwordmanager.backend.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+/**
+ * Runs the Flyway migrations against a real Postgres and checks via {@code EXPLAIN} that the
+ * owner-scoped repository lookups are answered from an index rather than a sequential scan, and
+ * that on the hash-partitioned {@code password_entries} (V10) they touch a single partition.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class OwnerScopedIndexUsageTest {
+
+  @Container static final PostgreSQLContainer POSTGRES = new PostgreSQLContainer("postgres:16");
+
+  @BeforeAll
+  static void migrateAndSeed() throws SQLException {
+    Flyway.configure()
+        .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+        .load()
+        .migrate();
+
+    try (Connection connection = connect();
+        Statement statement = connection.createStatement()) {
+      // 2000 owners with 5 categories and 50 entries each: enough rows in each of the 16 entry
+      // partitions for the planner to prefer an index over a sequential scan when filtering by a
+      // single owner. Ids come from the sequences (V3); there are no column defaults.
+      statement.execute(
+          "INSERT INTO categories (id, owner_id, name) "
+              + "SELECT nextval('categories_seq'), o, 'Category ' || c "
+              + "FROM generate_series(1, 2000) o, generate_series(1, 5) c");
+      statement.execute(
+          "INSERT INTO password_entries (id, owner_id, category_id, name, username, password) "
+              + "SELECT nextval('password_entries_seq'), o, CASE WHEN e % 4 = 0 THEN "
+              + "(SELECT min(c.id) FROM categories c WHERE c.owner_id = o) END, 'Entry ' || e, "
+              + "'user' || e, 'secret' "
+              + "FROM generate_series(1, 2000) o, generate_series(1, 50) e");
+      statement.execute("ANALYZE");
+    }
+  }
+
+  @Test
+  void findAllByOwnerIdUsesIndex() throws SQLException {
+    assertIndexScan("SELECT * FROM password_entries WHERE owner_id = 42");
+    assertIndexScan("SELECT * FROM categories WHERE owner_id = 42");
+  }
+
+  @Test
+  void findByIdAndOwnerIdUsesIndex() throws SQLException {
+    assertIndexScan("SELECT * FROM password_entries WHERE id = 2051 AND owner_id = 42");
+    assertIndexScan("SELECT * FROM categories WHERE id = 206 AND owner_id = 42");
+  }
+
+  @Test
+  void categoryReferenceCheckUsesPartialIndex() throws SQLException {
+    assertIndexScan("SELECT 1 FROM password_entries WHERE category_id = 206");
+  }
+
+  @Test
+  void categoryCountsUseOwnerCategoryIndex() throws SQLException {
+    String query =
+        "SELECT category_id, count(*) FROM password_entries WHERE owner_id = 42 GROUP BY category_id";
+    assertIndexScan(query);
+    String plan = explain(query);
+    assertTrue(
+        plan.contains("owner_id_category_id"),
+        () -> "Expected the (owner_id, category_id) index for: " + query + "\n" + plan);
+  }
+
+  @Test
+  void ownerScopedStatementsArePrunedToOnePartition() throws SQLException {
+    for (String query :
+        List.of(
+            "SELECT * FROM password_entries WHERE owner_id = 42",
+            "SELECT * FROM password_entries WHERE id = 2051 AND owner_id = 42",
+            "SELECT * FROM password_entries WHERE owner_id = 42 AND change_seq > 7",
+            "SELECT * FROM password_entries WHERE owner_id = 42 AND id = any('{1,2}'::bigint[])",
+            "UPDATE password_entries SET notes = 'x' WHERE id = 2051 AND owner_id = 42 "
+                + "AND version = 0",
+            "DELETE FROM password_entries WHERE id = 2051 AND owner_id = 42 AND version = 0")) {
+      String plan = explain(query);
+      long partitions =
+          Pattern.compile("password_entries_p\\d+")
+              .matcher(plan)
+              .results()
+              .map(MatchResult::group)
+              .distinct()
+              .count();
+      assertEquals(1, partitions, () -> "Expected one partition for: " + query + "\n" + plan);
+    }
+  }
+
+  private static void assertIndexScan(String query) throws SQLException {
+    String plan = explain(query);
+    assertTrue(plan.contains("Index"), () -> "Expected an index scan for: " + query + "\n" + plan);
+    assertFalse(plan.contains("Seq Scan"), () -> "Unexpected seq scan for: " + query + "\n" + plan);
+  }
+
+  private static String explain(String query) throws SQLException {
+    StringBuilder plan = new StringBuilder();
+    try (Connection connection = connect();
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("EXPLAIN " + query)) {
+      while (rs.next()) {
+        plan.append(rs.getString(1)).append('\n');
+      }
+    }
+    return plan.toString();
+  }
+
+  private static Connection connect() throws SQLException {
+    return DriverManager.getConnection(
+        POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+  }
+}
@@ -0,0 +1,256 @@
+package com.vaultweb.passwordmanager.backend.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Compares the unpartitioned {@code password_entries} layout with the hash-partitioned one (V10) on
+ * a synthetic dataset: latency of the repository's query shapes, index sizes and the cost of
+ * vacuuming after churn. Both layouts live in a scratch schema that is dropped afterwards.
+ *
+ * <p>Not part of the regular build (the class name does not match the Surefire includes, and it
+ * needs a database of your choosing). Run it with, e.g.:
+ *
+ * <pre>
+ * ./mvnw test -Dtest=PartitionedEntriesBenchmark \
+ *     -Dbenchmark.jdbcUrl=jdbc:postgresql://localhost:5432/postgres \
+ *     -Dbenchmark.username=postgres -Dbenchmark.password=secret \
+ *     -Dbenchmark.rows=5000000 -Dbenchmark.owners=50000
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark.jdbcUrl", matches = ".+")
+class PartitionedEntriesBenchmark {
+
+  private static final String SCHEMA = "partition_benchmark";
+  private static final int PARTITIONS = 16;
+
+  private static final String URL = System.getProperty("benchmark.jdbcUrl");
+  private static final String USERNAME = System.getProperty("benchmark.username", "postgres");
+  private static final String PASSWORD = System.getProperty("benchmark.password", "");
+  private static final long ROWS = Long.getLong("benchmark.rows", 5_000_000);
+  private static final long OWNERS = Long.getLong("benchmark.owners", 50_000);
+  private static final int SAMPLES = Integer.getInteger("benchmark.samples", 2_000);
+
+  private static final String COLUMNS =
+      "id BIGINT NOT NULL, owner_id BIGINT NOT NULL, category_id BIGINT, "
+          + "name VARCHAR(100) NOT NULL, username VARCHAR(255) NOT NULL, password TEXT NOT NULL, "
+          + "url VARCHAR(255), notes VARCHAR(500), created_at TIMESTAMP(6), updated_at TIMESTAMP(6), "
+          + "change_seq BIGINT NOT NULL DEFAULT 0, version BIGINT NOT NULL DEFAULT 0";
+
+  /** A query issued by PasswordEntryRepository (or an entity update); {@code %s} is the table. */
+  private record Shape(String name, String sql, boolean byId) {}
+
+  private static final List<Shape> SHAPES =
+      List.of(
+          new Shape("findAllByOwnerId", "SELECT * FROM %s WHERE owner_id = ?", false),
+          new Shape("findByIdAndOwnerId", "SELECT * FROM %s WHERE id = ? AND owner_id = ?", true),
+          new Shape(
+              "changesSince",
+              "SELECT * FROM %s WHERE owner_id = ? AND change_seq > " + ROWS * 9 / 10,
+              false),
+          new Shape(
+              "countByCategory",
+              "SELECT category_id, count(*) FROM %s WHERE owner_id = ? GROUP BY category_id",
+              false),
+          new Shape(
+              "entityUpdate",
+              "UPDATE %s SET notes = 'updated', version = version + 1 WHERE id = ? AND owner_id = ?",
+              true));
+
+  @BeforeAll
+  static void load() throws SQLException {
+    try (Connection connection = connect();
+        Statement statement = connection.createStatement()) {
+      statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+      statement.execute("CREATE SCHEMA " + SCHEMA);
+      statement.execute("SET search_path TO " + SCHEMA);
+
+      statement.execute("CREATE TABLE flat (" + COLUMNS + ", PRIMARY KEY (id))");
+      statement.execute("CREATE INDEX ON flat (owner_id, id)");
+      statement.execute(
+          "CREATE TABLE hashed ("
+              + COLUMNS
+              + ", PRIMARY KEY (owner_id, id)) "
+              + "PARTITION BY HASH (owner_id)");
+      for (int i = 0; i < PARTITIONS; i++) {
+        statement.execute(
+            "CREATE TABLE hashed_p%d PARTITION OF hashed FOR VALUES WITH (MODULUS %d, REMAINDER %d)"
+                .formatted(i, PARTITIONS, i));
+      }
+      for (String table : List.of("flat", "hashed")) {
+        statement.execute("CREATE INDEX ON " + table + " (owner_id, change_seq)");
+        statement.execute("CREATE INDEX ON " + table + " (owner_id, category_id)");
+        statement.execute(
+            "CREATE INDEX ON " + table + " (category_id) WHERE category_id IS NOT NULL");
+      }
+
+      // Entry g belongs to owner g % OWNERS + 1; a quarter are categorized. Ciphertext-sized
+      // passwords so rows have a realistic width.
+      long started = System.nanoTime();
+      statement.execute(
+          ("INSERT INTO flat SELECT g, g %% %d + 1, CASE WHEN g %% 4 = 0 THEN g %% 5 END, "
+                  + "'Entry ' || g, 'user' || g, 'v1:' || md5(g::text) || md5((g + 1)::text) "
+                  + "|| md5((g + 2)::text), 'https://example.com/' || g, NULL, now(), now(), g, 0 "
+                  + "FROM generate_series(1, %d) g")
+              .formatted(OWNERS, ROWS));
+      statement.execute("INSERT INTO hashed SELECT * FROM flat");
+      statement.execute("VACUUM ANALYZE flat");
+      statement.execute("VACUUM ANALYZE hashed");
+      System.out.printf(
+          "Loaded %,d entries for %,d owners into both layouts in %.1fs%n",
+          ROWS, OWNERS, (System.nanoTime() - started) / 1e9);
+    }
+  }
+
+  @AfterAll
+  static void dropSchema() throws SQLException {
+    try (Connection connection = connect();
+        Statement statement = connection.createStatement()) {
+      statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+    }
+  }
+
+  @Test
+  void everyQueryShapeIsPrunedToOnePartition() throws SQLException {
+    try (Connection connection = connect();
+        Statement statement = connection.createStatement()) {
+      statement.execute("SET search_path TO " + SCHEMA);
+      for (Shape shape : SHAPES) {
+        String sql = shape.sql().formatted("hashed").replace("?", "42");
+        List<String> partitions = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+          Pattern partition = Pattern.compile("hashed_p\\d+");
+          while (rs.next()) {
+            Matcher matcher = partition.matcher(rs.getString(1));
+            while (matcher.find()) {
+              if (!partitions.contains(matcher.group())) {
+                partitions.add(matcher.group());
+              }
+            }
+          }
+        }
+        assertEquals(1, partitions.size(), () -> shape.name() + " scans " + partitions);
+      }
+    }
+  }
+
+  @Test
+  void compareLayouts() throws SQLException {
+    System.out.printf(
+        "%n%-20s %14s %14s %14s %14s%n",
+        "query (us)", "flat p50", "hashed p50", "flat p95", "hashed p95");
+    for (Shape shape : SHAPES) {
+      long[] flat = sample(shape, "flat");
+      long[] hashed = sample(shape, "hashed");
+      System.out.printf(
+          "%-20s %14d %14d %14d %14d%n",
+          shape.name(),
+          percentile(flat, 50),
+          percentile(hashed, 50),
+          percentile(flat, 95),
+          percentile(hashed, 95));
+    }
+
+    try (Connection connection = connect();
+        Statement statement = connection.createStatement()) {
+      statement.execute("SET search_path TO " + SCHEMA);
+      System.out.printf(
+          "%nindexes: flat %s total, largest %s; hashed %s total, largest %s%n",
+          scalar(statement, "SELECT pg_size_pretty(pg_indexes_size('flat'))"),
+          scalar(statement, largestIndex("flat")),
+          scalar(
+              statement,
+              "SELECT pg_size_pretty(sum(pg_indexes_size(inhrelid))) FROM pg_inherits "
+                  + "WHERE inhparent = 'hashed'::regclass"),
+          scalar(statement, largestIndex("hashed_p%")));
+
+      // Churn 10% of the rows, then compare a vacuum of the whole table with one of the
+      // partitions (what autovacuum actually has to process at a time when partitioned).
+      statement.execute("UPDATE flat SET version = version + 1 WHERE id % 10 = 0");
+      statement.execute("UPDATE hashed SET version = version + 1 WHERE id % 10 = 0");
+      double flat = timed(statement, "VACUUM flat");
+      double onePartition = timed(statement, "VACUUM hashed_p0");
+      double allPartitions = onePartition + timed(statement, "VACUUM hashed");
+      System.out.printf(
+          "vacuum after 10%% churn: flat %.2fs, hashed %.2fs (one partition %.2fs)%n",
+          flat, allPartitions, onePartition);
+    }
+  }
+
+  /** Runs the query {@link #SAMPLES} times for random owners and returns the latencies in µs. */
+  private static long[] sample(Shape shape, String table) throws SQLException {
+    SplittableRandom random = new SplittableRandom(42);
+    long[] micros = new long[SAMPLES];
+    try (Connection connection = connect()) {
+      connection.createStatement().execute("SET search_path TO " + SCHEMA);
+      try (PreparedStatement statement =
+          connection.prepareStatement(shape.sql().formatted(table))) {
+        for (int i = -SAMPLES / 10; i < SAMPLES; i++) { // the first 10% only warm up
+          long owner = random.nextLong(OWNERS) + 1;
+          if (shape.byId()) {
+            // Entry ids of an owner are owner - 1 + k * OWNERS (k >= 1 keeps it above zero).
+            long id = owner - 1 + OWNERS * (1 + random.nextLong(Math.max(1, ROWS / OWNERS - 1)));
+            statement.setLong(1, id);
+            statement.setLong(2, owner);
+          } else {
+            statement.setLong(1, owner);
+          }
+          long started = System.nanoTime();
+          statement.execute();
+          if (i >= 0) {
+            micros[i] = (System.nanoTime() - started) / 1_000;
+          }
+        }
+      }
+    }
+    Arrays.sort(micros);
+    return micros;
+  }
+
+  private static long percentile(long[] sorted, int percentile) {
+    return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+  }
+
+  private static String largestIndex(String tablePattern) {
+    return "SELECT pg_size_pretty(max(pg_relation_size(indexrelid))) FROM pg_index i "
+        + "JOIN pg_class c ON c.oid = i.indrelid JOIN pg_namespace n ON n.oid = c.relnamespace "
+        + "WHERE n.nspname = '"
+        + SCHEMA
+        + "' AND c.relname LIKE '"
+        + tablePattern
+        + "'";
+  }
+
+  private static String scalar(Statement statement, String sql) throws SQLException {
+    try (ResultSet rs = statement.executeQuery(sql)) {
+      rs.next();
+      return rs.getString(1);
+    }
+  }
+
+  private static double timed(Statement statement, String sql) throws SQLException {
+    long started = System.nanoTime();
+    statement.execute(sql);
+    return (System.nanoTime() - started) / 1e9;
+  }
+
+  private static Connection connect() throws SQLException {
+    return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+  }
+}
@@ -0,0 +1,152 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.exceptions.QuotaExceededException;
+import com.vaultweb.passwordmanager.backend.model.EntryAttachment;
+import com.vaultweb.passwordmanager.backend.model.dtos.AttachmentDto;
+import com.vaultweb.passwordmanager.backend.repositories.EntryAttachmentRepository;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.util.unit.DataSize;
+
+class AttachmentServiceTest {
+
+  private static final Long OWNER = 7L;
+  private static final Long ENTRY = 3L;
+
+  @TempDir Path dir;
+
+  private EntryAttachmentRepository repository;
+  private VaultAuditLog auditLog;
+  private AttachmentService service;
+  private final byte[] dek = new byte[32];
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(EntryAttachmentRepository.class);
+    PasswordEntryRepository entryRepository = mock(PasswordEntryRepository.class);
+    VaultService vaultService = mock(VaultService.class);
+    VaultSessionService vaultSessionService = mock(VaultSessionService.class);
+    auditLog = mock(VaultAuditLog.class);
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+    when(vaultService.isInitialized(OWNER)).thenReturn(true);
+    when(vaultSessionService.requireDek(OWNER, "token")).thenReturn(dek);
+    when(entryRepository.findOwnedIds(eq(OWNER), any())).thenReturn(List.of(ENTRY));
+    when(repository.save(any(EntryAttachment.class)))
+        .thenAnswer(
+            inv -> {
+              EntryAttachment attachment = inv.getArgument(0);
+              attachment.setId(11L);
+              return attachment;
+            });
+
+    service =
+        new AttachmentService(
+            repository,
+            entryRepository,
+            new AttachmentStore(repository, dir, Duration.ofHours(1)),
+            vaultService,
+            vaultSessionService,
+            new VaultCryptoService(1000),
+            mock(VaultVersionService.class),
+            auditLog,
+            transactionManager,
+            DataSize.ofKilobytes(200),
+            DataSize.ofKilobytes(300));
+  }
+
+  private static byte[] random(int size) {
+    byte[] data = new byte[size];
+    new Random(size).nextBytes(data);
+    return data;
+  }
+
+  private List<Path> storedFiles() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files.filter(Files::isRegularFile).toList();
+    }
+  }
+
+  @Test
+  void uploadedFileIsStoredEncryptedAndDownloadsToTheOriginal() throws IOException {
+    byte[] content = random(150_000);
+
+    AttachmentDto dto =
+        service.upload(
+            OWNER, ENTRY, "id_ed25519", null, new ByteArrayInputStream(content), "token");
+
+    assertEquals(150_000, dto.getSize());
+    assertEquals("application/octet-stream", dto.getContentType());
+    List<Path> files = storedFiles();
+    assertEquals(1, files.size());
+    byte[] stored = Files.readAllBytes(files.get(0));
+    assertTrue(stored.length > content.length);
+
+    ArgumentCaptor<EntryAttachment> captor = ArgumentCaptor.forClass(EntryAttachment.class);
+    verify(repository).save(captor.capture());
+    EntryAttachment saved = captor.getValue();
+    assertTrue(saved.getName().startsWith(VaultCryptoService.PASSWORD_PREFIX));
+    when(repository.findByIdAndOwnerIdAndEntryId(11L, OWNER, ENTRY)).thenReturn(Optional.of(saved));
+
+    AttachmentService.Download download = service.download(OWNER, ENTRY, 11L, "token");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    download.content().writeTo(out);
+
+    assertEquals("id_ed25519", download.name());
+    assertArrayEquals(content, out.toByteArray());
+    verify(auditLog)
+        .record(OWNER, VaultAuditLog.EventType.ATTACHMENT_DOWNLOAD, ENTRY, "attachment 11");
+  }
+
+  @Test
+  void fileLargerThanTheMaximumIsRejectedAndNothingIsKept() throws IOException {
+    assertThrows(
+        QuotaExceededException.class,
+        () ->
+            service.upload(
+                OWNER, ENTRY, "big.bin", null, new ByteArrayInputStream(random(250_000)), "token"));
+
+    assertTrue(storedFiles().isEmpty());
+    verify(repository, never()).save(any());
+  }
+
+  @Test
+  void uploadBeyondTheRemainingQuotaIsRejected() throws IOException {
+    when(repository.totalSize(OWNER)).thenReturn(250L * 1024);
+
+    assertThrows(
+        QuotaExceededException.class,
+        () ->
+            service.upload(
+                OWNER, ENTRY, "a.txt", null, new ByteArrayInputStream(random(60_000)), "token"));
+
+    assertTrue(storedFiles().isEmpty());
+  }
+}
@@ -0,0 +1,80 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.exceptions.PasswordBreachCheckException;
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+class BreachCheckQueueTest {
+
+  private BreachedPasswordService breachedPasswordService;
+  private PasswordEntryRepository repository;
+  private VaultVersionService vaultVersionService;
+  private BreachCheckQueue queue;
+
+  @BeforeEach
+  void setUp() {
+    breachedPasswordService = mock(BreachedPasswordService.class);
+    repository = mock(PasswordEntryRepository.class);
+    vaultVersionService = mock(VaultVersionService.class);
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+    queue =
+        new BreachCheckQueue(
+            breachedPasswordService, repository, vaultVersionService, transactionManager, 10, 10);
+  }
+
+  private static PasswordEntry entry(Long id, Long ownerId, long version) {
+    PasswordEntry e = new PasswordEntry();
+    e.setId(id);
+    e.setOwnerId(ownerId);
+    e.setVersion(version);
+    return e;
+  }
+
+  @Test
+  void reusedPasswordIsLookedUpOnceAndOwnersAreLockedInOrder() {
+    String hash = BreachedPasswordService.sha1Hex("hunter2");
+    when(breachedPasswordService.countBreaches(hash)).thenReturn(17);
+    queue.enqueue(entry(1L, 9L, 2), "hunter2");
+    queue.enqueue(entry(2L, 3L, 0), "hunter2");
+
+    queue.flush();
+
+    verify(breachedPasswordService, times(1)).countBreaches(hash);
+    InOrder order = inOrder(vaultVersionService, repository);
+    order.verify(vaultVersionService).lock(3L);
+    order.verify(repository).recordBreachCount(2L, 3L, 0, 17);
+    order.verify(vaultVersionService).lock(9L);
+    order.verify(repository).recordBreachCount(1L, 9L, 2, 17);
+    assertEquals(0, queue.pendingCount());
+  }
+
+  @Test
+  void failedCheckLeavesTheEntryUnchecked() {
+    when(breachedPasswordService.countBreaches(any()))
+        .thenThrow(new PasswordBreachCheckException("down"));
+    queue.enqueue(entry(1L, 9L, 0), "hunter2");
+
+    queue.flush();
+
+    verify(repository, never()).recordBreachCount(any(), any(), anyLong(), anyInt());
+    verify(vaultVersionService, never()).lock(eq(9L));
+  }
+}
@@ -0,0 +1,64 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.model.Category;
+import com.vaultweb.passwordmanager.backend.model.dtos.CategoryCountsResponseDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.CategoryDto;
+import com.vaultweb.passwordmanager.backend.repositories.CategoryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository.CategoryEntryCount;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CategoryServiceTest {
+
+  private static final Long OWNER = 7L;
+
+  @Test
+  void getAllWithCountsMergesTheAggregateIntoTheCategories() {
+    PasswordEntryRepository entries = mock(PasswordEntryRepository.class);
+    CategoryRepository categories = mock(CategoryRepository.class);
+    CategoryService service =
+        new CategoryService(
+            categories,
+            entries,
+            mock(VaultVersionService.class),
+            mock(VaultSyncService.class),
+            mock(OwnerMetadataCache.class));
+
+    when(categories.findAllByOwnerId(OWNER))
+        .thenReturn(List.of(category(1L, "Work"), category(2L, "Empty")));
+    when(entries.countByCategory(OWNER)).thenReturn(List.of(count(1L, 3), count(null, 5)));
+
+    CategoryCountsResponseDto result = service.getAllWithCounts(OWNER);
+
+    assertEquals(
+        List.of(3L, 0L), result.getCategories().stream().map(CategoryDto::getEntryCount).toList());
+    assertEquals(5, result.getUncategorizedCount());
+  }
+
+  private static Category category(Long id, String name) {
+    Category category = new Category();
+    category.setId(id);
+    category.setName(name);
+    category.setOwnerId(OWNER);
+    return category;
+  }
+
+  private static CategoryEntryCount count(Long categoryId, long entryCount) {
+    return new CategoryEntryCount() {
+      @Override
+      public Long getCategoryId() {
+        return categoryId;
+      }
+
+      @Override
+      public long getEntryCount() {
+        return entryCount;
+      }
+    };
+  }
+}
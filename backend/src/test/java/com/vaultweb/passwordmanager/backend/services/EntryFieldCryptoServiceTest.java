@@ -0,0 +1,130 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class EntryFieldCryptoServiceTest {
+
+  private static final Long OWNER = 7L;
+
+  private final VaultCryptoService crypto = new VaultCryptoService(1000);
+  private final UrlDomainService urlDomainService = new UrlDomainService();
+  private final EntryFieldCryptoService service =
+      new EntryFieldCryptoService(crypto, urlDomainService);
+
+  private static byte[] dek(int fill) {
+    byte[] dek = new byte[32];
+    Arrays.fill(dek, (byte) fill);
+    return dek;
+  }
+
+  private PasswordEntry entry() {
+    PasswordEntry entry = new PasswordEntry();
+    entry.setOwnerId(OWNER);
+    entry.setName("GitHub");
+    entry.setUsername("Octocat");
+    entry.setUrl("https://Login.GitHub.com/session");
+    entry.setNotes("recovery codes in the safe");
+    urlDomainService.apply(entry);
+    return entry;
+  }
+
+  @Test
+  void sealedFieldsOpenToThePlaintextAndKeepTheirIndexes() {
+    byte[] dek = dek(1);
+    PasswordEntry entry = entry();
+
+    service.seal(entry, dek);
+
+    assertEquals("GitHub", entry.getName());
+    assertTrue(crypto.isVaultEncryptedPassword(entry.getUsername()));
+    assertTrue(crypto.isVaultEncryptedPassword(entry.getUrl()));
+    assertTrue(crypto.isVaultEncryptedPassword(entry.getNotes()));
+    assertNull(entry.getUrlHost());
+    assertNull(entry.getUrlDomain());
+    assertEquals(service.hostIndex(dek, "login.github.com"), entry.getUrlHostBlindIndex());
+    assertEquals(service.domainIndex(dek, "github.com"), entry.getUrlDomainBlindIndex());
+    assertFalse(service.needsSealing(entry));
+
+    PasswordEntryDto opened = service.open(new PasswordEntryDto(entry), OWNER, dek);
+    assertEquals("Octocat", opened.getUsername());
+    assertEquals("https://Login.GitHub.com/session", opened.getUrl());
+    assertEquals("recovery codes in the safe", opened.getNotes());
+
+    PasswordEntryDto locked = service.open(new PasswordEntryDto(entry), OWNER, null);
+    assertEquals("GitHub", locked.getName());
+    assertNull(locked.getUsername());
+    assertNull(locked.getUrl());
+  }
+
+  @Test
+  void sealingStoredFieldsDoesNotEncryptAgain() {
+    byte[] dek = dek(1);
+    PasswordEntry entry = entry();
+    service.seal(entry, dek);
+    String username = entry.getUsername();
+    Integer domainIndex = entry.getUrlDomainBlindIndex();
+    entry.setTotpSecret("JBSWY3DPEHPK3PXP");
+    assertTrue(service.needsSealing(entry));
+
+    service.sealStored(entry, dek);
+
+    assertEquals(username, entry.getUsername());
+    assertEquals(domainIndex, entry.getUrlDomainBlindIndex());
+    assertTrue(crypto.isVaultEncryptedPassword(entry.getTotpSecret()));
+    assertFalse(service.needsSealing(entry));
+  }
+
+  @Test
+  void inputThatLooksEncryptedIsStillEncrypted() {
+    byte[] dek = dek(1);
+    PasswordEntry entry = entry();
+    entry.setNotes("v1:not a ciphertext");
+
+    service.seal(entry, dek);
+
+    assertNotEquals("v1:not a ciphertext", entry.getNotes());
+    assertEquals(
+        "v1:not a ciphertext", service.open(new PasswordEntryDto(entry), OWNER, dek).getNotes());
+  }
+
+  @Test
+  void inputThatLooksEncryptedIsRejectedWithoutVault() {
+    PasswordEntry entry = entry();
+    entry.setNotes("v1:not a ciphertext");
+
+    assertThrows(IllegalArgumentException.class, () -> service.seal(entry, null));
+  }
+
+  @Test
+  void usernameIndexIgnoresCaseAndWhitespaceAndDependsOnTheKey() {
+    assertEquals(
+        service.usernameIndex(dek(1), " OCTOCAT "), service.usernameIndex(dek(1), "octocat"));
+    assertNotEquals(
+        service.usernameIndex(dek(1), "octocat"), service.usernameIndex(dek(2), "octocat"));
+    assertNotEquals(
+        service.usernameIndex(dek(1), "github.com"), service.domainIndex(dek(1), "github.com"));
+  }
+
+  @Test
+  void withoutVaultNothingIsEncrypted() {
+    PasswordEntry entry = entry();
+
+    service.seal(entry, null);
+
+    assertEquals("Octocat", entry.getUsername());
+    assertEquals("github.com", entry.getUrlDomain());
+    assertNull(entry.getUsernameBlindIndex());
+    assertTrue(service.needsSealing(entry));
+    assertNull(service.usernameIndex(null, "octocat"));
+  }
+}
@@ -0,0 +1,131 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+class EntryUsageServiceTest {
+
+  private static final Long OWNER = 7L;
+
+  private JdbcTemplate jdbcTemplate;
+  private EntryUsageService service;
+
+  /** The element arrays bound by each upsert: owner ids, entry ids, counts, timestamps. */
+  private List<List<Object[]>> upserts;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    jdbcTemplate = mock(JdbcTemplate.class);
+    service = new EntryUsageService(jdbcTemplate, 3, 2);
+    upserts = new ArrayList<>();
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    Connection connection = mock(Connection.class);
+    when(ps.getConnection()).thenReturn(connection);
+    List<Object[]> bound = new ArrayList<>();
+    when(connection.createArrayOf(anyString(), any()))
+        .thenAnswer(
+            inv -> {
+              bound.add(inv.getArgument(1));
+              return mock(Array.class);
+            });
+    when(jdbcTemplate.update(eq(EntryUsageService.UPSERT), any(PreparedStatementSetter.class)))
+        .thenAnswer(
+            inv -> {
+              bound.clear();
+              inv.getArgument(1, PreparedStatementSetter.class).setValues(ps);
+              upserts.add(List.copyOf(bound));
+              return 1;
+            });
+  }
+
+  @Test
+  void usesAreSummedPerEntryAndWrittenInBatches() {
+    service.record(OWNER, 1L);
+    service.record(OWNER, 1L);
+    service.record(OWNER, 2L);
+    service.record(8L, 1L);
+
+    service.flush();
+
+    assertEquals(2, upserts.size());
+    List<String> rows = new ArrayList<>();
+    for (List<Object[]> upsert : upserts) {
+      for (int i = 0; i < upsert.get(0).length; i++) {
+        rows.add(upsert.get(0)[i] + "/" + upsert.get(1)[i] + "=" + upsert.get(2)[i]);
+      }
+    }
+    rows.sort(null);
+    assertEquals(List.of("7/1=2", "7/2=1", "8/1=1"), rows);
+  }
+
+  @Test
+  void flushWritesOnlyUsesSinceThePreviousFlush() {
+    service.record(OWNER, 1L);
+    service.flush();
+    service.flush();
+    service.record(OWNER, 1L);
+    service.flush();
+
+    assertEquals(2, upserts.size());
+    assertArrayEquals(new Long[] {1L}, upserts.get(1).get(2));
+  }
+
+  @Test
+  void idleCountersAreReleasedSoNewEntriesCanBeTracked() {
+    service.record(OWNER, 1L);
+    service.record(OWNER, 2L);
+    service.record(OWNER, 3L);
+    service.record(OWNER, 4L); // over maxTracked, not counted
+    service.flush();
+    service.flush(); // all idle: released
+
+    service.record(OWNER, 4L);
+    service.flush();
+
+    assertArrayEquals(new Long[] {4L}, upserts.get(upserts.size() - 1).get(1));
+  }
+
+  @Test
+  void lateUseOfARetiredCounterIsMergedWithTheNewCounter() {
+    service.record(OWNER, 1L);
+    service.flush();
+    EntryUsageService.Counter held =
+        service.counters.get(new EntryUsageService.EntryKey(OWNER, 1L));
+    service.flush(); // idle: retired
+
+    // A record() that fetched the counter before it was retired, and one after
+    held.count.increment();
+    held.lastUsed.accumulate(System.currentTimeMillis());
+    service.record(OWNER, 1L);
+    service.flush();
+
+    assertEquals(2, upserts.size());
+    assertArrayEquals(new Long[] {1L}, upserts.get(1).get(1));
+    assertArrayEquals(new Long[] {2L}, upserts.get(1).get(2));
+  }
+
+  @Test
+  void nothingIsWrittenWithoutUses() {
+    service.flush();
+
+    verify(jdbcTemplate, never()).update(anyString(), any(PreparedStatementSetter.class));
+  }
+}
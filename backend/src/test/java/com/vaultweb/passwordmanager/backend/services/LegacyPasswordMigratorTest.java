@@ -0,0 +1,64 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+class LegacyPasswordMigratorTest {
+
+  private PasswordEntryRepository repository;
+  private PlatformTransactionManager transactionManager;
+  private LegacyPasswordMigrator migrator;
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(PasswordEntryRepository.class);
+    transactionManager = mock(PlatformTransactionManager.class);
+    when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+    migrator =
+        new LegacyPasswordMigrator(
+            repository, mock(VaultVersionService.class), transactionManager, 2, 10);
+  }
+
+  private static PasswordEntry entry(Long id, long version) {
+    PasswordEntry e = new PasswordEntry();
+    e.setId(id);
+    e.setOwnerId(7L);
+    e.setVersion(version);
+    return e;
+  }
+
+  @Test
+  void repeatedRevealsOfOneEntryCoalesce() {
+    migrator.enqueue(entry(1L, 4), "vault:a", "fp");
+    migrator.enqueue(entry(1L, 4), "vault:b", "fp");
+    assertEquals(1, migrator.pendingCount());
+
+    migrator.flush();
+
+    verify(repository).migratePassword(1L, 7L, 4, "vault:b", "fp");
+    assertEquals(0, migrator.pendingCount());
+  }
+
+  @Test
+  void queueIsBounded() {
+    migrator.enqueue(entry(1L, 0), "vault:1", "fp1");
+    migrator.enqueue(entry(2L, 0), "vault:2", "fp2");
+    migrator.enqueue(entry(3L, 0), "vault:3", "fp3");
+    assertEquals(2, migrator.pendingCount());
+
+    migrator.flush();
+
+    verify(repository, never()).migratePassword(3L, 7L, 0, "vault:3", "fp3");
+  }
+}
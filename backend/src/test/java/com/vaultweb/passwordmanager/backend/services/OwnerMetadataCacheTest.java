@@ -0,0 +1,80 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.model.Category;
+import com.vaultweb.passwordmanager.backend.model.Vault;
+import com.vaultweb.passwordmanager.backend.repositories.CategoryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.VaultRepository;
+import com.vaultweb.passwordmanager.backend.support.RecentWriteTracker;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+class OwnerMetadataCacheTest {
+
+  private static final Long OWNER = 7L;
+
+  private final VaultRepository vaultRepository = mock(VaultRepository.class);
+  private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+  private final RecentWriteTracker recentWrites = mock(RecentWriteTracker.class);
+  private final OwnerMetadataCache cache =
+      new OwnerMetadataCache(
+          new ConcurrentMapCacheManager(OwnerMetadataCache.VAULTS, OwnerMetadataCache.CATEGORIES),
+          vaultRepository,
+          categoryRepository,
+          recentWrites);
+
+  @Test
+  void absentVaultIsNotCached() {
+    Vault vault = new Vault();
+    when(vaultRepository.findByOwnerId(OWNER))
+        .thenReturn(Optional.empty())
+        .thenReturn(Optional.of(vault));
+
+    assertFalse(cache.findVault(OWNER).isPresent());
+    assertSame(vault, cache.findVault(OWNER).orElseThrow());
+    assertSame(vault, cache.findVault(OWNER).orElseThrow());
+
+    verify(vaultRepository, times(2)).findByOwnerId(OWNER);
+  }
+
+  @Test
+  void staleEvictionDoesNotRecordAWrite() {
+    when(vaultRepository.findByOwnerId(OWNER)).thenReturn(Optional.of(new Vault()));
+    assertTrue(cache.findVault(OWNER).isPresent());
+
+    cache.evictStaleVault(OWNER);
+    assertTrue(cache.findVault(OWNER).isPresent());
+
+    verify(vaultRepository, times(2)).findByOwnerId(OWNER);
+    verify(recentWrites, never()).markWritten(OWNER);
+  }
+
+  @Test
+  void categoryMissingFromTheCachedListIsCheckedInTheRepository() {
+    Category created = new Category();
+    created.setId(5L);
+    created.setOwnerId(OWNER);
+    when(categoryRepository.findAllByOwnerId(OWNER))
+        .thenReturn(List.of())
+        .thenReturn(List.of(created));
+    when(categoryRepository.findByIdAndOwnerId(5L, OWNER)).thenReturn(Optional.of(created));
+
+    assertTrue(cache.ownsCategory(OWNER, 5L));
+    assertFalse(cache.ownsCategory(OWNER, 6L));
+    assertTrue(cache.ownsCategory(OWNER, 5L));
+
+    // The stale list was dropped, so the second lookup of 5 is answered by the reloaded list
+    verify(categoryRepository, times(2)).findAllByOwnerId(OWNER);
+    verify(categoryRepository, times(1)).findByIdAndOwnerId(5L, OWNER);
+  }
+}
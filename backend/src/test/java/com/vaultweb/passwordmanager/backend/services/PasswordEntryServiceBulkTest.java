@@ -0,0 +1,362 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.model.Category;
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryBulkResponseDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryBulkResponseDto.Status;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordReuseReportDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordRevealBulkResponseDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordRevealResponseDto;
+import com.vaultweb.passwordmanager.backend.repositories.CategoryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class PasswordEntryServiceBulkTest {
+
+  private static final Long OWNER = 7L;
+
+  private PasswordEntryRepository repository;
+  private CategoryRepository categoryRepository;
+  private VaultService vaultService;
+  private VaultSessionService vaultSessionService;
+  private OwnerMetadataCache metadataCache;
+  private VaultAuditLog auditLog;
+  private EntryUsageService entryUsage;
+  private AttachmentService attachmentService;
+  private PasswordEntryService service;
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(PasswordEntryRepository.class);
+    categoryRepository = mock(CategoryRepository.class);
+    vaultService = mock(VaultService.class);
+    vaultSessionService = mock(VaultSessionService.class);
+    metadataCache = mock(OwnerMetadataCache.class);
+    auditLog = mock(VaultAuditLog.class);
+    entryUsage = mock(EntryUsageService.class);
+    attachmentService = mock(AttachmentService.class);
+    service =
+        new PasswordEntryService(
+            repository,
+            categoryRepository,
+            vaultService,
+            vaultSessionService,
+            mock(VaultVersionService.class),
+            mock(VaultSyncService.class),
+            mock(VaultHealthService.class),
+            new UrlDomainService(),
+            new EntryFieldCryptoService(new VaultCryptoService(1000), new UrlDomainService()),
+            metadataCache,
+            auditLog,
+            entryUsage,
+            attachmentService);
+
+    // Legacy mode: no vault, so storage encryption is a passthrough.
+    when(vaultService.encryptPasswordForStorage(eq(OWNER), isNull(), anyString()))
+        .thenAnswer(inv -> inv.getArgument(2));
+  }
+
+  private static PasswordEntryDto dto(String name, Long categoryId) {
+    PasswordEntryDto dto = new PasswordEntryDto();
+    dto.setName(name);
+    dto.setUsername("user");
+    dto.setPassword("pw");
+    dto.setCategoryId(categoryId);
+    return dto;
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void createAllSavesValidEntriesOnceAndReportsUnknownCategories() {
+    Category work = new Category();
+    work.setId(3L);
+    work.setOwnerId(OWNER);
+    when(metadataCache.ownsCategory(OWNER, 3L)).thenReturn(true);
+    when(categoryRepository.getReferenceById(3L)).thenReturn(work);
+    when(repository.saveAll(any()))
+        .thenAnswer(
+            inv -> {
+              List<PasswordEntry> entries = inv.getArgument(0);
+              long id = 100;
+              for (PasswordEntry entry : entries) {
+                entry.setId(id++);
+              }
+              return entries;
+            });
+
+    PasswordEntryBulkResponseDto result =
+        service.createAll(List.of(dto("a", null), dto("b", 99L), dto("c", 3L)), OWNER, null, null);
+
+    assertEquals(2, result.getSucceeded());
+    assertEquals(1, result.getFailed());
+    assertEquals(Status.CREATED, result.getResults().get(0).getStatus());
+    assertEquals(100L, result.getResults().get(0).getId());
+    assertEquals(Status.CATEGORY_NOT_FOUND, result.getResults().get(1).getStatus());
+    assertEquals(Status.CREATED, result.getResults().get(2).getStatus());
+    assertEquals(101L, result.getResults().get(2).getId());
+
+    ArgumentCaptor<List<PasswordEntry>> saved = ArgumentCaptor.forClass(List.class);
+    verify(repository).saveAll(saved.capture());
+    assertEquals(2, saved.getValue().size());
+    assertEquals(work, saved.getValue().get(1).getCategory());
+  }
+
+  @Test
+  void deleteAllOnlyDeletesOwnedIdsAndReportsTheRest() {
+    when(repository.findOwnedIds(eq(OWNER), any())).thenReturn(List.of(1L, 3L));
+
+    PasswordEntryBulkResponseDto result = service.deleteAll(List.of(1L, 2L, 3L, 1L), OWNER);
+
+    ArgumentCaptor<Long[]> ids = ArgumentCaptor.forClass(Long[].class);
+    verify(repository).deleteOwned(eq(OWNER), ids.capture());
+    assertArrayEquals(new Long[] {1L, 3L}, ids.getValue());
+    verify(attachmentService).deleteForEntries(OWNER, List.of(1L, 3L));
+    assertEquals(3, result.getSucceeded());
+    assertEquals(Status.NOT_FOUND, result.getResults().get(1).getStatus());
+    assertEquals(Status.DELETED, result.getResults().get(3).getStatus());
+  }
+
+  @Test
+  void patchAllWithoutFieldsDoesNotIssueUpdate() {
+    when(repository.findOwnedIds(eq(OWNER), any())).thenReturn(List.of(1L));
+
+    service.patchAll(List.of(1L), OWNER, null, null, null, null);
+
+    verify(repository, never())
+        .patchOwned(
+            any(),
+            anyBoolean(),
+            anyBoolean(),
+            anyBoolean(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            anyLong());
+    verifyNoInteractions(vaultSessionService);
+  }
+
+  @Test
+  void patchAllClearsEmptyFieldsAndLeavesNullOnesAlone() {
+    when(repository.findOwnedIds(eq(OWNER), any())).thenReturn(List.of(1L));
+    ArgumentCaptor<String[]> urls = ArgumentCaptor.forClass(String[].class);
+    ArgumentCaptor<String[]> notes = ArgumentCaptor.forClass(String[].class);
+
+    service.patchAll(List.of(1L), OWNER, null, "", "", null);
+
+    verify(repository)
+        .patchOwned(
+            eq(OWNER),
+            eq(false),
+            eq(true),
+            eq(true),
+            any(),
+            any(),
+            any(),
+            urls.capture(),
+            any(),
+            any(),
+            any(),
+            any(),
+            notes.capture(),
+            any(),
+            anyLong());
+    assertArrayEquals(new String[] {null}, urls.getValue());
+    assertArrayEquals(new String[] {null}, notes.getValue());
+  }
+
+  @Test
+  void patchAllEncryptsTheValuesForEachEntry() {
+    byte[] dek = new byte[32];
+    when(vaultSessionService.resolveDek(OWNER, "token")).thenReturn(dek);
+    when(repository.findOwnedIds(eq(OWNER), any())).thenReturn(List.of(1L, 2L));
+    ArgumentCaptor<String[]> usernames = ArgumentCaptor.forClass(String[].class);
+    ArgumentCaptor<Integer[]> usernameIndexes = ArgumentCaptor.forClass(Integer[].class);
+
+    service.patchAll(List.of(1L, 2L), OWNER, "alice", null, null, "token");
+
+    verify(repository)
+        .patchOwned(
+            eq(OWNER),
+            eq(true),
+            eq(false),
+            eq(false),
+            any(),
+            usernames.capture(),
+            usernameIndexes.capture(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            anyLong());
+    String[] sealed = usernames.getValue();
+    assertTrue(sealed[0].startsWith("v1:") && sealed[1].startsWith("v1:"));
+    assertNotEquals(sealed[0], sealed[1]);
+    assertEquals(usernameIndexes.getValue()[0], usernameIndexes.getValue()[1]);
+  }
+
+  @Test
+  void revealAllUnlocksOnceAndLoadsEntriesInOneQuery() {
+    byte[] dek = new byte[32];
+    when(vaultSessionService.resolveDek(OWNER, null, "token")).thenReturn(dek);
+    PasswordEntry first = new PasswordEntry();
+    first.setId(1L);
+    first.setName("a");
+    PasswordEntry second = new PasswordEntry();
+    second.setId(2L);
+    second.setName("b");
+    when(repository.findAllOwned(eq(OWNER), any())).thenReturn(List.of(second, first));
+    when(vaultService.decryptPasswordForReveal(eq(OWNER), eq(dek), any(PasswordEntry.class)))
+        .thenAnswer(inv -> "pw-" + inv.getArgument(2, PasswordEntry.class).getId());
+
+    PasswordRevealBulkResponseDto result =
+        service.revealAll(List.of(1L, 9L, 2L, 1L), OWNER, null, "token");
+
+    verify(vaultSessionService).resolveDek(OWNER, null, "token");
+    verify(repository).findAllOwned(OWNER, new Long[] {1L, 9L, 2L});
+    assertEquals(
+        List.of("pw-1", "pw-2"),
+        result.getResults().stream().map(PasswordRevealResponseDto::getPassword).toList());
+    assertEquals(List.of(9L), result.getNotFound());
+    verify(auditLog).record(OWNER, VaultAuditLog.EventType.REVEAL, 1L, null);
+    verify(auditLog).record(OWNER, VaultAuditLog.EventType.REVEAL, 2L, null);
+    verify(auditLog, never()).record(eq(OWNER), any(), eq(9L), any());
+    verify(entryUsage).record(OWNER, 1L);
+    verify(entryUsage).record(OWNER, 2L);
+  }
+
+  @Test
+  void getAllSortsByUseCountOrLastUseWithUnusedEntriesLastInIdOrder() {
+    List<PasswordEntry> entries = new ArrayList<>();
+    for (long id = 1; id <= 4; id++) {
+      PasswordEntry entry = new PasswordEntry();
+      entry.setId(id);
+      entry.setName("e" + id);
+      entries.add(entry);
+    }
+    when(repository.findAllByOwnerId(OWNER)).thenReturn(entries);
+    LocalDateTime now = LocalDateTime.now();
+    when(entryUsage.usageOf(OWNER))
+        .thenReturn(
+            Map.of(
+                3L, new EntryUsageService.Usage(5, now.minusDays(2)),
+                2L, new EntryUsageService.Usage(1, now)));
+
+    assertEquals(
+        List.of(3L, 2L, 1L, 4L),
+        service.getAll(OWNER, null, "frequent").stream().map(PasswordEntryDto::getId).toList());
+    assertEquals(
+        List.of(2L, 3L, 1L, 4L),
+        service.getAll(OWNER, null, "recent").stream().map(PasswordEntryDto::getId).toList());
+    assertThrows(IllegalArgumentException.class, () -> service.getAll(OWNER, null, "name"));
+  }
+
+  @Test
+  void streamAllClosesTheCursorEvenWhenTheSinkFails() {
+    AtomicBoolean closed = new AtomicBoolean();
+    when(repository.streamDtosByOwnerId(OWNER))
+        .thenAnswer(
+            inv ->
+                Stream.of(dto("a", null), dto("b", null), dto("c", null))
+                    .onClose(() -> closed.set(true)));
+    List<String> received = new ArrayList<>();
+
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            service.streamAll(
+                OWNER,
+                null,
+                dto -> {
+                  if (received.size() == 2) {
+                    throw new IllegalStateException("client gone");
+                  }
+                  received.add(dto.getName());
+                }));
+
+    assertEquals(List.of("a", "b"), received);
+    assertTrue(closed.get());
+  }
+
+  private record Reused(String fingerprint, Long entryId, String name)
+      implements PasswordEntryRepository.ReusedPassword {
+    @Override
+    public String getFingerprint() {
+      return fingerprint;
+    }
+
+    @Override
+    public Long getEntryId() {
+      return entryId;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+  }
+
+  @Test
+  void reuseReportGroupsByFingerprintLargestFirstWithoutTouchingTheVault() {
+    when(repository.findReusedPasswords(OWNER))
+        .thenReturn(
+            List.of(
+                new Reused("aaa", 1L, "GitHub"),
+                new Reused("aaa", 4L, "GitLab"),
+                new Reused("bbb", 2L, "Bank"),
+                new Reused("bbb", 3L, "Mail"),
+                new Reused("bbb", 5L, "Shop")));
+    when(repository.countByOwnerIdAndPasswordFingerprintIsNull(OWNER)).thenReturn(6L);
+
+    PasswordReuseReportDto report = service.reuseReport(OWNER);
+
+    assertEquals(2, report.getGroups().size());
+    assertEquals(
+        List.of(2L, 3L, 5L),
+        report.getGroups().get(0).getEntries().stream()
+            .map(PasswordReuseReportDto.Entry::getId)
+            .toList());
+    assertEquals(
+        List.of("GitHub", "GitLab"),
+        report.getGroups().get(1).getEntries().stream()
+            .map(PasswordReuseReportDto.Entry::getName)
+            .toList());
+    assertEquals(6L, report.getUnfingerprintedCount());
+    verifyNoInteractions(vaultService, vaultSessionService);
+  }
+}
@@ -0,0 +1,199 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.exceptions.ConflictException;
+import com.vaultweb.passwordmanager.backend.model.Category;
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryPatchRequestDto;
+import com.vaultweb.passwordmanager.backend.repositories.CategoryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PasswordEntryServicePatchTest {
+
+  private static final Long OWNER = 7L;
+
+  private PasswordEntryRepository repository;
+  private VaultService vaultService;
+  private VaultSessionService vaultSessionService;
+  private VaultVersionService vaultVersionService;
+  private VaultHealthService vaultHealthService;
+  private VaultCryptoService crypto;
+  private EntryFieldCryptoService entryFieldCrypto;
+  private PasswordEntryService service;
+  private PasswordEntry existing;
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(PasswordEntryRepository.class);
+    vaultService = mock(VaultService.class);
+    vaultSessionService = mock(VaultSessionService.class);
+    vaultVersionService = mock(VaultVersionService.class);
+    vaultHealthService = mock(VaultHealthService.class);
+    crypto = new VaultCryptoService(1000);
+    entryFieldCrypto = new EntryFieldCryptoService(crypto, new UrlDomainService());
+    service =
+        new PasswordEntryService(
+            repository,
+            mock(CategoryRepository.class),
+            vaultService,
+            vaultSessionService,
+            vaultVersionService,
+            mock(VaultSyncService.class),
+            vaultHealthService,
+            new UrlDomainService(),
+            entryFieldCrypto,
+            mock(OwnerMetadataCache.class),
+            mock(VaultAuditLog.class),
+            mock(EntryUsageService.class),
+            mock(AttachmentService.class));
+
+    existing = new PasswordEntry();
+    existing.setId(1L);
+    existing.setOwnerId(OWNER);
+    existing.setName("GitHub");
+    existing.setUsername("gabriel");
+    existing.setPassword("vault:ciphertext");
+    existing.setUrl("https://github.com");
+    existing.setVersion(3);
+    when(repository.findByIdAndOwnerId(1L, OWNER)).thenReturn(Optional.of(existing));
+    when(repository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+    when(vaultVersionService.bump(OWNER)).thenReturn(42L);
+  }
+
+  @Test
+  void metadataPatchChangesOnlySuppliedFieldsWithoutCrypto() {
+    PasswordEntryPatchRequestDto patch = new PasswordEntryPatchRequestDto();
+    patch.setNotes("2FA enabled");
+    patch.setUrl("");
+    patch.setVersion(3L);
+
+    PasswordEntryDto patched = service.patch(1L, patch, OWNER, null);
+
+    assertEquals("2FA enabled", patched.getNotes());
+    assertNull(patched.getUrl());
+    assertEquals("GitHub", patched.getName());
+    assertEquals("2FA enabled", existing.getNotes());
+    assertEquals("vault:ciphertext", existing.getPassword());
+    assertEquals(42L, existing.getChangeSeq());
+    verifyNoInteractions(vaultService);
+  }
+
+  @Test
+  void urlPatchNormalizesHostAndDomain() {
+    PasswordEntryPatchRequestDto patch = new PasswordEntryPatchRequestDto();
+    patch.setUrl("https://Login.Example.co.uk:8443/signin");
+
+    service.patch(1L, patch, OWNER, null);
+
+    assertEquals("login.example.co.uk", existing.getUrlHost());
+    assertEquals("example.co.uk", existing.getUrlDomain());
+  }
+
+  @Test
+  void passwordPatchEncryptsAndFingerprintsWithSessionKey() {
+    byte[] dek = new byte[32];
+    when(vaultSessionService.resolveDek(OWNER, null, "token")).thenReturn(dek);
+    when(vaultService.encryptPasswordForStorageWithDek(OWNER, dek, "n3w")).thenReturn("vault:new");
+    when(vaultService.fingerprintPasswordWithDek(dek, "n3w")).thenReturn("fingerprint");
+    PasswordEntryPatchRequestDto patch = new PasswordEntryPatchRequestDto();
+    patch.setPassword("n3w");
+
+    service.patch(1L, patch, OWNER, "token");
+
+    assertEquals("vault:new", existing.getPassword());
+    assertEquals("fingerprint", existing.getPasswordFingerprint());
+    verify(vaultHealthService).assess(existing, "n3w");
+  }
+
+  @Test
+  void fieldPatchOfVaultEntryIsEncryptedWithSessionKey() {
+    byte[] dek = new byte[32];
+    Arrays.fill(dek, (byte) 5);
+    when(vaultSessionService.resolveDek(OWNER, null, "token")).thenReturn(dek);
+    PasswordEntryPatchRequestDto patch = new PasswordEntryPatchRequestDto();
+    patch.setUrl("https://Login.Example.co.uk/signin");
+
+    PasswordEntryDto patched = service.patch(1L, patch, OWNER, "token");
+
+    assertEquals("https://Login.Example.co.uk/signin", patched.getUrl());
+    assertEquals("gabriel", patched.getUsername());
+    assertTrue(crypto.isVaultEncryptedPassword(existing.getUrl()));
+    assertTrue(crypto.isVaultEncryptedPassword(existing.getUsername()));
+    assertNull(existing.getUrlHost());
+    assertNull(existing.getUrlDomain());
+    assertEquals(
+        entryFieldCrypto.domainIndex(dek, "example.co.uk"), existing.getUrlDomainBlindIndex());
+    assertEquals(entryFieldCrypto.usernameIndex(dek, "Gabriel"), existing.getUsernameBlindIndex());
+    assertEquals("vault:ciphertext", existing.getPassword());
+    verifyNoInteractions(vaultService);
+  }
+
+  @Test
+  void unchangedPasswordKeepsItsHealthRecord() {
+    byte[] dek = new byte[32];
+    existing.setPasswordFingerprint("fingerprint");
+    existing.setPasswordChangedAt(LocalDateTime.of(2024, 1, 1, 0, 0));
+    when(vaultSessionService.resolveDek(OWNER, null, "token")).thenReturn(dek);
+    when(vaultService.fingerprintPasswordWithDek(dek, "same")).thenReturn("fingerprint");
+    PasswordEntryPatchRequestDto patch = new PasswordEntryPatchRequestDto();
+    patch.setPassword("same");
+
+    service.patch(1L, patch, OWNER, "token");
+
+    verify(vaultHealthService, never()).assess(any(), any());
+  }
+
+  @Test
+  void staleVersionIsRejected() {
+    PasswordEntryPatchRequestDto patch = new PasswordEntryPatchRequestDto();
+    patch.setNotes("late edit");
+    patch.setVersion(2L);
+
+    assertThrows(ConflictException.class, () -> service.patch(1L, patch, OWNER, null));
+    verify(repository, never()).save(any());
+    verify(vaultVersionService, never()).bump(anyLong());
+  }
+
+  @Test
+  void clearCategoryMovesTheEntryOutOfItsCategory() {
+    Category category = new Category();
+    category.setId(5L);
+    existing.setCategory(category);
+    PasswordEntryPatchRequestDto patch = new PasswordEntryPatchRequestDto();
+    patch.setClearCategory(true);
+
+    PasswordEntryDto patched = service.patch(1L, patch, OWNER, null);
+
+    assertNull(existing.getCategory());
+    assertNull(patched.getCategoryId());
+    assertEquals(42L, existing.getChangeSeq());
+    verify(repository).save(existing);
+  }
+
+  @Test
+  void clearCategoryCannotBeCombinedWithCategoryId() {
+    PasswordEntryPatchRequestDto patch = new PasswordEntryPatchRequestDto();
+    patch.setClearCategory(true);
+    patch.setCategoryId(5L);
+
+    assertThrows(IllegalArgumentException.class, () -> service.patch(1L, patch, OWNER, null));
+    verify(repository, never()).save(any());
+  }
+}
@@ -0,0 +1,76 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.dtos.TotpCodesResponseDto;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TotpServiceTest {
+
+  private static final Long OWNER = 7L;
+  // RFC 6238 SHA-1 seed; its 8-digit code at 1111111109 s is 07081804
+  private static final String SEED = "GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQ";
+
+  private final VaultCryptoService crypto = new VaultCryptoService(1000);
+  private final EntryFieldCryptoService entryFieldCrypto =
+      new EntryFieldCryptoService(crypto, new UrlDomainService());
+  private final PasswordEntryRepository repository = mock(PasswordEntryRepository.class);
+  private final VaultSessionService vaultSessionService = mock(VaultSessionService.class);
+  private final TotpService service =
+      new TotpService(
+          repository,
+          vaultSessionService,
+          entryFieldCrypto,
+          Clock.fixed(Instant.ofEpochSecond(1111111109L), ZoneOffset.UTC));
+
+  private static PasswordEntryRepository.TotpSecret row(Long id, String secret) {
+    PasswordEntryRepository.TotpSecret row = mock(PasswordEntryRepository.TotpSecret.class);
+    when(row.getId()).thenReturn(id);
+    when(row.getName()).thenReturn("entry " + id);
+    when(row.getTotpSecret()).thenReturn(secret);
+    return row;
+  }
+
+  @Test
+  void sealedSecretsAreDecryptedAndAnsweredInRequestOrder() {
+    byte[] dek = new byte[32];
+    Arrays.fill(dek, (byte) 1);
+    when(vaultSessionService.resolveDek(OWNER, "token")).thenReturn(dek);
+
+    PasswordEntry entry = new PasswordEntry();
+    entry.setOwnerId(OWNER);
+    entry.setTotpSecret("otpauth://totp/Example:jane?secret=" + SEED + "&digits=8");
+    entryFieldCrypto.seal(entry, dek);
+    assertTrue(crypto.isVaultEncryptedPassword(entry.getTotpSecret()));
+
+    List<PasswordEntryRepository.TotpSecret> rows =
+        List.of(row(3L, SEED), row(5L, entry.getTotpSecret()));
+    when(repository.findTotpSecrets(eq(OWNER), eq(new Long[] {5L, 3L, 9L}))).thenReturn(rows);
+
+    TotpCodesResponseDto response = service.codes(List.of(5L, 3L, 5L, 9L), OWNER, "token");
+
+    assertEquals(2, response.getCodes().size());
+    TotpCodesResponseDto.Code first = response.getCodes().get(0);
+    assertEquals(5L, first.getId());
+    assertEquals("07081804", first.getCode());
+    assertEquals(Instant.ofEpochSecond(1111111110L), first.getValidUntil());
+    TotpCodesResponseDto.Code second = response.getCodes().get(1);
+    assertEquals(3L, second.getId());
+    assertEquals("081804", second.getCode());
+    assertEquals(30, second.getPeriod());
+    assertEquals(List.of(9L), response.getNotFound());
+    verify(repository).findTotpSecrets(eq(OWNER), eq(new Long[] {5L, 3L, 9L}));
+  }
+}
@@ -0,0 +1,85 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository.UnresolvedUrl;
+import com.vaultweb.passwordmanager.backend.repositories.VaultHealthRepository;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+class UrlDomainBackfillTest {
+
+  private final PasswordEntryRepository repository = mock(PasswordEntryRepository.class);
+  private final VaultHealthRepository vaultHealthRepository = mock(VaultHealthRepository.class);
+  private final VaultVersionService vaultVersionService = mock(VaultVersionService.class);
+
+  @Test
+  void entriesAreReadOneOwnerAtATime() {
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+    UrlDomainBackfill backfill =
+        new UrlDomainBackfill(
+            repository,
+            vaultHealthRepository,
+            new UrlDomainService(),
+            vaultVersionService,
+            transactionManager,
+            2);
+    when(vaultHealthRepository.findOwnersWithEntries(0L, 2)).thenReturn(List.of(3L, 7L));
+    when(vaultHealthRepository.findOwnersWithEntries(7L, 2)).thenReturn(List.of(9L));
+    when(repository.findUnresolvedUrls(eq(3L), anyLong(), eq(2)))
+        .thenReturn(List.of(row(10L, "https://a.example.com"), row(11L, "not a url")))
+        .thenReturn(List.of());
+    when(repository.findUnresolvedUrls(eq(7L), anyLong(), eq(2)))
+        .thenReturn(List.of(row(12L, "not a url")));
+    when(repository.findUnresolvedUrls(eq(9L), anyLong(), eq(2))).thenReturn(List.of());
+
+    backfill.backfill();
+
+    assertTrue(backfill.isDone());
+    verify(repository).findUnresolvedUrls(3L, 0L, 2);
+    verify(repository).findUnresolvedUrls(3L, 11L, 2);
+    // The cursor starts over for each owner
+    verify(repository).findUnresolvedUrls(7L, 0L, 2);
+    verify(repository).findUnresolvedUrls(9L, 0L, 2);
+    verify(vaultVersionService).lock(3L);
+    verify(repository)
+        .resolveUrls(
+            3L,
+            new Long[] {10L},
+            new Long[] {1L},
+            new String[] {"a.example.com"},
+            new String[] {"example.com"});
+    // Nothing to write for an owner whose urls have no host
+    verify(vaultVersionService, never()).lock(7L);
+  }
+
+  private static UnresolvedUrl row(Long id, String url) {
+    return new UnresolvedUrl() {
+      @Override
+      public Long getId() {
+        return id;
+      }
+
+      @Override
+      public long getVersion() {
+        return 1;
+      }
+
+      @Override
+      public String getUrl() {
+        return url;
+      }
+    };
+  }
+}
@@ -0,0 +1,133 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+class VaultAuditLogTest {
+
+  private static final Long OWNER = 7L;
+
+  private JdbcTemplate jdbcTemplate;
+  private MeterRegistry meterRegistry;
+  private VaultAuditLog auditLog;
+  private List<List<VaultAuditLog.Event>> batches;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    jdbcTemplate = mock(JdbcTemplate.class);
+    meterRegistry = new SimpleMeterRegistry();
+    auditLog = new VaultAuditLog(jdbcTemplate, meterRegistry, 4, 3, 2);
+    batches = new ArrayList<>();
+    when(jdbcTemplate.batchUpdate(
+            eq(VaultAuditLog.INSERT),
+            anyList(),
+            anyInt(),
+            any(ParameterizedPreparedStatementSetter.class)))
+        .thenAnswer(
+            inv -> {
+              batches.add(List.copyOf(inv.<List<VaultAuditLog.Event>>getArgument(1)));
+              return new int[0][];
+            });
+  }
+
+  private double metric(String name) {
+    return meterRegistry.get(name).meter().measure().iterator().next().getValue();
+  }
+
+  @Test
+  void flushWritesBufferedEventsInBatches() {
+    auditLog.record(OWNER, VaultAuditLog.EventType.UNLOCK);
+    auditLog.record(OWNER, VaultAuditLog.EventType.REVEAL, 1L, null);
+    auditLog.record(OWNER, VaultAuditLog.EventType.REVEAL, 2L, null);
+    auditLog.record(OWNER, VaultAuditLog.EventType.EXPORT, null, "encrypted, 2 entries");
+    assertEquals(4, metric("vault.audit.pending"));
+
+    auditLog.flush();
+
+    assertEquals(List.of(3, 1), batches.stream().map(List::size).toList());
+    assertEquals(VaultAuditLog.EventType.UNLOCK, batches.get(0).get(0).type());
+    assertEquals(2L, batches.get(0).get(2).entryId());
+    assertEquals("encrypted, 2 entries", batches.get(1).get(0).detail());
+    assertEquals(4, metric("vault.audit.written"));
+    assertEquals(0, metric("vault.audit.pending"));
+  }
+
+  @Test
+  void eventsBeyondTheBufferAreDroppedAndCounted() {
+    for (long id = 1; id <= 6; id++) {
+      auditLog.record(OWNER, VaultAuditLog.EventType.REVEAL, id, null);
+    }
+
+    auditLog.flush();
+
+    assertEquals(
+        List.of(1L, 2L, 3L, 4L),
+        batches.stream().flatMap(List::stream).map(VaultAuditLog.Event::entryId).toList());
+    assertEquals(2, metric("vault.audit.dropped"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void failedWriteIsCountedAndDoesNotStopLaterFlushes() {
+    when(jdbcTemplate.batchUpdate(
+            eq(VaultAuditLog.INSERT),
+            anyList(),
+            anyInt(),
+            any(ParameterizedPreparedStatementSetter.class)))
+        .thenThrow(new DataAccessResourceFailureException("down"))
+        .thenReturn(new int[0][]);
+    auditLog.record(OWNER, VaultAuditLog.EventType.MASTER_PASSWORD_FAILED);
+
+    auditLog.flush();
+    auditLog.record(OWNER, VaultAuditLog.EventType.UNLOCK);
+    auditLog.flush();
+
+    assertEquals(1, metric("vault.audit.failed"));
+    assertEquals(1, metric("vault.audit.written"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shutdownWritesWhatIsStillBufferedAndEmptyFlushWritesNothing() {
+    auditLog.flush();
+    verify(jdbcTemplate, never())
+        .batchUpdate(
+            any(String.class),
+            anyList(),
+            anyInt(),
+            any(ParameterizedPreparedStatementSetter.class));
+
+    auditLog.record(OWNER, VaultAuditLog.EventType.ROTATE);
+    auditLog.shutdown();
+
+    assertEquals(1, batches.size());
+    assertEquals(VaultAuditLog.EventType.ROTATE, batches.get(0).get(0).type());
+  }
+
+  @Test
+  void createPartitionsCoversTheCurrentAndComingMonths() {
+    auditLog.createPartitions();
+
+    verify(jdbcTemplate, times(3)).execute(startsWith("create table if not exists"));
+  }
+}
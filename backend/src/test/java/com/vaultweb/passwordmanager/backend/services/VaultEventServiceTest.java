@@ -0,0 +1,64 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.vaultweb.passwordmanager.backend.model.VaultOutboxEvent;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class VaultEventServiceTest {
+
+  private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+  private static List<VaultOutboxEvent> rows(long... ids) {
+    return Arrays.stream(ids)
+        .mapToObj(id -> new VaultOutboxEvent(id, 7L, id, LocalDateTime.now()))
+        .toList();
+  }
+
+  private static List<Long> ids(List<VaultOutboxEvent> events) {
+    return events.stream().map(VaultOutboxEvent::getId).toList();
+  }
+
+  @Test
+  void advancesOverContiguousRows() {
+    VaultEventService.OutboxWatermark watermark =
+        new VaultEventService.OutboxWatermark(10, Duration.ofSeconds(5));
+
+    assertEquals(List.of(11L, 12L), ids(watermark.advance(rows(11, 12), T0)));
+    assertEquals(12, watermark.position());
+  }
+
+  @Test
+  void waitsForLateCommitAndRelaysEachRowOnce() {
+    VaultEventService.OutboxWatermark watermark =
+        new VaultEventService.OutboxWatermark(10, Duration.ofSeconds(5));
+
+    // 12 committed before 11: relay 12, but do not move past the gap.
+    assertEquals(List.of(12L), ids(watermark.advance(rows(12), T0)));
+    assertEquals(10, watermark.position());
+
+    // 11 commits; 12 is returned again by the next poll but must not be relayed twice.
+    assertEquals(List.of(11L), ids(watermark.advance(rows(11, 12), T0.plusSeconds(1))));
+    assertEquals(12, watermark.position());
+  }
+
+  @Test
+  void skipsGapAfterTimeout() {
+    VaultEventService.OutboxWatermark watermark =
+        new VaultEventService.OutboxWatermark(10, Duration.ofSeconds(5));
+
+    watermark.advance(rows(12), T0);
+    assertTrue(watermark.advance(rows(12), T0.plusSeconds(2)).isEmpty());
+    assertEquals(10, watermark.position());
+
+    // 11 never shows up (rolled back), so the position eventually moves on.
+    watermark.advance(rows(12), T0.plusSeconds(5));
+    assertEquals(12, watermark.position());
+  }
+}
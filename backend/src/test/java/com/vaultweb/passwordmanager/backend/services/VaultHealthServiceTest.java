@@ -0,0 +1,104 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.VaultHealth;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.VaultHealthRepository;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+class VaultHealthServiceTest {
+
+  private VaultHealthRepository repository;
+  private PasswordEntryRepository passwordEntryRepository;
+  private BreachCheckQueue breachCheckQueue;
+  private VaultVersionService vaultVersionService;
+  private VaultHealthService service;
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(VaultHealthRepository.class);
+    passwordEntryRepository = mock(PasswordEntryRepository.class);
+    breachCheckQueue = mock(BreachCheckQueue.class);
+    vaultVersionService = mock(VaultVersionService.class);
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+    service =
+        new VaultHealthService(
+            repository,
+            passwordEntryRepository,
+            new PasswordStrengthService(),
+            breachCheckQueue,
+            vaultVersionService,
+            transactionManager,
+            Duration.ofDays(365),
+            2);
+  }
+
+  @Test
+  void assessScoresThePasswordAndQueuesABreachCheck() {
+    PasswordEntry entry = new PasswordEntry();
+    entry.setBreachCount(3);
+
+    service.assess(entry, "correct horse battery");
+
+    assertEquals(60, entry.getStrengthScore());
+    assertNull(entry.getBreachCount());
+    assertNotNull(entry.getPasswordChangedAt());
+    verify(breachCheckQueue).enqueue(entry, "correct horse battery");
+  }
+
+  @Test
+  void ownerWithoutEntriesIsHealthy() {
+    when(repository.findById(7L)).thenReturn(Optional.empty());
+    assertEquals(0, service.get(7L).getEntryCount());
+
+    when(repository.findById(8L)).thenReturn(Optional.of(new VaultHealth(8L, 5, 1, 2, 0, 0, 0, 1)));
+    assertEquals(2, service.get(8L).getReusedCount());
+  }
+
+  @Test
+  void agingRunsChunksUntilTheOwnerIsDone() {
+    when(repository.findOwnersWithEntries(0L, 2)).thenReturn(List.of(7L));
+    when(passwordEntryRepository.hasEntriesToAge(eq(7L), any())).thenReturn(true);
+    when(passwordEntryRepository.ageOwned(eq(7L), any(), eq(2))).thenReturn(2, 2, 1);
+
+    service.age();
+
+    verify(passwordEntryRepository, times(3)).ageOwned(eq(7L), any(), eq(2));
+    verify(vaultVersionService, times(3)).lock(7L);
+  }
+
+  @Test
+  void agingPagesThroughOwnersAndSkipsThoseWithNothingToAge() {
+    when(repository.findOwnersWithEntries(0L, 2)).thenReturn(List.of(3L, 7L));
+    when(repository.findOwnersWithEntries(7L, 2)).thenReturn(List.of(9L));
+    when(passwordEntryRepository.hasEntriesToAge(eq(9L), any())).thenReturn(true);
+    when(passwordEntryRepository.ageOwned(eq(9L), any(), eq(2))).thenReturn(1);
+
+    service.age();
+
+    verify(passwordEntryRepository).hasEntriesToAge(eq(3L), any());
+    verify(passwordEntryRepository).hasEntriesToAge(eq(7L), any());
+    verify(passwordEntryRepository, never()).ageOwned(eq(3L), any(), anyInt());
+    verify(vaultVersionService, never()).lock(7L);
+    verify(vaultVersionService).lock(9L);
+  }
+}
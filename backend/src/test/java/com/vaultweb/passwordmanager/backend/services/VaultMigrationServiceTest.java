@@ -0,0 +1,226 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.VaultMigrationJob;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.VaultMigrationJobRepository;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class VaultMigrationServiceTest {
+
+  private static final Long OWNER_ID = 7L;
+  private static final byte[] DEK = new byte[32];
+
+  private PasswordEntryRepository passwordEntryRepository;
+  private VaultMigrationJobRepository jobRepository;
+  private VaultCryptoService crypto;
+  private EntryFieldCryptoService entryFieldCrypto;
+  private BreachCheckQueue breachCheckQueue;
+  private VaultMigrationService service;
+  private VaultMigrationJob job;
+
+  @BeforeEach
+  void setUp() {
+    passwordEntryRepository = mock(PasswordEntryRepository.class);
+    jobRepository = mock(VaultMigrationJobRepository.class);
+    crypto = new VaultCryptoService(1000);
+    entryFieldCrypto = new EntryFieldCryptoService(crypto, new UrlDomainService());
+    breachCheckQueue = mock(BreachCheckQueue.class);
+    service =
+        new VaultMigrationService(
+            passwordEntryRepository,
+            jobRepository,
+            crypto,
+            entryFieldCrypto,
+            new PasswordStrengthService(),
+            breachCheckQueue,
+            mock(VaultVersionService.class),
+            mock(PlatformTransactionManager.class),
+            2,
+            Duration.ofMinutes(5),
+            1);
+
+    job = new VaultMigrationJob();
+    job.setId(1L);
+    job.setOwnerId(OWNER_ID);
+    job.setStatus(VaultMigrationJob.Status.RUNNING);
+    job.setTotalCount(3);
+    when(jobRepository.findById(1L)).thenReturn(Optional.of(job));
+    when(passwordEntryRepository.migratePassword(
+            anyLong(), anyLong(), anyLong(), anyString(), anyString()))
+        .thenReturn(1);
+  }
+
+  @AfterEach
+  void tearDown() {
+    service.shutdown();
+  }
+
+  private static PasswordEntry entry(Long id, String password) {
+    PasswordEntry e = new PasswordEntry();
+    e.setId(id);
+    e.setOwnerId(OWNER_ID);
+    e.setPassword(password);
+    return e;
+  }
+
+  private static PasswordEntry migrated(Long id, String password) {
+    PasswordEntry e = entry(id, password);
+    e.setPasswordFingerprint("fingerprint");
+    e.setStrengthScore(60);
+    e.setBreachCount(0);
+    return e;
+  }
+
+  @Test
+  void fullChunkMigratesPlaintextAndAdvancesCheckpoint() {
+    when(passwordEntryRepository.findByOwnerIdAndIdGreaterThanOrderByIdAsc(
+            OWNER_ID, 0L, Limit.of(2)))
+        .thenReturn(List.of(entry(3L, "plain"), migrated(5L, "v1:already-encrypted")));
+
+    assertTrue(service.migrateChunk(1L, OWNER_ID, DEK));
+
+    verify(passwordEntryRepository)
+        .migratePassword(
+            eq(3L), eq(OWNER_ID), anyLong(), any(), eq(crypto.fingerprintPassword(DEK, "plain")));
+    verify(passwordEntryRepository, never())
+        .migratePassword(eq(5L), anyLong(), anyLong(), any(), any());
+    verify(passwordEntryRepository, never())
+        .refreshHealth(eq(5L), any(), anyLong(), any(), anyInt());
+    assertEquals(5L, job.getLastEntryId());
+    assertEquals(2, job.getScannedCount());
+    assertEquals(1, job.getMigratedCount());
+    assertEquals(VaultMigrationJob.Status.RUNNING, job.getStatus());
+  }
+
+  @Test
+  void encryptedEntryWithoutHealthRecordIsOnlyAssessed() {
+    PasswordEntry encrypted = entry(4L, crypto.encryptPasswordWithDek(DEK, "hunter22", OWNER_ID));
+    encrypted.setVersion(3);
+    when(passwordEntryRepository.findByOwnerIdAndIdGreaterThanOrderByIdAsc(
+            OWNER_ID, 0L, Limit.of(2)))
+        .thenReturn(List.of(encrypted));
+
+    service.migrateChunk(1L, OWNER_ID, DEK);
+
+    verify(passwordEntryRepository)
+        .refreshHealth(
+            4L,
+            OWNER_ID,
+            3,
+            crypto.fingerprintPassword(DEK, "hunter22"),
+            new PasswordStrengthService().calculateStrength("hunter22"));
+    verify(breachCheckQueue).enqueue(encrypted, "hunter22");
+    verify(passwordEntryRepository, never()).migratePassword(any(), any(), anyLong(), any(), any());
+    assertEquals(0, job.getMigratedCount());
+  }
+
+  @Test
+  void plaintextFieldsAreSealedWithoutTouchingTheLoadedEntity() {
+    PasswordEntry entry = migrated(6L, crypto.encryptPasswordWithDek(DEK, "hunter22", OWNER_ID));
+    entry.setPasswordFingerprint(crypto.fingerprintPassword(DEK, "hunter22"));
+    entry.setStrengthScore(new PasswordStrengthService().calculateStrength("hunter22"));
+    entry.setUsername("Octocat");
+    entry.setUrl("https://github.com/login");
+    entry.setUrlHost("github.com");
+    entry.setUrlDomain("github.com");
+    entry.setVersion(2);
+    when(passwordEntryRepository.findByOwnerIdAndIdGreaterThanOrderByIdAsc(
+            OWNER_ID, 0L, Limit.of(2)))
+        .thenReturn(List.of(entry));
+    when(passwordEntryRepository.sealFields(
+            anyLong(), anyLong(), anyLong(), any(), any(), any(), any(), any(), any(), any()))
+        .thenReturn(1);
+
+    service.migrateChunk(1L, OWNER_ID, DEK);
+
+    verify(passwordEntryRepository)
+        .sealFields(
+            eq(6L),
+            eq(OWNER_ID),
+            eq(2L),
+            argThat(crypto::isVaultEncryptedPassword),
+            eq(entryFieldCrypto.usernameIndex(DEK, "octocat")),
+            argThat(crypto::isVaultEncryptedPassword),
+            eq(entryFieldCrypto.hostIndex(DEK, "github.com")),
+            eq(entryFieldCrypto.domainIndex(DEK, "github.com")),
+            isNull(),
+            isNull());
+    verify(passwordEntryRepository, never()).migratePassword(any(), any(), anyLong(), any(), any());
+    assertEquals("Octocat", entry.getUsername());
+    assertEquals("github.com", entry.getUrlHost());
+    assertEquals(1, job.getMigratedCount());
+  }
+
+  @Test
+  void shortChunkCompletesTheJob() {
+    job.setLastEntryId(5L);
+    job.setScannedCount(2);
+    when(passwordEntryRepository.findByOwnerIdAndIdGreaterThanOrderByIdAsc(
+            OWNER_ID, 5L, Limit.of(2)))
+        .thenReturn(List.of(entry(9L, "plain")));
+
+    assertFalse(service.migrateChunk(1L, OWNER_ID, DEK));
+
+    assertEquals(9L, job.getLastEntryId());
+    assertEquals(3, job.getScannedCount());
+    assertEquals(VaultMigrationJob.Status.COMPLETED, job.getStatus());
+  }
+
+  @Test
+  void finishedJobIsNotProcessedAgain() {
+    job.setStatus(VaultMigrationJob.Status.COMPLETED);
+
+    assertFalse(service.migrateChunk(1L, OWNER_ID, DEK));
+
+    verify(passwordEntryRepository, never())
+        .findByOwnerIdAndIdGreaterThanOrderByIdAsc(any(), any(), any());
+  }
+
+  @Test
+  void failedJobIsResumedFromItsCheckpoint() {
+    VaultMigrationJob failed = new VaultMigrationJob();
+    failed.setId(2L);
+    failed.setOwnerId(OWNER_ID);
+    failed.setStatus(VaultMigrationJob.Status.FAILED);
+    failed.setLastEntryId(40L);
+    VaultMigrationJob retried = new VaultMigrationJob();
+    retried.setId(2L);
+    retried.setOwnerId(OWNER_ID);
+    retried.setStatus(VaultMigrationJob.Status.RUNNING);
+    retried.setLastEntryId(40L);
+    when(jobRepository.findFirstByOwnerIdOrderByIdDesc(OWNER_ID)).thenReturn(Optional.of(failed));
+    when(jobRepository.retry(eq(2L), any())).thenReturn(1);
+    when(jobRepository.findById(2L)).thenReturn(Optional.of(retried));
+
+    VaultMigrationJob started = service.start(OWNER_ID, DEK);
+
+    assertEquals(2L, started.getId());
+    verify(jobRepository, never()).saveAndFlush(any());
+    verify(passwordEntryRepository, timeout(5000))
+        .findByOwnerIdAndIdGreaterThanOrderByIdAsc(OWNER_ID, 40L, Limit.of(2));
+  }
+}
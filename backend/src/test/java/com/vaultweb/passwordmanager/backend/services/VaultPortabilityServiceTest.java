@@ -5,11 +5,11 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.vaultweb.passwordmanager.backend.exceptions.InvalidCredentialsException;
@@ -45,7 +45,17 @@ class VaultPortabilityServiceTest {
 
     service =
         new VaultPortabilityService(
-            passwordEntryRepository, categoryRepository, vaultService, vaultSessionService, crypto);
+            passwordEntryRepository,
+            categoryRepository,
+            vaultService,
+            vaultSessionService,
+            crypto,
+            mock(VaultVersionService.class),
+            mock(VaultHealthService.class),
+            new UrlDomainService(),
+            new EntryFieldCryptoService(crypto, new UrlDomainService()),
+            mock(OwnerMetadataCache.class),
+            mock(VaultAuditLog.class));
 
     // Vault not initialized: entry passwords are plaintext, so storage encryption is passthrough.
     when(vaultService.isInitialized(OWNER)).thenReturn(false);
@@ -67,6 +77,14 @@ class VaultPortabilityServiceTest {
     return e;
   }
 
+  /** Entries handed to the single batched saveAll of an import. */
+  @SuppressWarnings("unchecked")
+  private List<PasswordEntry> savedEntries() {
+    ArgumentCaptor<List<PasswordEntry>> captor = ArgumentCaptor.forClass(List.class);
+    verify(passwordEntryRepository).saveAll(captor.capture());
+    return captor.getValue();
+  }
+
   @Test
   void encryptedExportThenImportRoundTrips() {
     Category social = new Category();
@@ -85,21 +103,11 @@ class VaultPortabilityServiceTest {
     assertEquals(2, result.entryCount());
     assertTrue(crypto.isEncryptedExport(result.content()));
 
-    when(categoryRepository.save(any(Category.class)))
-        .thenAnswer(
-            inv -> {
-              Category c = inv.getArgument(0);
-              c.setId(99L);
-              return c;
-            });
-    ArgumentCaptor<PasswordEntry> captor = ArgumentCaptor.forClass(PasswordEntry.class);
-    when(passwordEntryRepository.save(captor.capture())).thenAnswer(inv -> inv.getArgument(0));
-
     VaultImportResponseDto summary =
         service.importVault(OWNER, result.content(), "export-pw", null, null);
 
     assertEquals(2, summary.getImported());
-    List<PasswordEntry> created = captor.getAllValues();
+    List<PasswordEntry> created = savedEntries();
     assertEquals(2, created.size());
 
     PasswordEntry github =
@@ -154,21 +162,11 @@ class VaultPortabilityServiceTest {
     String csv =
         "Title,Username,Password,URL,Notes,Group\r\n"
             + "Bank,john,hunter2,https://bank.example,,Finance\r\n";
-    when(categoryRepository.save(any(Category.class)))
-        .thenAnswer(
-            inv -> {
-              Category c = inv.getArgument(0);
-              c.setId(5L);
-              return c;
-            });
-    ArgumentCaptor<PasswordEntry> captor = ArgumentCaptor.forClass(PasswordEntry.class);
-    when(passwordEntryRepository.save(captor.capture())).thenAnswer(inv -> inv.getArgument(0));
-
     VaultImportResponseDto summary = service.importVault(OWNER, csv, null, null, null);
 
     assertEquals(1, summary.getImported());
     assertEquals(1, summary.getCategoriesCreated());
-    PasswordEntry imported = captor.getValue();
+    PasswordEntry imported = savedEntries().get(0);
     assertEquals("Bank", imported.getName());
     assertEquals("hunter2", imported.getPassword());
     assertEquals("Finance", imported.getCategory().getName());
@@ -176,15 +174,12 @@ class VaultPortabilityServiceTest {
 
   @Test
   void importSkipsIncompleteRows() {
-    ArgumentCaptor<PasswordEntry> captor = ArgumentCaptor.forClass(PasswordEntry.class);
-    when(passwordEntryRepository.save(captor.capture())).thenAnswer(inv -> inv.getArgument(0));
-
     String csv = "name,username,password\r\nGitHub,gabriel,\r\nReal,user,pw\r\n";
     VaultImportResponseDto summary = service.importVault(OWNER, csv, null, null, null);
 
     assertEquals(1, summary.getImported());
     assertEquals(1, summary.getSkipped());
-    assertEquals("Real", captor.getValue().getName());
+    assertEquals("Real", savedEntries().get(0).getName());
   }
 
   @Test
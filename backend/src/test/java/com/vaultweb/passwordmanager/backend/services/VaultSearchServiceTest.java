@@ -0,0 +1,106 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.model.VaultTombstone;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordEntryDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.PasswordSearchResponseDto;
+import com.vaultweb.passwordmanager.backend.model.dtos.VaultChangesResponseDto;
+import com.vaultweb.passwordmanager.backend.repositories.CategoryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+class VaultSearchServiceTest {
+
+  private static final Long OWNER = 7L;
+
+  private PasswordEntryRepository entryRepository;
+  private VaultVersionService vaultVersionService;
+  private VaultSyncService vaultSyncService;
+  private VaultSearchService service;
+
+  @BeforeEach
+  void setUp() {
+    entryRepository = mock(PasswordEntryRepository.class);
+    CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    vaultVersionService = mock(VaultVersionService.class);
+    vaultSyncService = mock(VaultSyncService.class);
+    service =
+        new VaultSearchService(
+            entryRepository,
+            categoryRepository,
+            vaultVersionService,
+            vaultSyncService,
+            new EntryFieldCryptoService(new VaultCryptoService(1000), new UrlDomainService()),
+            mock(PlatformTransactionManager.class),
+            DataSize.ofMegabytes(1));
+
+    when(vaultVersionService.current(OWNER)).thenReturn(5L);
+    when(categoryRepository.findAllByOwnerId(OWNER)).thenReturn(List.of());
+    when(entryRepository.streamDtosByOwnerId(OWNER))
+        .thenReturn(
+            Stream.of(
+                new PasswordEntryDto(1L, "GitHub", "octocat", "github.com", null, null, 1L, false),
+                new PasswordEntryDto(2L, "Bank", "jane", null, null, null, 1L, false)));
+  }
+
+  private static List<Long> ids(PasswordSearchResponseDto response) {
+    return response.getResults().stream().map(PasswordSearchResponseDto.Result::getId).toList();
+  }
+
+  @Test
+  void indexIsBuiltOnceAndThenFollowsTheDelta() {
+    assertEquals(List.of(1L), ids(service.search(OWNER, "github", 10, null)));
+
+    when(vaultVersionService.current(OWNER)).thenReturn(6L);
+    when(vaultSyncService.changesSince(OWNER, 5L, null))
+        .thenReturn(
+            new VaultChangesResponseDto(
+                6L,
+                false,
+                List.of(),
+                List.of(
+                    new PasswordEntryDto(3L, "GitHub work", "jane", null, null, null, 0L, false)),
+                List.of(
+                    new VaultChangesResponseDto.Deletion(VaultTombstone.EntityType.ENTRY, 1L))));
+    assertEquals(List.of(3L), ids(service.search(OWNER, "github", 10, null)));
+
+    assertEquals(List.of(2L), ids(service.search(OWNER, "bank", 10, null)));
+
+    verify(entryRepository, times(1)).streamDtosByOwnerId(OWNER);
+    verify(vaultSyncService, times(1)).changesSince(OWNER, 5L, null);
+  }
+
+  @Test
+  void fullResyncReplacesTheIndex() {
+    service.search(OWNER, "github", 10, null);
+    when(vaultVersionService.current(OWNER)).thenReturn(9L);
+    when(vaultSyncService.changesSince(OWNER, 5L, null))
+        .thenReturn(
+            new VaultChangesResponseDto(
+                9L,
+                true,
+                List.of(),
+                List.of(new PasswordEntryDto(4L, "Mail", "jane", null, null, null, 0L, false)),
+                List.of()));
+
+    assertEquals(List.of(), ids(service.search(OWNER, "github", 10, null)));
+    assertEquals(List.of(4L), ids(service.search(OWNER, "mail", 10, null)));
+  }
+
+  @Test
+  void blankQueryIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> service.search(OWNER, " ", 10, null));
+    assertThrows(IllegalArgumentException.class, () -> service.search(OWNER, "x", 0, null));
+  }
+}
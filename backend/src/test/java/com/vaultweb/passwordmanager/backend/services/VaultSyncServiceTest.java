@@ -0,0 +1,116 @@
+package com.vaultweb.passwordmanager.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.vaultweb.passwordmanager.backend.model.PasswordEntry;
+import com.vaultweb.passwordmanager.backend.model.VaultTombstone;
+import com.vaultweb.passwordmanager.backend.model.VaultVersion;
+import com.vaultweb.passwordmanager.backend.model.dtos.VaultChangesResponseDto;
+import com.vaultweb.passwordmanager.backend.repositories.CategoryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.PasswordEntryRepository;
+import com.vaultweb.passwordmanager.backend.repositories.VaultTombstoneRepository;
+import com.vaultweb.passwordmanager.backend.repositories.VaultVersionRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class VaultSyncServiceTest {
+
+  private static final Long OWNER = 7L;
+
+  private PasswordEntryRepository entryRepository;
+  private CategoryRepository categoryRepository;
+  private VaultTombstoneRepository tombstoneRepository;
+  private VaultVersionRepository versionRepository;
+  private VaultCryptoService crypto;
+  private VaultSyncService service;
+
+  @BeforeEach
+  void setUp() {
+    entryRepository = mock(PasswordEntryRepository.class);
+    categoryRepository = mock(CategoryRepository.class);
+    tombstoneRepository = mock(VaultTombstoneRepository.class);
+    versionRepository = mock(VaultVersionRepository.class);
+    crypto = new VaultCryptoService(1000);
+    service =
+        new VaultSyncService(
+            entryRepository,
+            categoryRepository,
+            tombstoneRepository,
+            versionRepository,
+            new EntryFieldCryptoService(crypto, new UrlDomainService()),
+            Duration.ofDays(30));
+  }
+
+  private static PasswordEntry entry(Long id, String name) {
+    PasswordEntry e = new PasswordEntry();
+    e.setId(id);
+    e.setName(name);
+    e.setOwnerId(OWNER);
+    return e;
+  }
+
+  @Test
+  void returnsOnlyRowsAndTombstonesAfterCursor() {
+    byte[] dek = new byte[32];
+    PasswordEntry changed = entry(1L, "GitHub");
+    changed.setUsername(crypto.encryptPasswordWithDek(dek, "octocat", OWNER));
+    when(versionRepository.findById(OWNER))
+        .thenReturn(Optional.of(new VaultVersion(OWNER, 12L, 3)));
+    when(entryRepository.findAllByOwnerIdAndChangeSeqGreaterThan(OWNER, 10L))
+        .thenReturn(List.of(changed));
+    when(tombstoneRepository.findAllByOwnerIdAndChangeSeqGreaterThan(OWNER, 10L))
+        .thenReturn(
+            List.of(
+                new VaultTombstone(
+                    1L, OWNER, VaultTombstone.EntityType.ENTRY, 2L, 11L, LocalDateTime.now())));
+
+    VaultChangesResponseDto changes = service.changesSince(OWNER, 10L, dek);
+
+    assertFalse(changes.isFullResync());
+    assertEquals(12L, changes.getCursor());
+    assertEquals(1, changes.getEntries().size());
+    assertEquals("GitHub", changes.getEntries().get(0).getName());
+    assertEquals("octocat", changes.getEntries().get(0).getUsername());
+    assertEquals(1, changes.getDeleted().size());
+    assertEquals(2L, changes.getDeleted().get(0).getId());
+    verify(entryRepository, never()).findAllByOwnerId(OWNER);
+  }
+
+  @Test
+  void cursorOlderThanCompactionForcesFullResync() {
+    when(versionRepository.findById(OWNER))
+        .thenReturn(Optional.of(new VaultVersion(OWNER, 40L, 20)));
+    when(entryRepository.findAllByOwnerId(OWNER))
+        .thenReturn(List.of(entry(1L, "GitHub"), entry(3L, "Email")));
+
+    VaultChangesResponseDto changes = service.changesSince(OWNER, 5L, null);
+
+    assertTrue(changes.isFullResync());
+    assertEquals(40L, changes.getCursor());
+    assertEquals(2, changes.getEntries().size());
+    assertTrue(changes.getDeleted().isEmpty());
+    verify(tombstoneRepository, never()).findAllByOwnerIdAndChangeSeqGreaterThan(OWNER, 5L);
+  }
+
+  @Test
+  void upToDateCursorSkipsQueries() {
+    when(versionRepository.findById(OWNER)).thenReturn(Optional.of(new VaultVersion(OWNER, 9L, 0)));
+
+    VaultChangesResponseDto changes = service.changesSince(OWNER, 9L, null);
+
+    assertFalse(changes.isFullResync());
+    assertTrue(changes.getEntries().isEmpty());
+    verify(entryRepository, never()).findAllByOwnerIdAndChangeSeqGreaterThan(OWNER, 9L);
+    verify(tombstoneRepository, never()).findAllByOwnerIdAndChangeSeqGreaterThan(OWNER, 9L);
+  }
+}
@@ -0,0 +1,95 @@
+package com.vaultweb.passwordmanager.backend.support;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ChunkedAesGcmTest {
+
+  private static final int CHUNK = ChunkedAesGcm.CHUNK_SIZE;
+
+  private static byte[] key(int fill) {
+    byte[] key = new byte[32];
+    Arrays.fill(key, (byte) fill);
+    return key;
+  }
+
+  private static byte[] random(int size) {
+    byte[] data = new byte[size];
+    new Random(size).nextBytes(data);
+    return data;
+  }
+
+  private static byte[] encrypt(byte[] key, byte[] plain) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long size =
+        ChunkedAesGcm.encrypt(
+            key, new ByteArrayInputStream(plain), Channels.newChannel(out), Long.MAX_VALUE);
+    assertEquals(plain.length, size);
+    return out.toByteArray();
+  }
+
+  private static byte[] decrypt(byte[] key, byte[] sealed) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ChunkedAesGcm.decrypt(key, ByteBuffer.wrap(sealed), out);
+    return out.toByteArray();
+  }
+
+  @Test
+  void roundTripsAcrossChunkBoundaries() throws IOException {
+    for (int size : new int[] {0, 1, CHUNK - 1, CHUNK, CHUNK + 1, 3 * CHUNK + 17}) {
+      byte[] plain = random(size);
+      byte[] sealed = encrypt(key(1), plain);
+
+      assertEquals(ChunkedAesGcm.encryptedSize(size), sealed.length, "size " + size);
+      assertArrayEquals(plain, decrypt(key(1), sealed), "size " + size);
+    }
+  }
+
+  @Test
+  void wrongKeyOrChangedByteIsRejected() throws IOException {
+    byte[] sealed = encrypt(key(1), random(2 * CHUNK));
+
+    assertThrows(IOException.class, () -> decrypt(key(2), sealed));
+
+    sealed[CHUNK + 100] ^= 1;
+    assertThrows(IOException.class, () -> decrypt(key(1), sealed));
+  }
+
+  @Test
+  void truncatedOrReorderedFileIsRejected() throws IOException {
+    byte[] sealed = encrypt(key(1), random(2 * CHUNK + 10));
+    int header = (int) ChunkedAesGcm.encryptedSize(0) - 16;
+    int full = CHUNK + 16;
+
+    // Dropping the last chunk leaves a full chunk that is not marked as the last one
+    assertThrows(
+        IOException.class, () -> decrypt(key(1), Arrays.copyOf(sealed, header + 2 * full)));
+
+    byte[] swapped = sealed.clone();
+    System.arraycopy(sealed, header, swapped, header + full, full);
+    System.arraycopy(sealed, header + full, swapped, header, full);
+    assertThrows(IOException.class, () -> decrypt(key(1), swapped));
+  }
+
+  @Test
+  void inputBeyondTheLimitIsRefused() {
+    assertThrows(
+        ChunkedAesGcm.LimitExceededException.class,
+        () ->
+            ChunkedAesGcm.encrypt(
+                key(1),
+                new ByteArrayInputStream(random(CHUNK + 1)),
+                Channels.newChannel(new ByteArrayOutputStream()),
+                CHUNK));
+  }
+}
@@ -0,0 +1,88 @@
+package com.vaultweb.passwordmanager.backend.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.vaultweb.passwordmanager.backend.support.EntrySearchIndex.Document;
+import com.vaultweb.passwordmanager.backend.support.EntrySearchIndex.Hit;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EntrySearchIndexTest {
+
+  private EntrySearchIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new EntrySearchIndex();
+    index.putCategory(10L, "Work");
+    index.put(new Document(1L, "GitHub", "octocat", "https://github.com/login", null));
+    index.put(new Document(2L, "GitLab", "tanuki", "https://gitlab.com", 10L));
+    index.put(new Document(3L, "Bank", "jane@example.com", "https://www.mybank.example", null));
+    index.put(new Document(4L, "Café Müller", "jane", null, null));
+  }
+
+  private static List<Long> ids(List<Hit> hits) {
+    return hits.stream().map(hit -> hit.document().id()).toList();
+  }
+
+  @Test
+  void nameMatchesRankFirst() {
+    List<Hit> hits = index.search("github", 10);
+
+    assertEquals(1L, hits.getFirst().document().id());
+    assertTrue(hits.size() == 1 || hits.get(0).score() > hits.get(1).score());
+  }
+
+  @Test
+  void typosAreTolerated() {
+    assertEquals(1L, index.search("gthub", 10).getFirst().document().id());
+    assertEquals(1L, index.search("octocta", 10).getFirst().document().id());
+  }
+
+  @Test
+  void otherFieldsAndAccentsAreSearched() {
+    assertEquals(List.of(3L), ids(index.search("mybank", 10)));
+    assertEquals(List.of(2L), ids(index.search("work", 10)));
+    assertEquals(4L, index.search("cafe muller", 10).getFirst().document().id());
+  }
+
+  @Test
+  void shortQueriesMatchWordPrefixes() {
+    List<Long> hits = ids(index.search("gi", 10));
+
+    assertTrue(hits.containsAll(List.of(1L, 2L)));
+    assertTrue(!hits.contains(3L));
+  }
+
+  @Test
+  void updatesAndRemovalsAreReflected() {
+    index.put(new Document(1L, "Codeberg", "octocat", "https://codeberg.org", null));
+    index.remove(2L);
+
+    assertEquals(List.of(), ids(index.search("gitlab", 10)));
+    assertEquals(List.of(1L), ids(index.search("codeberg", 10)));
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  void renamedCategoryIsReindexed() {
+    index.putCategory(10L, "Side projects");
+
+    assertEquals(List.of(), ids(index.search("work", 10)));
+    assertEquals(List.of(2L), ids(index.search("projects", 10)));
+  }
+
+  @Test
+  void limitKeepsTheBestHits() {
+    for (long id = 100; id < 200; id++) {
+      index.put(new Document(id, "Service " + id, "user", null, null));
+    }
+
+    List<Hit> hits = index.search("service 150", 5);
+
+    assertEquals(5, hits.size());
+    assertEquals(150L, hits.getFirst().document().id());
+  }
+}
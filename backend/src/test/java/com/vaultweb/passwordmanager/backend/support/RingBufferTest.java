@@ -0,0 +1,99 @@
+package com.vaultweb.passwordmanager.backend.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class RingBufferTest {
+
+  @Test
+  void capacityIsRoundedUpToAPowerOfTwo() {
+    assertEquals(8, new RingBuffer<>(5).capacity());
+    assertEquals(1, new RingBuffer<>(1).capacity());
+    assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(0));
+  }
+
+  @Test
+  void offerFailsWhenFullAndSucceedsAgainAfterADrain() {
+    RingBuffer<Integer> buffer = new RingBuffer<>(4);
+    for (int i = 0; i < 4; i++) {
+      assertTrue(buffer.offer(i));
+    }
+    assertFalse(buffer.offer(4));
+    assertEquals(4, buffer.size());
+
+    List<Integer> taken = new ArrayList<>();
+    assertEquals(2, buffer.drain(taken::add, 2));
+    assertEquals(List.of(0, 1), taken);
+
+    assertTrue(buffer.offer(4));
+    assertTrue(buffer.offer(5));
+    assertFalse(buffer.offer(6));
+  }
+
+  @Test
+  void drainKeepsOrderAcrossLaps() {
+    RingBuffer<Integer> buffer = new RingBuffer<>(4);
+    List<Integer> taken = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      buffer.offer(i);
+      if (i % 3 == 2) {
+        buffer.drain(taken::add, 100);
+      }
+    }
+    buffer.drain(taken::add, 100);
+
+    assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), taken);
+    assertEquals(0, buffer.size());
+    assertEquals(0, buffer.drain(taken::add, 100));
+  }
+
+  @Test
+  void concurrentProducersLoseNothingWhileTheConsumerKeepsUp() throws Exception {
+    int producers = 4;
+    int perProducer = 50_000;
+    RingBuffer<Long> buffer = new RingBuffer<>(1024);
+    CountDownLatch done = new CountDownLatch(producers);
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+    try {
+      for (int p = 0; p < producers; p++) {
+        long base = (long) p << 32;
+        executor.execute(
+            () -> {
+              for (int i = 0; i < perProducer; i++) {
+                while (!buffer.offer(base + i)) {
+                  Thread.onSpinWait();
+                }
+              }
+              done.countDown();
+            });
+      }
+
+      long[] next = new long[producers];
+      int[] count = {0};
+      while (count[0] < producers * perProducer) {
+        buffer.drain(
+            value -> {
+              int producer = (int) (value >>> 32);
+              // Each producer's elements arrive in the order it offered them
+              assertEquals(next[producer]++, value & 0xffffffffL);
+              count[0]++;
+            },
+            256);
+      }
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+      assertEquals(0, buffer.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.vaultweb.passwordmanager.backend.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+
+class TotpTest {
+
+  // The seeds of RFC 6238, appendix B: "1234567890" repeated to 20, 32 and 64 bytes
+  private static final String SHA1_SEED = "GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQ";
+  private static final String SHA256_SEED =
+      "GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQGEZA====";
+  private static final String SHA512_SEED =
+      "GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQGEZDGNBVGY3T"
+          + "QOJQGEZDGNA=";
+
+  private final Totp.Engine engine = new Totp.Engine();
+
+  private String code(String uri, long epochSecond) {
+    Totp.Parameters parameters = Totp.parse(uri);
+    return Totp.format(engine.code(parameters, epochSecond), parameters.digits());
+  }
+
+  @Test
+  void matchesTheTestVectorsOfRfc6238() {
+    long[] times = {59L, 1111111109L, 1111111111L, 1234567890L, 2000000000L, 20000000000L};
+    String[][] expected = {
+      {"94287082", "07081804", "14050471", "89005924", "69279037", "65353130"},
+      {"46119246", "68084774", "67062674", "91819424", "90698825", "77737706"},
+      {"90693936", "25091201", "99943326", "93441116", "38618901", "47863826"},
+    };
+    String[] uris = {
+      "otpauth://totp/rfc?digits=8&secret=" + SHA1_SEED,
+      "otpauth://totp/rfc?digits=8&algorithm=SHA256&secret=" + SHA256_SEED,
+      "otpauth://totp/rfc?digits=8&algorithm=sha512&secret=" + SHA512_SEED,
+    };
+
+    // One engine across algorithms and keys, as the batch endpoint uses it
+    for (int i = 0; i < uris.length; i++) {
+      for (int t = 0; t < times.length; t++) {
+        assertEquals(expected[i][t], code(uris[i], times[t]), uris[i] + " at " + times[t]);
+      }
+    }
+  }
+
+  @Test
+  void bareSecretUsesTheDefaults() {
+    Totp.Parameters parameters = Totp.parse(" gezd gnbv-gy3t qojq gezd gnbv gy3t qojq ");
+
+    assertEquals(Totp.Algorithm.SHA1, parameters.algorithm());
+    assertEquals(6, parameters.digits());
+    assertEquals(30, parameters.period());
+    // The last six digits of the SHA-1 vector at 59 s
+    assertEquals("287082", Totp.format(engine.code(parameters, 59), 6));
+    assertEquals(60, parameters.nextPeriod(59));
+  }
+
+  @Test
+  void hmacMatchesTheJdkForKeysOfAnyLength() throws Exception {
+    Random random = new Random(42);
+    for (Totp.Algorithm algorithm : Totp.Algorithm.values()) {
+      for (int keyLength : new int[] {1, 20, 64, 65, 128}) {
+        byte[] key = new byte[keyLength];
+        random.nextBytes(key);
+        long step = random.nextLong(1L << 40);
+
+        Mac mac = Mac.getInstance("Hmac" + algorithm.name());
+        mac.init(new SecretKeySpec(key, "Hmac" + algorithm.name()));
+        byte[] hash = mac.doFinal(ByteBuffer.allocate(8).putLong(step).array());
+        int offset = hash[hash.length - 1] & 0x0f;
+        int expected = (ByteBuffer.wrap(hash, offset, 4).getInt() & 0x7fffffff) % 100_000_000;
+
+        Totp.Parameters parameters = new Totp.Parameters(key, algorithm, 8, 30);
+        assertEquals(expected, engine.code(parameters, step * 30), algorithm + " key " + keyLength);
+      }
+    }
+  }
+
+  @Test
+  void invalidSecretsAreRejected() {
+    assertThrows(IllegalArgumentException.class, () -> Totp.parse("not base32!"));
+    assertThrows(IllegalArgumentException.class, () -> Totp.parse("   "));
+    assertThrows(IllegalArgumentException.class, () -> Totp.parse("A".repeat(300)));
+    assertThrows(IllegalArgumentException.class, () -> Totp.parse("otpauth://hotp/x?secret=AAAA"));
+    assertThrows(IllegalArgumentException.class, () -> Totp.parse("otpauth://totp/x?digits=6"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> Totp.parse("otpauth://totp/x?secret=" + SHA1_SEED + "&digits=10"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> Totp.parse("otpauth://totp/x?secret=" + SHA1_SEED + "&algorithm=MD5"));
+  }
+}